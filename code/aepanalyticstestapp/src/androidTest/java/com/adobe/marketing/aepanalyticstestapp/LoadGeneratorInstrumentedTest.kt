@@ -0,0 +1,115 @@
+package com.adobe.marketing.aepanalyticstestapp
+
+import android.app.Application
+import android.os.Bundle
+import android.support.test.InstrumentationRegistry
+import android.support.test.runner.AndroidJUnit4
+import android.util.Log
+import com.adobe.marketing.mobile.Analytics
+import com.adobe.marketing.mobile.Edge
+import com.adobe.marketing.mobile.Identity
+import com.adobe.marketing.mobile.LoggingMode
+import com.adobe.marketing.mobile.MobileCore
+
+import org.junit.Test
+import org.junit.runner.RunWith
+
+import org.junit.Assert.*
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+/**
+ * Runs the [LoadGenerator] headless, without the activity, so load runs can be scripted:
+ *
+ * ```
+ * ./code/gradlew -p code/aepanalyticstestapp connectedAndroidTest \
+ *     -Pandroid.testInstrumentationRunnerArguments.class=com.adobe.marketing.aepanalyticstestapp.LoadGeneratorInstrumentedTest \
+ *     -Pandroid.testInstrumentationRunnerArguments.threads=8 \
+ *     -Pandroid.testInstrumentationRunnerArguments.rate=500
+ * ```
+ *
+ * The `threads`, `rate`, `contextDataSize`, `duration`, `stateWeight`, `actionWeight` and `rulesWeight` arguments
+ * override the [LoadConfig] defaults. The report is logged with the `LoadGenerator` tag and sent as the
+ * instrumentation status.
+ */
+@RunWith(AndroidJUnit4::class)
+class LoadGeneratorInstrumentedTest {
+
+    @Test
+    fun runLoad() {
+        // setup
+        startSdk()
+        val config = readConfig(InstrumentationRegistry.getArguments())
+        val generator = LoadGenerator(config)
+        Log.i(LOG_TAG, "Starting $config")
+
+        // test
+        generator.start()
+        assertTrue(generator.awaitCompletion(TimeUnit.SECONDS.toMillis(config.durationSeconds.toLong()) + RUN_TIMEOUT_MILLIS))
+        val report = awaitDrained(generator)
+
+        // verify
+        Log.i(LOG_TAG, "Load run report:\n$report")
+        val status = Bundle()
+        status.putString("report", report.toString())
+        InstrumentationRegistry.getInstrumentation().sendStatus(0, status)
+        assertTrue(report.accepted > 0)
+        assertTrue(report.processed > 0)
+    }
+
+    private fun startSdk() {
+        val application = InstrumentationRegistry.getTargetContext().applicationContext as Application
+        MobileCore.setApplication(application)
+        MobileCore.setLogLevel(LoggingMode.ERROR)
+
+        Analytics.registerExtension()
+        Identity.registerExtension()
+        Edge.registerExtension()
+
+        val started = CountDownLatch(1)
+        MobileCore.start {
+            MobileCore.updateConfiguration(mapOf<String, Any>("global.privacy" to "optedin"))
+            started.countDown()
+        }
+        assertTrue(started.await(RUN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS))
+    }
+
+    /**
+     * Waits for the queued events to be processed, so the report counts all the accepted hits.
+     */
+    private fun awaitDrained(generator: LoadGenerator): LoadReport {
+        val deadline = System.currentTimeMillis() + RUN_TIMEOUT_MILLIS
+        var report = LoadReport.create(generator)
+
+        while (report.processed < report.accepted && System.currentTimeMillis() < deadline) {
+            Thread.sleep(DRAIN_POLL_MILLIS)
+            report = LoadReport.create(generator)
+        }
+
+        return report
+    }
+
+    private fun readConfig(arguments: Bundle): LoadConfig {
+        val defaults = LoadConfig()
+        return LoadConfig(
+                producerThreads = readInt(arguments, "threads", defaults.producerThreads),
+                targetRate = readInt(arguments, "rate", defaults.targetRate),
+                contextDataSize = readInt(arguments, "contextDataSize", defaults.contextDataSize),
+                durationSeconds = readInt(arguments, "duration", DEFAULT_DURATION_SECONDS),
+                trackStateWeight = readInt(arguments, "stateWeight", defaults.trackStateWeight),
+                trackActionWeight = readInt(arguments, "actionWeight", defaults.trackActionWeight),
+                rulesWeight = readInt(arguments, "rulesWeight", defaults.rulesWeight)
+        )
+    }
+
+    private fun readInt(arguments: Bundle, key: String, defaultValue: Int): Int {
+        return arguments.getString(key)?.toIntOrNull() ?: defaultValue
+    }
+
+    companion object {
+        private const val LOG_TAG = "LoadGenerator"
+        private const val DEFAULT_DURATION_SECONDS = 10
+        private const val RUN_TIMEOUT_MILLIS = 30000L
+        private const val DRAIN_POLL_MILLIS = 500L
+    }
+}
@@ -6,6 +6,7 @@ import android.view.LayoutInflater
 import android.view.View
 import android.view.ViewGroup
 import android.widget.Button
+import androidx.navigation.fragment.findNavController
 import com.adobe.marketing.mobile.MobileCore
 import com.adobe.marketing.mobile.MobilePrivacyStatus
 
@@ -30,6 +31,7 @@ class DefaultFragment : Fragment() {
         var sendTrackStateButton = view.findViewById<Button>(R.id.send_track_state)
         var setPrivacyOptedOutButton = view.findViewById<Button>(R.id.privacy_opt_out)
         var setPrivacyOptedInButton = view.findViewById<Button>(R.id.privacy_opt_in)
+        var loadGeneratorButton = view.findViewById<Button>(R.id.load_generator)
 
         val contextData = mutableMapOf<String, String>()
         contextData["key1"] = "value1"
@@ -50,5 +52,9 @@ class DefaultFragment : Fragment() {
         setPrivacyOptedInButton.setOnClickListener {
             MobileCore.setPrivacyStatus(MobilePrivacyStatus.OPT_IN)
         }
+
+        loadGeneratorButton.setOnClickListener {
+            findNavController().navigate(R.id.action_FirstFragment_to_LoadFragment)
+        }
     }
 }
@@ -0,0 +1,95 @@
+package com.adobe.marketing.aepanalyticstestapp
+
+import android.os.Bundle
+import android.support.v4.app.Fragment
+import android.view.LayoutInflater
+import android.view.View
+import android.view.ViewGroup
+import android.widget.Button
+import android.widget.EditText
+import android.widget.TextView
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.TimeUnit
+
+/**
+ * A [Fragment] which runs the [LoadGenerator] with the entered settings and shows a live panel of the accepted,
+ * dispatched and dropped hits and of their latency.
+ */
+class LoadFragment : Fragment() {
+
+    private var generator: LoadGenerator? = null
+    private var panelExecutor: ScheduledExecutorService? = null
+
+    override fun onCreateView(
+            inflater: LayoutInflater, container: ViewGroup?,
+            savedInstanceState: Bundle?
+    ): View? {
+
+        // Inflate the layout for this fragment
+        return inflater.inflate(R.layout.load_fragment_layout, container, false)
+    }
+
+    override fun onViewCreated(view: View, savedInstanceState: Bundle?) {
+        super.onViewCreated(view, savedInstanceState)
+        val startStopButton = view.findViewById<Button>(R.id.load_start_stop)
+        val panel = view.findViewById<TextView>(R.id.load_panel)
+
+        startStopButton.setOnClickListener {
+            val currentGenerator = generator
+
+            if (currentGenerator != null && currentGenerator.isRunning) {
+                currentGenerator.stop()
+                startStopButton.setText(R.string.load_start)
+                return@setOnClickListener
+            }
+
+            val newGenerator = LoadGenerator(readConfig(view))
+            generator = newGenerator
+            newGenerator.start()
+            startStopButton.setText(R.string.load_stop)
+        }
+
+        // refreshes the panel off the main thread, reading the metrics waits on the event hub
+        val executor = Executors.newSingleThreadScheduledExecutor()
+        executor.scheduleWithFixedDelay({
+            val currentGenerator = generator ?: return@scheduleWithFixedDelay
+            val report = LoadReport.create(currentGenerator)
+            panel.post {
+                panel.text = report.toString()
+                if (!currentGenerator.isRunning) {
+                    startStopButton.setText(R.string.load_start)
+                }
+            }
+        }, PANEL_REFRESH_MILLIS, PANEL_REFRESH_MILLIS, TimeUnit.MILLISECONDS)
+        panelExecutor = executor
+    }
+
+    override fun onDestroyView() {
+        super.onDestroyView()
+        panelExecutor?.shutdownNow()
+        panelExecutor = null
+        generator?.stop()
+    }
+
+    private fun readConfig(view: View): LoadConfig {
+        val defaults = LoadConfig()
+        return LoadConfig(
+                producerThreads = readInt(view, R.id.load_threads, defaults.producerThreads),
+                targetRate = readInt(view, R.id.load_rate, defaults.targetRate),
+                contextDataSize = readInt(view, R.id.load_context_data_size, defaults.contextDataSize),
+                durationSeconds = readInt(view, R.id.load_duration, defaults.durationSeconds),
+                trackStateWeight = readInt(view, R.id.load_state_weight, defaults.trackStateWeight),
+                trackActionWeight = readInt(view, R.id.load_action_weight, defaults.trackActionWeight),
+                rulesWeight = readInt(view, R.id.load_rules_weight, defaults.rulesWeight)
+        )
+    }
+
+    private fun readInt(view: View, id: Int, defaultValue: Int): Int {
+        return view.findViewById<EditText>(id).text.toString().toIntOrNull() ?: defaultValue
+    }
+
+    companion object {
+        private const val PANEL_REFRESH_MILLIS = 1000L
+    }
+}
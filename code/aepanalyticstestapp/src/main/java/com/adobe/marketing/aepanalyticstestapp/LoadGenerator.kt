@@ -0,0 +1,195 @@
+package com.adobe.marketing.aepanalyticstestapp
+
+import com.adobe.marketing.mobile.Event
+import com.adobe.marketing.mobile.MobileCore
+import java.util.Random
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.locks.LockSupport
+
+/**
+ * The settings of a load generator run.
+ *
+ * @property producerThreads the number of threads sending hits
+ * @property targetRate the total number of hits sent per second, 0 to send as fast as possible
+ * @property contextDataSize the number of context data entries of each hit
+ * @property durationSeconds the duration of the run, 0 to run until stopped
+ * @property trackStateWeight the relative share of trackState hits
+ * @property trackActionWeight the relative share of trackAction hits
+ * @property rulesWeight the relative share of hits triggered by a rules engine consequence
+ */
+data class LoadConfig(
+        val producerThreads: Int = 4,
+        val targetRate: Int = 100,
+        val contextDataSize: Int = 10,
+        val durationSeconds: Int = 60,
+        val trackStateWeight: Int = 1,
+        val trackActionWeight: Int = 1,
+        val rulesWeight: Int = 1
+)
+
+/**
+ * Sends a sustained mix of trackState, trackAction and rules triggered hits through the Mobile Core, from
+ * [LoadConfig.producerThreads] threads at a combined [LoadConfig.targetRate].
+ *
+ * The hits triggered by rules are sent as the rules engine response events a rule with an Analytics consequence
+ * dispatches, so no rule has to be configured. Each hit carries a unique sequence number in its context data, so
+ * none is suppressed by the dedupe window. The generator does not depend on a view, so it also runs headless from
+ * the LoadGeneratorInstrumentedTest instrumentation test.
+ */
+class LoadGenerator(val config: LoadConfig) {
+
+    private val running = AtomicBoolean()
+    private val sequence = AtomicLong()
+    private var completion = CountDownLatch(0)
+    private var threads = emptyList<Thread>()
+
+    /** The number of hits accepted by the Mobile Core. */
+    val accepted = AtomicLong()
+
+    /** The number of each kind of hit sent. */
+    val trackStates = AtomicLong()
+    val trackActions = AtomicLong()
+    val rulesTriggered = AtomicLong()
+
+    /** The time the run started, in milliseconds. */
+    @Volatile
+    var startTimeMillis = 0L
+        private set
+
+    /** The time the run ended, in milliseconds, or 0 while it is in progress. */
+    @Volatile
+    var endTimeMillis = 0L
+        private set
+
+    val isRunning: Boolean
+        get() = running.get()
+
+    /**
+     * Starts the producer threads, unless a run is in progress.
+     */
+    fun start() {
+        if (!running.compareAndSet(false, true)) {
+            return
+        }
+
+        accepted.set(0)
+        trackStates.set(0)
+        trackActions.set(0)
+        rulesTriggered.set(0)
+        startTimeMillis = System.currentTimeMillis()
+        endTimeMillis = 0L
+        val producerThreads = Math.max(config.producerThreads, 1)
+        // the interval between two hits of a producer, the producers share the target rate
+        val intervalNanos = if (config.targetRate > 0) TimeUnit.SECONDS.toNanos(producerThreads.toLong()) / config.targetRate else 0L
+        val endTimeNanos = if (config.durationSeconds > 0) System.nanoTime() + TimeUnit.SECONDS.toNanos(config.durationSeconds.toLong()) else Long.MAX_VALUE
+        completion = CountDownLatch(producerThreads)
+        threads = (0 until producerThreads).map { index ->
+            Thread({ produce(index, intervalNanos, endTimeNanos) }, "LoadGenerator-$index")
+        }
+        threads.forEach { it.start() }
+    }
+
+    /**
+     * Stops the producer threads and waits for them to finish.
+     */
+    fun stop() {
+        running.set(false)
+        threads.forEach { it.join() }
+    }
+
+    /**
+     * Waits for the run to end.
+     *
+     * @param timeoutMillis the maximum time to wait
+     * @return true if the run ended
+     */
+    fun awaitCompletion(timeoutMillis: Long): Boolean {
+        return completion.await(timeoutMillis, TimeUnit.MILLISECONDS)
+    }
+
+    private fun produce(index: Int, intervalNanos: Long, endTimeNanos: Long) {
+        val random = Random(index.toLong())
+        val totalWeight = Math.max(config.trackStateWeight + config.trackActionWeight + config.rulesWeight, 1)
+        var nextTimeNanos = System.nanoTime()
+
+        try {
+            while (running.get() && nextTimeNanos < endTimeNanos) {
+                if (intervalNanos > 0) {
+                    val delayNanos = nextTimeNanos - System.nanoTime()
+                    if (delayNanos > 0) {
+                        LockSupport.parkNanos(delayNanos)
+                    }
+                    nextTimeNanos += intervalNanos
+                } else {
+                    nextTimeNanos = System.nanoTime()
+                }
+
+                val contextData = createContextData(sequence.incrementAndGet())
+                val pick = random.nextInt(totalWeight)
+
+                when {
+                    pick < config.trackStateWeight -> {
+                        MobileCore.trackState("load state ${random.nextInt(STATE_COUNT)}", contextData)
+                        trackStates.incrementAndGet()
+                    }
+                    pick < config.trackStateWeight + config.trackActionWeight -> {
+                        MobileCore.trackAction("load action ${random.nextInt(ACTION_COUNT)}", contextData)
+                        trackActions.incrementAndGet()
+                    }
+                    else -> {
+                        MobileCore.dispatchEvent(createRulesConsequenceEvent(random.nextInt(ACTION_COUNT), contextData), null)
+                        rulesTriggered.incrementAndGet()
+                    }
+                }
+
+                accepted.incrementAndGet()
+            }
+        } finally {
+            completion.countDown()
+            if (completion.count == 0L) {
+                endTimeMillis = System.currentTimeMillis()
+                running.set(false)
+            }
+        }
+    }
+
+    private fun createContextData(sequenceNumber: Long): Map<String, String> {
+        val contextData = HashMap<String, String>(config.contextDataSize * 2)
+
+        for (i in 0 until config.contextDataSize - 1) {
+            contextData["load.key$i"] = "value$i"
+        }
+
+        if (config.contextDataSize > 0) {
+            contextData[SEQUENCE_KEY] = sequenceNumber.toString()
+        }
+
+        return contextData
+    }
+
+    private fun createRulesConsequenceEvent(actionIndex: Int, contextData: Map<String, String>): Event {
+        val detail = mapOf<String, Any>(
+                "action" to "load rule action $actionIndex",
+                "contextdata" to contextData
+        )
+        val consequence = mapOf<String, Any>(
+                "id" to "loadRuleConsequence",
+                "type" to "an",
+                "detail" to detail
+        )
+        return Event.Builder("Rules Consequence Event", RULES_ENGINE_EVENT_TYPE, RESPONSE_CONTENT_EVENT_SOURCE)
+                .setEventData(mapOf<String, Any>("triggeredconsequence" to consequence))
+                .build()
+    }
+
+    companion object {
+        const val SEQUENCE_KEY = "load.sequence"
+        private const val STATE_COUNT = 20
+        private const val ACTION_COUNT = 20
+        private const val RULES_ENGINE_EVENT_TYPE = "com.adobe.eventtype.rulesengine"
+        private const val RESPONSE_CONTENT_EVENT_SOURCE = "com.adobe.eventsource.responsecontent"
+    }
+}
@@ -0,0 +1,91 @@
+package com.adobe.marketing.aepanalyticstestapp
+
+import com.adobe.marketing.mobile.Analytics
+import java.util.Locale
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+/**
+ * A snapshot of a load generator run, combining the counts of the [LoadGenerator] with the metrics and event queue
+ * statistics of the Analytics extension.
+ *
+ * The latency is the time from the track call to the hit being handed to the Edge extension.
+ */
+data class LoadReport(
+        val elapsedMillis: Long,
+        val accepted: Long,
+        val processed: Long,
+        val dispatched: Long,
+        val dropped: Long,
+        val queued: Long,
+        val latencyP50Millis: Long,
+        val latencyP95Millis: Long,
+        val latencyP99Millis: Long
+) {
+
+    /** The number of hits accepted per second. */
+    val acceptedRate: Double
+        get() = if (elapsedMillis > 0) accepted * 1000.0 / elapsedMillis else 0.0
+
+    /** The number of hits dispatched per second. */
+    val dispatchedRate: Double
+        get() = if (elapsedMillis > 0) dispatched * 1000.0 / elapsedMillis else 0.0
+
+    override fun toString(): String {
+        return String.format(Locale.US,
+                "accepted:   %d (%.1f/s)%n" +
+                        "processed:  %d%n" +
+                        "dispatched: %d (%.1f/s)%n" +
+                        "dropped:    %d%n" +
+                        "queued:     %d%n" +
+                        "latency:    p50 %d ms, p95 %d ms, p99 %d ms",
+                accepted, acceptedRate, processed, dispatched, dispatchedRate, dropped, queued,
+                latencyP50Millis, latencyP95Millis, latencyP99Millis)
+    }
+
+    companion object {
+        private const val METRICS_TIMEOUT_MILLIS = 5000L
+        // drop counters of the Analytics.getMetrics and Analytics.getEventQueueStatistics maps
+        private val DROP_KEYS = listOf("eventsdroppedoptout", "eventsdroppedmissingdata", "eventssampledout",
+                "hitssuppressed", "hitsdroppedoversize",
+                "eventsdroppedoldest", "eventsdroppednewest")
+
+        /**
+         * Reads the metrics of the Analytics extension and builds the report of the given run. Must not be called
+         * from the main thread, as it waits on the metrics.
+         *
+         * @param generator the [LoadGenerator] of the run
+         * @return the [LoadReport]
+         */
+        fun create(generator: LoadGenerator): LoadReport {
+            val metrics = HashMap<String, Long>()
+            val latch = CountDownLatch(2)
+
+            Analytics.getMetrics { values ->
+                synchronized(metrics) { values?.let { metrics.putAll(it) } }
+                latch.countDown()
+            }
+            Analytics.getEventQueueStatistics { values ->
+                synchronized(metrics) { values?.let { metrics.putAll(it) } }
+                latch.countDown()
+            }
+            latch.await(METRICS_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)
+
+            val endTimeMillis = if (generator.endTimeMillis > 0) generator.endTimeMillis else System.currentTimeMillis()
+
+            synchronized(metrics) {
+                return LoadReport(
+                        elapsedMillis = if (generator.startTimeMillis > 0) endTimeMillis - generator.startTimeMillis else 0L,
+                        accepted = generator.accepted.get(),
+                        processed = metrics["eventsprocessed"] ?: 0L,
+                        dispatched = metrics["hitsdispatched"] ?: 0L,
+                        dropped = DROP_KEYS.map { metrics[it] ?: 0L }.sum(),
+                        queued = metrics["eventqueuesize"] ?: 0L,
+                        latencyP50Millis = metrics["eventlatencyp50ms"] ?: 0L,
+                        latencyP95Millis = metrics["eventlatencyp95ms"] ?: 0L,
+                        latencyP99Millis = metrics["eventlatencyp99ms"] ?: 0L
+                )
+            }
+        }
+    }
+}
@@ -12,6 +12,9 @@
 
 package com.adobe.marketing.mobile;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import static com.adobe.marketing.mobile.AnalyticsConstants.EXTENSION_VERSION;
 import static com.adobe.marketing.mobile.AnalyticsConstants.LOG_TAG;
 
@@ -50,6 +53,9 @@ public final class Analytics {
     /**
      * Clears all hits from the tracking queue and removes them from the database.
      *
+     * <p>
+     * Each hit is sent to the Edge as soon as it is built, so there are no hits to clear and the call is only logged.
+     *
      */
     public static void clearQueue() {
         Log.error(AnalyticsConstants.LOG_TAG, "clearQueue API will not be supported with Edge");
@@ -58,6 +64,10 @@ public final class Analytics {
     /**
      * Retrieves the total number of analytics hits currently in the tracking queue.
      *
+     * <p>
+     * Each hit is sent to the Edge as soon as it is built, so there is no queue: the callback fails with
+     * {@link AdobeError#UNEXPECTED_ERROR}, or is called with 0 if it is not an {@link AdobeCallbackWithError}.
+     *
      * @param callback {@code AdobeCallback} invoked with the queue size {@code long} value;
      * when an {@link AdobeCallbackWithError} is provided, an {@link AdobeError} can be returned in the
      * eventuality of an unexpected error or if the default timeout (5000ms) is met before the callback is returned with queue size.
@@ -79,6 +89,54 @@ public final class Analytics {
         }
     }
 
+    /**
+     * Retrieves the statistics of the queue holding the events waiting to be processed by the Analytics extension.
+     *
+     * <p>
+     * The statistics map contains the number of queued events ({@code eventqueuesize}), their estimated size in bytes
+     * ({@code eventqueuebytes}), the number of events dropped because the queue was full ({@code eventsdroppedoldest}
+     * and {@code eventsdroppednewest}) and the number of events spilled to disk ({@code eventsspilled}).
+     *
+     * @param callback {@code AdobeCallback} invoked with the statistics {@code Map<String, Long>};
+     * when an {@link AdobeCallbackWithError} is provided, an {@link AdobeError} can be returned in the
+     * eventuality of an unexpected error or if the default timeout (5000ms) is met before the callback is returned with the statistics.
+     *
+     */
+    public static void getEventQueueStatistics(final AdobeCallback<Map<String, Long>> callback) {
+        dispatchStatisticsRequest("getEventQueueStatistics", AnalyticsConstants.EventNames.GET_EVENT_QUEUE_STATISTICS,
+                AnalyticsConstants.EventDataKeys.GET_EVENT_QUEUE_STATISTICS, callback);
+    }
+
+    /**
+     * Retrieves the runtime metrics of the Analytics extension.
+     *
+     * <p>
+     * The metrics map contains the event counters ({@code eventsqueued}, {@code eventsprocessed},
+     * {@code eventsdroppedoptout}, {@code eventsdroppedmissingdata} and {@code eventssampledout}), the number of context data keys filtered
+     * out by the configured allowlist and denylist ({@code contextdatakeysfiltered}), the number of context data entries
+     * dropped or truncated by the configured limits ({@code contextdatatruncated}), the hit counters
+     * ({@code hitsdispatched}, {@code hitssuppressed}, {@code hitsdroppedoversize} and {@code hitsdispatchedpersecond},
+     * over the last 10 seconds), the current depth of the event queue ({@code eventqueuesize}), the time since
+     * the extension was registered ({@code uptimems}), the time spent registering the extension and the time spent
+     * loading the stored identifiers off the registration path ({@code registrationus} and {@code identifierloadus},
+     * in microseconds) and the
+     * {@code count}, {@code totalms}, {@code p50ms}, {@code p95ms} and {@code p99ms} of the time events waited before
+     * being processed ({@code eventlatency} prefix), of the time spent waiting on a pending configuration
+     * ({@code configwait} prefix) and, for the hits of the track and rules events, of the time the event waited in the
+     * event queue ({@code trackqueuewait} and {@code rulesqueuewait} prefixes), of the time spent processing it
+     * ({@code trackprocessing} and {@code rulesprocessing} prefixes) and of the total time from the track request to
+     * the dispatch of the hit ({@code tracktotal} and {@code rulestotal} prefixes).
+     *
+     * @param callback {@code AdobeCallback} invoked with the metrics {@code Map<String, Long>};
+     * when an {@link AdobeCallbackWithError} is provided, an {@link AdobeError} can be returned in the
+     * eventuality of an unexpected error or if the default timeout (5000ms) is met before the callback is returned with the metrics.
+     *
+     */
+    public static void getMetrics(final AdobeCallback<Map<String, Long>> callback) {
+        dispatchStatisticsRequest("getMetrics", AnalyticsConstants.EventNames.GET_METRICS,
+                AnalyticsConstants.EventDataKeys.GET_METRICS, callback);
+    }
+
     /**
      * Retrieves the analytics tracking identifier generated for this app/device instance.
      *
@@ -127,6 +185,9 @@ public final class Analytics {
 
     /**
      * Forces analytics to send all queued hits regardless of current batch options.
+     *
+     * <p>
+     * Each hit is sent to the Edge as soon as it is built, so there are no hits to send and the call is only logged.
      */
     public static void sendQueuedHits() {
         Log.error(AnalyticsConstants.LOG_TAG, "sendQueuedHits API will not be supported with Edge");
@@ -139,4 +200,62 @@ public final class Analytics {
     public static void setVisitorIdentifier(final String visitorID) {
         Log.error(AnalyticsConstants.LOG_TAG, "setVisitorIdentifier API will not be supported with Edge");
     }
+
+    /**
+     * Dispatches an Analytics Request Content event and returns the numeric values of the response event data.
+     *
+     * @param apiName the name of the public API, used for logging
+     * @param eventName the name of the request event
+     * @param requestKey the event data key identifying the request
+     * @param callback {@code AdobeCallback} invoked with the response values
+     */
+    private static void dispatchStatisticsRequest(final String apiName, final String eventName, final String requestKey,
+                                                  final AdobeCallback<Map<String, Long>> callback) {
+        if (callback == null) {
+            Log.debug(AnalyticsConstants.LOG_TAG, "%s - Callback is null, ignoring the request.", apiName);
+            return;
+        }
+
+        final AdobeCallbackWithError adobeCallbackWithError = callback instanceof AdobeCallbackWithError ?
+                (AdobeCallbackWithError)callback : null;
+
+        final Map<String, Object> eventData = new HashMap<>();
+        eventData.put(requestKey, true);
+        final Event event = new Event.Builder(eventName, EventType.ANALYTICS, EventSource.REQUEST_CONTENT).setEventData(eventData).build();
+
+        MobileCore.dispatchEventWithResponseCallback(event, new AdobeCallbackWithError<Event>() {
+            @Override
+            public void fail(final AdobeError adobeError) {
+                if (adobeCallbackWithError != null) {
+                    adobeCallbackWithError.fail(adobeError);
+                }
+            }
+
+            @Override
+            public void call(final Event responseEvent) {
+                final Map<String, Object> responseData = responseEvent == null ? null : responseEvent.getEventData();
+                final Map<String, Long> statistics = new HashMap<>();
+
+                if (responseData != null) {
+                    for (Map.Entry<String, Object> entry : responseData.entrySet()) {
+                        if (entry.getValue() instanceof Number) {
+                            statistics.put(entry.getKey(), ((Number) entry.getValue()).longValue());
+                        }
+                    }
+                }
+
+                callback.call(statistics);
+            }
+        }, new ExtensionErrorCallback<ExtensionError>() {
+            @Override
+            public void error(final ExtensionError extensionError) {
+                Log.debug(AnalyticsConstants.LOG_TAG, "%s - Failed to dispatch the request event: %s", apiName,
+                        extensionError.getErrorName());
+
+                if (adobeCallbackWithError != null) {
+                    adobeCallbackWithError.fail(AdobeError.UNEXPECTED_ERROR);
+                }
+            }
+        });
+    }
 }
@@ -0,0 +1,645 @@
+/*
+  Copyright 2021 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.adobe.marketing.mobile.AnalyticsConstants.LOG_TAG;
+
+/**
+ * Bounded queue of the events waiting to be processed by the {@link AnalyticsExtension}.
+ *
+ * <p>
+ * Events are held in an {@link AnalyticsRingBuffer}: they may be added from any thread without locking, and are
+ * read and removed by the extension executor only.
+ *
+ * <p>
+ * The queue is capped by a number of events and by the estimated heap size of their data. When adding an event
+ * would exceed either cap, the {@link OverflowPolicy} decides which event is given up: the oldest queued event, the
+ * new event, or, with {@link OverflowPolicy#SPILL_TO_DISK}, none as the new events are written to an
+ * {@link AnalyticsHitQueue} until the queued events were processed. Spilled events are read back in order once the
+ * events held in memory were processed, with their original unique identifier. The number of events given up is
+ * kept for the application to read. Only track events are given up by {@link OverflowPolicy#DROP_OLDEST}, the
+ * configuration and rules events are kept as they change how the following events are processed.
+ *
+ * <p>
+ * Events are only written to disk by the consumer thread, so adding an event never blocks: the events to spill are
+ * handed over through a second, smaller ring buffer, and are dropped if it is full. The spill queue is only accessed
+ * by the consumer thread.
+ *
+ * <p>
+ * Walking the event data to estimate its size would be done on the thread adding the event, so events are added
+ * with a running average of the size of the events, which the consumer thread updates from the events it removes.
+ *
+ * <p>
+ * Each event keeps the time it entered the queue, read back with {@link #getEntryTime(int)}, so the time it waited
+ * to be processed can be measured.
+ */
+class AnalyticsEventQueue {
+    private static final int EVENT_OVERHEAD_BYTES = 256;
+    private static final int OBJECT_OVERHEAD_BYTES = 16;
+    private static final int STRING_OVERHEAD_BYTES = 40;
+    private static final int MAP_OVERHEAD_BYTES = 48;
+    private static final int MAP_ENTRY_OVERHEAD_BYTES = 32;
+    private static final int LIST_OVERHEAD_BYTES = 40;
+    private static final int REFERENCE_BYTES = 8;
+
+    private static final String RECORD_NAME = "name";
+    private static final String RECORD_TYPE = "type";
+    private static final String RECORD_SOURCE = "source";
+    private static final String RECORD_NUMBER = "number";
+    private static final String RECORD_TIMESTAMP = "timestamp";
+    private static final String RECORD_DATA = "data";
+    private static final String RECORD_ENTRY_TIME = "entrytime";
+    private static final String RECORD_ID = "id";
+
+    static final long INITIAL_EVENT_BYTES = 512;
+    // weight of a new size in the running average of the event size, as a power of 2
+    private static final int EVENT_BYTES_AVERAGE_SHIFT = 3;
+
+    static final OverflowPolicy DEFAULT_OVERFLOW_POLICY = OverflowPolicy.DROP_OLDEST;
+
+    /**
+     * Decides which event is given up when the queue is full.
+     */
+    enum OverflowPolicy {
+        DROP_OLDEST("dropoldest"),
+        DROP_NEWEST("dropnewest"),
+        SPILL_TO_DISK("spilltodisk");
+
+        private final String value;
+
+        OverflowPolicy(final String value) {
+            this.value = value;
+        }
+
+        /**
+         * Returns the {@link OverflowPolicy} for the given configuration value.
+         *
+         * @param value the configuration value
+         * @param defaultPolicy the policy returned if {@code value} is not a known policy
+         * @return the matching {@link OverflowPolicy}
+         */
+        static OverflowPolicy fromString(final String value, final OverflowPolicy defaultPolicy) {
+            for (OverflowPolicy policy : values()) {
+                if (policy.value.equalsIgnoreCase(value)) {
+                    return policy;
+                }
+            }
+
+            return defaultPolicy;
+        }
+    }
+
+    private final AnalyticsRingBuffer<Event> ringBuffer;
+    // events added while the queue is full, to be spilled by the consumer thread
+    private final AnalyticsRingBuffer<Event> overflowBuffer;
+    private final AnalyticsHitQueue spillQueue;
+    private volatile int maxEvents = AnalyticsConstants.DEFAULT_EVENT_QUEUE_MAX_EVENTS;
+    private volatile long maxBytes = AnalyticsConstants.DEFAULT_EVENT_QUEUE_MAX_BYTES;
+    private volatile OverflowPolicy overflowPolicy = DEFAULT_OVERFLOW_POLICY;
+    private volatile int spilledPendingCount; // spilled events not read back yet, written by the consumer thread
+    private boolean spillQueueReset; // consumer thread only
+    private volatile long averageEventBytes = INITIAL_EVENT_BYTES; // written by the consumer thread
+    // control events taken out of the ring buffer by DROP_OLDEST, ahead of the ring buffer events; consumer thread only
+    private final ArrayDeque<Event> heldEvents = new ArrayDeque<>();
+    private final ArrayDeque<Long> heldEntryTimes = new ArrayDeque<>();
+    private volatile int heldCount;
+    // original unique identifiers of the events read back from the spill queue; consumer thread only
+    private final Map<Event, String> restoredIdentifiers = new IdentityHashMap<>();
+    private final AtomicLong droppedOldestCount = new AtomicLong();
+    private final AtomicLong droppedNewestCount = new AtomicLong();
+    private final AtomicLong spilledCount = new AtomicLong();
+
+    /**
+     * Constructor.
+     *
+     * @param spillQueue the {@link AnalyticsHitQueue} events are spilled to, or null if events cannot be spilled
+     */
+    AnalyticsEventQueue(final AnalyticsHitQueue spillQueue) {
+        this.ringBuffer = new AnalyticsRingBuffer<>(AnalyticsConstants.EVENT_QUEUE_CAPACITY);
+        this.overflowBuffer = new AnalyticsRingBuffer<>(AnalyticsConstants.EVENT_QUEUE_OVERFLOW_CAPACITY);
+        this.spillQueue = spillQueue;
+    }
+
+    /**
+     * Updates the caps of the queue. Events already queued are kept even if they exceed the new caps.
+     *
+     * <p>
+     * The number of events is capped to half the capacity of the ring buffer, leaving room for the events added
+     * before the oldest events are dropped with {@link OverflowPolicy#DROP_OLDEST}.
+     *
+     * @param maxEvents the maximum number of events held in memory
+     * @param maxBytes the maximum estimated size in bytes of the events held in memory
+     * @param overflowPolicy the {@link OverflowPolicy} applied when a cap is reached
+     */
+    void setOptions(final int maxEvents, final long maxBytes, final OverflowPolicy overflowPolicy) {
+        final int maxEventsLimit = ringBuffer.capacity() / 2;
+        if (maxEvents > maxEventsLimit) {
+            Log.debug(LOG_TAG, "AnalyticsEventQueue - Event queue is limited to %d events.", maxEventsLimit);
+        }
+
+        this.maxEvents = maxEvents > 0 ? Math.min(maxEvents, maxEventsLimit) : AnalyticsConstants.DEFAULT_EVENT_QUEUE_MAX_EVENTS;
+        this.maxBytes = maxBytes > 0 ? maxBytes : AnalyticsConstants.DEFAULT_EVENT_QUEUE_MAX_BYTES;
+        this.overflowPolicy = overflowPolicy != null ? overflowPolicy : DEFAULT_OVERFLOW_POLICY;
+    }
+
+    /**
+     * Adds an event at the end of the queue, applying the {@link OverflowPolicy} if the queue is full.
+     * May be called from any thread.
+     *
+     * <p>
+     * With {@link OverflowPolicy#DROP_OLDEST}, the event is added and the oldest events are dropped the next time
+     * the queue is read. With {@link OverflowPolicy#SPILL_TO_DISK}, the event is written to disk the next time the
+     * queue is read.
+     *
+     * @param event the {@link Event} to queue
+     * @return true if the event was queued or spilled, false if it was dropped
+     */
+    boolean add(final Event event) {
+        return add(event, System.nanoTime());
+    }
+
+    /**
+     * Adds an event at the end of the queue, along with the time it was received. May be called from any thread.
+     *
+     * @param event the {@link Event} to queue
+     * @param entryTimeNanos the {@link System#nanoTime()} the event was received at
+     * @return true if the event was queued or spilled, false if it was dropped
+     * @see #add(Event)
+     */
+    boolean add(final Event event, final long entryTimeNanos) {
+        if (event == null) {
+            return false;
+        }
+
+        // events spilled earlier have to be processed first, so the new ones follow them; the overflow buffer is
+        // checked first as the consumer counts the spilled events before it frees their slots
+        if (!overflowBuffer.isEmpty() || spilledPendingCount > 0) {
+            return handOver(event, entryTimeNanos);
+        }
+
+        final long size = averageEventBytes;
+        final OverflowPolicy policy = overflowPolicy;
+
+        if (policy != OverflowPolicy.DROP_OLDEST && isFull(size)) {
+            return policy == OverflowPolicy.SPILL_TO_DISK ? handOver(event, entryTimeNanos) : dropNewest(event);
+        }
+
+        if (ringBuffer.offer(event, size, entryTimeNanos)) {
+            return true;
+        }
+
+        // the ring buffer itself is full
+        return policy == OverflowPolicy.SPILL_TO_DISK ? handOver(event, entryTimeNanos) : dropNewest(event);
+    }
+
+    /**
+     * Adds to the given list, without removing them, up to {@code maxCount} events from the head of the queue.
+     * Must be called from the consumer thread.
+     *
+     * <p>
+     * The events are removed with {@link #remove(int)} once processed, so an event which cannot be processed yet
+     * stays at the head of the queue.
+     *
+     * @param destination the list receiving the events
+     * @param maxCount the maximum number of events to read
+     * @return the number of events added to {@code destination}
+     */
+    int peek(final List<Event> destination, final int maxCount) {
+        prepareHead();
+
+        int count = 0;
+        for (Event event : heldEvents) {
+            if (count >= maxCount) {
+                return count;
+            }
+
+            destination.add(event);
+            count++;
+        }
+
+        return count + ringBuffer.peek(destination, maxCount - count);
+    }
+
+    /**
+     * Returns the time an event read with {@link #peek(List, int)} entered the queue. Must be called from the consumer
+     * thread, before the event is removed.
+     *
+     * @param offset the position of the event in the list filled by {@link #peek(List, int)}
+     * @return the {@link System#nanoTime()} the event was received at
+     */
+    long getEntryTime(final int offset) {
+        if (offset < heldEvents.size()) {
+            int index = 0;
+            for (Long entryTime : heldEntryTimes) {
+                if (index++ == offset) {
+                    return entryTime;
+                }
+            }
+        }
+
+        return ringBuffer.stamp(offset - heldEvents.size());
+    }
+
+    /**
+     * Returns the unique identifier of an event read from the queue, which for an event read back from the spill
+     * queue is the identifier of the event which was spilled. Must be called from the consumer thread, before the
+     * event is removed.
+     *
+     * @param event an {@link Event} read with {@link #peek(List, int)}, {@link #peek()} or {@link #poll()}
+     * @return the unique identifier of the event
+     */
+    String getUniqueIdentifier(final Event event) {
+        final String uniqueIdentifier = restoredIdentifiers.get(event);
+        return uniqueIdentifier != null ? uniqueIdentifier : event.getUniqueIdentifier();
+    }
+
+    /**
+     * Removes up to {@code count} events from the head of the queue. Must be called from the consumer thread.
+     *
+     * @param count the number of events to remove
+     */
+    void remove(final int count) {
+        if (count <= 0) {
+            return;
+        }
+
+        int remaining = count;
+        while (remaining > 0 && !heldEvents.isEmpty()) {
+            pollHeldEvent();
+            remaining--;
+        }
+
+        if (remaining > 0) {
+            // the size of one event per batch is enough to follow the size of the events
+            updateAverageEventBytes(ringBuffer.peek());
+            ringBuffer.release(remaining);
+        }
+    }
+
+    /**
+     * Returns, without removing it, the oldest event of the queue. Must be called from the consumer thread.
+     *
+     * @return the oldest event, or null if the queue is empty
+     */
+    Event peek() {
+        prepareHead();
+        return heldEvents.isEmpty() ? ringBuffer.peek() : heldEvents.peekFirst();
+    }
+
+    /**
+     * Removes and returns the oldest event of the queue. Must be called from the consumer thread.
+     *
+     * @return the removed {@link Event}, or null if the queue is empty
+     */
+    Event poll() {
+        prepareHead();
+
+        if (!heldEvents.isEmpty()) {
+            return pollHeldEvent();
+        }
+
+        final Event event = ringBuffer.poll();
+        updateAverageEventBytes(event);
+        return event;
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * @return the number of queued events, including the spilled events
+     */
+    int size() {
+        return heldCount + ringBuffer.size() + overflowBuffer.size() + spilledPendingCount;
+    }
+
+    /**
+     * @return the estimated size in bytes of the events held in memory
+     */
+    long getQueuedBytes() {
+        return ringBuffer.weight() + overflowBuffer.weight();
+    }
+
+    long getDroppedOldestCount() {
+        return droppedOldestCount.get();
+    }
+
+    long getDroppedNewestCount() {
+        return droppedNewestCount.get();
+    }
+
+    long getSpilledCount() {
+        return spilledCount.get();
+    }
+
+    /**
+     * Removes all the queued events, including the spilled events. The drop counters are kept.
+     * Must be called from the consumer thread.
+     */
+    void clear() {
+        heldEvents.clear();
+        heldEntryTimes.clear();
+        heldCount = 0;
+        restoredIdentifiers.clear();
+        ringBuffer.clear();
+        overflowBuffer.clear();
+
+        if (spilledPendingCount > 0) {
+            spillQueue.clear();
+            spilledPendingCount = 0;
+        }
+    }
+
+    /**
+     * Deletes the events spilled by a previous process, which are not replayed. Meant to be called once from the
+     * consumer thread, off the thread registering the extension; the spill queue is also reset before the first event
+     * is spilled.
+     */
+    void discardPreviousSpilledEvents() {
+        if (spillQueue == null) {
+            return;
+        }
+
+        resetSpillQueue();
+    }
+
+    /**
+     * Releases the file handles held by the spill queue. Must be called from the consumer thread.
+     */
+    void close() {
+        if (spillQueue != null) {
+            spillQueue.close();
+        }
+    }
+
+    private boolean isFull(final long size) {
+        return ringBuffer.size() >= maxEvents || ringBuffer.weight() + size > maxBytes;
+    }
+
+    /**
+     * Spills the events handed over by {@link #add(Event, long)}, drops the oldest track events exceeding the caps
+     * and reads the spilled events back once the ring buffer is empty. The other events taken out of the ring buffer
+     * are held, in order, ahead of the ring buffer events.
+     */
+    private void prepareHead() {
+        if (!overflowBuffer.isEmpty()) {
+            spillOverflowEvents();
+        }
+
+        if (overflowPolicy == OverflowPolicy.DROP_OLDEST) {
+            while (ringBuffer.size() > 1 && (ringBuffer.size() > maxEvents || ringBuffer.weight() > maxBytes)) {
+                final long entryTimeNanos = ringBuffer.stamp(0);
+                final Event oldestEvent = ringBuffer.poll();
+                if (oldestEvent == null) {
+                    break;
+                }
+
+                if (!EventType.GENERIC_TRACK.getName().equalsIgnoreCase(oldestEvent.getType())) {
+                    heldEvents.addLast(oldestEvent);
+                    heldEntryTimes.addLast(entryTimeNanos);
+                    heldCount = heldEvents.size();
+                    continue;
+                }
+
+                droppedOldestCount.incrementAndGet();
+                Log.debug(LOG_TAG, "AnalyticsEventQueue - Queue is full, dropping oldest event with id %s.",
+                        oldestEvent.getUniqueIdentifier());
+            }
+        }
+
+        if (spilledPendingCount > 0 && heldEvents.isEmpty() && ringBuffer.isEmpty()) {
+            loadSpilledEvents();
+        }
+    }
+
+    private Event pollHeldEvent() {
+        heldEntryTimes.pollFirst();
+        final Event event = heldEvents.pollFirst();
+        heldCount = heldEvents.size();
+        return event;
+    }
+
+    /**
+     * Updates the running average of the event size, used as the size of the events added, with the size of the
+     * given event.
+     */
+    private void updateAverageEventBytes(final Event event) {
+        if (event != null) {
+            final long average = averageEventBytes;
+            averageEventBytes = average + ((estimateSize(event) - average) >> EVENT_BYTES_AVERAGE_SHIFT);
+        }
+    }
+
+    private boolean dropNewest(final Event event) {
+        droppedNewestCount.incrementAndGet();
+        Log.debug(LOG_TAG, "AnalyticsEventQueue - Queue is full, dropping event with id %s.", event.getUniqueIdentifier());
+        return false;
+    }
+
+    /**
+     * Hands an event over to the consumer thread, which spills it. Does not block; the event is dropped if the
+     * overflow buffer is full or if events cannot be spilled.
+     */
+    private boolean handOver(final Event event, final long entryTimeNanos) {
+        if (spillQueue != null && overflowBuffer.offer(event, averageEventBytes, entryTimeNanos)) {
+            return true;
+        }
+
+        return dropNewest(event);
+    }
+
+    /**
+     * Moves the events handed over by {@link #add(Event, long)} to the ring buffer while nothing is spilled and the
+     * queue is not full, and writes the others to the spill queue. Must be called from the consumer thread.
+     */
+    private void spillOverflowEvents() {
+        // bounded, so a producer keeping the overflow buffer full does not hold the consumer
+        final int count = overflowBuffer.size();
+
+        for (int i = 0; i < count; i++) {
+            final Event event = overflowBuffer.peek();
+            if (event == null) {
+                break;
+            }
+
+            final long entryTimeNanos = overflowBuffer.stamp(0);
+            final long size = averageEventBytes;
+            final boolean queued = spilledPendingCount == 0 && !isFull(size) && ringBuffer.offer(event, size, entryTimeNanos);
+
+            if (!queued && !spill(event, entryTimeNanos)) {
+                dropNewest(event);
+            }
+
+            // freed once the event was moved, so add() keeps handing the new events over until then
+            overflowBuffer.release(1);
+        }
+    }
+
+    private boolean spill(final Event event, final long entryTimeNanos) {
+        if (spillQueue == null || spilledPendingCount >= AnalyticsConstants.EVENT_QUEUE_MAX_SPILLED_EVENTS) {
+            return false;
+        }
+
+        resetSpillQueue();
+
+        final Map<String, Object> record = new HashMap<>();
+        record.put(RECORD_ID, event.getUniqueIdentifier());
+        record.put(RECORD_NAME, event.getName());
+        record.put(RECORD_TYPE, event.getType());
+        record.put(RECORD_SOURCE, event.getSource());
+        record.put(RECORD_NUMBER, event.getEventNumber());
+        record.put(RECORD_TIMESTAMP, event.getTimestamp());
+        record.put(RECORD_ENTRY_TIME, entryTimeNanos);
+
+        final Map<String, Object> eventData = event.getEventData();
+        if (eventData != null) {
+            record.put(RECORD_DATA, eventData);
+        }
+
+        if (!spillQueue.add(record)) {
+            return false;
+        }
+
+        spilledCount.incrementAndGet();
+        spilledPendingCount++;
+        return true;
+    }
+
+    /**
+     * Deletes the events spilled by a previous process, if not already done. Must be called from the consumer thread.
+     */
+    private void resetSpillQueue() {
+        if (!spillQueueReset) {
+            // events spilled by a previous process are not replayed
+            spillQueue.clear();
+            spillQueueReset = true;
+        }
+    }
+
+    /**
+     * Moves the oldest spilled events back to the ring buffer, up to the queue caps. Must be called once the ring
+     * buffer is empty.
+     */
+    @SuppressWarnings("unchecked")
+    private void loadSpilledEvents() {
+        if (spilledPendingCount == 0) {
+            return;
+        }
+
+        final List<Map<String, Object>> records = spillQueue.peek(maxEvents);
+
+        // the spill queue drops the records it cannot read
+        final int unreadableCount = spilledPendingCount - spillQueue.size();
+        if (unreadableCount > 0) {
+            droppedNewestCount.addAndGet(unreadableCount);
+            spilledPendingCount -= unreadableCount;
+        }
+
+        if (records.isEmpty()) {
+            Log.warning(LOG_TAG, "AnalyticsEventQueue - Unable to read the spilled events, discarding them.");
+            spillQueue.clear();
+            droppedNewestCount.addAndGet(spilledPendingCount);
+            spilledPendingCount = 0;
+            return;
+        }
+
+        // the events read back before were all removed from the ring buffer
+        restoredIdentifiers.clear();
+
+        int loadedCount = 0;
+        for (Map<String, Object> record : records) {
+            final Event.Builder builder = new Event.Builder(String.valueOf(record.get(RECORD_NAME)),
+                    String.valueOf(record.get(RECORD_TYPE)), String.valueOf(record.get(RECORD_SOURCE)));
+            final Object data = record.get(RECORD_DATA);
+            if (data instanceof Map) {
+                builder.setEventData((Map<String, Object>) data);
+            }
+
+            final Object number = record.get(RECORD_NUMBER);
+            if (number instanceof Number) {
+                builder.setEventNumber(((Number) number).intValue());
+            }
+
+            final Object timestamp = record.get(RECORD_TIMESTAMP);
+            if (timestamp instanceof Number) {
+                builder.setTimestamp(((Number) timestamp).longValue());
+            }
+
+            // the spilled events were written by this process, so their entry time is still comparable
+            final Object entryTime = record.get(RECORD_ENTRY_TIME);
+            final long entryTimeNanos = entryTime instanceof Number ? ((Number) entryTime).longValue() : System.nanoTime();
+
+            final Event event = builder.build();
+            final long size = estimateSize(event);
+            if ((loadedCount > 0 && isFull(size)) || !ringBuffer.offer(event, size, entryTimeNanos)) {
+                break;
+            }
+
+            final Object uniqueIdentifier = record.get(RECORD_ID);
+            if (uniqueIdentifier instanceof String) {
+                restoredIdentifiers.put(event, (String) uniqueIdentifier);
+            }
+
+            loadedCount++;
+        }
+
+        spillQueue.remove(loadedCount);
+        spilledPendingCount -= loadedCount;
+    }
+
+    /**
+     * Estimates the heap size of an event, based on the size of its data.
+     *
+     * @param event the {@link Event}
+     * @return the estimated size in bytes
+     */
+    static long estimateSize(final Event event) {
+        return EVENT_OVERHEAD_BYTES + estimateSize(event.getEventData());
+    }
+
+    private static long estimateSize(final Object value) {
+        if (value == null) {
+            return 0;
+        }
+
+        if (value instanceof String) {
+            return STRING_OVERHEAD_BYTES + 2L * ((String) value).length();
+        }
+
+        if (value instanceof Map) {
+            long size = MAP_OVERHEAD_BYTES;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                size += MAP_ENTRY_OVERHEAD_BYTES + estimateSize(entry.getKey()) + estimateSize(entry.getValue());
+            }
+            return size;
+        }
+
+        if (value instanceof List) {
+            long size = LIST_OVERHEAD_BYTES;
+            for (Object item : (List<?>) value) {
+                size += REFERENCE_BYTES + estimateSize(item);
+            }
+            return size;
+        }
+
+        return OBJECT_OVERHEAD_BYTES;
+    }
+}
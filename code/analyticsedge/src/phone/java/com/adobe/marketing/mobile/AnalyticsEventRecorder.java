@@ -0,0 +1,179 @@
+/*
+  Copyright 2021 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.adobe.marketing.mobile.AnalyticsConstants.LOG_TAG;
+
+/**
+ * Records the events handled by the {@link AnalyticsExtension} to a trace file, so they can be replayed on the JVM.
+ *
+ * <p>
+ * Each event is appended as an {@link AnalyticsRecordCodec} record holding the kind of event, the time it was
+ * received in nanoseconds since the recording started, its name, type, source, timestamp, event number and data, so
+ * a replayed event matches the recorded one. Records are written through a buffer
+ * as they come, so the trace is streamed rather than held in memory, and the recording stops once the trace reaches
+ * its maximum size or a write fails. Events may be recorded from any thread; the extension records them on its
+ * executor.
+ */
+final class AnalyticsEventRecorder {
+    static final String KIND_TRACK = "track";
+    static final String KIND_CONFIGURATION = "configuration";
+    static final String KIND_RULES = "rules";
+
+    static final String RECORD_KIND = "k";
+    static final String RECORD_TIME = "t";
+    static final String RECORD_NAME = "n";
+    static final String RECORD_DATA = "d";
+    static final String RECORD_TYPE = "y";
+    static final String RECORD_SOURCE = "s";
+    static final String RECORD_TIMESTAMP = "ts";
+    static final String RECORD_NUMBER = "nr";
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private final File file;
+    private final long maxBytes;
+    private final long startTimeNanos = System.nanoTime();
+    private OutputStream outputStream; // null once closed, guarded by this
+    private long byteCount; // guarded by this
+
+    private AnalyticsEventRecorder(final File file, final OutputStream outputStream, final long maxBytes) {
+        this.file = file;
+        this.outputStream = outputStream;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Creates the trace file and starts recording.
+     *
+     * @param file the trace file, replaced if it exists
+     * @param maxBytes the maximum size in bytes of the trace
+     * @return the {@link AnalyticsEventRecorder}, or null if the trace file cannot be created
+     */
+    static AnalyticsEventRecorder open(final File file, final long maxBytes) {
+        final File directory = file.getParentFile();
+
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            Log.warning(LOG_TAG, "AnalyticsEventRecorder - Unable to create the trace directory %s.", directory);
+            return null;
+        }
+
+        try {
+            return new AnalyticsEventRecorder(file, new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE), maxBytes);
+        } catch (IOException e) {
+            Log.warning(LOG_TAG, "AnalyticsEventRecorder - Unable to create the trace file %s (%s).", file, e);
+            return null;
+        }
+    }
+
+    /**
+     * @return the trace file
+     */
+    File getFile() {
+        return file;
+    }
+
+    /**
+     * Records an event.
+     *
+     * @param kind the kind of event, one of the {@code KIND} constants
+     * @param event the {@link Event}
+     * @param timeNanos the {@link System#nanoTime()} the event was received at
+     */
+    void record(final String kind, final Event event, final long timeNanos) {
+        final Map<String, Object> record = createRecord(kind, event.getName(), event.getEventData(), timeNanos);
+        record.put(RECORD_TYPE, event.getType());
+        record.put(RECORD_SOURCE, event.getSource());
+        record.put(RECORD_TIMESTAMP, event.getTimestamp());
+        record.put(RECORD_NUMBER, event.getEventNumber());
+        write(record);
+    }
+
+    /**
+     * Records an event with the given data, received now.
+     *
+     * @param kind the kind of event, one of the {@code KIND} constants
+     * @param name the event name
+     * @param data the event data, may be null
+     */
+    void record(final String kind, final String name, final Map<String, Object> data) {
+        write(createRecord(kind, name, data, System.nanoTime()));
+    }
+
+    private Map<String, Object> createRecord(final String kind, final String name, final Map<String, Object> data,
+                                             final long timeNanos) {
+        final Map<String, Object> record = new HashMap<>();
+        record.put(RECORD_KIND, kind);
+        // events received before the recording started are recorded at its start
+        record.put(RECORD_TIME, Math.max(timeNanos - startTimeNanos, 0));
+        record.put(RECORD_NAME, name);
+        record.put(RECORD_DATA, data);
+        return record;
+    }
+
+    private void write(final Map<String, Object> record) {
+        synchronized (this) {
+            if (outputStream == null) {
+                return;
+            }
+
+            try {
+                final byte[] bytes = AnalyticsRecordCodec.encode(record);
+
+                if (byteCount + bytes.length > maxBytes) {
+                    Log.debug(LOG_TAG, "AnalyticsEventRecorder - Trace reached its maximum size, recording stopped.");
+                    close();
+                    return;
+                }
+
+                outputStream.write(bytes);
+                byteCount += bytes.length;
+            } catch (IOException e) {
+                Log.warning(LOG_TAG, "AnalyticsEventRecorder - Unable to write to the trace file, recording stopped (%s).", e);
+                close();
+            }
+        }
+    }
+
+    /**
+     * @return true if events are still recorded
+     */
+    synchronized boolean isRecording() {
+        return outputStream != null;
+    }
+
+    /**
+     * Flushes the buffered records and stops recording.
+     */
+    synchronized void close() {
+        if (outputStream == null) {
+            return;
+        }
+
+        try {
+            outputStream.close();
+        } catch (IOException e) {
+            Log.warning(LOG_TAG, "AnalyticsEventRecorder - Unable to close the trace file (%s).", e);
+        }
+
+        outputStream = null;
+    }
+}
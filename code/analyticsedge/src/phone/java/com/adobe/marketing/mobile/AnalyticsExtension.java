@@ -12,28 +12,161 @@
 
 package com.adobe.marketing.mobile;
 
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+
+import java.io.File;
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.adobe.marketing.mobile.AnalyticsConstants.EXTENSION_NAME;
 import static com.adobe.marketing.mobile.AnalyticsConstants.EXTENSION_VERSION;
 import static com.adobe.marketing.mobile.AnalyticsConstants.LOG_TAG;
 
 class AnalyticsExtension extends Extension implements EventsHandler {
+    private static final MobilePrivacyStatus DEFAULT_PRIVACY_STATUS = MobilePrivacyStatus.UNKNOWN;
+    private static final AnalyticsLogger LOGGER = new AnalyticsLogger() {
+        @Override
+        public void debug(final String format, final Object... params) {
+            Log.debug(LOG_TAG, format, params);
+        }
 
-    private ConcurrentLinkedQueue<Event> eventQueue = new ConcurrentLinkedQueue<>();
+        @Override
+        public void warning(final String format, final Object... params) {
+            Log.warning(LOG_TAG, format, params);
+        }
+    };
+
+    private final AnalyticsEventQueue eventQueue;
+    private final List<Event> drainBatch = new ArrayList<>(AnalyticsConstants.EVENT_QUEUE_DRAIN_BATCH_SIZE);
+    // configuration events checked for an opt-out ahead of the events in the eventQueue
+    private final ConcurrentLinkedQueue<Event> controlEventQueue = new ConcurrentLinkedQueue<>();
     private final PlatformServices platformServices;
-    private ExecutorService executorService;
-    private final Object executorMutex = new Object();
+    private final ThreadPoolExecutor executorService = createExecutor();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private volatile boolean identifiersLoaded; // events are processed once the AID, VID and application identifier are loaded
+    private final Runnable loadIdentifiersTask = new Runnable() {
+        @Override
+        public void run() {
+            final long startTimeNanos = System.nanoTime();
+            initializeAIDAndVID();
+            initializeSamplingSeed();
+            applicationIdentifier = analyticsHelper.getApplicationIdentifier();
+            hitProcessor.updateVisitor();
+            // a session started before the extension was registered did not trigger the shared state listener
+            updateAssuranceSessionState(null);
+            startAppStateTracking();
+            startTimezoneTracking();
+            final long loadTimeMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startTimeNanos);
+            metrics.setIdentifierLoadTime(loadTimeMicros);
+            Log.debug(LOG_TAG, "Loaded AID, VID and application identifier in %d us, off the registration path.", loadTimeMicros);
+            eventQueue.discardPreviousSpilledEvents();
+            identifiersLoaded = true;
+            processEvents();
+        }
+    };
+    private final Runnable drainTask = new Runnable() {
+        @Override
+        public void run() {
+            // cleared before draining so events queued from now on schedule another drain
+            drainScheduled.set(false);
+            processEvents();
+        }
+    };
+    private final AnalyticsMetrics metrics = new AnalyticsMetrics();
+    // updated by the lifecycle events and the UIService callbacks, read for every hit
+    private final AnalyticsAppStateTracker appStateTracker = new AnalyticsAppStateTracker();
+    private final UIService.AppStateListener appStateListener = new UIService.AppStateListener() {
+        @Override
+        public void onForeground() {
+            appStateTracker.setAppState(AnalyticsAppStateProvider.AppState.FOREGROUND, System.currentTimeMillis());
+        }
+
+        @Override
+        public void onBackground() {
+            appStateTracker.setAppState(AnalyticsAppStateProvider.AppState.BACKGROUND, System.currentTimeMillis());
+        }
+    };
+    // makes the next hit pick up the new timezone offset, called on the main thread
+    private final BroadcastReceiver timezoneChangedReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(final Context context, final Intent intent) {
+            hitProcessor.onTimezoneChanged();
+        }
+    };
+    private Context timezoneReceiverContext; // used on the executor only
+    // builds the hits of the track requests, on the executor
+    private final AnalyticsHitProcessor hitProcessor = new AnalyticsHitProcessor(metrics,
+            new AnalyticsIdentityProvider() {
+                @Override
+                public String getAnalyticsId() {
+                    return analyticsId;
+                }
+
+                @Override
+                public String getVisitorId() {
+                    return visitorId;
+                }
+
+                @Override
+                public long getSamplingSeed() {
+                    return samplingSeed;
+                }
+
+                @Override
+                public String getApplicationIdentifier() {
+                    return applicationIdentifier;
+                }
+            },
+            appStateTracker,
+            new AnalyticsHitDispatcher() {
+                @Override
+                public void dispatch(final Map<String, Object> hit) {
+                    dispatchAnalyticsRequest(hit);
+                }
+            },
+            LOGGER);
+    // traces the latency of the hits of the track and rules events, used on the executor only
+    private final AnalyticsLatencyTracer latencyTracer = hitProcessor.getLatencyTracer();
+    private AnalyticsEventRecorder eventRecorder; // executor only
+    private long configurationPendingSinceMillis = -1; // time the processing of events started waiting on the configuration
+    private boolean metricsSharedStateEnabled = AnalyticsConstants.DEFAULT_METRICS_SHARED_STATE_ENABLED;
+    private long metricsSharedStateTimeMillis; // time the metrics shared state was last set
+    // the last task run on the executor once the extension is unregistered, after the identifiers were loaded
+    private final Runnable unregisterTask = new Runnable() {
+        @Override
+        public void run() {
+            stopAppStateTracking();
+            stopTimezoneTracking();
+            stopEventRecorder();
+            eventQueue.close();
+        }
+    };
     private Map<String, Object> currentConfiguration = new HashMap<>(); // the last valid config shared state
+    private volatile MobilePrivacyStatus privacyStatus = DEFAULT_PRIVACY_STATUS; // read on the event hub thread
+    private int currentConfigurationVersion = -1; // number of the event the cached config shared state was read for
+    private volatile int latestConfigurationEventNumber = -1; // number of the last configuration response event received
+    private boolean assuranceSessionActive; // cached from the Assurance shared state, read for every hit on the executor
+    private int assuranceSessionVersion = -1; // number of the event the Assurance state was read for
     private AnalyticsHelper analyticsHelper;
     private String applicationIdentifier;
     private String analyticsId;
     private String visitorId;
+    private long samplingSeed; // the sampling bucket is derived from it when there is no AID or VID
+    private File extensionCacheDirectory; // looked up until available, guarded by this
 
     /**
      * Constructor.
@@ -48,17 +181,28 @@ class AnalyticsExtension extends Extension implements EventsHandler {
      *     and EventSource {@link EventSource#REQUEST_CONTENT}</li>
      *     <li> {@link RulesEngineResponseContentListener} listening to event with eventType {@link EventType#RULES_ENGINE}
      *     and EventSource {@link EventSource#RESPONSE_CONTENT}</li>
+     *     <li> {@link GenericLifecycleRequestContentListener} listening to event with eventType {@link EventType#GENERIC_LIFECYCLE}
+     *     and EventSource {@link EventSource#REQUEST_CONTENT}</li>
+     *     <li> {@link AnalyticsRequestContentListener} listening to event with eventType {@link EventType#ANALYTICS}
+     *     and EventSource {@link EventSource#REQUEST_CONTENT}</li>
+     *     <li> {@link HubSharedStateListener} listening to event with eventType {@link EventType#HUB}
+     *     and EventSource {@link EventSource#SHARED_STATE}</li>
      * </ul>
+     * The AID, VID and application identifier are loaded on the executor, so registration does not wait on storage,
+     * and the spill queue directory is looked up and opened when the queue is first used, from the executor.
      *
      * @param extensionApi  {@link ExtensionApi} instance
      */
     protected AnalyticsExtension(final ExtensionApi extensionApi) {
         super(extensionApi);
-        registerEventListeners(extensionApi);
+        final long startTimeNanos = System.nanoTime();
         this.platformServices = new AndroidPlatformServices();
         this.analyticsHelper = new AnalyticsHelper(platformServices);
-        this.applicationIdentifier = analyticsHelper.getApplicationIdentifier();
-        initializeAIDAndVID();
+        this.eventQueue = new AnalyticsEventQueue(createRecordQueue(AnalyticsConstants.EVENT_SPILL_DIRECTORY));
+        // the listeners may call back into the extension as soon as they are registered
+        registerEventListeners(extensionApi);
+        execute(executorService, loadIdentifiersTask);
+        metrics.setRegistrationTime(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startTimeNanos));
     }
 
     /**
@@ -69,11 +213,30 @@ class AnalyticsExtension extends Extension implements EventsHandler {
      */
     AnalyticsExtension(ExtensionApi extensionApi, PlatformServices platformServices) {
         super(extensionApi);
-        registerEventListeners(extensionApi);
+        final long startTimeNanos = System.nanoTime();
         this.platformServices = platformServices;
         this.analyticsHelper = new AnalyticsHelper(platformServices);
-        this.applicationIdentifier = analyticsHelper.getApplicationIdentifier();
-        initializeAIDAndVID();
+        this.eventQueue = new AnalyticsEventQueue(createRecordQueue(AnalyticsConstants.EVENT_SPILL_DIRECTORY));
+        // the listeners may call back into the extension as soon as they are registered
+        registerEventListeners(extensionApi);
+        execute(executorService, loadIdentifiersTask);
+        metrics.setRegistrationTime(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startTimeNanos));
+    }
+
+    /**
+     * Creates the single thread executor which processes the queued events.
+     *
+     * <p>
+     * The thread is released once the executor has been idle for the configured idle timeout, and a new one is
+     * started when a task is submitted.
+     *
+     * @return the {@link ThreadPoolExecutor}
+     */
+    private static ThreadPoolExecutor createExecutor() {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, AnalyticsConstants.DEFAULT_EXECUTOR_IDLE_TIMEOUT,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
     }
 
     /**
@@ -100,15 +263,107 @@ class AnalyticsExtension extends Extension implements EventsHandler {
      * Overridden method of {@link Extension} class called when extension is unregistered by the core.
      *
      * <p>
-     * On unregister of messaging extension, the shared states are cleared.
+     * On unregister of messaging extension, the {@link #unregisterTask} is queued after the events already queued, so
+     * the queues are closed from the executor, and the executor is shut down without waiting for it on the calling
+     * thread. The shared states are cleared.
      */
     @Override
     protected void onUnregistered() {
         super.onUnregistered();
         Log.trace(LOG_TAG, "Extension unregistered from MobileCore: %s", AnalyticsConstants.FRIENDLY_NAME);
+        execute(executorService, unregisterTask);
+        // lets the queued tasks complete and rejects the tasks submitted from now on
+        executorService.shutdown();
         getApi().clearSharedEventStates(null);
     }
 
+    /**
+     * Runs the given task on the given executor, unless it was shut down because the extension was unregistered.
+     *
+     * <p>
+     * All the tasks are submitted through this method, as the event listeners may still deliver events after the
+     * extension was unregistered.
+     *
+     * @param executor the executor of the extension
+     * @param task the task to run
+     * @return true if the task was submitted, false if the executor was shut down
+     */
+    static boolean execute(final Executor executor, final Runnable task) {
+        try {
+            executor.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            Log.debug(LOG_TAG, "execute - Dropping task, the extension was unregistered.");
+            return false;
+        }
+    }
+
+    /**
+     * Registers the {@link #appStateListener} with the {@link UIService} and reads the current application state, so
+     * the state is known before the first transition.
+     */
+    private void startAppStateTracking() {
+        final UIService uiService = platformServices == null ? null : platformServices.getUIService();
+
+        if (uiService == null) {
+            Log.debug(LOG_TAG, "startAppStateTracking - UIService is not available, the application state is only updated by the lifecycle events.");
+            return;
+        }
+
+        uiService.registerAppStateListener(appStateListener);
+        appStateTracker.setInitialAppState(uiService.getAppState() == UIService.AppState.BACKGROUND ?
+                AnalyticsAppStateProvider.AppState.BACKGROUND : AnalyticsAppStateProvider.AppState.FOREGROUND);
+    }
+
+    /**
+     * Unregisters the {@link #appStateListener} from the {@link UIService}.
+     */
+    private void stopAppStateTracking() {
+        final UIService uiService = platformServices == null ? null : platformServices.getUIService();
+
+        if (uiService != null) {
+            uiService.unregisterAppStateListener(appStateListener);
+        }
+    }
+
+    /**
+     * Registers the {@link #timezoneChangedReceiver} for {@link Intent#ACTION_TIMEZONE_CHANGED}, so a timezone change
+     * is reflected in the next hit instead of after the timezone offset is checked again.
+     */
+    private void startTimezoneTracking() {
+        final Context appContext = App.getAppContext();
+
+        if (appContext == null) {
+            Log.debug(LOG_TAG, "startTimezoneTracking - Application context is not available, timezone changes are picked up within a minute.");
+            return;
+        }
+
+        try {
+            appContext.registerReceiver(timezoneChangedReceiver, new IntentFilter(Intent.ACTION_TIMEZONE_CHANGED));
+            timezoneReceiverContext = appContext;
+        } catch (Exception e) {
+            Log.debug(LOG_TAG, "startTimezoneTracking - Unable to register the timezone receiver (%s).", e.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * Unregisters the {@link #timezoneChangedReceiver}, if it was registered.
+     */
+    private void stopTimezoneTracking() {
+        final Context appContext = timezoneReceiverContext;
+        timezoneReceiverContext = null;
+
+        if (appContext == null) {
+            return;
+        }
+
+        try {
+            appContext.unregisterReceiver(timezoneChangedReceiver);
+        } catch (Exception e) {
+            Log.debug(LOG_TAG, "stopTimezoneTracking - Unable to unregister the timezone receiver (%s).", e.getLocalizedMessage());
+        }
+    }
+
     /**
      * Overridden method of {@link Extension} class to handle error occurred during registration of the module.
      *
@@ -129,64 +384,217 @@ class AnalyticsExtension extends Extension implements EventsHandler {
         extensionApi.registerListener(EventType.CONFIGURATION, EventSource.RESPONSE_CONTENT, ConfigurationResponseContentListener.class);
         extensionApi.registerListener(EventType.GENERIC_TRACK, EventSource.REQUEST_CONTENT, GenericTrackRequestContentListener.class);
         extensionApi.registerListener(EventType.RULES_ENGINE, EventSource.RESPONSE_CONTENT, RulesEngineResponseContentListener.class);
+        extensionApi.registerListener(EventType.GENERIC_LIFECYCLE, EventSource.REQUEST_CONTENT, GenericLifecycleRequestContentListener.class);
+        extensionApi.registerListener(EventType.ANALYTICS, EventSource.REQUEST_CONTENT, AnalyticsRequestContentListener.class);
+        extensionApi.registerListener(EventType.HUB, EventSource.SHARED_STATE, HubSharedStateListener.class);
 
         Log.debug(AnalyticsConstants.LOG_TAG, "Registering Analytics extension - version %s",
                 AnalyticsConstants.EXTENSION_VERSION);
     }
 
     /**
-     * Processes the queued event one by one until queue is empty.
+     * Processes the queued events in batches until queue is empty.
+     *
+     * <p>
+     * Suspends processing of the events in the queue if the configuration shared state is not ready, leaving the
+     * pending event at the head of the {@link #eventQueue}. Events are not processed until the identifiers are loaded;
+     * the queued events are processed once the load completes.
+     * Processed events are removed from the {@link #eventQueue} at the end of each batch.
+     * Once the queue is empty, the metrics shared state is updated if it is enabled.
      *
      * <p>
-     * Suspends processing of the events in the queue if the configuration shared state is not ready.
-     * Processed events are polled out of the {@link #eventQueue}.
+     * The {@link #controlEventQueue} is checked before each event, so an opt-out takes effect before the next queued
+     * event is processed, however many events are queued ahead of the configuration event.
+     * Events are processed until the queue is empty; an opt-out in the control events drops the queued events up to
+     * the next configuration which is not opted out, and an event processed while opted out is dropped.
      */
     private void processEvents() {
-        while (!eventQueue.isEmpty()) {
-            final Event eventToProcess = eventQueue.peek();
+        if (!identifiersLoaded) {
+            return;
+        }
 
-            if (eventToProcess == null) {
-                Log.debug(AnalyticsConstants.LOG_TAG, "Unable to process event, Event received is null.");
-                return;
+        Event lastProcessedEvent = null;
+
+        while (true) {
+            if (!controlEventQueue.isEmpty()) {
+                processControlEvents();
             }
 
-            currentConfiguration = getApi().getSharedEventState(AnalyticsConstants.SharedStateKeys.CONFIGURATION,
-                    eventToProcess, null);
+            final int batchSize = eventQueue.peek(drainBatch, AnalyticsConstants.EVENT_QUEUE_DRAIN_BATCH_SIZE);
 
-            if (MobilePrivacyStatus.OPT_OUT.equals(getPrivacyStatus())) {
-                optOut();
-                return;
+            if (batchSize == 0) {
+                break;
             }
 
-            final Map<String, Object> eventData = eventToProcess.getEventData();
+            int processedCount = 0;
+
+            try {
+                for (int i = 0; i < batchSize; i++) {
+                    if (!controlEventQueue.isEmpty()) {
+                        // the control events are processed once the events processed so far are removed
+                        break;
+                    }
+
+                    final Event eventToProcess = drainBatch.get(i);
+                    final boolean configurationUpdated = shouldUpdateConfiguration(eventToProcess);
+
+                    if (configurationUpdated) {
+                        updateConfiguration(eventToProcess);
+                    }
+
+                    if (MobilePrivacyStatus.OPT_OUT.equals(getPrivacyStatus())) {
+                        if (configurationUpdated) {
+                            optOut();
+                        }
+
+                        recordEvent(eventToProcess, eventQueue.getEntryTime(i));
+                        processedCount++;
+                        metrics.eventsDroppedOptOut.increment();
+                        continue;
+                    }
+
+                    final Map<String, Object> eventData = eventToProcess.getEventData();
+
+                    // NOTE: configuration is mandatory to process an event, so if shared state is null (pending) stop processing events
+                    if (currentConfiguration == null) {
+                        Log.warning(AnalyticsConstants.LOG_TAG,
+                                "AnalyticsInternal : Could not process event, configuration shared state is pending");
+
+                        if (configurationPendingSinceMillis < 0) {
+                            configurationPendingSinceMillis = System.currentTimeMillis();
+                        }
+
+                        return;
+                    }
+
+                    if (configurationPendingSinceMillis >= 0) {
+                        metrics.configurationWait.record(System.currentTimeMillis() - configurationPendingSinceMillis);
+                        configurationPendingSinceMillis = -1;
+                    }
+
+                    // recorded once it is processed, a recording started by this event begins with its configuration
+                    recordEvent(eventToProcess, eventQueue.getEntryTime(i));
+
+                    if (configurationUpdated) {
+                        updateEventQueueOptions();
+                        updateMetricsOptions();
+                        hitProcessor.updateConfiguration(currentConfiguration);
+                        updateEventRecorder();
+                        updateExecutorOptions();
+                    }
+
+                    if (EventType.GENERIC_TRACK.getName().equalsIgnoreCase(eventToProcess.getType()) &&
+                            EventSource.REQUEST_CONTENT.getName().equalsIgnoreCase(eventToProcess.getSource())) {
+                        // handle the track event information from the generic track request content event
+                        latencyTracer.begin(AnalyticsLatencyTracer.EventKind.TRACK, eventToProcess.getTimestamp(),
+                                eventQueue.getEntryTime(i));
+                        track(eventToProcess, eventData);
+                        latencyTracer.end();
+                    }
+
+                    else if (EventType.RULES_ENGINE.getName().equalsIgnoreCase(eventToProcess.getType())) {
+                        latencyTracer.begin(AnalyticsLatencyTracer.EventKind.RULES, eventToProcess.getTimestamp(),
+                                eventQueue.getEntryTime(i));
+                        processRulesEngineResponseEvent(eventToProcess);
+                        latencyTracer.end();
+                    }
+
+                    processedCount++;
+                    lastProcessedEvent = eventToProcess;
+                    metrics.eventsProcessed.increment();
+                    metrics.eventLatency.record(System.currentTimeMillis() - eventToProcess.getTimestamp());
+                }
+            } finally {
+                // processed events are removed from the queue
+                eventQueue.remove(processedCount);
+                drainBatch.clear();
+            }
+        }
+
+        if (lastProcessedEvent != null) {
+            updateMetricsSharedState(lastProcessedEvent);
+        }
+    }
+
+    /**
+     * Checks the configuration events of the {@link #controlEventQueue} for an opt-out, ahead of the events queued in
+     * the {@link #eventQueue}.
+     *
+     * <p>
+     * Configuration events are also queued in the {@link #eventQueue}, where they are processed in order so each event
+     * uses the configuration which applied when it was dispatched. A configuration with an opted out privacy status is
+     * applied right away instead, and drops the events queued before the next configuration event which is not opted
+     * out, including the events dispatched before the opt-out. That configuration event and the events after it stay
+     * queued, so a later opt-in and the events tracked after it are not lost.
+     */
+    private void processControlEvents() {
+        Event configurationEvent;
+
+        while ((configurationEvent = controlEventQueue.poll()) != null) {
+            final Map<String, Object> configuration = getApi().getSharedEventState(
+                    AnalyticsConstants.SharedStateKeys.CONFIGURATION, configurationEvent, null);
 
-            // NOTE: configuration is mandatory to process an event, so if shared state is null (pending) stop processing events
-            if (currentConfiguration == null) {
-                Log.warning(AnalyticsConstants.LOG_TAG,
-                        "AnalyticsInternal : Could not process event, configuration shared state is pending");
+            if (MobilePrivacyStatus.OPT_OUT.equals(readPrivacyStatus(configuration))) {
+                setConfiguration(configurationEvent, configuration);
+                optOut();
+                dropEventsBefore(findOptInEventNumber());
                 return;
             }
+        }
+    }
+
+    /**
+     * Polls the {@link #controlEventQueue} up to the first configuration event which is not opted out.
+     *
+     * @return the number of that configuration event, or {@link Integer#MAX_VALUE} if there is none
+     */
+    private int findOptInEventNumber() {
+        Event configurationEvent;
 
-            else if (EventType.GENERIC_TRACK.getName().equalsIgnoreCase(eventToProcess.getType()) &&
-                    EventSource.REQUEST_CONTENT.getName().equalsIgnoreCase(eventToProcess.getSource())) {
-                // handle the track event information from the generic track request content event
-                track(eventToProcess, eventData);
+        while ((configurationEvent = controlEventQueue.poll()) != null) {
+            final Map<String, Object> configuration = getApi().getSharedEventState(
+                    AnalyticsConstants.SharedStateKeys.CONFIGURATION, configurationEvent, null);
+
+            if (!MobilePrivacyStatus.OPT_OUT.equals(readPrivacyStatus(configuration))) {
+                return configurationEvent.getEventNumber();
             }
+        }
 
-            else if (EventType.RULES_ENGINE.getName().equalsIgnoreCase(eventToProcess.getType())) {
-                processRulesEngineResponseEvent(eventToProcess);
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Drops the events at the head of the {@link #eventQueue} numbered before the given event number.
+     *
+     * @param eventNumber the number of the first event to keep
+     */
+    private void dropEventsBefore(final int eventNumber) {
+        int batchSize;
+
+        while ((batchSize = eventQueue.peek(drainBatch, AnalyticsConstants.EVENT_QUEUE_DRAIN_BATCH_SIZE)) > 0) {
+            int droppedCount = 0;
+
+            while (droppedCount < batchSize && drainBatch.get(droppedCount).getEventNumber() < eventNumber) {
+                droppedCount++;
             }
 
-            // event processed, remove it from the queue
-            eventQueue.poll();
+            drainBatch.clear();
+            eventQueue.remove(droppedCount);
+            metrics.eventsDroppedOptOut.add(droppedCount);
+
+            if (droppedCount < batchSize) {
+                return;
+            }
         }
     }
 
     /**
-     * Adds the Rules Configuration Response Content event to the event queue to be processed.
+     * Adds the Rules Configuration Response Content event to the event queue to be processed, and to the
+     * {@link #controlEventQueue} so an opt-out is applied ahead of the queued events.
      *
      * <p>
-     * Any events in the event queue will be cleared if the privacy status is opted out.
+     * If the privacy status is opted out, the queued events are dropped up to the next configuration event which is
+     * not opted out.
      *
      * @param event The Configuration Response Content {@link Event} to be processed.
      */
@@ -197,8 +605,10 @@ class AnalyticsExtension extends Extension implements EventsHandler {
             return;
         }
 
-        eventQueue.add(event);
-        processEvents();
+        latestConfigurationEventNumber = Math.max(latestConfigurationEventNumber, event.getEventNumber());
+        controlEventQueue.offer(event);
+        queueEvent(event);
+        scheduleProcessEvents();
     }
 
     /**
@@ -208,6 +618,8 @@ class AnalyticsExtension extends Extension implements EventsHandler {
      */
     @Override
     public void handleAnalyticsTrackEvent(final Event event) {
+        final long entryTimeNanos = System.nanoTime();
+
         if (event == null) {
             Log.trace(LOG_TAG, "handleAnalyticsTrackEvent - Event with id %s contained no data, ignoring.");
             return;
@@ -215,13 +627,14 @@ class AnalyticsExtension extends Extension implements EventsHandler {
 
         if (MobilePrivacyStatus.OPT_OUT.equals(getPrivacyStatus())) {
             Log.debug(LOG_TAG, "handleAnalyticsTrackEvent - Dropping track request, privacy is opted-out.");
+            metrics.eventsDroppedOptOut.increment();
             return;
         }
 
         if (event.getEventType() == EventType.GENERIC_TRACK) {
             Log.trace(LOG_TAG, "handleAnalyticsTrackEvent - Processing event with id %s.", event.getUniqueIdentifier());
-            eventQueue.add(event);
-            processEvents();
+            queueEvent(event, entryTimeNanos);
+            scheduleProcessEvents();
         }
     }
 
@@ -235,13 +648,134 @@ class AnalyticsExtension extends Extension implements EventsHandler {
      */
     @Override
     public void handleRulesEngineEvent(final Event event) {
+        final long entryTimeNanos = System.nanoTime();
+
         if (event == null) {
             Log.debug(AnalyticsConstants.LOG_TAG, "Unable to handle rules engine response. Event received is null.");
             return;
         }
 
-        eventQueue.add(event);
-        processEvents();
+        queueEvent(event, entryTimeNanos);
+        scheduleProcessEvents();
+    }
+
+    /**
+     * Updates the application state on a lifecycle start or pause.
+     *
+     * @param event The Generic Lifecycle Request Content {@link Event} to be processed.
+     */
+    @Override
+    public void handleLifecycleEvent(final Event event) {
+        if (event == null || event.getEventData() == null) {
+            Log.debug(AnalyticsConstants.LOG_TAG, "Unable to handle lifecycle request. Event or event data is null.");
+            return;
+        }
+
+        final Object lifecycleAction = event.getEventData().get(AnalyticsConstants.EventDataKeys.LIFECYCLE_ACTION_KEY);
+        if (AnalyticsConstants.EventDataKeys.LIFECYCLE_START.equals(lifecycleAction)) {
+            appStateTracker.setAppState(AnalyticsAppStateProvider.AppState.FOREGROUND, event.getTimestamp());
+        } else if (AnalyticsConstants.EventDataKeys.LIFECYCLE_PAUSE.equals(lifecycleAction)) {
+            appStateTracker.setAppState(AnalyticsAppStateProvider.AppState.BACKGROUND, event.getTimestamp());
+        }
+    }
+
+    /**
+     * Handles the requests made through the {@link Analytics} public APIs.
+     *
+     * <p>
+     * Supported requests are getting the event queue statistics and getting the runtime metrics.
+     *
+     * @param event The Analytics Request Content {@link Event} to be processed.
+     */
+    @Override
+    public void handleAnalyticsRequestEvent(final Event event) {
+        if (event == null || event.getEventData() == null) {
+            Log.debug(LOG_TAG, "handleAnalyticsRequestEvent - Event or event data is null, ignoring.");
+            return;
+        }
+
+        final Map<String, Object> eventData = event.getEventData();
+
+        if (Boolean.TRUE.equals(eventData.get(AnalyticsConstants.EventDataKeys.GET_EVENT_QUEUE_STATISTICS))) {
+            final Map<String, Object> responseData = new HashMap<>();
+            responseData.put(AnalyticsConstants.EventDataKeys.EVENT_QUEUE_SIZE, (long) eventQueue.size());
+            responseData.put(AnalyticsConstants.EventDataKeys.EVENT_QUEUE_BYTES, eventQueue.getQueuedBytes());
+            responseData.put(AnalyticsConstants.EventDataKeys.EVENTS_DROPPED_OLDEST, eventQueue.getDroppedOldestCount());
+            responseData.put(AnalyticsConstants.EventDataKeys.EVENTS_DROPPED_NEWEST, eventQueue.getDroppedNewestCount());
+            responseData.put(AnalyticsConstants.EventDataKeys.EVENTS_SPILLED, eventQueue.getSpilledCount());
+            final Event responseEvent = new Event.Builder(AnalyticsConstants.EventNames.EVENT_QUEUE_STATISTICS_RESPONSE,
+                    EventType.ANALYTICS, EventSource.RESPONSE_CONTENT).setEventData(responseData).build();
+            MobileCore.dispatchResponseEvent(responseEvent, event, null);
+        } else if (Boolean.TRUE.equals(eventData.get(AnalyticsConstants.EventDataKeys.GET_METRICS))) {
+            final Event responseEvent = new Event.Builder(AnalyticsConstants.EventNames.METRICS_RESPONSE,
+                    EventType.ANALYTICS, EventSource.RESPONSE_CONTENT).setEventData(getMetrics()).build();
+            MobileCore.dispatchResponseEvent(responseEvent, event, null);
+        }
+    }
+
+    /**
+     * Updates the cached Assurance session state when the Assurance shared state changed.
+     *
+     * <p>
+     * Hits read the cached state, so the shared state is not looked up for every hit. The shared state is read on the
+     * executor, so the event hub thread does not wait on it.
+     *
+     * @param event The Hub Shared State {@link Event} to be processed.
+     */
+    @Override
+    public void handleSharedStateEvent(final Event event) {
+        final Map<String, Object> eventData = event == null ? null : event.getEventData();
+        if (eventData == null) {
+            Log.debug(LOG_TAG, "handleSharedStateEvent - Event or event data is null, ignoring.");
+            return;
+        }
+
+        if (AnalyticsConstants.SharedStateKeys.ASSURANCE.equals(eventData.get(AnalyticsConstants.EventDataKeys.STATE_OWNER))) {
+            execute(executorService, new Runnable() {
+                @Override
+                public void run() {
+                    updateAssuranceSessionState(event);
+                }
+            });
+        }
+    }
+
+    /**
+     * Adds the event to the {@link #eventQueue}, which drops or spills events when it is full.
+     *
+     * @param event the {@link Event} to be processed
+     */
+    private void queueEvent(final Event event) {
+        queueEvent(event, System.nanoTime());
+    }
+
+    /**
+     * Adds the event to the {@link #eventQueue}, along with the time it was received by the listener, so the time it
+     * waits to be processed is traced.
+     *
+     * @param event the {@link Event} to be processed
+     * @param entryTimeNanos the {@link System#nanoTime()} the event was received at
+     */
+    private void queueEvent(final Event event, final long entryTimeNanos) {
+        if (!eventQueue.add(event, entryTimeNanos)) {
+            Log.warning(LOG_TAG, "queueEvent - Event queue is full, dropped event with id %s.", event.getUniqueIdentifier());
+            return;
+        }
+
+        metrics.eventsQueued.increment();
+    }
+
+    /**
+     * Schedules a drain of the {@link #eventQueue} on the {@link #executorService}, unless one is already pending.
+     *
+     * <p>
+     * Called on the event hub thread after an event was queued. A burst of events results in a single drain task,
+     * which processes all the events queued before it starts running.
+     */
+    private void scheduleProcessEvents() {
+        if (drainScheduled.compareAndSet(false, true)) {
+            execute(executorService, drainTask);
+        }
     }
 
     /**
@@ -253,6 +787,7 @@ class AnalyticsExtension extends Extension implements EventsHandler {
         Map<String, Object> data = event.getEventData();
         if (data == null || data.isEmpty()) {
             Log.debug(LOG_TAG, "processRulesEngineResponseEvent - Event with id %s contained no data, ignoring.", event.getUniqueIdentifier());
+            metrics.eventsDroppedMissingData.increment();
             return;
         }
 
@@ -261,6 +796,7 @@ class AnalyticsExtension extends Extension implements EventsHandler {
         final Map<String,Object> consequence = (Map<String,Object>) data.get(AnalyticsConstants.EventDataKeys.TRIGGERED_CONSEQUENCE);
         if (consequence == null || consequence.isEmpty()) {
             Log.trace(LOG_TAG, "processRulesEngineResponseEvent - Ignoring as missing consequence data in event with id %s.", event.getUniqueIdentifier());
+            metrics.eventsDroppedMissingData.increment();
             return;
         }
 
@@ -273,6 +809,7 @@ class AnalyticsExtension extends Extension implements EventsHandler {
         final String consequenceId = (String) consequence.get(AnalyticsConstants.EventDataKeys.ID);
         if (StringUtils.isNullOrEmpty(consequenceId)) {
             Log.trace(LOG_TAG, "processRulesEngineResponseEvent - Ignoring as consequence id is missing in event with id %s.", event.getUniqueIdentifier());
+            metrics.eventsDroppedMissingData.increment();
             return;
         }
 
@@ -285,15 +822,18 @@ class AnalyticsExtension extends Extension implements EventsHandler {
     }
 
     /**
-     * This method clears the event queue when privacy status is opted out.
+     * This method clears the stored identifiers when privacy status is opted out. The queued events are dropped by the
+     * caller.
      */
     private void optOut() {
-        Log.debug(LOG_TAG, "Privacy status is opted out, clearing event queue.");
-        eventQueue.clear();
+        Log.debug(LOG_TAG, "Privacy status is opted out, clearing the stored identifiers.");
 
         //Set analyticsId and visitorId null on optout
         analyticsId = null;
         visitorId = null;
+        // a new seed, so the sampling bucket of the opted out visitor is not carried over
+        samplingSeed = new Random().nextLong();
+        hitProcessor.updateVisitor();
         //remove AID and VID from data store
         if (platformServices == null) {
             Log.debug(LOG_TAG, "optout - can't remove AID and VID from data store. Platformservices is null.");
@@ -306,234 +846,357 @@ class AnalyticsExtension extends Extension implements EventsHandler {
         }
         dataStore.remove(AnalyticsConstants.DataStoreKeys.ANALYTICS_ID);
         dataStore.remove(AnalyticsConstants.DataStoreKeys.VISITOR_ID);
+        dataStore.setLong(AnalyticsConstants.DataStoreKeys.SAMPLING_SEED, samplingSeed);
         Log.debug(LOG_TAG, "optout - Removed AID and VID from datastore on optout.");
     }
 
     /**
-     * Returns the privacy status present in the last valid configuration.
+     * Checks if the cached configuration shared state has to be read again before processing the given event.
      *
-     * @return The {@link MobilePrivacyStatus} present in the configuration.
+     * <p>
+     * The configuration is read again when no valid configuration was cached yet, when the event is a configuration
+     * response event or when a configuration response was received at or before the event and after the cached
+     * configuration was read.
+     *
+     * @param event the {@link Event} about to be processed
+     * @return true if the configuration shared state should be read for {@code event}
      */
-    private MobilePrivacyStatus getPrivacyStatus() {
-        if (currentConfiguration != null && !currentConfiguration.isEmpty()) {
-            final Object currentPrivacy = currentConfiguration.get(AnalyticsConstants.Configuration.GLOBAL_CONFIG_PRIVACY);
-            if (currentPrivacy != null) {
-                return MobilePrivacyStatus.fromString(currentPrivacy.toString());
-            }
+    private boolean shouldUpdateConfiguration(final Event event) {
+        if (currentConfiguration == null || currentConfigurationVersion < 0) {
+            return true;
         }
-        return AnalyticsConstants.DEFAULT_PRIVACY_STATUS;
+
+        if (EventType.CONFIGURATION.getName().equalsIgnoreCase(event.getType())) {
+            return true;
+        }
+
+        final int configurationEventNumber = latestConfigurationEventNumber;
+        return configurationEventNumber > currentConfigurationVersion && event.getEventNumber() >= configurationEventNumber;
     }
 
     /**
-     * Helper method to get the correct action prefix.
+     * Reads the configuration shared state for the given event and caches it along with the event number.
      *
-     * @param isInternalAction A boolean signaling if the track request is internal.
-     *
-     * @return The action prefix {@link String} corresponding to the type of track request.
+     * @param event the {@link Event} used to read the configuration shared state
      */
-    private String getActionPrefix(final boolean isInternalAction) {
-        return isInternalAction ? AnalyticsConstants.INTERNAL_ACTION_PREFIX : AnalyticsConstants.ACTION_PREFIX;
+    private void updateConfiguration(final Event event) {
+        setConfiguration(event, getApi().getSharedEventState(AnalyticsConstants.SharedStateKeys.CONFIGURATION, event, null));
     }
 
     /**
-     * Helper method to get the correct action key.
-     *
-     * @param isInternalAction A boolean signaling if the track request is internal.
+     * Caches the given configuration shared state along with the number of the event it was read for.
      *
-     * @return The action key {@link String} corresponding to the type of track request.
+     * @param event the {@link Event} the configuration shared state was read for
+     * @param configuration the configuration shared state, null if pending
      */
-    private String getActionKey(final boolean isInternalAction) {
-        return isInternalAction ? AnalyticsConstants.ContextDataKeys.INTERNAL_ACTION :
-                AnalyticsConstants.ContextDataKeys.ACTION;
+    private void setConfiguration(final Event event, final Map<String, Object> configuration) {
+        currentConfiguration = configuration;
+        currentConfigurationVersion = configuration == null ? -1 : event.getEventNumber();
+        privacyStatus = readPrivacyStatus(configuration);
     }
 
     /**
-     * This prepares the analytics variables and analytics data from the passed in event.
+     * Returns the privacy status present in the last valid configuration. May be called from any thread.
      *
-     * @param event An event containing track data for processing
-     * @param data Track data for processing
+     * @return The {@link MobilePrivacyStatus} present in the configuration.
      */
-    private void track(final Event event, final Map<String, Object> data) {
-        if (data == null || !(data.containsKey(AnalyticsConstants.EventDataKeys.TRACK_STATE) ||
-                data.containsKey(AnalyticsConstants.EventDataKeys.TRACK_ACTION) ||
-                data.containsKey(AnalyticsConstants.EventDataKeys.CONTEXT_DATA))) {
-            Log.warning(LOG_TAG, "track - Dropping request as event data is null or missing state, action or contextData");
-            return;
-        }
-        final Map<String, String> analyticsVars = processAnalyticsVars(event, data);
-        final Map<String, String> analyticsData = processAnalyticsData(event, data);
-        sendAnalyticsHit(analyticsVars, analyticsData);
+    private MobilePrivacyStatus getPrivacyStatus() {
+        return privacyStatus;
     }
 
     /**
-     * This method converts the event's event data into analytics variables.
+     * Returns the privacy status present in the given configuration.
      *
-     * @param event The Generic Track Request Content {@link Event}.
-     * @param data Track data for processing
-     *
-     * @return {@code Map<String, String>} containing the vars data
-     */
-    private HashMap<String, String> processAnalyticsVars(final Event event, final Map<String, Object> data) {
-        final HashMap<String, String> processedVars = new HashMap<>();
-        // Context: pe/pev2 values should always be present in track calls if there's action regardless of state.
-        // If state is present then pageName = state name else pageName = app id to prevent hit from being discarded.
-        final String actionName = (String) data.get(AnalyticsConstants.EventDataKeys.TRACK_ACTION);
-        if (!StringUtils.isNullOrEmpty(actionName)) {
-            processedVars.put(AnalyticsConstants.AnalyticsRequestKeys.IGNORE_PAGE_NAME, AnalyticsConstants.IGNORE_PAGE_NAME_VALUE);
-            boolean isInternal = false;
-            if (data.get(AnalyticsConstants.EventDataKeys.TRACK_INTERNAL) != null) {
-                isInternal = (boolean) data.get(AnalyticsConstants.EventDataKeys.TRACK_INTERNAL);
+     * @param configuration the configuration shared state, may be null
+     * @return The {@link MobilePrivacyStatus} present in the configuration.
+     */
+    private static MobilePrivacyStatus readPrivacyStatus(final Map<String, Object> configuration) {
+        if (configuration != null && !configuration.isEmpty()) {
+            final Object currentPrivacy = configuration.get(AnalyticsConstants.Configuration.GLOBAL_CONFIG_PRIVACY);
+            if (currentPrivacy != null) {
+                return MobilePrivacyStatus.fromString(currentPrivacy.toString());
             }
-            processedVars.put(AnalyticsConstants.AnalyticsRequestKeys.ACTION_NAME, getActionPrefix(isInternal) + actionName);
         }
+        return DEFAULT_PRIVACY_STATUS;
+    }
 
-        final String stateName = (String) data.get(AnalyticsConstants.EventDataKeys.TRACK_STATE);
-        if (!StringUtils.isNullOrEmpty(stateName)) {
-            processedVars.put(AnalyticsConstants.AnalyticsRequestKeys.PAGE_NAME, stateName);
-        } else {
-            processedVars.put(AnalyticsConstants.AnalyticsRequestKeys.PAGE_NAME, applicationIdentifier);
+    /**
+     * Returns the integer value for the given key in the last valid configuration.
+     *
+     * @param key the configuration key
+     * @param defaultValue the value returned when the key is missing or is not a number
+     * @return the configured value or {@code defaultValue}
+     */
+    private int getConfigurationInt(final String key, final int defaultValue) {
+        if (currentConfiguration == null) {
+            return defaultValue;
         }
 
-        if (!StringUtils.isNullOrEmpty(analyticsId)) {
-            processedVars.put(AnalyticsConstants.AnalyticsRequestKeys.ANALYTICS_ID, analyticsId);
-        }
-        if (!StringUtils.isNullOrEmpty(visitorId)) {
-            processedVars.put(AnalyticsConstants.AnalyticsRequestKeys.VISITOR_ID, visitorId);
+        final Object value = currentConfiguration.get(key);
+        if (value instanceof Number) {
+            return ((Number) value).intValue();
         }
+        return defaultValue;
+    }
 
-        processedVars.put(AnalyticsConstants.AnalyticsRequestKeys.CHARSET, AnalyticsConstants.CHARSET);
-        processedVars.put(AnalyticsConstants.AnalyticsRequestKeys.FORMATTED_TIMESTAMP, AnalyticsConstants.TIMESTAMP_TIMEZONE_OFFSET);
+    /**
+     * Returns the long value for the given key in the last valid configuration.
+     *
+     * @param key the configuration key
+     * @param defaultValue the value returned when the key is missing or is not a number
+     * @return the configured value or {@code defaultValue}
+     */
+    private long getConfigurationLong(final String key, final long defaultValue) {
+        if (currentConfiguration == null) {
+            return defaultValue;
+        }
 
-        // Set timestamp for all requests.
-        processedVars.put(AnalyticsConstants.AnalyticsRequestKeys.STRING_TIMESTAMP, Long.toString(event.getTimestampInSeconds()));
+        final Object value = currentConfiguration.get(key);
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        return defaultValue;
+    }
 
-        final UIService uiService = platformServices.getUIService();
+    /**
+     * Applies the event queue caps and overflow policy present in the last valid configuration.
+     */
+    private void updateEventQueueOptions() {
+        final Object overflowPolicy = currentConfiguration == null ? null :
+                currentConfiguration.get(AnalyticsConstants.Configuration.ANALYTICS_EVENT_QUEUE_OVERFLOW_POLICY);
+        eventQueue.setOptions(
+                getConfigurationInt(AnalyticsConstants.Configuration.ANALYTICS_EVENT_QUEUE_MAX_EVENTS,
+                        AnalyticsConstants.DEFAULT_EVENT_QUEUE_MAX_EVENTS),
+                getConfigurationLong(AnalyticsConstants.Configuration.ANALYTICS_EVENT_QUEUE_MAX_BYTES,
+                        AnalyticsConstants.DEFAULT_EVENT_QUEUE_MAX_BYTES),
+                AnalyticsEventQueue.OverflowPolicy.fromString(overflowPolicy instanceof String ? (String) overflowPolicy : null,
+                        AnalyticsEventQueue.DEFAULT_OVERFLOW_POLICY));
+    }
 
-        if (uiService != null) {
-            if (uiService.getAppState() == UIService.AppState.BACKGROUND) {
-                processedVars.put(AnalyticsConstants.AnalyticsRequestKeys.CUSTOMER_PERSPECTIVE,
-                        AnalyticsConstants.APP_STATE_BACKGROUND);
-            } else {
-                processedVars.put(AnalyticsConstants.AnalyticsRequestKeys.CUSTOMER_PERSPECTIVE,
-                        AnalyticsConstants.APP_STATE_FOREGROUND);
-            }
-        }
+    /**
+     * Applies the metrics options present in the last valid configuration.
+     */
+    private void updateMetricsOptions() {
+        final Object sharedStateEnabled = currentConfiguration == null ? null :
+                currentConfiguration.get(AnalyticsConstants.Configuration.ANALYTICS_METRICS_SHARED_STATE);
+        metricsSharedStateEnabled = sharedStateEnabled instanceof Boolean ? (Boolean) sharedStateEnabled :
+                AnalyticsConstants.DEFAULT_METRICS_SHARED_STATE_ENABLED;
+    }
 
-        return processedVars;
+    /**
+     * Applies the executor idle timeout present in the last valid configuration.
+     */
+    private void updateExecutorOptions() {
+        final int idleTimeout = getConfigurationInt(AnalyticsConstants.Configuration.ANALYTICS_EXECUTOR_IDLE_TIMEOUT,
+                AnalyticsConstants.DEFAULT_EXECUTOR_IDLE_TIMEOUT);
+        // the keep alive time of an executor whose core thread times out must be positive
+        executorService.setKeepAliveTime(Math.max(idleTimeout, 1), TimeUnit.SECONDS);
     }
 
     /**
-     * This method converts the event's event data into analytics variables.
-     *
-     * @param event The Generic Track Request Content {@link Event}.
-     * @param data Track data for processing
-     *
-     * @return {@code Map<String, String>} containing the context data
+     * Starts or stops recording the handled events as configured in the last valid configuration. A new recording
+     * starts with the current configuration, so the trace can be replayed from its first event.
      */
-    private HashMap<String, String> processAnalyticsData(final Event event, final Map<String, Object> data) {
-        final HashMap<String, String> processedContextData = new HashMap<>();
+    private void updateEventRecorder() {
+        final boolean recordEvents = currentConfiguration != null &&
+                Boolean.TRUE.equals(currentConfiguration.get(AnalyticsConstants.Configuration.ANALYTICS_RECORD_EVENTS));
 
-        final Map<String, String> contextData = (Map<String, String>) data.get(AnalyticsConstants.EventDataKeys.CONTEXT_DATA);
-        if (contextData != null && !contextData.isEmpty()) {
-            Iterator iterator = contextData.entrySet().iterator();
-            while(iterator.hasNext()){
-                Map.Entry<String, String> currentEntry = (Map.Entry<String, String>) iterator.next();
-                processedContextData.put(currentEntry.getKey(), currentEntry.getValue());
-            }
+        if (!recordEvents) {
+            stopEventRecorder();
+            return;
         }
 
-        final String actionName = (String) data.get(AnalyticsConstants.EventDataKeys.TRACK_ACTION);
-        if (!StringUtils.isNullOrEmpty(actionName)) {
-            boolean isInternal = false;
-            if (data.get(AnalyticsConstants.EventDataKeys.TRACK_INTERNAL) != null) {
-                isInternal = (boolean) data.get(AnalyticsConstants.EventDataKeys.TRACK_INTERNAL);
-            }
-            processedContextData.put(getActionKey(isInternal), actionName);
+        if (eventRecorder != null) {
+            return;
         }
 
-        if (getPrivacyStatus() == MobilePrivacyStatus.UNKNOWN) {
-            processedContextData.put(AnalyticsConstants.AnalyticsRequestKeys.PRIVACY_MODE, "unknown");
+        final File cacheDirectory = getExtensionCacheDirectory();
+        if (cacheDirectory == null) {
+            Log.debug(LOG_TAG, "updateEventRecorder - Cache directory is not available, events are not recorded.");
+            return;
         }
 
-        if (isAssuranceSessionActive(event)) {
-            processedContextData.put(AnalyticsConstants.ContextDataKeys.EVENT_IDENTIFIER, event.getUniqueIdentifier());
+        final File traceFile = new File(new File(cacheDirectory, AnalyticsConstants.EVENT_TRACE_DIRECTORY),
+                AnalyticsConstants.EVENT_TRACE_FILE_PREFIX + System.currentTimeMillis());
+        final AnalyticsEventRecorder recorder = AnalyticsEventRecorder.open(traceFile, AnalyticsConstants.EVENT_TRACE_MAX_BYTES);
+
+        if (recorder != null) {
+            Log.debug(LOG_TAG, "updateEventRecorder - Recording the handled events to %s.", traceFile);
+            recorder.record(AnalyticsEventRecorder.KIND_CONFIGURATION, null, currentConfiguration);
+            eventRecorder = recorder;
         }
+    }
 
-        return processedContextData;
+    /**
+     * Stops recording the handled events, if they are recorded.
+     */
+    private void stopEventRecorder() {
+        final AnalyticsEventRecorder recorder = eventRecorder;
+
+        if (recorder != null) {
+            eventRecorder = null;
+            recorder.close();
+        }
     }
 
     /**
-     * Returns true if the Assurance session is active false otherwise. Determines it by checking if the Assurance
-     * shared state contains a non null and non empty session id.
-     * @param event The {@link EventData} to be use for getting Assurance Shared state.
-     * @return a boolean, true if the Assurance session is active false otherwise.
+     * Records the given event if the handled events are recorded. Events are recorded on the executor as they are
+     * processed, so the event hub thread does not write to the trace.
+     *
+     * @param event the processed {@link Event}
+     * @param entryTimeNanos the {@link System#nanoTime()} the event was received at
      */
-    private boolean isAssuranceSessionActive(final Event event) {
-        if (event == null || event.getEventData() == null) {
-            Log.debug(LOG_TAG, "isAssuranceSessionActive - event or event data is null. Returning false.");
-            return false;
+    private void recordEvent(final Event event, final long entryTimeNanos) {
+        if (eventRecorder == null) {
+            return;
         }
 
-        final ExtensionApi extensionApi = getApi();
-        final EventData assuranceSharedState = extensionApi.getSharedEventState(AnalyticsConstants.SharedStateKeys.ASSURANCE, event);
-        if (assuranceSharedState == null) {
-            return false;
+        final String kind;
+        if (EventType.CONFIGURATION.getName().equalsIgnoreCase(event.getType())) {
+            kind = AnalyticsEventRecorder.KIND_CONFIGURATION;
+        } else if (EventType.RULES_ENGINE.getName().equalsIgnoreCase(event.getType())) {
+            kind = AnalyticsEventRecorder.KIND_RULES;
+        } else {
+            kind = AnalyticsEventRecorder.KIND_TRACK;
         }
-        final String sessionId = assuranceSharedState.optString(AnalyticsConstants.EventDataKeys.SESSION_ID,"");
-        return !StringUtils.isNullOrEmpty(sessionId);
+
+        eventRecorder.record(kind, event, entryTimeNanos);
     }
 
     /**
-     * This method sends the analytics data to the Edge extension to be sent to the Edge.
+     * Returns the runtime {@link #metrics} along with the current depth of the event queue.
      *
-     * @param analyticsVars {@code Map<String, String>} containing the analytics vars
-     * @param analyticsData {@code Map<String, String>} containing the analytics context data
+     * @return the metric values
+     */
+    Map<String, Object> getMetrics() {
+        final Map<String, Object> metricsData = metrics.snapshot();
+        metricsData.put(AnalyticsConstants.EventDataKeys.EVENT_QUEUE_SIZE, (long) eventQueue.size());
+        return metricsData;
+    }
+
+    /**
+     * Sets the extension shared state to the current metrics, if enabled in the configuration and if the shared
+     * state was not set within the last {@link AnalyticsConstants#METRICS_SHARED_STATE_INTERVAL_MILLIS}.
      *
+     * @param event the last processed {@link Event}, used as the shared state version
      */
-    private void sendAnalyticsHit(final Map<String, String> analyticsVars, final Map<String, String> analyticsData) {
-        final HashMap<String, Object> legacyAnalyticsData = new HashMap<>();
-        final HashMap<String, String> contextData = new HashMap<>();
+    private void updateMetricsSharedState(final Event event) {
+        if (!metricsSharedStateEnabled) {
+            return;
+        }
 
-        legacyAnalyticsData.putAll(analyticsVars);
+        final long now = System.currentTimeMillis();
+        if (metricsSharedStateTimeMillis > 0 &&
+                now - metricsSharedStateTimeMillis < AnalyticsConstants.METRICS_SHARED_STATE_INTERVAL_MILLIS) {
+            return;
+        }
 
-        legacyAnalyticsData.put("ndh", 1);
+        metricsSharedStateTimeMillis = now;
+        final Map<String, Object> sharedState = new HashMap<>();
+        sharedState.put(AnalyticsConstants.EventDataKeys.METRICS, getMetrics());
+        getApi().setSharedEventState(sharedState, event, null);
+    }
 
-        // It takes the provided data map and removes key-value pairs where the key is null or is prefixed with "&&"
-        // The prefixed ones will be moved in the vars map
-        if (!analyticsData.isEmpty()) {
-            for (Map.Entry<String, String> entry : analyticsData.entrySet()) {
-                String key = entry.getKey();
-                if (key.startsWith(AnalyticsConstants.VAR_ESCAPE_PREFIX)){
-                    final String strippedKey = key.substring(AnalyticsConstants.VAR_ESCAPE_PREFIX.length());
-                    legacyAnalyticsData.put(strippedKey, entry.getValue());
-                } else if (!StringUtils.isNullOrEmpty(key)){
-                    contextData.put(key, entry.getValue());
-                }
-            }
+    /**
+     * Hands the track request to the {@link #hitProcessor}, with the event identifier if an Assurance session is
+     * active. The identifier of an event read back from the spill queue is the one of the event which was spilled.
+     *
+     * @param event An event containing track data for processing
+     * @param data Track data for processing
+     */
+    private void track(final Event event, final Map<String, Object> data) {
+        hitProcessor.track(data, event.getTimestamp(),
+                assuranceSessionActive ? eventQueue.getUniqueIdentifier(event) : null);
+    }
+
+    /**
+     * Reads the Assurance shared state and caches whether an Assurance session is active, that is if the shared state
+     * contains a non null and non empty session id.
+     *
+     * <p>
+     * The state is versioned with the number of the event it was read for, so a state read for an older event does
+     * not override a newer one. Called on the executor only.
+     *
+     * @param event the shared state change {@link Event} to read the state for, or null to read the latest state
+     */
+    private void updateAssuranceSessionState(final Event event) {
+        final Map<String, Object> assuranceSharedState = getApi().getSharedEventState(
+                AnalyticsConstants.SharedStateKeys.ASSURANCE, event, null);
+        final Object sessionId = assuranceSharedState == null ? null :
+                assuranceSharedState.get(AnalyticsConstants.EventDataKeys.SESSION_ID);
+        final boolean sessionActive = sessionId instanceof String && !((String) sessionId).isEmpty();
+        final int version = event == null ? -1 : event.getEventNumber();
+
+        if (version < assuranceSessionVersion) {
+            return;
         }
 
-        legacyAnalyticsData.put(AnalyticsConstants.XDMDataKeys.CONTEXT_DATA, contextData);
+        assuranceSessionVersion = version;
 
-        // create experienceEvent and send the hit using the edge extension
-        final HashMap<String, String> xdm = new HashMap<>();
-        xdm.put(AnalyticsConstants.XDMDataKeys.EVENTTYPE, AnalyticsConstants.ANALYTICS_XDM_EVENTTYPE);
-        final HashMap<String, Object> edgeEventData = new HashMap<>();
-        final HashMap<String, Object> edgeLegacyData = new HashMap<String, Object>() {
-            {
-                put(AnalyticsConstants.XDMDataKeys.ANALYTICS, legacyAnalyticsData);
-            }
-        };
-        edgeEventData.put(AnalyticsConstants.XDMDataKeys.LEGACY, edgeLegacyData);
+        if (sessionActive != assuranceSessionActive) {
+            Log.debug(LOG_TAG, "updateAssuranceSessionState - Assurance session is %s.", sessionActive ? "active" : "inactive");
+            assuranceSessionActive = sessionActive;
+        }
+    }
 
-        Map<String, Object> eventData = new HashMap<>();
-        eventData.put(AnalyticsConstants.XDMDataKeys.XDM, xdm);
-        eventData.put(AnalyticsConstants.XDMDataKeys.DATA, edgeEventData);
+    /**
+     * This method creates an experience event containing the given hit and dispatches it to the Edge extension.
+     *
+     * <p>
+     * Each hit is sent under {@code _legacy.analytics} in its own experience event, as the Edge accepts a single
+     * Analytics hit per event.
+     *
+     * @param legacyAnalyticsData {@code Map<String, Object>} containing the {@code _legacy.analytics} payload of the hit
+     */
+    private void dispatchAnalyticsRequest(final Map<String, Object> legacyAnalyticsData) {
+        // create experienceEvent and send the hit using the edge extension
+        final Map<String, Object> eventData = AnalyticsHitBuilder.createEdgeEventData(legacyAnalyticsData);
         final Event event = new Event.Builder(
                 AnalyticsConstants.ANALYTICS_XDM_EVENTNAME,
                 EventType.get(AnalyticsConstants.Edge.EVENT_TYPE),
                 EventSource.REQUEST_CONTENT).setEventData(eventData).build();
 
         MobileCore.dispatchEvent(event, null);
+        metrics.hitsDispatched.increment();
+        metrics.hitsDispatchedRate.record(System.currentTimeMillis());
+    }
+
+    /**
+     * Creates a persistent {@link AnalyticsHitQueue} in the application cache directory. The cache directory is
+     * looked up when the queue is first used, which happens on the {@link #executorService}.
+     *
+     * @param directoryName the name of the queue directory, in the extension cache directory
+     * @return the {@link AnalyticsHitQueue}, which keeps no records if the cache directory is not available
+     */
+    private AnalyticsHitQueue createRecordQueue(final String directoryName) {
+        return new AnalyticsHitQueue(new AnalyticsHitQueue.DirectoryProvider() {
+            @Override
+            public File getDirectory() {
+                final File cacheDirectory = getExtensionCacheDirectory();
+
+                if (cacheDirectory == null) {
+                    Log.debug(LOG_TAG, "createRecordQueue - Cache directory is not available, %s will be kept in memory.", directoryName);
+                    return null;
+                }
+
+                return new File(cacheDirectory, directoryName);
+            }
+        });
+    }
+
+    /**
+     * Returns the extension directory in the application cache directory, which is looked up once available.
+     *
+     * @return the extension cache directory, or null if the cache directory is not available
+     */
+    private synchronized File getExtensionCacheDirectory() {
+        if (extensionCacheDirectory == null) {
+            final SystemInfoService systemInfoService = platformServices == null ? null : platformServices.getSystemInfoService();
+            final File cacheDirectory = systemInfoService == null ? null : systemInfoService.getApplicationCacheDir();
+            extensionCacheDirectory = cacheDirectory == null ? null : new File(cacheDirectory, EXTENSION_NAME);
+        }
+
+        return extensionCacheDirectory;
     }
 
     /**
@@ -554,17 +1217,36 @@ class AnalyticsExtension extends Extension implements EventsHandler {
     }
 
     /**
-     * Getter for the {@link #executorService}. Access to which is mutex protected.
+     * Initializes the {@link #samplingSeed} using the value stored in local storage, storing a new random seed if
+     * there is none.
+     */
+    private void initializeSamplingSeed() {
+        final LocalStorageService localStorageService = platformServices == null ? null : platformServices.getLocalStorageService();
+        final LocalStorageService.DataStore dataStore = localStorageService == null ? null :
+                localStorageService.getDataStore(AnalyticsConstants.DATASTORE_NAME);
+
+        if (dataStore != null && dataStore.contains(AnalyticsConstants.DataStoreKeys.SAMPLING_SEED)) {
+            samplingSeed = dataStore.getLong(AnalyticsConstants.DataStoreKeys.SAMPLING_SEED, 0);
+            return;
+        }
+
+        samplingSeed = new Random().nextLong();
+
+        if (dataStore == null) {
+            Log.debug(LOG_TAG, "initializeSamplingSeed - DataStore is null, the sampling seed is kept for this launch only.");
+            return;
+        }
+
+        dataStore.setLong(AnalyticsConstants.DataStoreKeys.SAMPLING_SEED, samplingSeed);
+    }
+
+    /**
+     * Getter for the {@link #executorService}, which processes the queued events. Its thread is released when idle
+     * and the executor is shut down when the extension is unregistered.
      *
      * @return A non-null {@link ExecutorService} instance
      */
     ExecutorService getExecutor() {
-        synchronized (executorMutex) {
-            if (executorService == null) {
-                executorService = Executors.newSingleThreadExecutor();
-            }
-
-            return executorService;
-        }
+        return executorService;
     }
 }
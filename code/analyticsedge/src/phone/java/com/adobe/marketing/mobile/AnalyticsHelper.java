@@ -12,9 +12,12 @@
 
 package com.adobe.marketing.mobile;
 
+import static com.adobe.marketing.mobile.AnalyticsConstants.LOG_TAG;
+
 class AnalyticsHelper {
     private PlatformServices platformServices;
     private SystemInfoService systemInfoService;
+    private String applicationIdentifier;
 
     AnalyticsHelper(final PlatformServices platformServices) {
         this.platformServices = platformServices;
@@ -24,12 +27,73 @@ class AnalyticsHelper {
     /**
      * Gets application info from the {@link AndroidSystemInfoService} and builds an application identifier string.
      *
+     * <p>
+     * The identifier is cached in memory and persisted in the data store along with the application version code, so
+     * it is only built again when the version code changes between launches.
+     *
      */
      String getApplicationIdentifier() {
+        if (applicationIdentifier != null) {
+            return applicationIdentifier;
+        }
+
+        final String applicationBuildNumber = systemInfoService.getApplicationVersionCode();
+        final LocalStorageService.DataStore dataStore = getDataStore();
+
+        if (dataStore != null) {
+            final String storedIdentifier = dataStore.getString(AnalyticsConstants.DataStoreKeys.APPLICATION_IDENTIFIER, null);
+            final String storedBuildNumber = dataStore.getString(AnalyticsConstants.DataStoreKeys.APPLICATION_VERSION_CODE, null);
+
+            if (storedIdentifier != null && String.valueOf(applicationBuildNumber).equals(storedBuildNumber)) {
+                applicationIdentifier = storedIdentifier;
+                return applicationIdentifier;
+            }
+        }
+
         final String applicationName =  systemInfoService.getApplicationName();
         final String applicationVersion = systemInfoService.getApplicationVersion();
-        final String applicationBuildNumber = systemInfoService.getApplicationVersionCode();
         final StringBuilder applicationIdentifierStringBuilder = new StringBuilder().append(applicationName).append(applicationVersion).append(applicationBuildNumber);
-        return applicationIdentifierStringBuilder.toString().replaceAll("  ", " ").replaceAll("()", "").trim();
+        applicationIdentifier = normalizeApplicationIdentifier(applicationIdentifierStringBuilder);
+
+        if (dataStore != null) {
+            dataStore.setString(AnalyticsConstants.DataStoreKeys.APPLICATION_IDENTIFIER, applicationIdentifier);
+            dataStore.setString(AnalyticsConstants.DataStoreKeys.APPLICATION_VERSION_CODE, String.valueOf(applicationBuildNumber));
+        }
+
+        return applicationIdentifier;
+    }
+
+    /**
+     * Collapses each pair of consecutive spaces into one space and trims the result, in a single pass without
+     * regular expressions.
+     *
+     * @param identifier the raw application identifier
+     * @return the normalized application identifier
+     */
+    static String normalizeApplicationIdentifier(final CharSequence identifier) {
+        final int length = identifier.length();
+        final StringBuilder normalized = new StringBuilder(length);
+
+        for (int i = 0; i < length; i++) {
+            final char c = identifier.charAt(i);
+            normalized.append(c);
+
+            if (c == ' ' && i + 1 < length && identifier.charAt(i + 1) == ' ') {
+                // skip the second space of the pair
+                i++;
+            }
+        }
+
+        return normalized.toString().trim();
+    }
+
+    private LocalStorageService.DataStore getDataStore() {
+        final LocalStorageService localStorageService = platformServices.getLocalStorageService();
+        if (localStorageService == null) {
+            Log.debug(LOG_TAG, "getApplicationIdentifier - Unable to cache the application identifier. LocalStorageService is null.");
+            return null;
+        }
+
+        return localStorageService.getDataStore(AnalyticsConstants.DATASTORE_NAME);
     }
 }
@@ -0,0 +1,530 @@
+/*
+  Copyright 2021 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static com.adobe.marketing.mobile.AnalyticsConstants.LOG_TAG;
+
+/**
+ * Persistent, append-only FIFO queue of records stored in segment files.
+ *
+ * <p>
+ * Records are encoded with {@link AnalyticsRecordCodec} and appended to the newest segment file; a new segment is
+ * started every {@link #RECORDS_PER_SEGMENT} records. The position of the oldest pending record is kept in a small
+ * cursor file, and segments are deleted once all their records were removed. The queue is loaded lazily on first
+ * use by counting the records on disk without decoding them, after which {@link #size()} is a field read.
+ *
+ * <p>
+ * A record which cannot be decoded, or the rest of a segment which cannot be read, is dropped once it reaches the
+ * head of the queue, so the records after it are still read. The number of records dropped is kept for the owner
+ * to read with {@link #getDroppedCount()}.
+ *
+ * <p>
+ * A record which fails to be written is truncated from its segment, so the next record starts at a record boundary.
+ * If the segment cannot be truncated, it is sealed and the next record starts a new segment.
+ */
+class AnalyticsHitQueue {
+    static final int RECORDS_PER_SEGMENT = 100;
+    private static final String SEGMENT_FILE_SUFFIX = ".seg";
+    private static final String CURSOR_FILE_NAME = "cursor";
+    private static final String CURSOR_TEMP_FILE_NAME = "cursor.tmp";
+
+    private final DirectoryProvider directoryProvider;
+    private File directory;
+    private final LinkedList<Segment> segments = new LinkedList<>();
+    private boolean loaded;
+    private boolean available;
+    private long lastSegmentId;
+    private int headConsumed;
+    private int size;
+    private long droppedCount;
+    private OutputStream tailOutputStream;
+
+    private static final class Segment {
+        final long id;
+        final File file;
+        int recordCount;
+        long byteLength; // length of the complete records
+        boolean sealed; // no record is appended once set
+
+        Segment(final long id, final File file) {
+            this.id = id;
+            this.file = file;
+        }
+    }
+
+    /**
+     * Provides the directory of the queue when it is first used, so looking it up is kept off the thread creating the
+     * queue.
+     */
+    interface DirectoryProvider {
+        /**
+         * @return the directory holding the segment files, or null if records cannot be persisted
+         */
+        File getDirectory();
+    }
+
+    /**
+     * Constructor. No file is accessed until the queue is first used.
+     *
+     * @param directory the directory holding the segment files
+     */
+    AnalyticsHitQueue(final File directory) {
+        this(new DirectoryProvider() {
+            @Override
+            public File getDirectory() {
+                return directory;
+            }
+        });
+    }
+
+    /**
+     * Constructor. Neither the directory provider nor any file is accessed until the queue is first used.
+     *
+     * @param directoryProvider the {@link DirectoryProvider} of the directory holding the segment files
+     */
+    AnalyticsHitQueue(final DirectoryProvider directoryProvider) {
+        this.directoryProvider = directoryProvider;
+    }
+
+    /**
+     * Appends a record to the end of the queue.
+     *
+     * @param record the record to persist
+     * @return true if the record was persisted
+     */
+    synchronized boolean add(final Map<String, Object> record) {
+        load();
+
+        if (!available) {
+            return false;
+        }
+
+        try {
+            final byte[] bytes = AnalyticsRecordCodec.encode(record);
+            Segment tail = segments.peekLast();
+
+            if (tail == null || tail.recordCount >= RECORDS_PER_SEGMENT || tail.sealed) {
+                closeTailOutputStream();
+                lastSegmentId++;
+                tail = new Segment(lastSegmentId, new File(directory, segmentFileName(lastSegmentId)));
+                segments.addLast(tail);
+            }
+
+            if (tailOutputStream == null) {
+                tailOutputStream = openOutputStream(tail.file);
+            }
+
+            try {
+                tailOutputStream.write(bytes);
+                tailOutputStream.flush();
+            } catch (IOException e) {
+                // closed first, so the bytes flushed on close are truncated as well
+                closeTailOutputStream();
+
+                if (!truncateFile(tail.file, tail.byteLength)) {
+                    tail.sealed = true;
+                }
+
+                throw e;
+            }
+
+            tail.byteLength += bytes.length;
+            tail.recordCount++;
+            size++;
+            return true;
+        } catch (IOException e) {
+            Log.warning(LOG_TAG, "AnalyticsHitQueue - Failed to persist record (%s).", e.getLocalizedMessage());
+            closeTailOutputStream();
+            return false;
+        }
+    }
+
+    /**
+     * @return the number of records in the queue
+     */
+    synchronized int size() {
+        load();
+        return size;
+    }
+
+    /**
+     * Reads, without removing them, up to {@code maxCount} records from the head of the queue.
+     *
+     * <p>
+     * Records are streamed from the segment files, so only the returned records are held in memory.
+     *
+     * @param maxCount the maximum number of records to read
+     * @return the records in queue order, never null
+     */
+    synchronized List<Map<String, Object>> peek(final int maxCount) {
+        load();
+
+        if (Math.min(maxCount, size) <= 0) {
+            return Collections.emptyList();
+        }
+
+        final List<Map<String, Object>> records = new ArrayList<>(Math.min(maxCount, size));
+
+        // the records read before an unreadable record are returned, it is dropped once they were removed
+        while (records.isEmpty() && size > 0) {
+            final int unreadableCount = readRecords(records, Math.min(maxCount, size));
+
+            if (records.isEmpty() && unreadableCount > 0) {
+                Log.warning(LOG_TAG, "AnalyticsHitQueue - Dropping %d unreadable records.", unreadableCount);
+                droppedCount += unreadableCount;
+                remove(unreadableCount);
+            }
+        }
+
+        return records;
+    }
+
+    /**
+     * Reads up to {@code count} records from the head of the queue, stopping at the first record which cannot be
+     * read.
+     *
+     * @param records the list receiving the records
+     * @param count the maximum number of records to read, at most {@link #size}
+     * @return the number of records which cannot be read from the position following the last record read: 1 for a
+     * record which cannot be decoded, the number of remaining records of the segment if the segment cannot be read,
+     * or 0 if no unreadable record was found
+     */
+    private int readRecords(final List<Map<String, Object>> records, final int count) {
+        int recordsToSkip = headConsumed;
+
+        for (Segment segment : segments) {
+            DataInputStream input = null;
+            int segmentPosition = recordsToSkip;
+
+            try {
+                input = new DataInputStream(new BufferedInputStream(new FileInputStream(segment.file)));
+
+                for (; recordsToSkip > 0; recordsToSkip--) {
+                    AnalyticsRecordCodec.skip(input);
+                }
+
+                while (records.size() < count && segmentPosition < segment.recordCount) {
+                    final byte[] payload = AnalyticsRecordCodec.readPayload(input);
+                    if (payload == null) {
+                        throw new EOFException("Missing records");
+                    }
+
+                    try {
+                        records.add(AnalyticsRecordCodec.decode(payload));
+                    } catch (IOException e) {
+                        Log.warning(LOG_TAG, "AnalyticsHitQueue - Failed to decode a record of %s (%s).",
+                                segment.file.getName(), e.getLocalizedMessage());
+                        return 1;
+                    }
+
+                    segmentPosition++;
+                }
+            } catch (IOException e) {
+                Log.warning(LOG_TAG, "AnalyticsHitQueue - Failed to read records from %s (%s).",
+                        segment.file.getName(), e.getLocalizedMessage());
+                return segment.recordCount - segmentPosition;
+            } finally {
+                closeQuietly(input);
+            }
+
+            if (records.size() >= count) {
+                break;
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * Removes up to {@code count} records from the head of the queue.
+     *
+     * @param count the number of records to remove
+     */
+    synchronized void remove(final int count) {
+        load();
+
+        final int removedCount = Math.min(count, size);
+        if (removedCount <= 0) {
+            return;
+        }
+
+        size -= removedCount;
+        headConsumed += removedCount;
+
+        while (!segments.isEmpty() && headConsumed >= segments.peekFirst().recordCount) {
+            final Segment head = segments.removeFirst();
+            headConsumed -= head.recordCount;
+
+            if (segments.isEmpty()) {
+                closeTailOutputStream();
+            }
+
+            deleteFile(head.file);
+        }
+
+        writeCursor();
+    }
+
+    /**
+     * @return the number of records dropped because they could not be read
+     */
+    synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+
+    /**
+     * Removes all the records from the queue and deletes the segment files.
+     */
+    synchronized void clear() {
+        load();
+        closeTailOutputStream();
+
+        for (Segment segment : segments) {
+            deleteFile(segment.file);
+        }
+
+        segments.clear();
+        size = 0;
+        headConsumed = 0;
+
+        if (available) {
+            deleteFile(new File(directory, CURSOR_FILE_NAME));
+        }
+    }
+
+    /**
+     * Releases the file handle of the segment being written; the queue reopens it when needed.
+     */
+    synchronized void close() {
+        closeTailOutputStream();
+    }
+
+    /**
+     * Loads the segment files and the cursor, counting the records still pending.
+     */
+    private void load() {
+        if (loaded) {
+            return;
+        }
+
+        loaded = true;
+        directory = directoryProvider.getDirectory();
+
+        if (directory == null || (!directory.exists() && !directory.mkdirs())) {
+            Log.warning(LOG_TAG, "AnalyticsHitQueue - Unable to create the queue directory, records will not be persisted.");
+            return;
+        }
+
+        available = true;
+        final File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        Arrays.sort(files);
+        final long[] cursor = readCursor();
+
+        for (File file : files) {
+            final String fileName = file.getName();
+            if (!fileName.endsWith(SEGMENT_FILE_SUFFIX)) {
+                continue;
+            }
+
+            final long segmentId;
+            try {
+                segmentId = Long.parseLong(fileName.substring(0, fileName.length() - SEGMENT_FILE_SUFFIX.length()));
+            } catch (NumberFormatException e) {
+                continue;
+            }
+
+            lastSegmentId = Math.max(lastSegmentId, segmentId);
+
+            if (segmentId < cursor[0]) {
+                // segment fully consumed before the process ended
+                deleteFile(file);
+                continue;
+            }
+
+            final Segment segment = new Segment(segmentId, file);
+            countRecords(segment);
+            segments.addLast(segment);
+            size += segment.recordCount;
+        }
+
+        final Segment head = segments.peekFirst();
+        if (head != null && head.id == cursor[0]) {
+            headConsumed = (int) Math.min(cursor[1], head.recordCount);
+            size -= headConsumed;
+        }
+    }
+
+    /**
+     * Counts the complete records of a segment file, truncating a partially written record at its end. The segment is
+     * sealed if it cannot be truncated.
+     */
+    private void countRecords(final Segment segment) {
+        final File file = segment.file;
+        DataInputStream input = null;
+        int recordCount = 0;
+        long validLength = 0;
+        boolean truncated = false;
+
+        try {
+            input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            int recordLength;
+
+            while ((recordLength = AnalyticsRecordCodec.skip(input)) >= 0) {
+                validLength += recordLength;
+                recordCount++;
+            }
+        } catch (EOFException e) {
+            truncated = true;
+        } catch (IOException e) {
+            Log.warning(LOG_TAG, "AnalyticsHitQueue - Failed to read %s (%s).", file.getName(), e.getLocalizedMessage());
+            truncated = true;
+        } finally {
+            closeQuietly(input);
+        }
+
+        if (truncated && !truncateFile(file, validLength)) {
+            segment.sealed = true;
+        }
+
+        segment.recordCount = recordCount;
+        segment.byteLength = validLength;
+    }
+
+    private long[] readCursor() {
+        final long[] cursor = new long[] {0, 0};
+        final File cursorFile = new File(directory, CURSOR_FILE_NAME);
+
+        if (!cursorFile.exists()) {
+            return cursor;
+        }
+
+        DataInputStream input = null;
+        try {
+            input = new DataInputStream(new FileInputStream(cursorFile));
+            cursor[0] = input.readLong();
+            cursor[1] = input.readInt();
+        } catch (IOException e) {
+            Log.debug(LOG_TAG, "AnalyticsHitQueue - Ignoring unreadable cursor (%s).", e.getLocalizedMessage());
+            cursor[0] = 0;
+            cursor[1] = 0;
+        } finally {
+            closeQuietly(input);
+        }
+
+        return cursor;
+    }
+
+    private void writeCursor() {
+        final File cursorFile = new File(directory, CURSOR_FILE_NAME);
+        final Segment head = segments.peekFirst();
+
+        if (head == null) {
+            deleteFile(cursorFile);
+            return;
+        }
+
+        final File tempFile = new File(directory, CURSOR_TEMP_FILE_NAME);
+        DataOutputStream output = null;
+        try {
+            output = new DataOutputStream(new FileOutputStream(tempFile));
+            output.writeLong(head.id);
+            output.writeInt(headConsumed);
+            output.close();
+            output = null;
+
+            if (!tempFile.renameTo(cursorFile)) {
+                Log.warning(LOG_TAG, "AnalyticsHitQueue - Failed to update the queue cursor.");
+            }
+        } catch (IOException e) {
+            Log.warning(LOG_TAG, "AnalyticsHitQueue - Failed to write the queue cursor (%s).", e.getLocalizedMessage());
+        } finally {
+            closeQuietly(output);
+        }
+    }
+
+    private void closeTailOutputStream() {
+        closeQuietly(tailOutputStream);
+        tailOutputStream = null;
+    }
+
+    /**
+     * Opens the stream appending to the given segment file.
+     *
+     * @param file the segment file
+     * @return the {@link OutputStream} appending to the file
+     * @throws IOException if the file cannot be opened
+     */
+    OutputStream openOutputStream(final File file) throws IOException {
+        return new BufferedOutputStream(new FileOutputStream(file, true));
+    }
+
+    private static String segmentFileName(final long segmentId) {
+        return String.format(Locale.US, "%019d%s", segmentId, SEGMENT_FILE_SUFFIX);
+    }
+
+    private static boolean truncateFile(final File file, final long length) {
+        RandomAccessFile randomAccessFile = null;
+        try {
+            randomAccessFile = new RandomAccessFile(file, "rw");
+            randomAccessFile.setLength(length);
+            return true;
+        } catch (IOException e) {
+            Log.warning(LOG_TAG, "AnalyticsHitQueue - Failed to truncate %s (%s).", file.getName(), e.getLocalizedMessage());
+            return false;
+        } finally {
+            closeQuietly(randomAccessFile);
+        }
+    }
+
+    private static void deleteFile(final File file) {
+        if (file.exists() && !file.delete()) {
+            Log.debug(LOG_TAG, "AnalyticsHitQueue - Failed to delete %s.", file.getName());
+        }
+    }
+
+    private static void closeQuietly(final Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // nothing to do
+        }
+    }
+}
@@ -0,0 +1,333 @@
+/*
+  Copyright 2021 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary encoding of {@code Map<String, Object>} records.
+ *
+ * <p>
+ * A record is written as a varint payload length followed by the payload. The payload is a varint entry count
+ * followed by, for each entry, the key and a one byte type tag and the value. Strings are written as a varint byte
+ * length followed by their UTF-8 bytes. Supported values are {@link String}, {@link Integer}, {@link Long},
+ * {@link Boolean}, {@link Double}, nested {@link Map}s and {@link List}s; null values are skipped and any other
+ * value is written as its {@link Object#toString()}.
+ */
+final class AnalyticsRecordCodec {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final byte TYPE_STRING = 1;
+    private static final byte TYPE_INTEGER = 2;
+    private static final byte TYPE_LONG = 3;
+    private static final byte TYPE_BOOLEAN = 4;
+    private static final byte TYPE_DOUBLE = 5;
+    private static final byte TYPE_MAP = 6;
+    private static final byte TYPE_LIST = 7;
+
+    private AnalyticsRecordCodec() {}
+
+    /**
+     * Encodes the given record, including its length prefix.
+     *
+     * @param record the record to encode
+     * @return the encoded bytes
+     * @throws IOException if the record cannot be encoded
+     */
+    static byte[] encode(final Map<String, Object> record) throws IOException {
+        final ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream(256);
+        writeMap(new DataOutputStream(payloadBytes), record);
+
+        final ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(payloadBytes.size() + 5);
+        final DataOutputStream output = new DataOutputStream(recordBytes);
+        writeVarInt(output, payloadBytes.size());
+        payloadBytes.writeTo(output);
+        return recordBytes.toByteArray();
+    }
+
+    /**
+     * Writes the given record, including its length prefix, to the stream.
+     *
+     * @param outputStream the destination stream
+     * @param record the record to write
+     * @throws IOException if the record cannot be written
+     */
+    static void write(final OutputStream outputStream, final Map<String, Object> record) throws IOException {
+        outputStream.write(encode(record));
+    }
+
+    /**
+     * Reads the next record from the stream.
+     *
+     * @param input the source stream
+     * @return the record, or null if the end of the stream was reached
+     * @throws IOException if the stream contains a truncated or malformed record
+     */
+    static Map<String, Object> read(final DataInputStream input) throws IOException {
+        final byte[] payload = readPayload(input);
+        return payload == null ? null : decode(payload);
+    }
+
+    /**
+     * Reads the payload of the next record from the stream without decoding it, so a record whose payload is
+     * malformed can be told apart from a truncated stream.
+     *
+     * @param input the source stream
+     * @return the payload, or null if the end of the stream was reached
+     * @throws IOException if the stream contains a truncated record
+     */
+    static byte[] readPayload(final DataInputStream input) throws IOException {
+        final int length = readRecordLength(input);
+        if (length < 0) {
+            return null;
+        }
+
+        if (length > input.available()) {
+            throw new EOFException("Truncated record");
+        }
+
+        final byte[] payload = new byte[length];
+        input.readFully(payload);
+        return payload;
+    }
+
+    /**
+     * Decodes a record payload read with {@link #readPayload(DataInputStream)}.
+     *
+     * @param payload the payload of the record
+     * @return the record
+     * @throws IOException if the payload is malformed
+     */
+    static Map<String, Object> decode(final byte[] payload) throws IOException {
+        final DataInputStream input = new DataInputStream(new ByteArrayInputStream(payload));
+        final Map<String, Object> record = readMap(input);
+
+        if (input.available() > 0) {
+            throw new IOException("Unexpected data after the record");
+        }
+
+        return record;
+    }
+
+    /**
+     * Skips the next record in the stream without decoding it.
+     *
+     * @param input the source stream
+     * @return the number of bytes skipped, including the length prefix, or -1 if the end of the stream was reached
+     * @throws IOException if the stream contains a truncated record
+     */
+    static int skip(final DataInputStream input) throws IOException {
+        final int length = readRecordLength(input);
+        if (length < 0) {
+            return -1;
+        }
+
+        // skipping a file stream past its end succeeds, so a truncated record is detected here
+        if (length > input.available()) {
+            throw new EOFException("Truncated record");
+        }
+
+        int remaining = length;
+        while (remaining > 0) {
+            final int skipped = input.skipBytes(remaining);
+            if (skipped <= 0) {
+                throw new EOFException("Truncated record");
+            }
+            remaining -= skipped;
+        }
+        return varIntSize(length) + length;
+    }
+
+    /**
+     * Reads the length prefix of the next record.
+     *
+     * @return the payload length, or -1 if the end of the stream was reached before the record started
+     */
+    private static int readRecordLength(final InputStream input) throws IOException {
+        final int firstByte = input.read();
+        if (firstByte < 0) {
+            return -1;
+        }
+
+        int value = firstByte & 0x7F;
+        int shift = 7;
+        int currentByte = firstByte;
+        while ((currentByte & 0x80) != 0) {
+            currentByte = input.read();
+            if (currentByte < 0 || shift > 28) {
+                throw new EOFException("Truncated record length");
+            }
+            value |= (currentByte & 0x7F) << shift;
+            shift += 7;
+        }
+        return value;
+    }
+
+    private static void writeMap(final DataOutput output, final Map<String, Object> map) throws IOException {
+        int count = 0;
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            if (entry.getKey() != null && entry.getValue() != null) {
+                count++;
+            }
+        }
+
+        writeVarInt(output, count);
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            if (entry.getKey() != null && entry.getValue() != null) {
+                writeString(output, entry.getKey());
+                writeValue(output, entry.getValue());
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void writeValue(final DataOutput output, final Object value) throws IOException {
+        if (value instanceof String) {
+            output.writeByte(TYPE_STRING);
+            writeString(output, (String) value);
+        } else if (value instanceof Integer) {
+            output.writeByte(TYPE_INTEGER);
+            output.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            output.writeByte(TYPE_LONG);
+            output.writeLong((Long) value);
+        } else if (value instanceof Boolean) {
+            output.writeByte(TYPE_BOOLEAN);
+            output.writeBoolean((Boolean) value);
+        } else if (value instanceof Double || value instanceof Float) {
+            output.writeByte(TYPE_DOUBLE);
+            output.writeDouble(((Number) value).doubleValue());
+        } else if (value instanceof Map) {
+            output.writeByte(TYPE_MAP);
+            writeMap(output, (Map<String, Object>) value);
+        } else if (value instanceof List) {
+            final List<Object> list = (List<Object>) value;
+            output.writeByte(TYPE_LIST);
+            writeVarInt(output, list.size());
+            for (Object item : list) {
+                writeValue(output, item == null ? "" : item);
+            }
+        } else {
+            output.writeByte(TYPE_STRING);
+            writeString(output, value.toString());
+        }
+    }
+
+    private static Map<String, Object> readMap(final DataInputStream input) throws IOException {
+        final int count = readLength(input);
+        final Map<String, Object> map = new HashMap<>(Math.max(4, (int) (count / 0.75f) + 1));
+        for (int i = 0; i < count; i++) {
+            final String key = readString(input);
+            map.put(key, readValue(input));
+        }
+        return map;
+    }
+
+    private static Object readValue(final DataInputStream input) throws IOException {
+        final byte type = input.readByte();
+        switch (type) {
+            case TYPE_STRING:
+                return readString(input);
+            case TYPE_INTEGER:
+                return input.readInt();
+            case TYPE_LONG:
+                return input.readLong();
+            case TYPE_BOOLEAN:
+                return input.readBoolean();
+            case TYPE_DOUBLE:
+                return input.readDouble();
+            case TYPE_MAP:
+                return readMap(input);
+            case TYPE_LIST:
+                final int size = readLength(input);
+                final List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(input));
+                }
+                return list;
+            default:
+                throw new IOException("Unknown value type " + type);
+        }
+    }
+
+    private static void writeString(final DataOutput output, final String value) throws IOException {
+        final byte[] bytes = value.getBytes(UTF_8);
+        writeVarInt(output, bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(final DataInputStream input) throws IOException {
+        final byte[] bytes = new byte[readLength(input)];
+        input.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private static void writeVarInt(final DataOutput output, final int value) throws IOException {
+        int remaining = value;
+        while ((remaining & ~0x7F) != 0) {
+            output.writeByte((remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        output.writeByte(remaining);
+    }
+
+    private static int readVarInt(final DataInput input) throws IOException {
+        int value = 0;
+        int shift = 0;
+        byte currentByte;
+        do {
+            if (shift > 28) {
+                throw new IOException("Malformed varint");
+            }
+            currentByte = input.readByte();
+            value |= (currentByte & 0x7F) << shift;
+            shift += 7;
+        } while ((currentByte & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * Reads a string length or an entry count, which cannot exceed the number of bytes left in a well formed payload.
+     */
+    private static int readLength(final DataInputStream input) throws IOException {
+        final int length = readVarInt(input);
+        if (length < 0 || length > input.available()) {
+            throw new IOException("Malformed length " + length);
+        }
+        return length;
+    }
+
+    private static int varIntSize(final int value) {
+        int size = 1;
+        int remaining = value >>> 7;
+        while (remaining != 0) {
+            size++;
+            remaining >>>= 7;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,219 @@
+/*
+  Copyright 2021 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free, bounded, multi-producer single-consumer ring buffer.
+ *
+ * <p>
+ * The slots are preallocated and the capacity is a power of two, so adding an element does not allocate. Producers
+ * claim a slot by incrementing the producer index with a CAS and then publish the element in the slot; the consumer
+ * reads published elements from the head and frees their slots by advancing the consumer index. Each element carries
+ * a weight, typically its estimated size, and the ring keeps the total weight of the elements it holds. Each element
+ * may also carry a stamp, such as the time it was added, read back by the consumer with {@link #stamp(int)}.
+ *
+ * <p>
+ * {@link #offer(Object, long)} and {@link #offer(Object, long, long)} may be called from any thread. All the other methods reading or removing elements
+ * must be called from a single consumer thread.
+ *
+ * @param <E> the type of the elements
+ */
+final class AnalyticsRingBuffer<E> {
+    private final AtomicReferenceArray<E> elements;
+    private final long[] weights;
+    private final long[] stamps;
+    private final int mask;
+    private final AtomicLong producerIndex = new AtomicLong();
+    private final AtomicLong consumerIndex = new AtomicLong();
+    private final AtomicLong totalWeight = new AtomicLong();
+
+    /**
+     * Constructor.
+     *
+     * @param capacity the minimum number of elements the ring can hold, rounded up to a power of two
+     */
+    AnalyticsRingBuffer(final int capacity) {
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+
+        this.elements = new AtomicReferenceArray<>(size);
+        this.weights = new long[size];
+        this.stamps = new long[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * @return the number of elements the ring can hold
+     */
+    int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Adds an element at the tail of the ring. May be called from any thread.
+     *
+     * @param element the element to add, not null
+     * @param weight the weight of the element
+     * @return true if the element was added, false if the ring is full
+     */
+    boolean offer(final E element, final long weight) {
+        return offer(element, weight, 0);
+    }
+
+    /**
+     * Adds an element with a stamp at the tail of the ring. May be called from any thread.
+     *
+     * @param element the element to add, not null
+     * @param weight the weight of the element
+     * @param stamp the stamp of the element
+     * @return true if the element was added, false if the ring is full
+     */
+    boolean offer(final E element, final long weight, final long stamp) {
+        long index;
+
+        do {
+            index = producerIndex.get();
+
+            if (index - consumerIndex.get() > mask) {
+                return false;
+            }
+        } while (!producerIndex.compareAndSet(index, index + 1));
+
+        final int slot = (int) index & mask;
+        weights[slot] = weight;
+        stamps[slot] = stamp;
+        totalWeight.addAndGet(weight);
+        // the ordered write of the element publishes the weight and the stamp to the consumer
+        elements.lazySet(slot, element);
+        return true;
+    }
+
+    /**
+     * Returns, without removing it, the element at the head of the ring.
+     *
+     * @return the head element, or null if the ring is empty or the head element is not published yet
+     */
+    E peek() {
+        return elements.get((int) consumerIndex.get() & mask);
+    }
+
+    /**
+     * Adds to the given list, without removing them, up to {@code maxCount} published elements from the head of the
+     * ring.
+     *
+     * @param destination the list receiving the elements
+     * @param maxCount the maximum number of elements to read
+     * @return the number of elements added to {@code destination}
+     */
+    int peek(final List<? super E> destination, final int maxCount) {
+        final long head = consumerIndex.get();
+        int count = 0;
+
+        while (count < maxCount && count <= mask) {
+            final E element = elements.get((int) (head + count) & mask);
+            if (element == null) {
+                break;
+            }
+
+            destination.add(element);
+            count++;
+        }
+
+        return count;
+    }
+
+    /**
+     * Returns the stamp of a published element, typically one read with {@link #peek(List, int)} and not removed yet.
+     *
+     * @param offset the position of the element from the head of the ring
+     * @return the stamp the element was added with
+     */
+    long stamp(final int offset) {
+        return stamps[(int) (consumerIndex.get() + offset) & mask];
+    }
+
+    /**
+     * Removes and returns the element at the head of the ring.
+     *
+     * @return the head element, or null if the ring is empty or the head element is not published yet
+     */
+    E poll() {
+        final E element = peek();
+        if (element != null) {
+            release(1);
+        }
+
+        return element;
+    }
+
+    /**
+     * Removes up to {@code count} published elements from the head of the ring, typically after they were read with
+     * {@link #peek(List, int)} and processed.
+     *
+     * @param count the number of elements to remove
+     * @return the number of elements removed
+     */
+    int release(final int count) {
+        long head = consumerIndex.get();
+        int released = 0;
+
+        while (released < count && released <= mask) {
+            final int slot = (int) head & mask;
+            if (elements.get(slot) == null) {
+                break;
+            }
+
+            totalWeight.addAndGet(-weights[slot]);
+            elements.lazySet(slot, null);
+            head++;
+            released++;
+        }
+
+        // the ordered write frees the released slots for the producers
+        consumerIndex.lazySet(head);
+        return released;
+    }
+
+    /**
+     * @return the number of elements in the ring, including the elements being published
+     */
+    int size() {
+        // read the consumer index first so the result is never negative
+        final long head = consumerIndex.get();
+        return (int) (producerIndex.get() - head);
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * @return the total weight of the elements in the ring
+     */
+    long weight() {
+        return totalWeight.get();
+    }
+
+    /**
+     * Removes all the published elements from the ring.
+     */
+    void clear() {
+        release(Integer.MAX_VALUE);
+    }
+}
@@ -34,7 +34,7 @@ class ConfigurationResponseContentListener extends ExtensionListener {
      * Method that gets called when {@link EventType#CONFIGURATION},
      * {@link EventSource#RESPONSE_CONTENT} event is dispatched through eventHub.
      * <p>
-     * {@link AnalyticsExtension} queues event and attempts to process them immediately.
+     * {@link AnalyticsExtension} queues the event on the event hub thread and schedules a drain of the event queue.
      *
      * @param event configuration response event {@link Event} to be processed
      */
@@ -53,11 +53,6 @@ class ConfigurationResponseContentListener extends ExtensionListener {
             return;
         }
 
-        parentExtension.getExecutor().execute(new Runnable() {
-            @Override
-            public void run() {
-                parentExtension.handleConfigurationEvent(event);
-            }
-        });
+        parentExtension.handleConfigurationEvent(event);
     }
 }
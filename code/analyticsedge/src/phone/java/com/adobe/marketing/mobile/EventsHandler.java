@@ -31,4 +31,22 @@ interface EventsHandler {
      * @param event Rules engine response event which contains an Analytics rule action.
      */
     void handleRulesEngineEvent(final Event event);
+
+    /**
+     * Handles the GenericLifecycleRequest event.
+     * @param event Generic lifecycle request event which signals the application start or pause.
+     */
+    void handleLifecycleEvent(final Event event);
+
+    /**
+     * Handles the AnalyticsRequestContent event.
+     * @param event Analytics request event which contains an event queue statistics or metrics request.
+     */
+    void handleAnalyticsRequestEvent(final Event event);
+
+    /**
+     * Handles the HubSharedState event.
+     * @param event Shared state change event which contains the owner of the changed shared state.
+     */
+    void handleSharedStateEvent(final Event event);
 }
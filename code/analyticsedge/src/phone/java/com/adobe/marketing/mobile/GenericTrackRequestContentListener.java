@@ -29,7 +29,7 @@ class GenericTrackRequestContentListener extends ExtensionListener {
      * Method that gets called when {@link EventType#GENERIC_TRACK},
      * {@link EventSource#REQUEST_CONTENT} event is dispatched through eventHub.
      * <p>
-     * If the event is valid, the {@link AnalyticsExtension} queues event and attempts to process them immediately.
+     * If the event is valid, the {@link AnalyticsExtension} queues the event on the event hub thread and schedules a drain of the event queue.
      *
      * @param event generic track request event {@link Event} to be processed
      */
@@ -47,11 +47,6 @@ class GenericTrackRequestContentListener extends ExtensionListener {
             return;
         }
 
-        parentExtension.getExecutor().execute(new Runnable() {
-            @Override
-            public void run() {
-                parentExtension.handleAnalyticsTrackEvent(event);
-            }
-        });
+        parentExtension.handleAnalyticsTrackEvent(event);
     }
 }
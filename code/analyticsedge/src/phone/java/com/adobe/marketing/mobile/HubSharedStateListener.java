@@ -0,0 +1,58 @@
+/*
+  Copyright 2021 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile;
+
+/**
+ * Listens for {@link EventType#HUB}, {@link EventSource#SHARED_STATE} events.
+ * Monitor shared state changes to determine if an Assurance session is active.
+ * @see AnalyticsExtension
+ */
+class HubSharedStateListener extends ExtensionListener {
+
+    /**
+     * Constructor.
+     *
+     * @param extensionApi an instance of  {@link ExtensionApi}
+     * @param type  {@link EventType} this listener is registered to handle
+     * @param source {@link EventSource} this listener is registered to handle
+     */
+    HubSharedStateListener(final ExtensionApi extensionApi, final String type, final String source) {
+        super(extensionApi, type, source);
+    }
+
+    /**
+     * Method that gets called when {@link EventType#HUB}, {@link EventSource#SHARED_STATE} event is dispatched
+     * through eventHub.
+     * <p>
+     * {@link AnalyticsExtension} updates its cached Assurance session state when the state owner is Assurance.
+     *
+     * @param event shared state change {@link Event} to be processed
+     */
+    @Override
+    public void hear(final Event event) {
+        if (event == null || event.getEventData() == null) {
+            Log.debug(AnalyticsConstants.LOG_TAG, "Event or Event data is null.");
+            return;
+        }
+
+        final AnalyticsExtension parentExtension = (AnalyticsExtension) super.getParentExtension();
+
+        if (parentExtension == null) {
+            Log.warning(AnalyticsConstants.LOG_TAG,
+                    "The parent extension, associated with the HubSharedStateListener is null, ignoring the shared state event.");
+            return;
+        }
+
+        parentExtension.handleSharedStateEvent(event);
+    }
+}
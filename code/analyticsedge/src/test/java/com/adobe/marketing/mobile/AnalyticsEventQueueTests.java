@@ -0,0 +1,405 @@
+/*
+ Copyright 2021 Adobe. All rights reserved.
+ This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License. You may obtain a copy
+ of the License at http://www.apache.org/licenses/LICENSE-2.0
+ Unless required by applicable law or agreed to in writing, software distributed under
+ the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ OF ANY KIND, either express or implied. See the License for the specific language
+ governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AnalyticsEventQueueTests {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Event createTrackEvent(final String action) {
+        Map<String, Object> contextData = new HashMap<>();
+        contextData.put("key", "value");
+        Map<String, Object> eventData = new HashMap<>();
+        eventData.put(AnalyticsConstants.EventDataKeys.TRACK_ACTION, action);
+        eventData.put(AnalyticsConstants.EventDataKeys.CONTEXT_DATA, contextData);
+        return new Event.Builder("generic track", EventType.GENERIC_TRACK, EventSource.REQUEST_CONTENT).setEventData(eventData).build();
+    }
+
+    private String getAction(final Event event) {
+        return (String) event.getEventData().get(AnalyticsConstants.EventDataKeys.TRACK_ACTION);
+    }
+
+    @Test
+    public void test_add_DropOldest() {
+        // setup
+        AnalyticsEventQueue eventQueue = new AnalyticsEventQueue(null);
+        eventQueue.setOptions(2, AnalyticsConstants.DEFAULT_EVENT_QUEUE_MAX_BYTES, AnalyticsEventQueue.OverflowPolicy.DROP_OLDEST);
+
+        // test
+        assertTrue(eventQueue.add(createTrackEvent("first")));
+        assertTrue(eventQueue.add(createTrackEvent("second")));
+        assertTrue(eventQueue.add(createTrackEvent("third")));
+
+        // verify
+        assertEquals("second", getAction(eventQueue.peek()));
+        assertEquals(2, eventQueue.size());
+        assertEquals(1, eventQueue.getDroppedOldestCount());
+        assertEquals("second", getAction(eventQueue.poll()));
+        assertEquals("third", getAction(eventQueue.poll()));
+        assertTrue(eventQueue.isEmpty());
+    }
+
+    @Test
+    public void test_add_DropNewest() {
+        // setup
+        AnalyticsEventQueue eventQueue = new AnalyticsEventQueue(null);
+        eventQueue.setOptions(2, AnalyticsConstants.DEFAULT_EVENT_QUEUE_MAX_BYTES, AnalyticsEventQueue.OverflowPolicy.DROP_NEWEST);
+
+        // test
+        assertTrue(eventQueue.add(createTrackEvent("first")));
+        assertTrue(eventQueue.add(createTrackEvent("second")));
+        assertFalse(eventQueue.add(createTrackEvent("third")));
+
+        // verify
+        assertEquals(2, eventQueue.size());
+        assertEquals(1, eventQueue.getDroppedNewestCount());
+        assertEquals("first", getAction(eventQueue.poll()));
+        assertEquals("second", getAction(eventQueue.poll()));
+    }
+
+    @Test
+    public void test_add_BytesCap() {
+        // setup
+        Event event = createTrackEvent("action");
+        long eventSize = AnalyticsEventQueue.INITIAL_EVENT_BYTES;
+        AnalyticsEventQueue eventQueue = new AnalyticsEventQueue(null);
+        eventQueue.setOptions(100, eventSize * 2, AnalyticsEventQueue.OverflowPolicy.DROP_NEWEST);
+
+        // test
+        assertTrue(eventQueue.add(event));
+        assertTrue(eventQueue.add(event));
+        assertFalse(eventQueue.add(event));
+
+        // verify
+        assertEquals(2, eventQueue.size());
+        assertEquals(eventSize * 2, eventQueue.getQueuedBytes());
+
+        // test
+        eventQueue.poll();
+
+        // verify
+        assertEquals(eventSize, eventQueue.getQueuedBytes());
+    }
+
+    @Test
+    public void test_remove_UpdatesAverageEventSize() {
+        // setup
+        Map<String, Object> contextData = new HashMap<>();
+        for (int i = 0; i < 100; i++) {
+            contextData.put("key" + i, "value" + i);
+        }
+        Map<String, Object> eventData = new HashMap<>();
+        eventData.put(AnalyticsConstants.EventDataKeys.CONTEXT_DATA, contextData);
+        Event largeEvent = new Event.Builder("generic track", EventType.GENERIC_TRACK, EventSource.REQUEST_CONTENT).setEventData(eventData).build();
+        AnalyticsEventQueue eventQueue = new AnalyticsEventQueue(null);
+
+        // test
+        eventQueue.add(largeEvent);
+        eventQueue.poll();
+        eventQueue.add(createTrackEvent("action"));
+
+        // verify
+        long expectedSize = AnalyticsEventQueue.INITIAL_EVENT_BYTES +
+                ((AnalyticsEventQueue.estimateSize(largeEvent) - AnalyticsEventQueue.INITIAL_EVENT_BYTES) >> 3);
+        assertEquals(expectedSize, eventQueue.getQueuedBytes());
+    }
+
+    @Test
+    public void test_add_DropOldest_KeepsControlEvents() {
+        // setup
+        AnalyticsEventQueue eventQueue = new AnalyticsEventQueue(null);
+        eventQueue.setOptions(2, AnalyticsConstants.DEFAULT_EVENT_QUEUE_MAX_BYTES, AnalyticsEventQueue.OverflowPolicy.DROP_OLDEST);
+        Event configurationEvent = new Event.Builder("configuration", EventType.CONFIGURATION, EventSource.RESPONSE_CONTENT).build();
+        List<Event> batch = new ArrayList<>();
+
+        // test
+        assertTrue(eventQueue.add(configurationEvent, 100L));
+        assertTrue(eventQueue.add(createTrackEvent("first"), 200L));
+        assertTrue(eventQueue.add(createTrackEvent("second"), 300L));
+        assertTrue(eventQueue.add(createTrackEvent("third"), 400L));
+
+        // verify
+        assertEquals(3, eventQueue.peek(batch, 10));
+        assertEquals(configurationEvent, batch.get(0));
+        assertEquals("second", getAction(batch.get(1)));
+        assertEquals("third", getAction(batch.get(2)));
+        assertEquals(100L, eventQueue.getEntryTime(0));
+        assertEquals(300L, eventQueue.getEntryTime(1));
+        assertEquals(3, eventQueue.size());
+        assertEquals(1, eventQueue.getDroppedOldestCount());
+
+        // test
+        eventQueue.remove(2);
+
+        // verify
+        assertEquals(1, eventQueue.size());
+        assertEquals("third", getAction(eventQueue.poll()));
+        assertTrue(eventQueue.isEmpty());
+    }
+
+    @Test
+    public void test_add_SpillToDisk_KeepsOrder() {
+        // setup
+        AnalyticsHitQueue spillQueue = new AnalyticsHitQueue(new File(temporaryFolder.getRoot(), "events"));
+        AnalyticsEventQueue eventQueue = new AnalyticsEventQueue(spillQueue);
+        eventQueue.setOptions(2, AnalyticsConstants.DEFAULT_EVENT_QUEUE_MAX_BYTES, AnalyticsEventQueue.OverflowPolicy.SPILL_TO_DISK);
+
+        // test
+        for (int i = 0; i < 5; i++) {
+            assertTrue(eventQueue.add(createTrackEvent("action" + i)));
+        }
+
+        // verify
+        assertEquals(5, eventQueue.size());
+
+        for (int i = 0; i < 5; i++) {
+            Event event = eventQueue.poll();
+            assertEquals("action" + i, getAction(event));
+            assertEquals(EventType.GENERIC_TRACK.getName(), event.getType());
+            assertEquals(EventSource.REQUEST_CONTENT.getName(), event.getSource());
+            assertEquals("value", ((Map<String, Object>) event.getEventData().get(AnalyticsConstants.EventDataKeys.CONTEXT_DATA)).get("key"));
+        }
+
+        assertTrue(eventQueue.isEmpty());
+        assertNull(eventQueue.peek());
+        assertEquals(3, eventQueue.getSpilledCount());
+        assertEquals(0, eventQueue.getDroppedNewestCount());
+    }
+
+    @Test
+    public void test_add_SpillToDisk_WrittenWhenQueueRead() {
+        // setup
+        File spillDirectory = new File(temporaryFolder.getRoot(), "events");
+        AnalyticsEventQueue eventQueue = new AnalyticsEventQueue(new AnalyticsHitQueue(spillDirectory));
+        eventQueue.setOptions(1, AnalyticsConstants.DEFAULT_EVENT_QUEUE_MAX_BYTES, AnalyticsEventQueue.OverflowPolicy.SPILL_TO_DISK);
+
+        // test
+        assertTrue(eventQueue.add(createTrackEvent("first")));
+        assertTrue(eventQueue.add(createTrackEvent("second")));
+
+        // verify, the adding thread does not write to disk
+        assertEquals(2, eventQueue.size());
+        assertEquals(0, eventQueue.getSpilledCount());
+        assertFalse(spillDirectory.exists());
+
+        // test
+        assertEquals("first", getAction(eventQueue.peek()));
+
+        // verify
+        assertEquals(1, eventQueue.getSpilledCount());
+        assertEquals(1, new AnalyticsHitQueue(spillDirectory).size());
+        assertEquals(2, eventQueue.size());
+    }
+
+    @Test
+    public void test_add_SpillToDisk_OverflowBufferFull() {
+        // setup
+        AnalyticsHitQueue spillQueue = new AnalyticsHitQueue(new File(temporaryFolder.getRoot(), "events"));
+        AnalyticsEventQueue eventQueue = new AnalyticsEventQueue(spillQueue);
+        eventQueue.setOptions(1, AnalyticsConstants.DEFAULT_EVENT_QUEUE_MAX_BYTES, AnalyticsEventQueue.OverflowPolicy.SPILL_TO_DISK);
+        assertTrue(eventQueue.add(createTrackEvent("first")));
+
+        // test
+        for (int i = 0; i < AnalyticsConstants.EVENT_QUEUE_OVERFLOW_CAPACITY; i++) {
+            assertTrue(eventQueue.add(createTrackEvent("action" + i)));
+        }
+
+        // verify
+        assertFalse(eventQueue.add(createTrackEvent("dropped")));
+        assertEquals(1, eventQueue.getDroppedNewestCount());
+        assertEquals(AnalyticsConstants.EVENT_QUEUE_OVERFLOW_CAPACITY + 1, eventQueue.size());
+    }
+
+    @Test
+    public void test_add_SpillToDisk_KeepsUniqueIdentifier() {
+        // setup
+        AnalyticsHitQueue spillQueue = new AnalyticsHitQueue(new File(temporaryFolder.getRoot(), "events"));
+        AnalyticsEventQueue eventQueue = new AnalyticsEventQueue(spillQueue);
+        eventQueue.setOptions(1, AnalyticsConstants.DEFAULT_EVENT_QUEUE_MAX_BYTES, AnalyticsEventQueue.OverflowPolicy.SPILL_TO_DISK);
+        Event firstEvent = createTrackEvent("first");
+        Event secondEvent = createTrackEvent("second");
+        List<Event> batch = new ArrayList<>();
+
+        // test
+        eventQueue.add(firstEvent);
+        eventQueue.add(secondEvent);
+
+        // verify
+        assertEquals(firstEvent.getUniqueIdentifier(), eventQueue.getUniqueIdentifier(eventQueue.poll()));
+        assertEquals(1, eventQueue.getSpilledCount());
+        assertEquals(1, eventQueue.peek(batch, 10));
+        assertEquals("second", getAction(batch.get(0)));
+        assertEquals(secondEvent.getUniqueIdentifier(), eventQueue.getUniqueIdentifier(batch.get(0)));
+    }
+
+    @Test
+    public void test_discardPreviousSpilledEvents() {
+        // setup
+        File spillDirectory = new File(temporaryFolder.getRoot(), "events");
+        AnalyticsEventQueue previousEventQueue = new AnalyticsEventQueue(new AnalyticsHitQueue(spillDirectory));
+        previousEventQueue.setOptions(1, AnalyticsConstants.DEFAULT_EVENT_QUEUE_MAX_BYTES, AnalyticsEventQueue.OverflowPolicy.SPILL_TO_DISK);
+        previousEventQueue.add(createTrackEvent("first"));
+        previousEventQueue.add(createTrackEvent("second"));
+        previousEventQueue.peek();
+        previousEventQueue.close();
+        AnalyticsHitQueue spillQueue = new AnalyticsHitQueue(spillDirectory);
+        assertEquals(1, spillQueue.size());
+        AnalyticsEventQueue eventQueue = new AnalyticsEventQueue(spillQueue);
+
+        // test
+        eventQueue.discardPreviousSpilledEvents();
+
+        // verify
+        assertEquals(0, spillQueue.size());
+        assertEquals(0, new AnalyticsHitQueue(spillDirectory).size());
+        assertTrue(eventQueue.isEmpty());
+    }
+
+    @Test
+    public void test_add_SpillToDisk_NoSpillQueue() {
+        // setup
+        AnalyticsEventQueue eventQueue = new AnalyticsEventQueue(null);
+        eventQueue.setOptions(1, AnalyticsConstants.DEFAULT_EVENT_QUEUE_MAX_BYTES, AnalyticsEventQueue.OverflowPolicy.SPILL_TO_DISK);
+
+        // test
+        assertTrue(eventQueue.add(createTrackEvent("first")));
+        assertFalse(eventQueue.add(createTrackEvent("second")));
+
+        // verify
+        assertEquals(1, eventQueue.size());
+        assertEquals(1, eventQueue.getDroppedNewestCount());
+    }
+
+    @Test
+    public void test_clear_RemovesSpilledEvents() {
+        // setup
+        AnalyticsHitQueue spillQueue = new AnalyticsHitQueue(new File(temporaryFolder.getRoot(), "events"));
+        AnalyticsEventQueue eventQueue = new AnalyticsEventQueue(spillQueue);
+        eventQueue.setOptions(1, AnalyticsConstants.DEFAULT_EVENT_QUEUE_MAX_BYTES, AnalyticsEventQueue.OverflowPolicy.SPILL_TO_DISK);
+        eventQueue.add(createTrackEvent("first"));
+        eventQueue.add(createTrackEvent("second"));
+        eventQueue.peek();
+
+        // test
+        eventQueue.clear();
+
+        // verify
+        assertTrue(eventQueue.isEmpty());
+        assertEquals(0, eventQueue.getQueuedBytes());
+        assertEquals(0, spillQueue.size());
+    }
+
+    @Test
+    public void test_peekBatch_RemoveProcessedEvents() {
+        // setup
+        AnalyticsEventQueue eventQueue = new AnalyticsEventQueue(null);
+        for (int i = 0; i < 5; i++) {
+            eventQueue.add(createTrackEvent("action" + i));
+        }
+        List<Event> batch = new ArrayList<>();
+
+        // test
+        assertEquals(3, eventQueue.peek(batch, 3));
+        eventQueue.remove(2);
+
+        // verify
+        assertEquals("action0", getAction(batch.get(0)));
+        assertEquals("action2", getAction(batch.get(2)));
+        assertEquals(3, eventQueue.size());
+        assertEquals("action2", getAction(eventQueue.peek()));
+    }
+
+    @Test
+    public void test_getEntryTime_KeptForSpilledEvents() {
+        // setup
+        AnalyticsHitQueue spillQueue = new AnalyticsHitQueue(new File(temporaryFolder.getRoot(), "events"));
+        AnalyticsEventQueue eventQueue = new AnalyticsEventQueue(spillQueue);
+        eventQueue.setOptions(1, AnalyticsConstants.DEFAULT_EVENT_QUEUE_MAX_BYTES, AnalyticsEventQueue.OverflowPolicy.SPILL_TO_DISK);
+        List<Event> batch = new ArrayList<>();
+
+        // test
+        assertTrue(eventQueue.add(createTrackEvent("first"), 100L));
+        assertTrue(eventQueue.add(createTrackEvent("second"), 200L));
+
+        // verify
+        assertEquals(1, eventQueue.peek(batch, 10));
+        assertEquals(100L, eventQueue.getEntryTime(0));
+        eventQueue.remove(1);
+        batch.clear();
+        assertEquals(1, eventQueue.peek(batch, 10));
+        assertEquals("second", getAction(batch.get(0)));
+        assertEquals(200L, eventQueue.getEntryTime(0));
+    }
+
+    @Test
+    public void test_setOptions_MaxEventsLimitedByCapacity() {
+        // setup
+        AnalyticsEventQueue eventQueue = new AnalyticsEventQueue(null);
+        eventQueue.setOptions(AnalyticsConstants.EVENT_QUEUE_CAPACITY * 2, AnalyticsConstants.DEFAULT_EVENT_QUEUE_MAX_BYTES,
+                AnalyticsEventQueue.OverflowPolicy.DROP_NEWEST);
+        Event event = new Event.Builder("generic track", EventType.GENERIC_TRACK, EventSource.REQUEST_CONTENT).build();
+
+        // test
+        for (int i = 0; i < AnalyticsConstants.EVENT_QUEUE_CAPACITY; i++) {
+            eventQueue.add(event);
+        }
+
+        // verify
+        assertEquals(AnalyticsConstants.EVENT_QUEUE_CAPACITY / 2, eventQueue.size());
+        assertEquals(AnalyticsConstants.EVENT_QUEUE_CAPACITY / 2, eventQueue.getDroppedNewestCount());
+    }
+
+    @Test
+    public void test_setOptions_DefaultOverflowPolicyDropsOldest() {
+        // setup
+        AnalyticsHitQueue spillQueue = new AnalyticsHitQueue(new File(temporaryFolder.getRoot(), "events"));
+        AnalyticsEventQueue eventQueue = new AnalyticsEventQueue(spillQueue);
+        eventQueue.setOptions(1, AnalyticsConstants.DEFAULT_EVENT_QUEUE_MAX_BYTES, null);
+
+        // test
+        eventQueue.add(createTrackEvent("first"));
+        eventQueue.add(createTrackEvent("second"));
+
+        // verify
+        assertEquals("second", getAction(eventQueue.poll()));
+        assertEquals(1, eventQueue.getDroppedOldestCount());
+        assertEquals(0, eventQueue.getSpilledCount());
+        assertEquals(0, spillQueue.size());
+    }
+
+    @Test
+    public void test_overflowPolicy_fromString() {
+        assertEquals(AnalyticsEventQueue.OverflowPolicy.DROP_OLDEST, AnalyticsEventQueue.OverflowPolicy.fromString("dropoldest", null));
+        assertEquals(AnalyticsEventQueue.OverflowPolicy.DROP_NEWEST, AnalyticsEventQueue.OverflowPolicy.fromString("DropNewest", null));
+        assertEquals(AnalyticsEventQueue.OverflowPolicy.SPILL_TO_DISK, AnalyticsEventQueue.OverflowPolicy.fromString("spilltodisk", null));
+        assertEquals(AnalyticsEventQueue.OverflowPolicy.DROP_OLDEST, AnalyticsEventQueue.OverflowPolicy.fromString("unknown",
+                AnalyticsEventQueue.OverflowPolicy.DROP_OLDEST));
+        assertEquals(AnalyticsEventQueue.OverflowPolicy.DROP_OLDEST, AnalyticsEventQueue.OverflowPolicy.fromString(null,
+                AnalyticsEventQueue.OverflowPolicy.DROP_OLDEST));
+    }
+}
@@ -0,0 +1,185 @@
+/*
+  Copyright 2021 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AnalyticsEventRecorderTests {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private List<Map<String, Object>> readTrace(final File file) throws IOException {
+        List<Map<String, Object>> records = new ArrayList<>();
+
+        try (DataInputStream input = new DataInputStream(new FileInputStream(file))) {
+            Map<String, Object> record;
+            while ((record = AnalyticsRecordCodec.read(input)) != null) {
+                records.add(record);
+            }
+        }
+
+        return records;
+    }
+
+    private Map<String, Object> createTrackData(final String action) {
+        Map<String, Object> contextData = new HashMap<>();
+        contextData.put("key", "value");
+        Map<String, Object> data = new HashMap<>();
+        data.put(AnalyticsConstants.EventDataKeys.TRACK_ACTION, action);
+        data.put(AnalyticsConstants.EventDataKeys.CONTEXT_DATA, contextData);
+        return data;
+    }
+
+    @Test
+    public void test_record_WritesEventsInOrder() throws IOException {
+        // setup
+        File file = new File(new File(temporaryFolder.getRoot(), "traces"), "trace");
+        AnalyticsEventRecorder recorder = AnalyticsEventRecorder.open(file, 1024 * 1024);
+        Map<String, Object> configuration = new HashMap<>();
+        configuration.put(AnalyticsConstants.Configuration.GLOBAL_CONFIG_PRIVACY, "optedin");
+
+        // test
+        recorder.record(AnalyticsEventRecorder.KIND_CONFIGURATION, null, configuration);
+        recorder.record(AnalyticsEventRecorder.KIND_TRACK, "generic track", createTrackData("first"));
+        recorder.record(AnalyticsEventRecorder.KIND_TRACK, "generic track", createTrackData("second"));
+        recorder.close();
+
+        // verify
+        List<Map<String, Object>> records = readTrace(file);
+        assertEquals(3, records.size());
+        assertEquals(AnalyticsEventRecorder.KIND_CONFIGURATION, records.get(0).get(AnalyticsEventRecorder.RECORD_KIND));
+        assertNull(records.get(0).get(AnalyticsEventRecorder.RECORD_NAME));
+        assertEquals(configuration, records.get(0).get(AnalyticsEventRecorder.RECORD_DATA));
+        assertEquals(AnalyticsEventRecorder.KIND_TRACK, records.get(1).get(AnalyticsEventRecorder.RECORD_KIND));
+        assertEquals("generic track", records.get(1).get(AnalyticsEventRecorder.RECORD_NAME));
+        assertEquals(createTrackData("first"), records.get(1).get(AnalyticsEventRecorder.RECORD_DATA));
+        assertEquals(createTrackData("second"), records.get(2).get(AnalyticsEventRecorder.RECORD_DATA));
+        assertTrue((Long) records.get(1).get(AnalyticsEventRecorder.RECORD_TIME) <=
+                (Long) records.get(2).get(AnalyticsEventRecorder.RECORD_TIME));
+    }
+
+    @Test
+    public void test_record_RecordsReceivedTime() throws IOException {
+        // setup
+        File file = temporaryFolder.newFile("trace");
+        long receivedBeforeStartNanos = System.nanoTime();
+        AnalyticsEventRecorder recorder = AnalyticsEventRecorder.open(file, 1024 * 1024);
+        Event firstEvent = new Event.Builder("generic track", EventType.GENERIC_TRACK, EventSource.REQUEST_CONTENT)
+                .setEventData(createTrackData("first")).build();
+        Event secondEvent = new Event.Builder("generic track", EventType.GENERIC_TRACK, EventSource.REQUEST_CONTENT)
+                .setEventData(createTrackData("second")).build();
+
+        // test
+        recorder.record(AnalyticsEventRecorder.KIND_TRACK, firstEvent, receivedBeforeStartNanos);
+        recorder.record(AnalyticsEventRecorder.KIND_TRACK, secondEvent, System.nanoTime() + 1000000L);
+        recorder.close();
+
+        // verify
+        List<Map<String, Object>> records = readTrace(file);
+        assertEquals(2, records.size());
+        assertEquals(0L, records.get(0).get(AnalyticsEventRecorder.RECORD_TIME));
+        assertTrue((Long) records.get(1).get(AnalyticsEventRecorder.RECORD_TIME) >= 1000000L);
+        assertEquals(createTrackData("second"), records.get(1).get(AnalyticsEventRecorder.RECORD_DATA));
+    }
+
+    @Test
+    public void test_record_KeepsEventTimestampTypeSourceAndNumber() throws IOException {
+        // setup
+        File file = temporaryFolder.newFile("trace");
+        AnalyticsEventRecorder recorder = AnalyticsEventRecorder.open(file, 1024 * 1024);
+        Event event = new Event.Builder("rules consequence", EventType.RULES_ENGINE, EventSource.RESPONSE_CONTENT)
+                .setEventData(createTrackData("action")).setTimestamp(1234567L).setEventNumber(42).build();
+
+        // test
+        recorder.record(AnalyticsEventRecorder.KIND_RULES, event, System.nanoTime());
+        recorder.close();
+
+        // verify
+        Map<String, Object> record = readTrace(file).get(0);
+        assertEquals("rules consequence", record.get(AnalyticsEventRecorder.RECORD_NAME));
+        assertEquals(EventType.RULES_ENGINE.getName(), record.get(AnalyticsEventRecorder.RECORD_TYPE));
+        assertEquals(EventSource.RESPONSE_CONTENT.getName(), record.get(AnalyticsEventRecorder.RECORD_SOURCE));
+        assertEquals(1234567L, ((Number) record.get(AnalyticsEventRecorder.RECORD_TIMESTAMP)).longValue());
+        assertEquals(42, ((Number) record.get(AnalyticsEventRecorder.RECORD_NUMBER)).intValue());
+    }
+
+    @Test
+    public void test_record_StopsAtMaxSize() throws IOException {
+        // setup
+        File file = temporaryFolder.newFile("trace");
+        int recordSize = AnalyticsRecordCodec.encode(createRecord()).length;
+        AnalyticsEventRecorder recorder = AnalyticsEventRecorder.open(file, recordSize * 2 + recordSize / 2);
+
+        // test
+        for (int i = 0; i < 4; i++) {
+            recorder.record(AnalyticsEventRecorder.KIND_TRACK, "generic track", createTrackData("action"));
+        }
+
+        // verify
+        assertFalse(recorder.isRecording());
+        assertEquals(2, readTrace(file).size());
+    }
+
+    @Test
+    public void test_close_StopsRecording() throws IOException {
+        // setup
+        File file = temporaryFolder.newFile("trace");
+        AnalyticsEventRecorder recorder = AnalyticsEventRecorder.open(file, 1024 * 1024);
+        assertNotNull(recorder);
+        assertTrue(recorder.isRecording());
+
+        // test
+        recorder.close();
+        recorder.record(AnalyticsEventRecorder.KIND_TRACK, "generic track", createTrackData("action"));
+
+        // verify
+        assertFalse(recorder.isRecording());
+        assertEquals(0, file.length());
+    }
+
+    @Test
+    public void test_open_DirectoryNotCreated() throws IOException {
+        // setup
+        File notDirectory = temporaryFolder.newFile("file");
+
+        // verify
+        assertNull(AnalyticsEventRecorder.open(new File(notDirectory, "trace"), 1024));
+    }
+
+    private Map<String, Object> createRecord() {
+        Map<String, Object> record = new HashMap<>();
+        record.put(AnalyticsEventRecorder.RECORD_KIND, AnalyticsEventRecorder.KIND_TRACK);
+        record.put(AnalyticsEventRecorder.RECORD_TIME, 0L);
+        record.put(AnalyticsEventRecorder.RECORD_NAME, "generic track");
+        record.put(AnalyticsEventRecorder.RECORD_DATA, createTrackData("action"));
+        return record;
+    }
+}
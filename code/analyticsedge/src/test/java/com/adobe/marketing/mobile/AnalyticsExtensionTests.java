@@ -12,31 +12,49 @@
 
 package com.adobe.marketing.mobile;
 
+import android.content.BroadcastReceiver;
 import android.content.Context;
+import android.content.IntentFilter;
 
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 import org.powermock.reflect.Whitebox;
 import org.powermock.reflect.internal.WhiteboxImpl;
 
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
@@ -48,7 +66,11 @@ import static org.mockito.Mockito.when;
 @PrepareForTest({ExtensionApi.class, ExtensionUnexpectedError.class, PlatformServices.class, Edge.class, Context.class, ExperienceEvent.class, App.class, MobileCore.class})
 public class AnalyticsExtensionTests {
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     private AnalyticsExtension analyticsExtension;
+    private int EXECUTOR_TIMEOUT = 5;
     private AndroidPlatformServices platformServices;
     private UIService uiService;
 
@@ -100,6 +122,36 @@ public class AnalyticsExtensionTests {
                 (ExtensionErrorCallback) eq(null))).thenReturn(configData);
     }
 
+    private void setupAssuranceSessionInSharedState(final String sessionId) {
+        HashMap<String, Object> assuranceData = new HashMap<>();
+        assuranceData.put(AnalyticsConstants.EventDataKeys.SESSION_ID, sessionId);
+        when(mockExtensionApi.getSharedEventState(eq(AnalyticsConstants.SharedStateKeys.ASSURANCE), any(Event.class),
+                (ExtensionErrorCallback) eq(null))).thenReturn(assuranceData);
+    }
+
+    private Event createAssuranceSharedStateEvent(final int eventNumber) {
+        Map<String, Object> eventData = new HashMap<>();
+        eventData.put(AnalyticsConstants.EventDataKeys.STATE_OWNER, AnalyticsConstants.SharedStateKeys.ASSURANCE);
+        return new Event.Builder("shared state change", EventType.HUB, EventSource.SHARED_STATE)
+                .setEventData(eventData).setEventNumber(eventNumber).build();
+    }
+
+    private Event createTrackActionEvent(final String action) {
+        EventData eventData = new EventData();
+        eventData.putString(AnalyticsConstants.EventDataKeys.TRACK_ACTION, action);
+        return new Event.Builder("generic track", EventType.GENERIC_TRACK, EventSource.REQUEST_CONTENT).setData(eventData).build();
+    }
+
+    private List<Map<String, Object>> getDispatchedHits(final List<Event> dispatchedEvents) {
+        List<Map<String, Object>> hits = new ArrayList<>();
+        for (Event event : dispatchedEvents) {
+            Map<String, Object> edgeEventData = (Map<String, Object>) event.getEventData().get(AnalyticsConstants.XDMDataKeys.DATA);
+            Map<String, Object> edgeLegacyData = (Map<String, Object>) edgeEventData.get(AnalyticsConstants.XDMDataKeys.LEGACY);
+            hits.add((Map<String, Object>) edgeLegacyData.get(AnalyticsConstants.XDMDataKeys.ANALYTICS));
+        }
+        return hits;
+    }
+
     // ========================================================================================
     // constructor
     // ========================================================================================
@@ -112,6 +164,34 @@ public class AnalyticsExtensionTests {
                 eq(EventSource.REQUEST_CONTENT), eq(GenericTrackRequestContentListener.class));
         verify(mockExtensionApi, times(1)).registerListener(eq(EventType.RULES_ENGINE),
                 eq(EventSource.RESPONSE_CONTENT), eq(RulesEngineResponseContentListener.class));
+        verify(mockExtensionApi, times(1)).registerListener(eq(EventType.GENERIC_LIFECYCLE),
+                eq(EventSource.REQUEST_CONTENT), eq(GenericLifecycleRequestContentListener.class));
+        verify(mockExtensionApi, times(1)).registerListener(eq(EventType.ANALYTICS),
+                eq(EventSource.REQUEST_CONTENT), eq(AnalyticsRequestContentListener.class));
+        verify(mockExtensionApi, times(1)).registerListener(eq(EventType.HUB),
+                eq(EventSource.SHARED_STATE), eq(HubSharedStateListener.class));
+    }
+
+    @Test
+    public void test_Constructor_CacheDirectoryLookedUpOnceOnExecutor() {
+        //setup MobileCore mock method
+        PowerMockito.mockStatic(MobileCore.class);
+
+        // setup
+        SystemInfoService systemInfoService = Mockito.mock(SystemInfoService.class);
+        Mockito.when(systemInfoService.getApplicationCacheDir()).thenReturn(temporaryFolder.getRoot());
+        Mockito.when(mockPlatformServices.getSystemInfoService()).thenReturn(systemInfoService);
+        setupPrivacyStatusInSharedState("optedin");
+
+        // test
+        AnalyticsExtension extension = new AnalyticsExtension(mockExtensionApi, mockPlatformServices);
+        extension.handleAnalyticsTrackEvent(createTrackActionEvent("action"));
+        TestUtils.waitForExecutor(extension.getExecutor(), EXECUTOR_TIMEOUT);
+
+        // verify
+        verify(systemInfoService, times(1)).getApplicationCacheDir();
+        assertTrue(new File(new File(temporaryFolder.getRoot(), AnalyticsConstants.EXTENSION_NAME),
+                AnalyticsConstants.EVENT_SPILL_DIRECTORY).isDirectory());
     }
 
     // ========================================================================================
@@ -156,6 +236,127 @@ public class AnalyticsExtensionTests {
         verify(mockExtensionApi, times(1)).clearSharedEventStates(null);
     }
 
+    @Test
+    public void test_onUnregistered_ShutsDownExecutor() {
+        // test
+        analyticsExtension.onUnregistered();
+
+        // verify
+        assertTrue(analyticsExtension.getExecutor().isShutdown());
+        TestUtils.waitForTermination(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
+    }
+
+    @Test
+    public void test_onUnregistered_DoesNotWaitForExecutor() throws Exception {
+        // setup
+        final CountDownLatch releaseLatch = new CountDownLatch(1);
+        analyticsExtension.getExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    releaseLatch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        // test
+        analyticsExtension.onUnregistered();
+
+        // verify
+        assertTrue(analyticsExtension.getExecutor().isShutdown());
+        assertFalse(analyticsExtension.getExecutor().isTerminated());
+        verify(mockExtensionApi, times(1)).clearSharedEventStates(null);
+        releaseLatch.countDown();
+        TestUtils.waitForTermination(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
+    }
+
+    @Test
+    public void test_execute_RejectedAfterShutdown() {
+        // setup
+        analyticsExtension.onUnregistered();
+
+        // test
+        boolean submitted = AnalyticsExtension.execute(analyticsExtension.getExecutor(), new Runnable() {
+            @Override
+            public void run() {
+                fail("Task run after the extension was unregistered");
+            }
+        });
+
+        // verify
+        assertFalse(submitted);
+    }
+
+    @Test
+    public void test_onUnregistered_UnregistersTimezoneReceiver() {
+        // setup
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
+        ArgumentCaptor<BroadcastReceiver> receiverCaptor = ArgumentCaptor.forClass(BroadcastReceiver.class);
+        verify(context, times(1)).registerReceiver(receiverCaptor.capture(), any(IntentFilter.class));
+
+        // test
+        analyticsExtension.onUnregistered();
+        TestUtils.waitForTermination(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
+
+        // verify
+        verify(context, times(1)).unregisterReceiver(receiverCaptor.getValue());
+    }
+
+    @Test
+    public void test_handleAnalyticsTrackEvent_RecordEventsEnabled() throws IOException {
+        //setup MobileCore mock method
+        PowerMockito.mockStatic(MobileCore.class);
+
+        // setup
+        HashMap<String,Object> configData = new HashMap<>();
+        configData.put(AnalyticsConstants.Configuration.GLOBAL_CONFIG_PRIVACY, "optedin");
+        configData.put(AnalyticsConstants.Configuration.ANALYTICS_RECORD_EVENTS, true);
+        when(mockExtensionApi.getSharedEventState(anyString(), any(Event.class),
+                (ExtensionErrorCallback) eq(null))).thenReturn(configData);
+        Mockito.when(mockSystemInfoService.getApplicationCacheDir()).thenReturn(temporaryFolder.getRoot());
+
+        // test
+        analyticsExtension.handleAnalyticsTrackEvent(createTrackActionEvent("first"));
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
+        analyticsExtension.handleAnalyticsTrackEvent(createTrackActionEvent("second"));
+        analyticsExtension.onUnregistered();
+        TestUtils.waitForTermination(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
+
+        // verify the recording starts with the configuration the first event was processed with
+        File[] traceFiles = new File(new File(temporaryFolder.getRoot(), AnalyticsConstants.EXTENSION_NAME),
+                AnalyticsConstants.EVENT_TRACE_DIRECTORY).listFiles();
+        assertEquals(1, traceFiles.length);
+        try (DataInputStream input = new DataInputStream(new FileInputStream(traceFiles[0]))) {
+            Map<String, Object> configurationRecord = AnalyticsRecordCodec.read(input);
+            assertEquals(AnalyticsEventRecorder.KIND_CONFIGURATION, configurationRecord.get(AnalyticsEventRecorder.RECORD_KIND));
+            assertEquals(configData, configurationRecord.get(AnalyticsEventRecorder.RECORD_DATA));
+            Map<String, Object> trackRecord = AnalyticsRecordCodec.read(input);
+            assertEquals(AnalyticsEventRecorder.KIND_TRACK, trackRecord.get(AnalyticsEventRecorder.RECORD_KIND));
+            Map<String, Object> trackData = (Map<String, Object>) trackRecord.get(AnalyticsEventRecorder.RECORD_DATA);
+            assertEquals("second", trackData.get(AnalyticsConstants.EventDataKeys.TRACK_ACTION));
+            assertNull(AnalyticsRecordCodec.read(input));
+        }
+    }
+
+    @Test
+    public void test_onUnregistered_TrackEventIgnored() {
+        //setup MobileCore mock method
+        PowerMockito.mockStatic(MobileCore.class);
+
+        // setup
+        setupPrivacyStatusInSharedState("optedin");
+        analyticsExtension.onUnregistered();
+
+        // test
+        analyticsExtension.handleAnalyticsTrackEvent(createTrackActionEvent("action"));
+
+        // verify
+        PowerMockito.verifyStatic(MobileCore.class, times(0));
+        MobileCore.dispatchEvent(any(Event.class), (ExtensionErrorCallback<ExtensionError>) eq(null));
+    }
+
     // ========================================================================================
     // getExecutor
     // ========================================================================================
@@ -169,6 +370,35 @@ public class AnalyticsExtensionTests {
         assertEquals("Gets the same executor instance on the next get", executorService, analyticsExtension.getExecutor());
     }
 
+    @Test
+    public void test_getExecutor_IdleThreadReleased() throws Exception {
+        //setup MobileCore mock method
+        PowerMockito.mockStatic(MobileCore.class);
+
+        // setup
+        HashMap<String,Object> configData = new HashMap<>();
+        configData.put(AnalyticsConstants.Configuration.GLOBAL_CONFIG_PRIVACY, "optedin");
+        configData.put(AnalyticsConstants.Configuration.ANALYTICS_EXECUTOR_IDLE_TIMEOUT, 1);
+        when(mockExtensionApi.getSharedEventState(anyString(), any(Event.class),
+                (ExtensionErrorCallback) eq(null))).thenReturn(configData);
+        analyticsExtension.handleAnalyticsTrackEvent(createTrackActionEvent("first"));
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
+
+        // test
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) analyticsExtension.getExecutor();
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(EXECUTOR_TIMEOUT);
+        while (executor.getPoolSize() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+
+        // verify the thread is released and a new one is started for the next event
+        assertEquals(0, executor.getPoolSize());
+        analyticsExtension.handleAnalyticsTrackEvent(createTrackActionEvent("second"));
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
+        PowerMockito.verifyStatic(MobileCore.class, times(2));
+        MobileCore.dispatchEvent(any(Event.class), (ExtensionErrorCallback<ExtensionError>) eq(null));
+    }
+
     // ========================================================================================
     // handleAnalyticsTrackEvent
     // ========================================================================================
@@ -190,6 +420,7 @@ public class AnalyticsExtensionTests {
 
         // test
         analyticsExtension.handleAnalyticsTrackEvent(sampleEvent);
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
 
         // verify
         ArgumentCaptor<Event> argument = ArgumentCaptor.forClass(Event.class);
@@ -210,7 +441,7 @@ public class AnalyticsExtensionTests {
         HashMap edgeEventAnalyticsContextData = (HashMap)edgeEventAnalyticsData.get(AnalyticsConstants.XDMDataKeys.CONTEXT_DATA);
         assertEquals("legacy.analytics", xdm.get(AnalyticsConstants.XDMDataKeys.EVENTTYPE));
         assertEquals("UTF-8", edgeEventAnalyticsData.get(AnalyticsConstants.AnalyticsRequestKeys.CHARSET));
-        assertEquals(AnalyticsConstants.TIMESTAMP_TIMEZONE_OFFSET, edgeEventAnalyticsData.get(AnalyticsConstants.AnalyticsRequestKeys.FORMATTED_TIMESTAMP));
+        assertEquals(new AnalyticsTimezoneOffsetProvider().getTimestampTimezoneOffset(), edgeEventAnalyticsData.get(AnalyticsConstants.AnalyticsRequestKeys.FORMATTED_TIMESTAMP));
         assertEquals("lnk_o", edgeEventAnalyticsData.get(AnalyticsConstants.AnalyticsRequestKeys.IGNORE_PAGE_NAME));
         assertEquals("AMACTION:action", edgeEventAnalyticsData.get(AnalyticsConstants.AnalyticsRequestKeys.ACTION_NAME));
         assertEquals("foreground", edgeEventAnalyticsData.get(AnalyticsConstants.AnalyticsRequestKeys.CUSTOMER_PERSPECTIVE));
@@ -238,6 +469,7 @@ public class AnalyticsExtensionTests {
 
         // test
         analyticsExtension.handleAnalyticsTrackEvent(sampleEvent);
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
 
         // verify
         ArgumentCaptor<Event> argument = ArgumentCaptor.forClass(Event.class);
@@ -259,7 +491,7 @@ public class AnalyticsExtensionTests {
         assertEquals("legacy.analytics", xdm.get(AnalyticsConstants.XDMDataKeys.EVENTTYPE));
         assertEquals("state", edgeEventAnalyticsData.get(AnalyticsConstants.AnalyticsRequestKeys.PAGE_NAME));
         assertEquals("UTF-8", edgeEventAnalyticsData.get(AnalyticsConstants.AnalyticsRequestKeys.CHARSET));
-        assertEquals(AnalyticsConstants.TIMESTAMP_TIMEZONE_OFFSET, edgeEventAnalyticsData.get(AnalyticsConstants.AnalyticsRequestKeys.FORMATTED_TIMESTAMP));
+        assertEquals(new AnalyticsTimezoneOffsetProvider().getTimestampTimezoneOffset(), edgeEventAnalyticsData.get(AnalyticsConstants.AnalyticsRequestKeys.FORMATTED_TIMESTAMP));
         assertEquals("foreground", edgeEventAnalyticsData.get(AnalyticsConstants.AnalyticsRequestKeys.CUSTOMER_PERSPECTIVE));
         assertEquals(timestamp, edgeEventAnalyticsData.get(AnalyticsConstants.AnalyticsRequestKeys.STRING_TIMESTAMP));
         assertEquals("value1", edgeEventAnalyticsContextData.get("key1"));
@@ -286,6 +518,7 @@ public class AnalyticsExtensionTests {
 
         // test
         analyticsExtension.handleAnalyticsTrackEvent(sampleEvent);
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
 
         // verify
         ArgumentCaptor<Event> argument = ArgumentCaptor.forClass(Event.class);
@@ -306,7 +539,7 @@ public class AnalyticsExtensionTests {
         HashMap edgeEventAnalyticsContextData = (HashMap)edgeEventAnalyticsData.get(AnalyticsConstants.XDMDataKeys.CONTEXT_DATA);
         assertEquals("legacy.analytics", xdm.get(AnalyticsConstants.XDMDataKeys.EVENTTYPE));
         assertEquals("UTF-8", edgeEventAnalyticsData.get(AnalyticsConstants.AnalyticsRequestKeys.CHARSET));
-        assertEquals(AnalyticsConstants.TIMESTAMP_TIMEZONE_OFFSET, edgeEventAnalyticsData.get(AnalyticsConstants.AnalyticsRequestKeys.FORMATTED_TIMESTAMP));
+        assertEquals(new AnalyticsTimezoneOffsetProvider().getTimestampTimezoneOffset(), edgeEventAnalyticsData.get(AnalyticsConstants.AnalyticsRequestKeys.FORMATTED_TIMESTAMP));
         assertEquals("lnk_o", edgeEventAnalyticsData.get(AnalyticsConstants.AnalyticsRequestKeys.IGNORE_PAGE_NAME));
         assertEquals("ADBINTERNAL:action", edgeEventAnalyticsData.get(AnalyticsConstants.AnalyticsRequestKeys.ACTION_NAME));
         assertEquals("foreground", edgeEventAnalyticsData.get(AnalyticsConstants.AnalyticsRequestKeys.CUSTOMER_PERSPECTIVE));
@@ -332,6 +565,7 @@ public class AnalyticsExtensionTests {
 
         // test
         analyticsExtension.handleAnalyticsTrackEvent(sampleEvent);
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
 
         // verify
         ArgumentCaptor<Event> argument = ArgumentCaptor.forClass(Event.class);
@@ -352,7 +586,7 @@ public class AnalyticsExtensionTests {
         HashMap edgeEventAnalyticsContextData = (HashMap)edgeEventAnalyticsData.get(AnalyticsConstants.XDMDataKeys.CONTEXT_DATA);
         assertEquals("legacy.analytics", xdm.get(AnalyticsConstants.XDMDataKeys.EVENTTYPE));
         assertEquals("UTF-8", edgeEventAnalyticsData.get(AnalyticsConstants.AnalyticsRequestKeys.CHARSET));
-        assertEquals(AnalyticsConstants.TIMESTAMP_TIMEZONE_OFFSET, edgeEventAnalyticsData.get(AnalyticsConstants.AnalyticsRequestKeys.FORMATTED_TIMESTAMP));
+        assertEquals(new AnalyticsTimezoneOffsetProvider().getTimestampTimezoneOffset(), edgeEventAnalyticsData.get(AnalyticsConstants.AnalyticsRequestKeys.FORMATTED_TIMESTAMP));
         assertEquals("lnk_o", edgeEventAnalyticsData.get(AnalyticsConstants.AnalyticsRequestKeys.IGNORE_PAGE_NAME));
         assertEquals("AMACTION:action", edgeEventAnalyticsData.get(AnalyticsConstants.AnalyticsRequestKeys.ACTION_NAME));
         assertEquals("foreground", edgeEventAnalyticsData.get(AnalyticsConstants.AnalyticsRequestKeys.CUSTOMER_PERSPECTIVE));
@@ -367,6 +601,7 @@ public class AnalyticsExtensionTests {
 
         // test
         analyticsExtension.handleAnalyticsTrackEvent(sampleEvent);
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
 
         // verify
         PowerMockito.verifyStatic(Edge.class, times(0));
@@ -380,6 +615,7 @@ public class AnalyticsExtensionTests {
 
         // test
         analyticsExtension.handleAnalyticsTrackEvent(sampleEvent);
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
 
         // verify
         PowerMockito.verifyStatic(Edge.class, times(0));
@@ -389,111 +625,561 @@ public class AnalyticsExtensionTests {
     @Test
     public void test_handleAnalyticsTrackEvent_WhenPrivacyOptedOut() {
         // setup
-        Event sampleEvent = new Event.Builder("generic track", EventType.GENERIC_TRACK, EventSource.REQUEST_CONTENT).setEventNumber(1).build();
-        // setup privacy status
-        setupPrivacyStatusInSharedState("optedout");
+        Event sampleEvent = new Event.Builder("generic track", EventType.GENERIC_TRACK, EventSource.REQUEST_CONTENT).setEventNumber(1).build();
+        // setup privacy status
+        setupPrivacyStatusInSharedState("optedout");
+
+        // test
+        analyticsExtension.handleAnalyticsTrackEvent(sampleEvent);
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
+
+        // verify
+        PowerMockito.verifyStatic(Edge.class, times(0));
+        Edge.sendEvent(any(ExperienceEvent.class), (EdgeCallback) eq(null));
+    }
+
+    @Test
+    public void test_handleAnalyticsTrackEvent_WhenPrivacyStatusIsNull() {
+        //setup MobileCore mock method
+        PowerMockito.mockStatic(MobileCore.class);
+
+        // setup
+        HashMap<String, String> contextData = new HashMap<>();
+        contextData.put("key1", "value1");
+        contextData.put("key2", "value2");
+        EventData eventData = new EventData();
+        eventData.putString(AnalyticsConstants.EventDataKeys.TRACK_ACTION, "action");
+        eventData.putBoolean(AnalyticsConstants.EventDataKeys.TRACK_INTERNAL, true);
+        eventData.putStringMap(AnalyticsConstants.EventDataKeys.CONTEXT_DATA, contextData);
+        Event sampleEvent = new Event.Builder("generic track", EventType.GENERIC_TRACK, EventSource.REQUEST_CONTENT).setData(eventData).build();
+        setupPrivacyStatusInSharedState(null);
+        String timestamp = String.valueOf(sampleEvent.getTimestampInSeconds());
+
+        // test
+        analyticsExtension.handleAnalyticsTrackEvent(sampleEvent);
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
+
+        // verify
+        ArgumentCaptor<Event> argument = ArgumentCaptor.forClass(Event.class);
+        PowerMockito.verifyStatic(MobileCore.class, times(1));
+        MobileCore.dispatchEvent(argument.capture(), (ExtensionErrorCallback<ExtensionError>) eq(null));
+        Assert.assertTrue(argument.getValue() instanceof Event);
+        Event event = argument.getValue();
+        Assert.assertTrue(event.getName().equalsIgnoreCase(AnalyticsConstants.ANALYTICS_XDM_EVENTNAME));
+        Assert.assertTrue(event.getType().equalsIgnoreCase(AnalyticsConstants.Edge.EVENT_TYPE));
+        Assert.assertTrue(event.getSource().equalsIgnoreCase(EventSource.REQUEST_CONTENT.getName()));
+
+        Map<String, Object> capturedEventData = event.getEventData();
+        Map<String, String> xdm = (Map<String, String>) capturedEventData.get(AnalyticsConstants.XDMDataKeys.XDM);
+
+        Map<String, Object> edgeEventData = (Map<String, Object>) capturedEventData.get(AnalyticsConstants.XDMDataKeys.DATA);
+        Map<String, Object> edgeLegacyData = (Map<String, Object>) edgeEventData.get(AnalyticsConstants.XDMDataKeys.LEGACY);
+        HashMap edgeEventAnalyticsData = (HashMap)edgeLegacyData.get(AnalyticsConstants.XDMDataKeys.ANALYTICS);
+        HashMap edgeEventAnalyticsContextData = (HashMap)edgeEventAnalyticsData.get(AnalyticsConstants.XDMDataKeys.CONTEXT_DATA);
+        assertEquals("legacy.analytics", xdm.get(AnalyticsConstants.XDMDataKeys.EVENTTYPE));
+        assertEquals("UTF-8", edgeEventAnalyticsData.get(AnalyticsConstants.AnalyticsRequestKeys.CHARSET));
+        assertEquals(new AnalyticsTimezoneOffsetProvider().getTimestampTimezoneOffset(), edgeEventAnalyticsData.get(AnalyticsConstants.AnalyticsRequestKeys.FORMATTED_TIMESTAMP));
+        assertEquals("lnk_o", edgeEventAnalyticsData.get(AnalyticsConstants.AnalyticsRequestKeys.IGNORE_PAGE_NAME));
+        assertEquals("ADBINTERNAL:action", edgeEventAnalyticsData.get(AnalyticsConstants.AnalyticsRequestKeys.ACTION_NAME));
+        assertEquals("foreground", edgeEventAnalyticsData.get(AnalyticsConstants.AnalyticsRequestKeys.CUSTOMER_PERSPECTIVE));
+        assertEquals(timestamp, edgeEventAnalyticsData.get(AnalyticsConstants.AnalyticsRequestKeys.STRING_TIMESTAMP));
+        assertEquals("value1", edgeEventAnalyticsContextData.get("key1"));
+        assertEquals("value2", edgeEventAnalyticsContextData.get("key2"));
+        assertEquals("action", edgeEventAnalyticsContextData.get(AnalyticsConstants.ContextDataKeys.INTERNAL_ACTION));
+    }
+
+    @Test
+    public void test_handleAnalyticsTrack_ContextDataStripped() {
+        //setup MobileCore mock method
+        PowerMockito.mockStatic(MobileCore.class);
+
+        // setup
+        HashMap<String, String> contextData = new HashMap<>();
+        contextData.put("&&product", "value");
+        EventData eventData = new EventData();
+        eventData.putString(AnalyticsConstants.EventDataKeys.TRACK_ACTION, "action");
+        eventData.putStringMap(AnalyticsConstants.EventDataKeys.CONTEXT_DATA, contextData);
+        Event sampleEvent = new Event.Builder("generic track", EventType.GENERIC_TRACK, EventSource.REQUEST_CONTENT).setData(eventData).build();
+        setupPrivacyStatusInSharedState("optedin");
+        String timestamp = String.valueOf(sampleEvent.getTimestampInSeconds());
+
+        // test
+        analyticsExtension.handleAnalyticsTrackEvent(sampleEvent);
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
+
+        // verify
+        ArgumentCaptor<Event> argument = ArgumentCaptor.forClass(Event.class);
+        PowerMockito.verifyStatic(MobileCore.class, times(1));
+        MobileCore.dispatchEvent(argument.capture(), (ExtensionErrorCallback<ExtensionError>) eq(null));
+        Assert.assertTrue(argument.getValue() instanceof Event);
+        Event event = argument.getValue();
+        Assert.assertTrue(event.getName().equalsIgnoreCase(AnalyticsConstants.ANALYTICS_XDM_EVENTNAME));
+        Assert.assertTrue(event.getType().equalsIgnoreCase(AnalyticsConstants.Edge.EVENT_TYPE));
+        Assert.assertTrue(event.getSource().equalsIgnoreCase(EventSource.REQUEST_CONTENT.getName()));
+
+        Map<String, Object> capturedEventData = event.getEventData();
+        Map<String, String> xdm = (Map<String, String>) capturedEventData.get(AnalyticsConstants.XDMDataKeys.XDM);
+
+        Map<String, Object> edgeEventData = (Map<String, Object>) capturedEventData.get(AnalyticsConstants.XDMDataKeys.DATA);
+        Map<String, Object> edgeLegacyData = (Map<String, Object>) edgeEventData.get(AnalyticsConstants.XDMDataKeys.LEGACY);
+        HashMap edgeEventAnalyticsData = (HashMap)edgeLegacyData.get(AnalyticsConstants.XDMDataKeys.ANALYTICS);
+        HashMap edgeEventAnalyticsContextData = (HashMap)edgeEventAnalyticsData.get(AnalyticsConstants.XDMDataKeys.CONTEXT_DATA);
+        assertEquals("legacy.analytics", xdm.get(AnalyticsConstants.XDMDataKeys.EVENTTYPE));
+        assertEquals("UTF-8", edgeEventAnalyticsData.get(AnalyticsConstants.AnalyticsRequestKeys.CHARSET));
+        assertEquals(new AnalyticsTimezoneOffsetProvider().getTimestampTimezoneOffset(), edgeEventAnalyticsData.get(AnalyticsConstants.AnalyticsRequestKeys.FORMATTED_TIMESTAMP));
+        assertEquals("lnk_o", edgeEventAnalyticsData.get(AnalyticsConstants.AnalyticsRequestKeys.IGNORE_PAGE_NAME));
+        assertEquals("AMACTION:action", edgeEventAnalyticsData.get(AnalyticsConstants.AnalyticsRequestKeys.ACTION_NAME));
+        assertEquals("foreground", edgeEventAnalyticsData.get(AnalyticsConstants.AnalyticsRequestKeys.CUSTOMER_PERSPECTIVE));
+        assertEquals("value", edgeEventAnalyticsData.get("product"));
+        assertEquals(timestamp, edgeEventAnalyticsData.get(AnalyticsConstants.AnalyticsRequestKeys.STRING_TIMESTAMP));
+        assertEquals("action", edgeEventAnalyticsContextData.get(AnalyticsConstants.ContextDataKeys.ACTION));
+    }
+
+    // ========================================================================================
+    // handleLifecycleEvent
+    // ========================================================================================
+    @Test
+    public void test_handleLifecycleEvent_Pause_NoHitsDispatched() {
+        //setup MobileCore mock method
+        PowerMockito.mockStatic(MobileCore.class);
+
+        // setup
+        HashMap<String, Object> lifecycleData = new HashMap<>();
+        lifecycleData.put(AnalyticsConstants.EventDataKeys.LIFECYCLE_ACTION_KEY, AnalyticsConstants.EventDataKeys.LIFECYCLE_PAUSE);
+        Event pauseEvent = new Event.Builder("lifecycle pause", EventType.GENERIC_LIFECYCLE, EventSource.REQUEST_CONTENT).setEventData(lifecycleData).build();
+
+        // test
+        analyticsExtension.handleLifecycleEvent(pauseEvent);
+
+        // verify
+        PowerMockito.verifyStatic(MobileCore.class, times(0));
+        MobileCore.dispatchEvent(any(Event.class), (ExtensionErrorCallback<ExtensionError>) eq(null));
+    }
+
+    @Test
+    public void test_handleLifecycleEvent_UpdatesAppState() {
+        //setup MobileCore mock method
+        PowerMockito.mockStatic(MobileCore.class);
+
+        // setup
+        AnalyticsAppStateTracker appStateTracker = Whitebox.getInternalState(analyticsExtension, "appStateTracker");
+        HashMap<String, Object> pauseData = new HashMap<>();
+        pauseData.put(AnalyticsConstants.EventDataKeys.LIFECYCLE_ACTION_KEY, AnalyticsConstants.EventDataKeys.LIFECYCLE_PAUSE);
+        Event pauseEvent = new Event.Builder("lifecycle pause", EventType.GENERIC_LIFECYCLE, EventSource.REQUEST_CONTENT).setEventData(pauseData).build();
+        HashMap<String, Object> startData = new HashMap<>();
+        startData.put(AnalyticsConstants.EventDataKeys.LIFECYCLE_ACTION_KEY, AnalyticsConstants.EventDataKeys.LIFECYCLE_START);
+        Event startEvent = new Event.Builder("lifecycle start", EventType.GENERIC_LIFECYCLE, EventSource.REQUEST_CONTENT).setEventData(startData).build();
+
+        // test
+        analyticsExtension.handleLifecycleEvent(pauseEvent);
+
+        // verify
+        assertEquals(AnalyticsAppStateProvider.AppState.BACKGROUND, appStateTracker.getAppState());
+        assertEquals(pauseEvent.getTimestamp(), appStateTracker.getBackgroundSinceMillis());
+
+        // test
+        analyticsExtension.handleLifecycleEvent(startEvent);
+
+        // verify
+        assertEquals(AnalyticsAppStateProvider.AppState.FOREGROUND, appStateTracker.getAppState());
+        assertEquals(-1, appStateTracker.getBackgroundSinceMillis());
+    }
+
+    // ========================================================================================
+    // handleAnalyticsRequestEvent
+    // ========================================================================================
+    @Test
+    public void test_handleAnalyticsRequestEvent_HitsQueueRequestsIgnored() {
+        //setup MobileCore mock method
+        PowerMockito.mockStatic(MobileCore.class);
+
+        // setup
+        HashMap<String, Object> requestData = new HashMap<>();
+        requestData.put(AnalyticsConstants.EventDataKeys.GET_QUEUE_SIZE, true);
+        requestData.put(AnalyticsConstants.EventDataKeys.CLEAR_HITS_QUEUE, true);
+        requestData.put(AnalyticsConstants.EventDataKeys.FORCE_KICK_HITS, true);
+        Event requestEvent = new Event.Builder("hits queue request", EventType.ANALYTICS, EventSource.REQUEST_CONTENT).setEventData(requestData).build();
+
+        // test
+        analyticsExtension.handleAnalyticsRequestEvent(requestEvent);
+
+        // verify
+        PowerMockito.verifyStatic(MobileCore.class, times(0));
+        MobileCore.dispatchResponseEvent(any(Event.class), any(Event.class), (ExtensionErrorCallback<ExtensionError>) eq(null));
+        PowerMockito.verifyStatic(MobileCore.class, times(0));
+        MobileCore.dispatchEvent(any(Event.class), (ExtensionErrorCallback<ExtensionError>) eq(null));
+    }
+
+    @Test
+    public void test_handleAnalyticsRequestEvent_GetEventQueueStatistics() {
+        //setup MobileCore mock method
+        PowerMockito.mockStatic(MobileCore.class);
+
+        // setup
+        HashMap<String, Object> requestData = new HashMap<>();
+        requestData.put(AnalyticsConstants.EventDataKeys.GET_EVENT_QUEUE_STATISTICS, true);
+        Event requestEvent = new Event.Builder("get event queue statistics", EventType.ANALYTICS, EventSource.REQUEST_CONTENT).setEventData(requestData).build();
+
+        // test
+        analyticsExtension.handleAnalyticsRequestEvent(requestEvent);
+
+        // verify
+        ArgumentCaptor<Event> argument = ArgumentCaptor.forClass(Event.class);
+        PowerMockito.verifyStatic(MobileCore.class, times(1));
+        MobileCore.dispatchResponseEvent(argument.capture(), eq(requestEvent), (ExtensionErrorCallback<ExtensionError>) eq(null));
+        Map<String, Object> responseData = argument.getValue().getEventData();
+        assertEquals(0L, responseData.get(AnalyticsConstants.EventDataKeys.EVENT_QUEUE_SIZE));
+        assertEquals(0L, responseData.get(AnalyticsConstants.EventDataKeys.EVENTS_DROPPED_OLDEST));
+        assertEquals(0L, responseData.get(AnalyticsConstants.EventDataKeys.EVENTS_DROPPED_NEWEST));
+        assertEquals(0L, responseData.get(AnalyticsConstants.EventDataKeys.EVENTS_SPILLED));
+    }
+
+    @Test
+    public void test_handleAnalyticsRequestEvent_GetMetrics() {
+        //setup MobileCore mock method
+        PowerMockito.mockStatic(MobileCore.class);
+
+        // setup
+        setupPrivacyStatusInSharedState("optedin");
+        analyticsExtension.handleAnalyticsTrackEvent(createTrackActionEvent("first"));
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
+        analyticsExtension.handleAnalyticsTrackEvent(new Event.Builder("generic track", EventType.GENERIC_TRACK, EventSource.REQUEST_CONTENT).build());
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
+        HashMap<String, Object> requestData = new HashMap<>();
+        requestData.put(AnalyticsConstants.EventDataKeys.GET_METRICS, true);
+        Event requestEvent = new Event.Builder("get metrics", EventType.ANALYTICS, EventSource.REQUEST_CONTENT).setEventData(requestData).build();
+
+        // test
+        analyticsExtension.handleAnalyticsRequestEvent(requestEvent);
+
+        // verify
+        ArgumentCaptor<Event> argument = ArgumentCaptor.forClass(Event.class);
+        PowerMockito.verifyStatic(MobileCore.class, times(1));
+        MobileCore.dispatchResponseEvent(argument.capture(), eq(requestEvent), (ExtensionErrorCallback<ExtensionError>) eq(null));
+        Map<String, Object> responseData = argument.getValue().getEventData();
+        assertEquals(2L, responseData.get(AnalyticsConstants.MetricsKeys.EVENTS_QUEUED));
+        assertEquals(2L, responseData.get(AnalyticsConstants.MetricsKeys.EVENTS_PROCESSED));
+        assertEquals(1L, responseData.get(AnalyticsConstants.MetricsKeys.EVENTS_DROPPED_MISSING_DATA));
+        assertEquals(1L, responseData.get(AnalyticsConstants.MetricsKeys.HITS_DISPATCHED));
+        assertEquals(2L, responseData.get(AnalyticsConstants.MetricsKeys.EVENT_LATENCY + AnalyticsConstants.MetricsKeys.HISTOGRAM_COUNT));
+        assertEquals(0L, responseData.get(AnalyticsConstants.EventDataKeys.EVENT_QUEUE_SIZE));
+    }
+
+    @Test
+    public void test_handleAnalyticsTrackEvent_OptedOut_CountsDroppedEvents() {
+        //setup MobileCore mock method
+        PowerMockito.mockStatic(MobileCore.class);
+
+        // setup
+        setupPrivacyStatusInSharedState("optedout");
+        analyticsExtension.handleConfigurationEvent(new Event.Builder("config event", EventType.CONFIGURATION, EventSource.RESPONSE_CONTENT).build());
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
+
+        // test
+        analyticsExtension.handleAnalyticsTrackEvent(createTrackActionEvent("first"));
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
+
+        // verify
+        AnalyticsMetrics metrics = Whitebox.getInternalState(analyticsExtension, "metrics");
+        assertEquals(2L, metrics.eventsDroppedOptOut.sum());
+    }
+
+    @Test
+    public void test_processEvents_MetricsSharedStateEnabled() {
+        //setup MobileCore mock method
+        PowerMockito.mockStatic(MobileCore.class);
+
+        // setup
+        HashMap<String,Object> configData = new HashMap<>();
+        configData.put(AnalyticsConstants.Configuration.GLOBAL_CONFIG_PRIVACY, "optedin");
+        configData.put(AnalyticsConstants.Configuration.ANALYTICS_METRICS_SHARED_STATE, true);
+        when(mockExtensionApi.getSharedEventState(anyString(), any(Event.class),
+                (ExtensionErrorCallback) eq(null))).thenReturn(configData);
+        Event trackEvent = createTrackActionEvent("first");
+
+        // test
+        analyticsExtension.handleAnalyticsTrackEvent(trackEvent);
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
+        analyticsExtension.handleAnalyticsTrackEvent(createTrackActionEvent("second"));
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
+
+        // verify the shared state is set once per interval
+        ArgumentCaptor<Map> sharedStateCaptor = ArgumentCaptor.forClass(Map.class);
+        verify(mockExtensionApi, times(1)).setSharedEventState(sharedStateCaptor.capture(), eq(trackEvent),
+                (ExtensionErrorCallback) eq(null));
+        Map<String, Object> metricsData = (Map<String, Object>) sharedStateCaptor.getValue().get(AnalyticsConstants.EventDataKeys.METRICS);
+        assertEquals(1L, metricsData.get(AnalyticsConstants.MetricsKeys.HITS_DISPATCHED));
+    }
+
+    @Test
+    public void test_processEvents_MetricsSharedStateDisabledByDefault() {
+        //setup MobileCore mock method
+        PowerMockito.mockStatic(MobileCore.class);
+
+        // setup
+        setupPrivacyStatusInSharedState("optedin");
+
+        // test
+        analyticsExtension.handleAnalyticsTrackEvent(createTrackActionEvent("first"));
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
+
+        // verify
+        verify(mockExtensionApi, times(0)).setSharedEventState(any(Map.class), any(Event.class),
+                (ExtensionErrorCallback) eq(null));
+    }
+
+    @Test
+    public void test_handleAnalyticsTrackEvent_SampledOut() {
+        //setup MobileCore mock method
+        PowerMockito.mockStatic(MobileCore.class);
+
+        // setup
+        HashMap<String,Object> configData = new HashMap<>();
+        configData.put(AnalyticsConstants.Configuration.GLOBAL_CONFIG_PRIVACY, "optedin");
+        configData.put(AnalyticsConstants.Configuration.ANALYTICS_SAMPLING_RATE, 0);
+        when(mockExtensionApi.getSharedEventState(anyString(), any(Event.class),
+                (ExtensionErrorCallback) eq(null))).thenReturn(configData);
+
+        // test
+        analyticsExtension.handleAnalyticsTrackEvent(createTrackActionEvent("action"));
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
+
+        // verify
+        PowerMockito.verifyStatic(MobileCore.class, times(0));
+        MobileCore.dispatchEvent(any(Event.class), (ExtensionErrorCallback<ExtensionError>) eq(null));
+        AnalyticsMetrics metrics = Whitebox.getInternalState(analyticsExtension, "metrics");
+        assertEquals(1L, metrics.eventsSampledOut.sum());
+        assertEquals(1L, metrics.eventsProcessed.sum());
+    }
+
+    @Test
+    public void test_handleAnalyticsTrackEvent_SampledIn_CarriesSamplingRate() {
+        //setup MobileCore mock method
+        PowerMockito.mockStatic(MobileCore.class);
+
+        // setup
+        when(dataStore.getString(AnalyticsConstants.DataStoreKeys.ANALYTICS_ID, null)).thenReturn("aid");
+        when(dataStore.getString(AnalyticsConstants.DataStoreKeys.VISITOR_ID, null)).thenReturn("vid");
+        analyticsExtension = new AnalyticsExtension(mockExtensionApi, mockPlatformServices);
+        HashMap<String, Object> actionRates = new HashMap<>();
+        actionRates.put("action", 0.5);
+        HashMap<String,Object> configData = new HashMap<>();
+        configData.put(AnalyticsConstants.Configuration.GLOBAL_CONFIG_PRIVACY, "optedin");
+        configData.put(AnalyticsConstants.Configuration.ANALYTICS_SAMPLING_RATE, 0);
+        configData.put(AnalyticsConstants.Configuration.ANALYTICS_ACTION_SAMPLING_RATES, actionRates);
+        when(mockExtensionApi.getSharedEventState(anyString(), any(Event.class),
+                (ExtensionErrorCallback) eq(null))).thenReturn(configData);
+
+        // test
+        analyticsExtension.handleAnalyticsTrackEvent(createTrackActionEvent("action"));
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
+
+        // verify
+        ArgumentCaptor<Event> argument = ArgumentCaptor.forClass(Event.class);
+        PowerMockito.verifyStatic(MobileCore.class, times(1));
+        MobileCore.dispatchEvent(argument.capture(), (ExtensionErrorCallback<ExtensionError>) eq(null));
+        Map<String, Object> edgeEventData = (Map<String, Object>) argument.getValue().getEventData().get(AnalyticsConstants.XDMDataKeys.DATA);
+        Map<String, Object> edgeLegacyData = (Map<String, Object>) edgeEventData.get(AnalyticsConstants.XDMDataKeys.LEGACY);
+        HashMap edgeEventAnalyticsData = (HashMap)edgeLegacyData.get(AnalyticsConstants.XDMDataKeys.ANALYTICS);
+        HashMap edgeEventAnalyticsContextData = (HashMap)edgeEventAnalyticsData.get(AnalyticsConstants.XDMDataKeys.CONTEXT_DATA);
+        assertEquals("0.5", edgeEventAnalyticsContextData.get(AnalyticsConstants.ContextDataKeys.SAMPLING_RATE));
+    }
+
+    @Test
+    public void test_handleAnalyticsTrackEvent_DuplicateWithinDedupeWindow() {
+        //setup MobileCore mock method
+        PowerMockito.mockStatic(MobileCore.class);
+
+        // setup
+        HashMap<String,Object> configData = new HashMap<>();
+        configData.put(AnalyticsConstants.Configuration.GLOBAL_CONFIG_PRIVACY, "optedin");
+        configData.put(AnalyticsConstants.Configuration.ANALYTICS_DEDUPE_WINDOW, 60000);
+        when(mockExtensionApi.getSharedEventState(anyString(), any(Event.class),
+                (ExtensionErrorCallback) eq(null))).thenReturn(configData);
+
+        // test
+        analyticsExtension.handleAnalyticsTrackEvent(createTrackActionEvent("action"));
+        analyticsExtension.handleAnalyticsTrackEvent(createTrackActionEvent("action"));
+        analyticsExtension.handleAnalyticsTrackEvent(createTrackActionEvent("other"));
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
+
+        // verify
+        PowerMockito.verifyStatic(MobileCore.class, times(2));
+        MobileCore.dispatchEvent(any(Event.class), (ExtensionErrorCallback<ExtensionError>) eq(null));
+        AnalyticsMetrics metrics = Whitebox.getInternalState(analyticsExtension, "metrics");
+        assertEquals(1L, metrics.hitsSuppressed.sum());
+    }
+
+    @Test
+    public void test_handleAnalyticsTrackEvent_DuplicatesSentByDefault() {
+        //setup MobileCore mock method
+        PowerMockito.mockStatic(MobileCore.class);
+
+        // setup
+        setupPrivacyStatusInSharedState("optedin");
+
+        // test
+        analyticsExtension.handleAnalyticsTrackEvent(createTrackActionEvent("action"));
+        analyticsExtension.handleAnalyticsTrackEvent(createTrackActionEvent("action"));
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
+
+        // verify
+        PowerMockito.verifyStatic(MobileCore.class, times(2));
+        MobileCore.dispatchEvent(any(Event.class), (ExtensionErrorCallback<ExtensionError>) eq(null));
+    }
+
+    @Test
+    public void test_handleAnalyticsTrackEvent_ContextDataDenylist() {
+        //setup MobileCore mock method
+        PowerMockito.mockStatic(MobileCore.class);
+
+        // setup
+        HashMap<String,Object> configData = new HashMap<>();
+        configData.put(AnalyticsConstants.Configuration.GLOBAL_CONFIG_PRIVACY, "optedin");
+        configData.put(AnalyticsConstants.Configuration.ANALYTICS_CONTEXT_DATA_DENYLIST, Arrays.asList("secret", "pii.*"));
+        when(mockExtensionApi.getSharedEventState(anyString(), any(Event.class),
+                (ExtensionErrorCallback) eq(null))).thenReturn(configData);
+        HashMap<String, String> contextData = new HashMap<>();
+        contextData.put("key", "value");
+        contextData.put("secret", "value");
+        contextData.put("pii.email", "value");
+        EventData eventData = new EventData();
+        eventData.putString(AnalyticsConstants.EventDataKeys.TRACK_ACTION, "action");
+        eventData.putStringMap(AnalyticsConstants.EventDataKeys.CONTEXT_DATA, contextData);
+        Event sampleEvent = new Event.Builder("generic track", EventType.GENERIC_TRACK, EventSource.REQUEST_CONTENT).setData(eventData).build();
 
         // test
         analyticsExtension.handleAnalyticsTrackEvent(sampleEvent);
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
 
         // verify
-        PowerMockito.verifyStatic(Edge.class, times(0));
-        Edge.sendEvent(any(ExperienceEvent.class), (EdgeCallback) eq(null));
+        ArgumentCaptor<Event> argument = ArgumentCaptor.forClass(Event.class);
+        PowerMockito.verifyStatic(MobileCore.class, times(1));
+        MobileCore.dispatchEvent(argument.capture(), (ExtensionErrorCallback<ExtensionError>) eq(null));
+        Map<String, Object> edgeEventData = (Map<String, Object>) argument.getValue().getEventData().get(AnalyticsConstants.XDMDataKeys.DATA);
+        Map<String, Object> edgeLegacyData = (Map<String, Object>) edgeEventData.get(AnalyticsConstants.XDMDataKeys.LEGACY);
+        Map<String, Object> analyticsData = (Map<String, Object>) edgeLegacyData.get(AnalyticsConstants.XDMDataKeys.ANALYTICS);
+        Map<String, String> analyticsContextData = (Map<String, String>) analyticsData.get(AnalyticsConstants.XDMDataKeys.CONTEXT_DATA);
+        assertEquals("value", analyticsContextData.get("key"));
+        assertEquals("action", analyticsContextData.get(AnalyticsConstants.ContextDataKeys.ACTION));
+        assertFalse(analyticsContextData.containsKey("secret"));
+        assertFalse(analyticsContextData.containsKey("pii.email"));
+        AnalyticsMetrics metrics = Whitebox.getInternalState(analyticsExtension, "metrics");
+        assertEquals(2L, metrics.contextDataKeysFiltered.sum());
     }
 
     @Test
-    public void test_handleAnalyticsTrackEvent_WhenPrivacyStatusIsNull() {
+    public void test_handleAnalyticsTrackEvent_ContextDataOverLimitsTruncated() {
         //setup MobileCore mock method
         PowerMockito.mockStatic(MobileCore.class);
 
         // setup
+        HashMap<String,Object> configData = new HashMap<>();
+        configData.put(AnalyticsConstants.Configuration.GLOBAL_CONFIG_PRIVACY, "optedin");
+        configData.put(AnalyticsConstants.Configuration.ANALYTICS_MAX_CONTEXT_DATA_ENTRIES, 2);
+        configData.put(AnalyticsConstants.Configuration.ANALYTICS_MAX_CONTEXT_DATA_VALUE_LENGTH, 5);
+        when(mockExtensionApi.getSharedEventState(anyString(), any(Event.class),
+                (ExtensionErrorCallback) eq(null))).thenReturn(configData);
         HashMap<String, String> contextData = new HashMap<>();
-        contextData.put("key1", "value1");
-        contextData.put("key2", "value2");
+        contextData.put("a", "value");
+        contextData.put("b", "longvalue");
+        contextData.put("c", "value");
         EventData eventData = new EventData();
         eventData.putString(AnalyticsConstants.EventDataKeys.TRACK_ACTION, "action");
-        eventData.putBoolean(AnalyticsConstants.EventDataKeys.TRACK_INTERNAL, true);
         eventData.putStringMap(AnalyticsConstants.EventDataKeys.CONTEXT_DATA, contextData);
         Event sampleEvent = new Event.Builder("generic track", EventType.GENERIC_TRACK, EventSource.REQUEST_CONTENT).setData(eventData).build();
-        setupPrivacyStatusInSharedState(null);
-        String timestamp = String.valueOf(sampleEvent.getTimestampInSeconds());
 
         // test
         analyticsExtension.handleAnalyticsTrackEvent(sampleEvent);
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
 
         // verify
         ArgumentCaptor<Event> argument = ArgumentCaptor.forClass(Event.class);
         PowerMockito.verifyStatic(MobileCore.class, times(1));
         MobileCore.dispatchEvent(argument.capture(), (ExtensionErrorCallback<ExtensionError>) eq(null));
-        Assert.assertTrue(argument.getValue() instanceof Event);
-        Event event = argument.getValue();
-        Assert.assertTrue(event.getName().equalsIgnoreCase(AnalyticsConstants.ANALYTICS_XDM_EVENTNAME));
-        Assert.assertTrue(event.getType().equalsIgnoreCase(AnalyticsConstants.Edge.EVENT_TYPE));
-        Assert.assertTrue(event.getSource().equalsIgnoreCase(EventSource.REQUEST_CONTENT.getName()));
-
-        Map<String, Object> capturedEventData = event.getEventData();
-        Map<String, String> xdm = (Map<String, String>) capturedEventData.get(AnalyticsConstants.XDMDataKeys.XDM);
-
-        Map<String, Object> edgeEventData = (Map<String, Object>) capturedEventData.get(AnalyticsConstants.XDMDataKeys.DATA);
+        Map<String, Object> edgeEventData = (Map<String, Object>) argument.getValue().getEventData().get(AnalyticsConstants.XDMDataKeys.DATA);
         Map<String, Object> edgeLegacyData = (Map<String, Object>) edgeEventData.get(AnalyticsConstants.XDMDataKeys.LEGACY);
-        HashMap edgeEventAnalyticsData = (HashMap)edgeLegacyData.get(AnalyticsConstants.XDMDataKeys.ANALYTICS);
-        HashMap edgeEventAnalyticsContextData = (HashMap)edgeEventAnalyticsData.get(AnalyticsConstants.XDMDataKeys.CONTEXT_DATA);
-        assertEquals("legacy.analytics", xdm.get(AnalyticsConstants.XDMDataKeys.EVENTTYPE));
-        assertEquals("UTF-8", edgeEventAnalyticsData.get(AnalyticsConstants.AnalyticsRequestKeys.CHARSET));
-        assertEquals(AnalyticsConstants.TIMESTAMP_TIMEZONE_OFFSET, edgeEventAnalyticsData.get(AnalyticsConstants.AnalyticsRequestKeys.FORMATTED_TIMESTAMP));
-        assertEquals("lnk_o", edgeEventAnalyticsData.get(AnalyticsConstants.AnalyticsRequestKeys.IGNORE_PAGE_NAME));
-        assertEquals("ADBINTERNAL:action", edgeEventAnalyticsData.get(AnalyticsConstants.AnalyticsRequestKeys.ACTION_NAME));
-        assertEquals("foreground", edgeEventAnalyticsData.get(AnalyticsConstants.AnalyticsRequestKeys.CUSTOMER_PERSPECTIVE));
-        assertEquals(timestamp, edgeEventAnalyticsData.get(AnalyticsConstants.AnalyticsRequestKeys.STRING_TIMESTAMP));
-        assertEquals("value1", edgeEventAnalyticsContextData.get("key1"));
-        assertEquals("value2", edgeEventAnalyticsContextData.get("key2"));
-        assertEquals("action", edgeEventAnalyticsContextData.get(AnalyticsConstants.ContextDataKeys.INTERNAL_ACTION));
+        Map<String, Object> analyticsData = (Map<String, Object>) edgeLegacyData.get(AnalyticsConstants.XDMDataKeys.ANALYTICS);
+        Map<String, String> analyticsContextData = (Map<String, String>) analyticsData.get(AnalyticsConstants.XDMDataKeys.CONTEXT_DATA);
+        assertEquals("value", analyticsContextData.get("a"));
+        assertEquals("longv", analyticsContextData.get("b"));
+        assertFalse(analyticsContextData.containsKey("c"));
+        AnalyticsMetrics metrics = Whitebox.getInternalState(analyticsExtension, "metrics");
+        assertEquals(2L, metrics.contextDataTruncated.sum());
     }
 
     @Test
-    public void test_handleAnalyticsTrack_ContextDataStripped() {
+    public void test_handleAnalyticsTrackEvent_OversizedHitDropped() {
         //setup MobileCore mock method
         PowerMockito.mockStatic(MobileCore.class);
 
         // setup
+        HashMap<String,Object> configData = new HashMap<>();
+        configData.put(AnalyticsConstants.Configuration.GLOBAL_CONFIG_PRIVACY, "optedin");
+        configData.put(AnalyticsConstants.Configuration.ANALYTICS_MAX_PAYLOAD_BYTES, 1024);
+        when(mockExtensionApi.getSharedEventState(anyString(), any(Event.class),
+                (ExtensionErrorCallback) eq(null))).thenReturn(configData);
+        StringBuilder largeValue = new StringBuilder();
+        for (int i = 0; i < 1024; i++) {
+            largeValue.append('x');
+        }
         HashMap<String, String> contextData = new HashMap<>();
-        contextData.put("&&product", "value");
+        contextData.put("key", largeValue.toString());
         EventData eventData = new EventData();
         eventData.putString(AnalyticsConstants.EventDataKeys.TRACK_ACTION, "action");
         eventData.putStringMap(AnalyticsConstants.EventDataKeys.CONTEXT_DATA, contextData);
         Event sampleEvent = new Event.Builder("generic track", EventType.GENERIC_TRACK, EventSource.REQUEST_CONTENT).setData(eventData).build();
-        setupPrivacyStatusInSharedState("optedin");
-        String timestamp = String.valueOf(sampleEvent.getTimestampInSeconds());
 
         // test
         analyticsExtension.handleAnalyticsTrackEvent(sampleEvent);
+        analyticsExtension.handleAnalyticsTrackEvent(createTrackActionEvent("action"));
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
 
         // verify
-        ArgumentCaptor<Event> argument = ArgumentCaptor.forClass(Event.class);
         PowerMockito.verifyStatic(MobileCore.class, times(1));
-        MobileCore.dispatchEvent(argument.capture(), (ExtensionErrorCallback<ExtensionError>) eq(null));
-        Assert.assertTrue(argument.getValue() instanceof Event);
-        Event event = argument.getValue();
-        Assert.assertTrue(event.getName().equalsIgnoreCase(AnalyticsConstants.ANALYTICS_XDM_EVENTNAME));
-        Assert.assertTrue(event.getType().equalsIgnoreCase(AnalyticsConstants.Edge.EVENT_TYPE));
-        Assert.assertTrue(event.getSource().equalsIgnoreCase(EventSource.REQUEST_CONTENT.getName()));
+        MobileCore.dispatchEvent(any(Event.class), (ExtensionErrorCallback<ExtensionError>) eq(null));
+        AnalyticsMetrics metrics = Whitebox.getInternalState(analyticsExtension, "metrics");
+        assertEquals(1L, metrics.hitsDroppedOversize.sum());
+    }
 
-        Map<String, Object> capturedEventData = event.getEventData();
-        Map<String, String> xdm = (Map<String, String>) capturedEventData.get(AnalyticsConstants.XDMDataKeys.XDM);
+    @Test
+    public void test_handleAnalyticsTrackEvent_ConfigurationPending_QueueCapped() {
+        //setup MobileCore mock method
+        PowerMockito.mockStatic(MobileCore.class);
 
-        Map<String, Object> edgeEventData = (Map<String, Object>) capturedEventData.get(AnalyticsConstants.XDMDataKeys.DATA);
-        Map<String, Object> edgeLegacyData = (Map<String, Object>) edgeEventData.get(AnalyticsConstants.XDMDataKeys.LEGACY);
-        HashMap edgeEventAnalyticsData = (HashMap)edgeLegacyData.get(AnalyticsConstants.XDMDataKeys.ANALYTICS);
-        HashMap edgeEventAnalyticsContextData = (HashMap)edgeEventAnalyticsData.get(AnalyticsConstants.XDMDataKeys.CONTEXT_DATA);
-        assertEquals("legacy.analytics", xdm.get(AnalyticsConstants.XDMDataKeys.EVENTTYPE));
-        assertEquals("UTF-8", edgeEventAnalyticsData.get(AnalyticsConstants.AnalyticsRequestKeys.CHARSET));
-        assertEquals(AnalyticsConstants.TIMESTAMP_TIMEZONE_OFFSET, edgeEventAnalyticsData.get(AnalyticsConstants.AnalyticsRequestKeys.FORMATTED_TIMESTAMP));
-        assertEquals("lnk_o", edgeEventAnalyticsData.get(AnalyticsConstants.AnalyticsRequestKeys.IGNORE_PAGE_NAME));
-        assertEquals("AMACTION:action", edgeEventAnalyticsData.get(AnalyticsConstants.AnalyticsRequestKeys.ACTION_NAME));
-        assertEquals("foreground", edgeEventAnalyticsData.get(AnalyticsConstants.AnalyticsRequestKeys.CUSTOMER_PERSPECTIVE));
-        assertEquals("value", edgeEventAnalyticsData.get("product"));
-        assertEquals(timestamp, edgeEventAnalyticsData.get(AnalyticsConstants.AnalyticsRequestKeys.STRING_TIMESTAMP));
-        assertEquals("action", edgeEventAnalyticsContextData.get(AnalyticsConstants.ContextDataKeys.ACTION));
+        // setup
+        AnalyticsEventQueue eventQueue = Whitebox.getInternalState(analyticsExtension, "eventQueue");
+        eventQueue.setOptions(2, AnalyticsConstants.DEFAULT_EVENT_QUEUE_MAX_BYTES, AnalyticsEventQueue.OverflowPolicy.DROP_OLDEST);
+
+        // test
+        analyticsExtension.handleAnalyticsTrackEvent(createTrackActionEvent("first"));
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
+        analyticsExtension.handleAnalyticsTrackEvent(createTrackActionEvent("second"));
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
+        analyticsExtension.handleAnalyticsTrackEvent(createTrackActionEvent("third"));
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
+
+        // verify
+        assertEquals(2, eventQueue.size());
+        assertEquals(1, eventQueue.getDroppedOldestCount());
+        PowerMockito.verifyStatic(MobileCore.class, times(0));
+        MobileCore.dispatchEvent(any(Event.class), (ExtensionErrorCallback<ExtensionError>) eq(null));
+    }
+
+    @Test
+    public void test_handleAnalyticsRequestEvent_NullEventData() {
+        //setup MobileCore mock method
+        PowerMockito.mockStatic(MobileCore.class);
+
+        // setup
+        Event requestEvent = new Event.Builder("analytics request", EventType.ANALYTICS, EventSource.REQUEST_CONTENT).build();
+
+        // test
+        analyticsExtension.handleAnalyticsRequestEvent(requestEvent);
+
+        // verify
+        PowerMockito.verifyStatic(MobileCore.class, times(0));
+        MobileCore.dispatchResponseEvent(any(Event.class), any(Event.class), (ExtensionErrorCallback<ExtensionError>) eq(null));
     }
 
     // ========================================================================================
@@ -522,6 +1208,7 @@ public class AnalyticsExtensionTests {
 
         // test
         analyticsExtension.handleRulesEngineEvent(sampleEvent);
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
 
         // verify
         ArgumentCaptor<Event> argument = ArgumentCaptor.forClass(Event.class);
@@ -543,7 +1230,7 @@ public class AnalyticsExtensionTests {
         assertEquals("legacy.analytics", xdm.get(AnalyticsConstants.XDMDataKeys.EVENTTYPE));
         assertEquals(1, edgeEventAnalyticsData.get("ndh"));
         assertEquals("UTF-8", edgeEventAnalyticsData.get(AnalyticsConstants.AnalyticsRequestKeys.CHARSET));
-        assertEquals(AnalyticsConstants.TIMESTAMP_TIMEZONE_OFFSET, edgeEventAnalyticsData.get(AnalyticsConstants.AnalyticsRequestKeys.FORMATTED_TIMESTAMP));
+        assertEquals(new AnalyticsTimezoneOffsetProvider().getTimestampTimezoneOffset(), edgeEventAnalyticsData.get(AnalyticsConstants.AnalyticsRequestKeys.FORMATTED_TIMESTAMP));
         assertEquals("testAppName1.0.012345", edgeEventAnalyticsData.get(AnalyticsConstants.AnalyticsRequestKeys.PAGE_NAME));
         assertEquals("foreground", edgeEventAnalyticsData.get(AnalyticsConstants.AnalyticsRequestKeys.CUSTOMER_PERSPECTIVE));
         assertEquals(timestamp, edgeEventAnalyticsData.get(AnalyticsConstants.AnalyticsRequestKeys.STRING_TIMESTAMP));
@@ -572,6 +1259,7 @@ public class AnalyticsExtensionTests {
 
         // test
         analyticsExtension.handleRulesEngineEvent(sampleEvent);
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
 
         // verify
         ArgumentCaptor<Event> argument = ArgumentCaptor.forClass(Event.class);
@@ -600,6 +1288,7 @@ public class AnalyticsExtensionTests {
 
         // test
         analyticsExtension.handleRulesEngineEvent(sampleEvent);
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
 
         // verify
         ArgumentCaptor<Event> argument = ArgumentCaptor.forClass(Event.class);
@@ -629,6 +1318,7 @@ public class AnalyticsExtensionTests {
 
         // test
         analyticsExtension.handleRulesEngineEvent(sampleEvent);
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
 
         // verify
         ArgumentCaptor<Event> argument = ArgumentCaptor.forClass(Event.class);
@@ -647,6 +1337,7 @@ public class AnalyticsExtensionTests {
 
         // test
         analyticsExtension.handleRulesEngineEvent(sampleEvent);
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
 
         // verify
         ArgumentCaptor<Event> argument = ArgumentCaptor.forClass(Event.class);
@@ -665,6 +1356,7 @@ public class AnalyticsExtensionTests {
 
         // test
         analyticsExtension.handleRulesEngineEvent(sampleEvent);
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
 
         // verify
         ArgumentCaptor<Event> argument = ArgumentCaptor.forClass(Event.class);
@@ -685,6 +1377,7 @@ public class AnalyticsExtensionTests {
 
         // test
         analyticsExtension.handleRulesEngineEvent(sampleEvent);
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
 
         // verify
         ArgumentCaptor<Event> argument = ArgumentCaptor.forClass(Event.class);
@@ -708,6 +1401,7 @@ public class AnalyticsExtensionTests {
 
         // test
         analyticsExtension.handleRulesEngineEvent(sampleEvent);
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
 
         // verify
         ArgumentCaptor<Event> argument = ArgumentCaptor.forClass(Event.class);
@@ -732,6 +1426,7 @@ public class AnalyticsExtensionTests {
 
         // test
         analyticsExtension.handleConfigurationEvent(sampleEvent);
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
 
         // verify
         try {
@@ -742,6 +1437,210 @@ public class AnalyticsExtensionTests {
         assertEquals(MobilePrivacyStatus.OPT_IN, privacyStatus);
     }
 
+    @Test
+    public void test_handleConfigurationEvent_OptOutAppliedAheadOfQueuedEvents() {
+        //setup MobileCore mock method
+        PowerMockito.mockStatic(MobileCore.class);
+
+        // setup the configuration is pending for the track events
+        HashMap<String,Object> configData = new HashMap<>();
+        configData.put(AnalyticsConstants.Configuration.GLOBAL_CONFIG_PRIVACY, "optedout");
+        Event configEvent = new Event.Builder("config event", EventType.CONFIGURATION, EventSource.RESPONSE_CONTENT).build();
+        when(mockExtensionApi.getSharedEventState(anyString(), any(Event.class),
+                (ExtensionErrorCallback) eq(null))).thenReturn(null);
+        when(mockExtensionApi.getSharedEventState(anyString(), eq(configEvent),
+                (ExtensionErrorCallback) eq(null))).thenReturn(configData);
+        for (int i = 0; i < 3; i++) {
+            analyticsExtension.handleAnalyticsTrackEvent(createTrackActionEvent("action" + i));
+        }
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
+
+        // test
+        analyticsExtension.handleConfigurationEvent(configEvent);
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
+
+        // verify
+        PowerMockito.verifyStatic(MobileCore.class, times(0));
+        MobileCore.dispatchEvent(any(Event.class), (ExtensionErrorCallback<ExtensionError>) eq(null));
+        AnalyticsEventQueue eventQueue = Whitebox.getInternalState(analyticsExtension, "eventQueue");
+        assertEquals(0, eventQueue.size());
+        AnalyticsMetrics metrics = Whitebox.getInternalState(analyticsExtension, "metrics");
+        assertEquals(4L, metrics.eventsDroppedOptOut.sum());
+        assertEquals(MobilePrivacyStatus.OPT_OUT, Whitebox.getInternalState(analyticsExtension, "privacyStatus"));
+    }
+
+    @Test
+    public void test_handleConfigurationEvent_OptInAfterOptOutNotLost() throws Exception {
+        //setup MobileCore mock method
+        PowerMockito.mockStatic(MobileCore.class);
+
+        // setup
+        HashMap<String,Object> optedOutConfigData = new HashMap<>();
+        optedOutConfigData.put(AnalyticsConstants.Configuration.GLOBAL_CONFIG_PRIVACY, "optedout");
+        HashMap<String,Object> optedInConfigData = new HashMap<>();
+        optedInConfigData.put(AnalyticsConstants.Configuration.GLOBAL_CONFIG_PRIVACY, "optedin");
+        Event optOutEvent = new Event.Builder("opt out", EventType.CONFIGURATION, EventSource.RESPONSE_CONTENT).build();
+        Event optInEvent = new Event.Builder("opt in", EventType.CONFIGURATION, EventSource.RESPONSE_CONTENT).build();
+        when(mockExtensionApi.getSharedEventState(anyString(), eq(optOutEvent),
+                (ExtensionErrorCallback) eq(null))).thenReturn(optedOutConfigData);
+        when(mockExtensionApi.getSharedEventState(anyString(), eq(optInEvent),
+                (ExtensionErrorCallback) eq(null))).thenReturn(optedInConfigData);
+        final CountDownLatch latch = new CountDownLatch(1);
+        analyticsExtension.getExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        // test both configuration events are received before the executor processes them
+        analyticsExtension.handleAnalyticsTrackEvent(createTrackActionEvent("action"));
+        analyticsExtension.handleConfigurationEvent(optOutEvent);
+        analyticsExtension.handleConfigurationEvent(optInEvent);
+        latch.countDown();
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
+
+        // verify
+        PowerMockito.verifyStatic(MobileCore.class, times(0));
+        MobileCore.dispatchEvent(any(Event.class), (ExtensionErrorCallback<ExtensionError>) eq(null));
+        assertEquals(MobilePrivacyStatus.OPT_IN, Whitebox.getInternalState(analyticsExtension, "privacyStatus"));
+    }
+
+    @Test
+    public void test_handleConfigurationEvent_TrackAfterOptInSent() {
+        //setup MobileCore mock method
+        PowerMockito.mockStatic(MobileCore.class);
+
+        // setup
+        HashMap<String,Object> optedOutConfigData = new HashMap<>();
+        optedOutConfigData.put(AnalyticsConstants.Configuration.GLOBAL_CONFIG_PRIVACY, "optedout");
+        HashMap<String,Object> optedInConfigData = new HashMap<>();
+        optedInConfigData.put(AnalyticsConstants.Configuration.GLOBAL_CONFIG_PRIVACY, "optedin");
+        EventData firstEventData = new EventData();
+        firstEventData.putString(AnalyticsConstants.EventDataKeys.TRACK_ACTION, "beforeOptOut");
+        Event firstTrackEvent = new Event.Builder("generic track", EventType.GENERIC_TRACK, EventSource.REQUEST_CONTENT)
+                .setData(firstEventData).setEventNumber(1).build();
+        Event optOutEvent = new Event.Builder("opt out", EventType.CONFIGURATION, EventSource.RESPONSE_CONTENT).setEventNumber(2).build();
+        Event optInEvent = new Event.Builder("opt in", EventType.CONFIGURATION, EventSource.RESPONSE_CONTENT).setEventNumber(3).build();
+        EventData secondEventData = new EventData();
+        secondEventData.putString(AnalyticsConstants.EventDataKeys.TRACK_ACTION, "afterOptIn");
+        Event secondTrackEvent = new Event.Builder("generic track", EventType.GENERIC_TRACK, EventSource.REQUEST_CONTENT)
+                .setData(secondEventData).setEventNumber(4).build();
+        when(mockExtensionApi.getSharedEventState(anyString(), any(Event.class),
+                (ExtensionErrorCallback) eq(null))).thenReturn(optedInConfigData);
+        when(mockExtensionApi.getSharedEventState(anyString(), eq(optOutEvent),
+                (ExtensionErrorCallback) eq(null))).thenReturn(optedOutConfigData);
+        final CountDownLatch latch = new CountDownLatch(1);
+        analyticsExtension.getExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        // test all the events are received before the executor processes them
+        analyticsExtension.handleAnalyticsTrackEvent(firstTrackEvent);
+        analyticsExtension.handleConfigurationEvent(optOutEvent);
+        analyticsExtension.handleConfigurationEvent(optInEvent);
+        analyticsExtension.handleAnalyticsTrackEvent(secondTrackEvent);
+        latch.countDown();
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
+
+        // verify only the track event dispatched after the opt-in is sent
+        ArgumentCaptor<Event> argument = ArgumentCaptor.forClass(Event.class);
+        PowerMockito.verifyStatic(MobileCore.class, times(1));
+        MobileCore.dispatchEvent(argument.capture(), (ExtensionErrorCallback<ExtensionError>) eq(null));
+        List<Map<String, Object>> hits = getDispatchedHits(argument.getAllValues());
+        assertEquals("AMACTION:afterOptIn", hits.get(0).get(AnalyticsConstants.AnalyticsRequestKeys.ACTION_NAME));
+        assertEquals(MobilePrivacyStatus.OPT_IN, Whitebox.getInternalState(analyticsExtension, "privacyStatus"));
+        AnalyticsMetrics metrics = Whitebox.getInternalState(analyticsExtension, "metrics");
+        assertEquals(2L, metrics.eventsDroppedOptOut.sum());
+    }
+
+    @Test
+    public void test_handleAnalyticsTrackEvent_ConfigurationReadOnce() {
+        //setup MobileCore mock method
+        PowerMockito.mockStatic(MobileCore.class);
+
+        // setup
+        setupPrivacyStatusInSharedState("optedin");
+
+        // test
+        analyticsExtension.handleAnalyticsTrackEvent(createTrackActionEvent("first"));
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
+        analyticsExtension.handleAnalyticsTrackEvent(createTrackActionEvent("second"));
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
+        analyticsExtension.handleAnalyticsTrackEvent(createTrackActionEvent("third"));
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
+
+        // verify
+        verify(mockExtensionApi, times(1)).getSharedEventState(eq(AnalyticsConstants.SharedStateKeys.CONFIGURATION),
+                any(Event.class), (ExtensionErrorCallback) eq(null));
+        PowerMockito.verifyStatic(MobileCore.class, times(3));
+        MobileCore.dispatchEvent(any(Event.class), (ExtensionErrorCallback<ExtensionError>) eq(null));
+    }
+
+    @Test
+    public void test_handleAnalyticsTrackEvent_BurstProcessedInOrder() {
+        //setup MobileCore mock method
+        PowerMockito.mockStatic(MobileCore.class);
+
+        // setup
+        setupPrivacyStatusInSharedState("optedin");
+        final int eventCount = 100;
+
+        // test
+        for (int i = 0; i < eventCount; i++) {
+            analyticsExtension.handleAnalyticsTrackEvent(createTrackActionEvent("action" + i));
+        }
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
+
+        // verify
+        ArgumentCaptor<Event> argument = ArgumentCaptor.forClass(Event.class);
+        PowerMockito.verifyStatic(MobileCore.class, times(eventCount));
+        MobileCore.dispatchEvent(argument.capture(), (ExtensionErrorCallback<ExtensionError>) eq(null));
+        List<Event> dispatchedEvents = argument.getAllValues();
+        for (int i = 0; i < eventCount; i++) {
+            Map<String, Object> edgeEventData = (Map<String, Object>) dispatchedEvents.get(i).getEventData().get(AnalyticsConstants.XDMDataKeys.DATA);
+            Map<String, Object> edgeLegacyData = (Map<String, Object>) edgeEventData.get(AnalyticsConstants.XDMDataKeys.LEGACY);
+            HashMap edgeEventAnalyticsData = (HashMap) edgeLegacyData.get(AnalyticsConstants.XDMDataKeys.ANALYTICS);
+            HashMap edgeEventAnalyticsContextData = (HashMap) edgeEventAnalyticsData.get(AnalyticsConstants.XDMDataKeys.CONTEXT_DATA);
+            assertEquals("action" + i, edgeEventAnalyticsContextData.get(AnalyticsConstants.ContextDataKeys.ACTION));
+        }
+    }
+
+    @Test
+    public void test_handleConfigurationEvent_UpdatesCachedConfiguration() {
+        // setup
+        MobilePrivacyStatus privacyStatus = null;
+        setupPrivacyStatusInSharedState("optedin");
+        analyticsExtension.handleConfigurationEvent(new Event.Builder("config event", EventType.CONFIGURATION, EventSource.RESPONSE_CONTENT).build());
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
+        setupPrivacyStatusInSharedState("optunknown");
+
+        // test
+        analyticsExtension.handleConfigurationEvent(new Event.Builder("config event", EventType.CONFIGURATION, EventSource.RESPONSE_CONTENT).build());
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
+
+        // verify
+        verify(mockExtensionApi, times(2)).getSharedEventState(eq(AnalyticsConstants.SharedStateKeys.CONFIGURATION),
+                any(Event.class), (ExtensionErrorCallback) eq(null));
+        try {
+            privacyStatus = WhiteboxImpl.invokeMethod(analyticsExtension, "getPrivacyStatus");
+        } catch (Exception e){
+            fail("Exception when invoking getPrivacyStatus: " + e.getMessage());
+        }
+        assertEquals(MobilePrivacyStatus.UNKNOWN, privacyStatus);
+    }
+
     @Test
     public void test_handleConfigurationEvent_NullConfigEvent() {
         // setup
@@ -749,6 +1648,7 @@ public class AnalyticsExtensionTests {
 
         // test
         analyticsExtension.handleConfigurationEvent(null);
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
 
         // verify
         try {
@@ -781,12 +1681,12 @@ public class AnalyticsExtensionTests {
 
         // Mocking Assurance shared state
         String eventUuid = sampleEvent.getUniqueIdentifier();
-        EventData mockEventData = new EventData();
-        mockEventData.putString(AnalyticsConstants.EventDataKeys.SESSION_ID, "session_id");
-        Mockito.when(mockExtensionApi.getSharedEventState(AnalyticsConstants.SharedStateKeys.ASSURANCE, sampleEvent)).thenReturn(mockEventData);
+        setupAssuranceSessionInSharedState("session_id");
 
         // test
+        analyticsExtension.handleSharedStateEvent(createAssuranceSharedStateEvent(1));
         analyticsExtension.handleAnalyticsTrackEvent(sampleEvent);
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
 
         // verify
         ArgumentCaptor<Event> argument = ArgumentCaptor.forClass(Event.class);
@@ -819,6 +1719,7 @@ public class AnalyticsExtensionTests {
 
         // test
         analyticsExtension.handleAnalyticsTrackEvent(sampleEvent);
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
 
         // verify
         ArgumentCaptor<Event> argument = ArgumentCaptor.forClass(Event.class);
@@ -836,6 +1737,76 @@ public class AnalyticsExtensionTests {
 
     }
 
+    @Test
+    public void test_handleSharedStateEvent_OlderAssuranceStateIgnored() {
+        // setup
+        setupAssuranceSessionInSharedState("session_id");
+        analyticsExtension.handleSharedStateEvent(createAssuranceSharedStateEvent(5));
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
+        setupAssuranceSessionInSharedState("");
+
+        // test
+        analyticsExtension.handleSharedStateEvent(createAssuranceSharedStateEvent(4));
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
+
+        // verify
+        assertTrue((Boolean) Whitebox.getInternalState(analyticsExtension, "assuranceSessionActive"));
+
+        // test
+        analyticsExtension.handleSharedStateEvent(createAssuranceSharedStateEvent(6));
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
+
+        // verify
+        assertFalse((Boolean) Whitebox.getInternalState(analyticsExtension, "assuranceSessionActive"));
+    }
+
+    @Test
+    public void test_handleSharedStateEvent_OtherStateOwnerIgnored() {
+        // setup
+        setupAssuranceSessionInSharedState("session_id");
+        Map<String, Object> eventData = new HashMap<>();
+        eventData.put(AnalyticsConstants.EventDataKeys.STATE_OWNER, AnalyticsConstants.SharedStateKeys.CONFIGURATION);
+        Event sharedStateEvent = new Event.Builder("shared state change", EventType.HUB, EventSource.SHARED_STATE)
+                .setEventData(eventData).build();
+
+        // test
+        analyticsExtension.handleSharedStateEvent(sharedStateEvent);
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
+
+        // verify
+        assertFalse((Boolean) Whitebox.getInternalState(analyticsExtension, "assuranceSessionActive"));
+        verify(mockExtensionApi, times(0)).getSharedEventState(eq(AnalyticsConstants.SharedStateKeys.ASSURANCE),
+                eq(sharedStateEvent), (ExtensionErrorCallback) eq(null));
+    }
+
+    @Test
+    public void test_handleSharedStateEvent_StateReadOnExecutor() {
+        // setup
+        final CountDownLatch latch = new CountDownLatch(1);
+        analyticsExtension.getExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        setupAssuranceSessionInSharedState("session_id");
+        Event sharedStateEvent = createAssuranceSharedStateEvent(1);
+
+        // test
+        analyticsExtension.handleSharedStateEvent(sharedStateEvent);
+
+        // verify the calling thread does not read the shared state
+        verify(mockExtensionApi, times(0)).getSharedEventState(eq(AnalyticsConstants.SharedStateKeys.ASSURANCE),
+                eq(sharedStateEvent), (ExtensionErrorCallback) eq(null));
+        latch.countDown();
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
+        assertTrue((Boolean) Whitebox.getInternalState(analyticsExtension, "assuranceSessionActive"));
+    }
+
     // =================================================================================================
     // Test AID/VID is attached to `Analytics vars` of analytics hit, if present in Local storage.
     // =================================================================================================
@@ -867,6 +1838,7 @@ public class AnalyticsExtensionTests {
 
         // test
         analyticsExtension.handleAnalyticsTrackEvent(sampleEvent);
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
 
         // verify
         ArgumentCaptor<Event> argument = ArgumentCaptor.forClass(Event.class);
@@ -884,6 +1856,43 @@ public class AnalyticsExtensionTests {
 
     }
 
+    @Test
+    public void test_Constructor_IdentifiersLoadedAsynchronously() throws Exception {
+        //Mocking static methods of MobileCore
+        PowerMockito.mockStatic(MobileCore.class);
+
+        // setup
+        final CountDownLatch dataStoreLatch = new CountDownLatch(1);
+        Mockito.when(dataStore.getString(AnalyticsConstants.DataStoreKeys.ANALYTICS_ID, null)).thenAnswer(new Answer<String>() {
+            @Override
+            public String answer(InvocationOnMock invocation) throws Throwable {
+                dataStoreLatch.await();
+                return "aid";
+            }
+        });
+        setupPrivacyStatusInSharedState("optedin");
+
+        // test
+        analyticsExtension = new AnalyticsExtension(mockExtensionApi, mockPlatformServices);
+        analyticsExtension.handleAnalyticsTrackEvent(createTrackActionEvent("action"));
+
+        // verify the track event waits for the identifiers
+        PowerMockito.verifyStatic(MobileCore.class, times(0));
+        MobileCore.dispatchEvent(any(Event.class), (ExtensionErrorCallback<ExtensionError>) eq(null));
+
+        // test
+        dataStoreLatch.countDown();
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
+
+        // verify
+        ArgumentCaptor<Event> argument = ArgumentCaptor.forClass(Event.class);
+        PowerMockito.verifyStatic(MobileCore.class, times(1));
+        MobileCore.dispatchEvent(argument.capture(), (ExtensionErrorCallback<ExtensionError>) eq(null));
+        Map<String, Object> analyticsData = (Map<String, Object>) ((Map<String, Object>)((Map<String, Object>)argument.getValue().getEventData()
+                .get(AnalyticsConstants.XDMDataKeys.DATA)).get(AnalyticsConstants.XDMDataKeys.LEGACY)).get(AnalyticsConstants.XDMDataKeys.ANALYTICS);
+        assertEquals("aid", analyticsData.get(AnalyticsConstants.AnalyticsRequestKeys.ANALYTICS_ID));
+    }
+
     @Test
     public void testAidIsNotAddedToAnalyticsVars() {
 
@@ -908,6 +1917,7 @@ public class AnalyticsExtensionTests {
 
         // test
         analyticsExtension.handleAnalyticsTrackEvent(sampleEvent);
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
 
         // verify
         ArgumentCaptor<Event> argument = ArgumentCaptor.forClass(Event.class);
@@ -954,6 +1964,7 @@ public class AnalyticsExtensionTests {
 
         // test
         analyticsExtension.handleAnalyticsTrackEvent(sampleEvent);
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
 
         // verify
         ArgumentCaptor<Event> argument = ArgumentCaptor.forClass(Event.class);
@@ -995,6 +2006,7 @@ public class AnalyticsExtensionTests {
 
         // test
         analyticsExtension.handleAnalyticsTrackEvent(sampleEvent);
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
 
         // verify
         ArgumentCaptor<Event> argument = ArgumentCaptor.forClass(Event.class);
@@ -1024,9 +2036,54 @@ public class AnalyticsExtensionTests {
         //Action
         Event event = new Event.Builder("Configuration", EventType.CONFIGURATION, EventSource.RESPONSE_CONTENT).build();
         analyticsExtension.handleConfigurationEvent(event);
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
 
         //Assertion
         Mockito.verify(dataStore, times(1)).remove(AnalyticsConstants.DataStoreKeys.ANALYTICS_ID);
         Mockito.verify(dataStore, times(1)).remove(AnalyticsConstants.DataStoreKeys.VISITOR_ID);
     }
+
+    @Test
+    public void testSamplingSeedReplacedOnOptOut() {
+        //setup
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
+        setupPrivacyStatusInSharedState(MobilePrivacyStatus.OPT_OUT.getValue());
+
+        //Action
+        Event event = new Event.Builder("Configuration", EventType.CONFIGURATION, EventSource.RESPONSE_CONTENT).build();
+        analyticsExtension.handleConfigurationEvent(event);
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
+
+        //Assertion
+        ArgumentCaptor<Long> seedCaptor = ArgumentCaptor.forClass(Long.class);
+        Mockito.verify(dataStore, times(2)).setLong(eq(AnalyticsConstants.DataStoreKeys.SAMPLING_SEED), seedCaptor.capture());
+        assertFalse(seedCaptor.getAllValues().get(0).equals(seedCaptor.getAllValues().get(1)));
+    }
+
+    // =================================================================================================
+    // Test the sampling seed is stored once
+    // =================================================================================================
+
+    @Test
+    public void testSamplingSeedStoredWhenMissing() {
+        //Action
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
+
+        //Assertion
+        Mockito.verify(dataStore, times(1)).setLong(eq(AnalyticsConstants.DataStoreKeys.SAMPLING_SEED), anyLong());
+    }
+
+    @Test
+    public void testStoredSamplingSeedReused() {
+        //setup
+        Mockito.when(dataStore.contains(AnalyticsConstants.DataStoreKeys.SAMPLING_SEED)).thenReturn(true);
+        Mockito.when(dataStore.getLong(AnalyticsConstants.DataStoreKeys.SAMPLING_SEED, 0)).thenReturn(42L);
+
+        //Action
+        analyticsExtension = new AnalyticsExtension(mockExtensionApi, mockPlatformServices);
+        TestUtils.waitForExecutor(analyticsExtension.getExecutor(), EXECUTOR_TIMEOUT);
+
+        //Assertion
+        Mockito.verify(dataStore, times(1)).getLong(AnalyticsConstants.DataStoreKeys.SAMPLING_SEED, 0);
+    }
 }
\ No newline at end of file
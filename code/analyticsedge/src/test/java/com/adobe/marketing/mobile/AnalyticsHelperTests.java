@@ -0,0 +1,137 @@
+/*
+  Copyright 2021 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(PowerMockRunner.class)
+public class AnalyticsHelperTests {
+
+    private AnalyticsHelper analyticsHelper;
+
+    // Mocks
+    @Mock
+    PlatformServices mockPlatformServices;
+    @Mock
+    SystemInfoService mockSystemInfoService;
+    @Mock
+    LocalStorageService localStorageService;
+    @Mock
+    LocalStorageService.DataStore dataStore;
+
+    @Before
+    public void setup() {
+        when(mockSystemInfoService.getApplicationName()).thenReturn("testAppName");
+        when(mockSystemInfoService.getApplicationVersion()).thenReturn("1.0.0");
+        when(mockSystemInfoService.getApplicationVersionCode()).thenReturn("12345");
+        when(mockPlatformServices.getSystemInfoService()).thenReturn(mockSystemInfoService);
+        when(mockPlatformServices.getLocalStorageService()).thenReturn(localStorageService);
+        when(localStorageService.getDataStore(AnalyticsConstants.DATASTORE_NAME)).thenReturn(dataStore);
+        analyticsHelper = new AnalyticsHelper(mockPlatformServices);
+    }
+
+    @Test
+    public void test_normalizeApplicationIdentifier() {
+        assertEquals("app 1.0 (1)", AnalyticsHelper.normalizeApplicationIdentifier("  app  1.0 (1) "));
+        assertEquals("app  1.0", AnalyticsHelper.normalizeApplicationIdentifier("app    1.0"));
+        assertEquals("app  1.0", AnalyticsHelper.normalizeApplicationIdentifier("app   1.0"));
+        assertEquals("app()", AnalyticsHelper.normalizeApplicationIdentifier("app()"));
+        assertEquals("", AnalyticsHelper.normalizeApplicationIdentifier(""));
+    }
+
+    @Test
+    public void test_normalizeApplicationIdentifier_MatchesRegexReplacement() {
+        String[] identifiers = {"name 1.0 (12)", " name  1.0  (12) ", "name     1.0", "name()1.0", "\tname \t"};
+
+        for (String identifier : identifiers) {
+            assertEquals(identifier.replaceAll("  ", " ").replaceAll("()", "").trim(),
+                    AnalyticsHelper.normalizeApplicationIdentifier(identifier));
+        }
+    }
+
+    @Test
+    public void test_getApplicationIdentifier_BuiltAndPersisted() {
+        // test
+        String applicationIdentifier = analyticsHelper.getApplicationIdentifier();
+
+        // verify
+        assertEquals("testAppName1.0.012345", applicationIdentifier);
+        verify(dataStore, times(1)).setString(AnalyticsConstants.DataStoreKeys.APPLICATION_IDENTIFIER, "testAppName1.0.012345");
+        verify(dataStore, times(1)).setString(AnalyticsConstants.DataStoreKeys.APPLICATION_VERSION_CODE, "12345");
+    }
+
+    @Test
+    public void test_getApplicationIdentifier_CachedInMemory() {
+        // test
+        analyticsHelper.getApplicationIdentifier();
+        String applicationIdentifier = analyticsHelper.getApplicationIdentifier();
+
+        // verify
+        assertEquals("testAppName1.0.012345", applicationIdentifier);
+        verify(mockSystemInfoService, times(1)).getApplicationVersionCode();
+        verify(mockSystemInfoService, times(1)).getApplicationName();
+    }
+
+    @Test
+    public void test_getApplicationIdentifier_ReadFromDataStoreWhenVersionCodeUnchanged() {
+        // setup
+        when(dataStore.getString(AnalyticsConstants.DataStoreKeys.APPLICATION_IDENTIFIER, null)).thenReturn("storedAppId");
+        when(dataStore.getString(AnalyticsConstants.DataStoreKeys.APPLICATION_VERSION_CODE, null)).thenReturn("12345");
+
+        // test
+        String applicationIdentifier = analyticsHelper.getApplicationIdentifier();
+
+        // verify
+        assertEquals("storedAppId", applicationIdentifier);
+        verify(mockSystemInfoService, never()).getApplicationName();
+        verify(dataStore, never()).setString(anyString(), anyString());
+    }
+
+    @Test
+    public void test_getApplicationIdentifier_RebuiltWhenVersionCodeChanged() {
+        // setup
+        when(dataStore.getString(AnalyticsConstants.DataStoreKeys.APPLICATION_IDENTIFIER, null)).thenReturn("testAppName1.0.012344");
+        when(dataStore.getString(AnalyticsConstants.DataStoreKeys.APPLICATION_VERSION_CODE, null)).thenReturn("12344");
+
+        // test
+        String applicationIdentifier = analyticsHelper.getApplicationIdentifier();
+
+        // verify
+        assertEquals("testAppName1.0.012345", applicationIdentifier);
+        verify(dataStore, times(1)).setString(AnalyticsConstants.DataStoreKeys.APPLICATION_IDENTIFIER, "testAppName1.0.012345");
+        verify(dataStore, times(1)).setString(AnalyticsConstants.DataStoreKeys.APPLICATION_VERSION_CODE, "12345");
+    }
+
+    @Test
+    public void test_getApplicationIdentifier_NullDataStore() {
+        // setup
+        when(localStorageService.getDataStore(AnalyticsConstants.DATASTORE_NAME)).thenReturn(null);
+
+        // test
+        String applicationIdentifier = analyticsHelper.getApplicationIdentifier();
+
+        // verify
+        assertEquals("testAppName1.0.012345", applicationIdentifier);
+    }
+}
@@ -0,0 +1,283 @@
+/*
+ Copyright 2021 Adobe. All rights reserved.
+ This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License. You may obtain a copy
+ of the License at http://www.apache.org/licenses/LICENSE-2.0
+ Unless required by applicable law or agreed to in writing, software distributed under
+ the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ OF ANY KIND, either express or implied. See the License for the specific language
+ governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AnalyticsHitQueueTests {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File queueDirectory;
+    private AnalyticsHitQueue hitQueue;
+
+    @Before
+    public void setup() {
+        queueDirectory = new File(temporaryFolder.getRoot(), "hits");
+        hitQueue = new AnalyticsHitQueue(queueDirectory);
+    }
+
+    private Map<String, Object> createHit(final int index) {
+        Map<String, Object> contextData = new HashMap<>();
+        contextData.put("key", "value" + index);
+        Map<String, Object> hit = new HashMap<>();
+        hit.put(AnalyticsConstants.AnalyticsRequestKeys.ACTION_NAME, "AMACTION:action" + index);
+        hit.put(AnalyticsConstants.AnalyticsRequestKeys.STRING_TIMESTAMP, String.valueOf(1000 + index));
+        hit.put("ndh", 1);
+        hit.put(AnalyticsConstants.XDMDataKeys.CONTEXT_DATA, contextData);
+        return hit;
+    }
+
+    private int countSegmentFiles() {
+        int count = 0;
+        for (File file : queueDirectory.listFiles()) {
+            if (file.getName().endsWith(".seg")) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void test_addPeekRemove_KeepsOrder() {
+        // test
+        for (int i = 0; i < 3; i++) {
+            assertTrue(hitQueue.add(createHit(i)));
+        }
+
+        // verify
+        assertEquals(3, hitQueue.size());
+        List<Map<String, Object>> hits = hitQueue.peek(2);
+        assertEquals(2, hits.size());
+        assertEquals(createHit(0), hits.get(0));
+        assertEquals(createHit(1), hits.get(1));
+
+        // test
+        hitQueue.remove(2);
+
+        // verify
+        assertEquals(1, hitQueue.size());
+        assertEquals(createHit(2), hitQueue.peek(5).get(0));
+    }
+
+    @Test
+    public void test_hitsSurviveNewQueueInstance() {
+        // setup
+        for (int i = 0; i < 5; i++) {
+            hitQueue.add(createHit(i));
+        }
+        hitQueue.remove(2);
+        hitQueue.close();
+
+        // test
+        AnalyticsHitQueue reloadedQueue = new AnalyticsHitQueue(queueDirectory);
+
+        // verify
+        assertEquals(3, reloadedQueue.size());
+        List<Map<String, Object>> hits = reloadedQueue.peek(3);
+        assertEquals(createHit(2), hits.get(0));
+        assertEquals(createHit(4), hits.get(2));
+    }
+
+    @Test
+    public void test_remove_DeletesConsumedSegments() {
+        // setup
+        final int hitCount = AnalyticsHitQueue.RECORDS_PER_SEGMENT * 2 + 1;
+        for (int i = 0; i < hitCount; i++) {
+            hitQueue.add(createHit(i));
+        }
+        assertEquals(3, countSegmentFiles());
+
+        // test
+        hitQueue.remove(AnalyticsHitQueue.RECORDS_PER_SEGMENT + 1);
+
+        // verify
+        assertEquals(2, countSegmentFiles());
+        assertEquals(hitCount - AnalyticsHitQueue.RECORDS_PER_SEGMENT - 1, hitQueue.size());
+        assertEquals(createHit(AnalyticsHitQueue.RECORDS_PER_SEGMENT + 1), hitQueue.peek(1).get(0));
+        assertEquals(createHit(AnalyticsHitQueue.RECORDS_PER_SEGMENT + 1), new AnalyticsHitQueue(queueDirectory).peek(1).get(0));
+    }
+
+    @Test
+    public void test_clear() {
+        // setup
+        for (int i = 0; i < 3; i++) {
+            hitQueue.add(createHit(i));
+        }
+
+        // test
+        hitQueue.clear();
+
+        // verify
+        assertEquals(0, hitQueue.size());
+        assertEquals(0, hitQueue.peek(3).size());
+        assertEquals(0, countSegmentFiles());
+        assertEquals(0, new AnalyticsHitQueue(queueDirectory).size());
+    }
+
+    @Test
+    public void test_load_IgnoresTruncatedRecord() throws IOException {
+        // setup
+        hitQueue.add(createHit(0));
+        hitQueue.close();
+        File segmentFile = queueDirectory.listFiles()[0];
+        FileOutputStream outputStream = new FileOutputStream(segmentFile, true);
+        outputStream.write(new byte[] {50, 1, 2});
+        outputStream.close();
+
+        // test
+        AnalyticsHitQueue reloadedQueue = new AnalyticsHitQueue(queueDirectory);
+        reloadedQueue.add(createHit(1));
+
+        // verify
+        assertEquals(2, reloadedQueue.size());
+        List<Map<String, Object>> hits = reloadedQueue.peek(2);
+        assertEquals(createHit(0), hits.get(0));
+        assertEquals(createHit(1), hits.get(1));
+    }
+
+    @Test
+    public void test_peek_DropsUndecodableRecord() throws IOException {
+        // setup
+        hitQueue.add(createHit(0));
+        hitQueue.close();
+        File segmentFile = queueDirectory.listFiles()[0];
+        FileOutputStream outputStream = new FileOutputStream(segmentFile, true);
+        // one entry whose value has an unknown type tag
+        outputStream.write(new byte[] {4, 1, 1, 'k', 99});
+        outputStream.close();
+        AnalyticsHitQueue reloadedQueue = new AnalyticsHitQueue(queueDirectory);
+        reloadedQueue.add(createHit(2));
+        assertEquals(3, reloadedQueue.size());
+
+        // test
+        List<Map<String, Object>> hits = reloadedQueue.peek(3);
+
+        // verify
+        assertEquals(1, hits.size());
+        assertEquals(createHit(0), hits.get(0));
+        assertEquals(0, reloadedQueue.getDroppedCount());
+
+        // test
+        reloadedQueue.remove(1);
+        hits = reloadedQueue.peek(3);
+
+        // verify
+        assertEquals(1, hits.size());
+        assertEquals(createHit(2), hits.get(0));
+        assertEquals(1, reloadedQueue.size());
+        assertEquals(1, reloadedQueue.getDroppedCount());
+    }
+
+    @Test
+    public void test_peek_DropsUnreadableSegment() {
+        // setup
+        final int hitCount = AnalyticsHitQueue.RECORDS_PER_SEGMENT + 2;
+        for (int i = 0; i < hitCount; i++) {
+            hitQueue.add(createHit(i));
+        }
+        hitQueue.remove(1);
+        File[] segmentFiles = queueDirectory.listFiles();
+        Arrays.sort(segmentFiles);
+        assertTrue(segmentFiles[0].delete());
+
+        // test
+        List<Map<String, Object>> hits = hitQueue.peek(5);
+
+        // verify
+        assertEquals(2, hits.size());
+        assertEquals(createHit(AnalyticsHitQueue.RECORDS_PER_SEGMENT), hits.get(0));
+        assertEquals(createHit(AnalyticsHitQueue.RECORDS_PER_SEGMENT + 1), hits.get(1));
+        assertEquals(2, hitQueue.size());
+        assertEquals(AnalyticsHitQueue.RECORDS_PER_SEGMENT - 1, hitQueue.getDroppedCount());
+    }
+
+    @Test
+    public void test_add_FailedWriteDoesNotCorruptSegment() {
+        // setup
+        final boolean[] failNextWrite = new boolean[1];
+        AnalyticsHitQueue failingQueue = new AnalyticsHitQueue(queueDirectory) {
+            @Override
+            OutputStream openOutputStream(final File file) throws IOException {
+                final FileOutputStream fileOutputStream = new FileOutputStream(file, true);
+                return new OutputStream() {
+                    @Override
+                    public void write(final int b) throws IOException {
+                        fileOutputStream.write(b);
+                    }
+
+                    @Override
+                    public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+                        if (failNextWrite[0]) {
+                            failNextWrite[0] = false;
+                            // part of the record reaches the file before the failure
+                            fileOutputStream.write(bytes, offset, length / 2);
+                            throw new IOException("No space left on device");
+                        }
+
+                        fileOutputStream.write(bytes, offset, length);
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        fileOutputStream.close();
+                    }
+                };
+            }
+        };
+        assertTrue(failingQueue.add(createHit(0)));
+
+        // test
+        failNextWrite[0] = true;
+        assertFalse(failingQueue.add(createHit(1)));
+        assertTrue(failingQueue.add(createHit(2)));
+        failingQueue.close();
+
+        // verify
+        assertEquals(2, failingQueue.size());
+        AnalyticsHitQueue reloadedQueue = new AnalyticsHitQueue(queueDirectory);
+        assertEquals(2, reloadedQueue.size());
+        List<Map<String, Object>> hits = reloadedQueue.peek(2);
+        assertEquals(createHit(0), hits.get(0));
+        assertEquals(createHit(2), hits.get(1));
+        assertEquals(0, reloadedQueue.getDroppedCount());
+    }
+
+    @Test
+    public void test_add_NullDirectory() {
+        // setup
+        AnalyticsHitQueue queueWithoutDirectory = new AnalyticsHitQueue((File) null);
+
+        // test
+        assertFalse(queueWithoutDirectory.add(createHit(0)));
+
+        // verify
+        assertEquals(0, queueWithoutDirectory.size());
+    }
+}
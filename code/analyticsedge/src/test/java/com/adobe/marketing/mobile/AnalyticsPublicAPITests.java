@@ -21,8 +21,12 @@ import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.mockito.Mockito.times;
 
 @RunWith(PowerMockRunner.class)
@@ -94,6 +98,115 @@ public class AnalyticsPublicAPITests {
         assertEquals(0, queueSize[0]);
     }
 
+    @Test
+    public void test_getQueueSize_AdobeCallback() {
+        // setup
+        final long[] queueSize = new long[] { -1 };
+        // test
+        Analytics.getQueueSize(new AdobeCallback<Long>() {
+            @Override
+            public void call(Long aLong) {
+                queueSize[0] = aLong;
+            }
+        });
+
+        // verify
+        assertEquals(0, queueSize[0]);
+        PowerMockito.verifyStatic(MobileCore.class, Mockito.times(0));
+        MobileCore.dispatchEventWithResponseCallback(ArgumentMatchers.any(Event.class), ArgumentMatchers.any(AdobeCallback.class),
+                ArgumentMatchers.any(ExtensionErrorCallback.class));
+    }
+
+    @Test
+    public void test_getEventQueueStatistics() {
+        // setup
+        final AdobeError[] error = new AdobeError[1];
+        final Map<String, Long> statistics = new HashMap<>();
+        // test
+        Analytics.getEventQueueStatistics(new AdobeCallbackWithError<Map<String, Long>>() {
+            @Override
+            public void fail(AdobeError adobeError) {
+                error[0] = adobeError;
+            }
+
+            @Override
+            public void call(Map<String, Long> stringLongMap) {
+                statistics.putAll(stringLongMap);
+            }
+        });
+
+        // verify
+        final ArgumentCaptor<Event> eventCaptor = ArgumentCaptor.forClass(Event.class);
+        final ArgumentCaptor<AdobeCallback> responseCallbackCaptor = ArgumentCaptor.forClass(AdobeCallback.class);
+        PowerMockito.verifyStatic(MobileCore.class, Mockito.times(1));
+        MobileCore.dispatchEventWithResponseCallback(eventCaptor.capture(), responseCallbackCaptor.capture(),
+                ArgumentMatchers.any(ExtensionErrorCallback.class));
+        assertEquals(true, eventCaptor.getValue().getEventData().get(AnalyticsConstants.EventDataKeys.GET_EVENT_QUEUE_STATISTICS));
+
+        // test response
+        Map<String, Object> responseData = new HashMap<>();
+        responseData.put(AnalyticsConstants.EventDataKeys.EVENT_QUEUE_SIZE, 3L);
+        responseData.put(AnalyticsConstants.EventDataKeys.EVENTS_DROPPED_OLDEST, 7L);
+        Event responseEvent = new Event.Builder("response", EventType.ANALYTICS, EventSource.RESPONSE_CONTENT).setEventData(responseData).build();
+        responseCallbackCaptor.getValue().call(responseEvent);
+
+        // verify
+        assertNull(error[0]);
+        assertEquals(Long.valueOf(3), statistics.get(AnalyticsConstants.EventDataKeys.EVENT_QUEUE_SIZE));
+        assertEquals(Long.valueOf(7), statistics.get(AnalyticsConstants.EventDataKeys.EVENTS_DROPPED_OLDEST));
+    }
+
+    @Test
+    public void test_getMetrics() {
+        // setup
+        final AdobeError[] error = new AdobeError[1];
+        final Map<String, Long> metrics = new HashMap<>();
+        // test
+        Analytics.getMetrics(new AdobeCallbackWithError<Map<String, Long>>() {
+            @Override
+            public void fail(AdobeError adobeError) {
+                error[0] = adobeError;
+            }
+
+            @Override
+            public void call(Map<String, Long> stringLongMap) {
+                metrics.putAll(stringLongMap);
+            }
+        });
+
+        // verify
+        final ArgumentCaptor<Event> eventCaptor = ArgumentCaptor.forClass(Event.class);
+        final ArgumentCaptor<AdobeCallback> responseCallbackCaptor = ArgumentCaptor.forClass(AdobeCallback.class);
+        PowerMockito.verifyStatic(MobileCore.class, Mockito.times(1));
+        MobileCore.dispatchEventWithResponseCallback(eventCaptor.capture(), responseCallbackCaptor.capture(),
+                ArgumentMatchers.any(ExtensionErrorCallback.class));
+        assertEquals(true, eventCaptor.getValue().getEventData().get(AnalyticsConstants.EventDataKeys.GET_METRICS));
+        assertEquals(AnalyticsConstants.EventNames.GET_METRICS, eventCaptor.getValue().getName());
+
+        // test response
+        Map<String, Object> responseData = new HashMap<>();
+        responseData.put(AnalyticsConstants.MetricsKeys.EVENTS_PROCESSED, 12L);
+        responseData.put(AnalyticsConstants.MetricsKeys.HITS_DISPATCHED, 10L);
+        Event responseEvent = new Event.Builder("response", EventType.ANALYTICS, EventSource.RESPONSE_CONTENT).setEventData(responseData).build();
+        responseCallbackCaptor.getValue().call(responseEvent);
+
+        // verify
+        assertNull(error[0]);
+        assertEquals(Long.valueOf(12), metrics.get(AnalyticsConstants.MetricsKeys.EVENTS_PROCESSED));
+        assertEquals(Long.valueOf(10), metrics.get(AnalyticsConstants.MetricsKeys.HITS_DISPATCHED));
+    }
+
+    @Test
+    public void test_getMetrics_NullCallback() {
+        // test
+        Analytics.getMetrics(null);
+
+        // verify
+        PowerMockito.verifyStatic(MobileCore.class, Mockito.times(0));
+        MobileCore.dispatchEventWithResponseCallback(ArgumentMatchers.any(Event.class), ArgumentMatchers.any(AdobeCallback.class),
+                ArgumentMatchers.any(ExtensionErrorCallback.class));
+    }
+
     @Test
     public void test_getTrackingIdentifier() {
         // setup
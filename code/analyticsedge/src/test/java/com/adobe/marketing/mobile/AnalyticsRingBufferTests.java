@@ -0,0 +1,172 @@
+/*
+ Copyright 2021 Adobe. All rights reserved.
+ This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License. You may obtain a copy
+ of the License at http://www.apache.org/licenses/LICENSE-2.0
+ Unless required by applicable law or agreed to in writing, software distributed under
+ the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ OF ANY KIND, either express or implied. See the License for the specific language
+ governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AnalyticsRingBufferTests {
+
+    @Test
+    public void test_capacity_RoundedToPowerOfTwo() {
+        assertEquals(8, new AnalyticsRingBuffer<String>(5).capacity());
+        assertEquals(8, new AnalyticsRingBuffer<String>(8).capacity());
+        assertEquals(1, new AnalyticsRingBuffer<String>(0).capacity());
+    }
+
+    @Test
+    public void test_offer_FailsWhenFull() {
+        // setup
+        AnalyticsRingBuffer<String> ringBuffer = new AnalyticsRingBuffer<>(4);
+
+        // test
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ringBuffer.offer("element" + i, 1));
+        }
+
+        // verify
+        assertFalse(ringBuffer.offer("element4", 1));
+        assertEquals(4, ringBuffer.size());
+
+        // test
+        assertEquals("element0", ringBuffer.poll());
+
+        // verify
+        assertTrue(ringBuffer.offer("element4", 1));
+    }
+
+    @Test
+    public void test_peekRelease_KeepsUnreleasedElements() {
+        // setup
+        AnalyticsRingBuffer<String> ringBuffer = new AnalyticsRingBuffer<>(4);
+        ringBuffer.offer("first", 10);
+        ringBuffer.offer("second", 20);
+        ringBuffer.offer("third", 30);
+        List<String> batch = new ArrayList<>();
+
+        // test
+        assertEquals(3, ringBuffer.peek(batch, 10));
+        assertEquals(1, ringBuffer.release(1));
+
+        // verify
+        assertEquals("first", batch.get(0));
+        assertEquals("third", batch.get(2));
+        assertEquals(2, ringBuffer.size());
+        assertEquals(50, ringBuffer.weight());
+        assertEquals("second", ringBuffer.peek());
+    }
+
+    @Test
+    public void test_wrapAround() {
+        // setup
+        AnalyticsRingBuffer<Integer> ringBuffer = new AnalyticsRingBuffer<>(4);
+
+        // test
+        for (int i = 0; i < 20; i++) {
+            assertTrue(ringBuffer.offer(i, i));
+            assertEquals(Integer.valueOf(i), ringBuffer.poll());
+        }
+
+        // verify
+        assertTrue(ringBuffer.isEmpty());
+        assertEquals(0, ringBuffer.weight());
+        assertNull(ringBuffer.poll());
+    }
+
+    @Test
+    public void test_clear() {
+        // setup
+        AnalyticsRingBuffer<String> ringBuffer = new AnalyticsRingBuffer<>(4);
+        ringBuffer.offer("first", 10);
+        ringBuffer.offer("second", 20);
+
+        // test
+        ringBuffer.clear();
+
+        // verify
+        assertTrue(ringBuffer.isEmpty());
+        assertEquals(0, ringBuffer.weight());
+        assertNull(ringBuffer.peek());
+    }
+
+    @Test
+    public void test_concurrentProducers() throws InterruptedException {
+        // setup
+        final int producerCount = 4;
+        final int elementsPerProducer = 10000;
+        final AnalyticsRingBuffer<Integer> ringBuffer = new AnalyticsRingBuffer<>(64);
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final List<Thread> producers = new ArrayList<>();
+
+        for (int p = 0; p < producerCount; p++) {
+            final int producer = p;
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startLatch.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+
+                    for (int i = 0; i < elementsPerProducer; i++) {
+                        while (!ringBuffer.offer(producer * elementsPerProducer + i, 1)) {
+                            Thread.yield();
+                        }
+                    }
+                }
+            });
+            producers.add(thread);
+            thread.start();
+        }
+
+        // test
+        startLatch.countDown();
+        Set<Integer> consumed = new HashSet<>();
+        int[] lastPerProducer = new int[producerCount];
+        for (int p = 0; p < producerCount; p++) {
+            lastPerProducer[p] = -1;
+        }
+
+        while (consumed.size() < producerCount * elementsPerProducer) {
+            Integer element = ringBuffer.poll();
+            if (element == null) {
+                Thread.yield();
+                continue;
+            }
+
+            // elements of a producer are consumed in order
+            int producer = element / elementsPerProducer;
+            assertTrue(element > lastPerProducer[producer]);
+            lastPerProducer[producer] = element;
+            assertTrue(consumed.add(element));
+        }
+
+        for (Thread thread : producers) {
+            thread.join();
+        }
+
+        // verify
+        assertTrue(ringBuffer.isEmpty());
+        assertEquals(0, ringBuffer.weight());
+    }
+}
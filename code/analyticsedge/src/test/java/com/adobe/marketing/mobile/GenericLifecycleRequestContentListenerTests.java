@@ -0,0 +1,119 @@
+/*
+ Copyright 2021 Adobe. All rights reserved.
+ This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License. You may obtain a copy
+ of the License at http://www.apache.org/licenses/LICENSE-2.0
+ Unless required by applicable law or agreed to in writing, software distributed under
+ the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ OF ANY KIND, either express or implied. See the License for the specific language
+ governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile;
+
+import android.content.Context;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({ExtensionApi.class, App.class, Context.class, AnalyticsExtension.class})
+
+public class GenericLifecycleRequestContentListenerTests {
+
+    private GenericLifecycleRequestContentListener genericLifecycleRequestContentListener;
+    private int EXECUTOR_TIMEOUT = 5;
+    private ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    // Mocks
+    @Mock
+    ExtensionApi mockExtensionApi;
+    @Mock
+    Context context;
+    @Mock
+    AnalyticsExtension mockAnalyticsExtension;
+
+    @Before
+    public void setup() {
+        PowerMockito.mockStatic(App.class);
+        Mockito.when(App.getAppContext()).thenReturn(context);
+    }
+
+    @Before
+    public void beforeEach() {
+        genericLifecycleRequestContentListener = new GenericLifecycleRequestContentListener(mockExtensionApi, EventType.GENERIC_LIFECYCLE.getName(), EventSource.REQUEST_CONTENT.getName());
+        when(mockAnalyticsExtension.getExecutor()).thenReturn(executor);
+        when(mockExtensionApi.getExtension()).thenReturn(mockAnalyticsExtension);
+    }
+
+    @Test
+    public void test_validGenericLifecycleEvent() {
+        // setup
+        HashMap<String, Object> lifecycleData = new HashMap<>();
+        lifecycleData.put(AnalyticsConstants.EventDataKeys.LIFECYCLE_ACTION_KEY, AnalyticsConstants.EventDataKeys.LIFECYCLE_PAUSE);
+        Event sampleEvent = new Event.Builder("lifecycle pause", EventType.GENERIC_LIFECYCLE, EventSource.REQUEST_CONTENT).setEventData(lifecycleData).build();
+
+        // test
+        genericLifecycleRequestContentListener.hear(sampleEvent);
+
+        // verify
+        TestUtils.waitForExecutor(executor, EXECUTOR_TIMEOUT);
+        verify(mockAnalyticsExtension, times(1)).handleLifecycleEvent(sampleEvent);
+    }
+
+    @Test
+    public void test_nullGenericLifecycleEvent() {
+        // test
+        genericLifecycleRequestContentListener.hear(null);
+
+        // verify
+        TestUtils.waitForExecutor(executor, EXECUTOR_TIMEOUT);
+        verify(mockAnalyticsExtension, times(0)).handleLifecycleEvent(null);
+    }
+
+    @Test
+    public void test_hearGenericLifecycleEventWhenParentExtensionIsNull() {
+        // setup
+        when(mockExtensionApi.getExtension()).thenReturn(null);
+        HashMap<String, Object> lifecycleData = new HashMap<>();
+        lifecycleData.put(AnalyticsConstants.EventDataKeys.LIFECYCLE_ACTION_KEY, AnalyticsConstants.EventDataKeys.LIFECYCLE_PAUSE);
+        Event sampleEvent = new Event.Builder("lifecycle pause", EventType.GENERIC_LIFECYCLE, EventSource.REQUEST_CONTENT).setEventData(lifecycleData).build();
+
+        // test
+        genericLifecycleRequestContentListener.hear(sampleEvent);
+
+        // verify
+        TestUtils.waitForExecutor(executor, EXECUTOR_TIMEOUT);
+        verify(mockAnalyticsExtension, times(0)).handleLifecycleEvent(sampleEvent);
+    }
+
+    @Test
+    public void test_hearGenericLifecycleEventAfterExecutorShutdown() {
+        // setup
+        executor.shutdown();
+        HashMap<String, Object> lifecycleData = new HashMap<>();
+        lifecycleData.put(AnalyticsConstants.EventDataKeys.LIFECYCLE_ACTION_KEY, AnalyticsConstants.EventDataKeys.LIFECYCLE_PAUSE);
+        Event sampleEvent = new Event.Builder("lifecycle pause", EventType.GENERIC_LIFECYCLE, EventSource.REQUEST_CONTENT).setEventData(lifecycleData).build();
+
+        // test
+        genericLifecycleRequestContentListener.hear(sampleEvent);
+
+        // verify
+        TestUtils.waitForTermination(executor, EXECUTOR_TIMEOUT);
+        verify(mockAnalyticsExtension, times(0)).handleLifecycleEvent(sampleEvent);
+    }
+}
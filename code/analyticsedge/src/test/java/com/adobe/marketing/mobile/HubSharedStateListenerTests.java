@@ -0,0 +1,109 @@
+/*
+ Copyright 2020 Adobe. All rights reserved.
+ This file is licensed to you under the Apache License, Version 2.0 (the "License");
+ you may not use this file except in compliance with the License. You may obtain a copy
+ of the License at http://www.apache.org/licenses/LICENSE-2.0
+ Unless required by applicable law or agreed to in writing, software distributed under
+ the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+ OF ANY KIND, either express or implied. See the License for the specific language
+ governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile;
+
+import android.content.Context;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({ExtensionApi.class, App.class, Context.class, AnalyticsExtension.class})
+
+public class HubSharedStateListenerTests {
+
+    private HubSharedStateListener hubSharedStateListener;
+    private int EXECUTOR_TIMEOUT = 5;
+    private ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    // Mocks
+    @Mock
+    ExtensionApi mockExtensionApi;
+    @Mock
+    Context context;
+    @Mock
+    AnalyticsExtension mockAnalyticsExtension;
+
+    @Before
+    public void setup() {
+        PowerMockito.mockStatic(App.class);
+        Mockito.when(App.getAppContext()).thenReturn(context);
+    }
+
+    @Before
+    public void beforeEach() {
+        hubSharedStateListener = new HubSharedStateListener(mockExtensionApi, EventType.HUB.getName(), EventSource.SHARED_STATE.getName());
+        when(mockAnalyticsExtension.getExecutor()).thenReturn(executor);
+        when(mockExtensionApi.getExtension()).thenReturn(mockAnalyticsExtension);
+    }
+
+    @Test
+    public void test_validSharedStateEvent() {
+        // setup
+        HashMap<String,Object> stateData = new HashMap<String, Object>() {
+            {
+                put(AnalyticsConstants.EventDataKeys.STATE_OWNER, AnalyticsConstants.SharedStateKeys.ASSURANCE);
+            }
+        };
+        Event sampleEvent = new Event.Builder("shared state change", EventType.HUB, EventSource.SHARED_STATE).setEventData(stateData).build();
+
+        // test
+        hubSharedStateListener.hear(sampleEvent);
+
+        // verify
+        TestUtils.waitForExecutor(executor, EXECUTOR_TIMEOUT);
+        verify(mockAnalyticsExtension, times(1)).handleSharedStateEvent(sampleEvent);
+    }
+
+    @Test
+    public void test_nullSharedStateEvent() {
+        // test
+        hubSharedStateListener.hear(null);
+
+        // verify
+        TestUtils.waitForExecutor(executor, EXECUTOR_TIMEOUT);
+        verify(mockAnalyticsExtension, times(0)).handleSharedStateEvent(null);
+    }
+
+    @Test
+    public void test_hearSharedStateEventWhenParentExtensionIsNull() {
+        // setup
+        when(mockExtensionApi.getExtension()).thenReturn(null);
+        HashMap<String,Object> stateData = new HashMap<String, Object>() {
+            {
+                put(AnalyticsConstants.EventDataKeys.STATE_OWNER, AnalyticsConstants.SharedStateKeys.ASSURANCE);
+            }
+        };
+        Event sampleEvent = new Event.Builder("shared state change", EventType.HUB, EventSource.SHARED_STATE).setEventData(stateData).build();
+
+        // test
+        hubSharedStateListener.hear(sampleEvent);
+
+        // verify
+        TestUtils.waitForExecutor(executor, EXECUTOR_TIMEOUT);
+        verify(mockAnalyticsExtension, times(0)).handleSharedStateEvent(sampleEvent);
+    }
+}
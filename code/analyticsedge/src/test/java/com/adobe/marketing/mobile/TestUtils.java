@@ -32,4 +32,13 @@ public class TestUtils {
             Assert.fail(String.format("Executor took longer than %s (sec)", executorTime));
         }
     }
+
+    static void waitForTermination(final ExecutorService executor, final int executorTime) {
+        try {
+            Assert.assertTrue(String.format("Executor took longer than %s (sec) to terminate", executorTime),
+                    executor.awaitTermination(executorTime, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Assert.fail("Interrupted while waiting for the executor to terminate");
+        }
+    }
 }
@@ -0,0 +1,77 @@
+/*
+  Copyright 2021 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Benchmarks of the application identifier built by {@link AnalyticsHelper}: the regular expression based
+ * normalization it replaced, the single-pass normalization and the cached identifier.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AnalyticsHelperBenchmark {
+    private static final String APPLICATION_NAME = "Benchmark  App";
+    private static final String APPLICATION_VERSION = " 1.0.0";
+    private static final String APPLICATION_VERSION_CODE = " (100)";
+
+    private AnalyticsHelper analyticsHelper;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        final SystemInfoService systemInfoService = mock(SystemInfoService.class, withSettings().stubOnly());
+        when(systemInfoService.getApplicationName()).thenReturn(APPLICATION_NAME);
+        when(systemInfoService.getApplicationVersion()).thenReturn(APPLICATION_VERSION);
+        when(systemInfoService.getApplicationVersionCode()).thenReturn(APPLICATION_VERSION_CODE);
+
+        final PlatformServices platformServices = mock(PlatformServices.class, withSettings().stubOnly());
+        when(platformServices.getSystemInfoService()).thenReturn(systemInfoService);
+
+        analyticsHelper = new AnalyticsHelper(platformServices);
+        analyticsHelper.getApplicationIdentifier();
+    }
+
+    /**
+     * The normalization done before the identifier was cached, compiling two regular expressions per call.
+     */
+    @Benchmark
+    public String regexNormalization() {
+        return new StringBuilder().append(APPLICATION_NAME).append(APPLICATION_VERSION).append(APPLICATION_VERSION_CODE)
+                .toString().replaceAll("  ", " ").replaceAll("()", "").trim();
+    }
+
+    @Benchmark
+    public String singlePassNormalization() {
+        return AnalyticsHelper.normalizeApplicationIdentifier(new StringBuilder().append(APPLICATION_NAME)
+                .append(APPLICATION_VERSION).append(APPLICATION_VERSION_CODE));
+    }
+
+    @Benchmark
+    public String cachedApplicationIdentifier() {
+        return analyticsHelper.getApplicationIdentifier();
+    }
+}
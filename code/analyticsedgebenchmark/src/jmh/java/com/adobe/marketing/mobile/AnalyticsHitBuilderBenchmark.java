@@ -0,0 +1,133 @@
+/*
+  Copyright 2021 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of building the Edge request event data of a track action hit: the copies through intermediate maps
+ * done before {@link AnalyticsHitBuilder}, and the single pass into presized payload maps. The gc profiler reports
+ * the allocated bytes per hit as {@code gc.alloc.rate.norm}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AnalyticsHitBuilderBenchmark {
+    private static final String ACTION_NAME = "buttonClick";
+    private static final String PREFIXED_ACTION_NAME = AnalyticsConstants.ACTION_PREFIX + ACTION_NAME;
+    private static final String APPLICATION_IDENTIFIER = "benchmarkApp 1.0.0 (100)";
+    private static final String TIMESTAMP = "1612345678";
+    private static final String FORMATTED_TIMESTAMP = "00/00/0000 00:00:00 0 0";
+
+    @Param({"5", "50"})
+    public int contextDataSize;
+
+    private Map<String, Object> trackData;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        final Map<String, String> contextData = new HashMap<>();
+
+        for (int i = 0; i < contextDataSize; i++) {
+            contextData.put("key" + i, "value" + i);
+        }
+
+        contextData.put(AnalyticsConstants.VAR_ESCAPE_PREFIX + "products", "product");
+
+        trackData = new HashMap<>();
+        trackData.put(AnalyticsConstants.EventDataKeys.TRACK_ACTION, ACTION_NAME);
+        trackData.put(AnalyticsConstants.EventDataKeys.CONTEXT_DATA, contextData);
+    }
+
+    /**
+     * The hit built before the single-pass builder: the vars and context data are built in their own maps, copied
+     * into the hit, and the Edge request maps are created with the default capacity.
+     */
+    @Benchmark
+    public Map<String, Object> multiMapHit() {
+        final HashMap<String, String> processedVars = new HashMap<>();
+        final String actionName = (String) trackData.get(AnalyticsConstants.EventDataKeys.TRACK_ACTION);
+        processedVars.put(AnalyticsConstants.AnalyticsRequestKeys.IGNORE_PAGE_NAME, AnalyticsConstants.IGNORE_PAGE_NAME_VALUE);
+        processedVars.put(AnalyticsConstants.AnalyticsRequestKeys.ACTION_NAME, PREFIXED_ACTION_NAME);
+        processedVars.put(AnalyticsConstants.AnalyticsRequestKeys.PAGE_NAME, APPLICATION_IDENTIFIER);
+        processedVars.put(AnalyticsConstants.AnalyticsRequestKeys.CHARSET, AnalyticsConstants.CHARSET);
+        processedVars.put(AnalyticsConstants.AnalyticsRequestKeys.FORMATTED_TIMESTAMP, FORMATTED_TIMESTAMP);
+        processedVars.put(AnalyticsConstants.AnalyticsRequestKeys.STRING_TIMESTAMP, TIMESTAMP);
+        processedVars.put(AnalyticsConstants.AnalyticsRequestKeys.CUSTOMER_PERSPECTIVE, AnalyticsConstants.APP_STATE_FOREGROUND);
+
+        final HashMap<String, String> processedContextData = new HashMap<>();
+        final Map<String, String> contextData = (Map<String, String>) trackData.get(AnalyticsConstants.EventDataKeys.CONTEXT_DATA);
+        for (Map.Entry<String, String> entry : contextData.entrySet()) {
+            processedContextData.put(entry.getKey(), entry.getValue());
+        }
+        processedContextData.put(AnalyticsConstants.ContextDataKeys.ACTION, actionName);
+
+        final HashMap<String, Object> legacyAnalyticsData = new HashMap<>();
+        final HashMap<String, String> hitContextData = new HashMap<>();
+        legacyAnalyticsData.putAll(processedVars);
+        legacyAnalyticsData.put("ndh", 1);
+        for (Map.Entry<String, String> entry : processedContextData.entrySet()) {
+            final String key = entry.getKey();
+            if (key.startsWith(AnalyticsConstants.VAR_ESCAPE_PREFIX)) {
+                legacyAnalyticsData.put(key.substring(AnalyticsConstants.VAR_ESCAPE_PREFIX.length()), entry.getValue());
+            } else {
+                hitContextData.put(key, entry.getValue());
+            }
+        }
+        legacyAnalyticsData.put(AnalyticsConstants.XDMDataKeys.CONTEXT_DATA, hitContextData);
+
+        final HashMap<String, String> xdm = new HashMap<>();
+        xdm.put(AnalyticsConstants.XDMDataKeys.EVENTTYPE, AnalyticsConstants.ANALYTICS_XDM_EVENTTYPE);
+        final HashMap<String, Object> edgeEventData = new HashMap<>();
+        final HashMap<String, Object> edgeLegacyData = new HashMap<>();
+        edgeLegacyData.put(AnalyticsConstants.XDMDataKeys.ANALYTICS, legacyAnalyticsData);
+        edgeEventData.put(AnalyticsConstants.XDMDataKeys.LEGACY, edgeLegacyData);
+        final Map<String, Object> eventData = new HashMap<>();
+        eventData.put(AnalyticsConstants.XDMDataKeys.XDM, xdm);
+        eventData.put(AnalyticsConstants.XDMDataKeys.DATA, edgeEventData);
+        return eventData;
+    }
+
+    @Benchmark
+    public Map<String, Object> singlePassHit() {
+        final String actionName = (String) trackData.get(AnalyticsConstants.EventDataKeys.TRACK_ACTION);
+        final Map<String, String> contextData = (Map<String, String>) trackData.get(AnalyticsConstants.EventDataKeys.CONTEXT_DATA);
+
+        final Map<String, Object> hit = new AnalyticsHitBuilder(contextData)
+                .putVar(AnalyticsConstants.AnalyticsRequestKeys.IGNORE_PAGE_NAME, AnalyticsConstants.IGNORE_PAGE_NAME_VALUE)
+                .putVar(AnalyticsConstants.AnalyticsRequestKeys.ACTION_NAME, PREFIXED_ACTION_NAME)
+                .putVar(AnalyticsConstants.AnalyticsRequestKeys.PAGE_NAME, APPLICATION_IDENTIFIER)
+                .putVar(AnalyticsConstants.AnalyticsRequestKeys.CHARSET, AnalyticsConstants.CHARSET)
+                .putVar(AnalyticsConstants.AnalyticsRequestKeys.FORMATTED_TIMESTAMP, FORMATTED_TIMESTAMP)
+                .putVar(AnalyticsConstants.AnalyticsRequestKeys.STRING_TIMESTAMP, TIMESTAMP)
+                .putVar(AnalyticsConstants.AnalyticsRequestKeys.CUSTOMER_PERSPECTIVE, AnalyticsConstants.APP_STATE_FOREGROUND)
+                .putVar("ndh", 1)
+                .putContextData(contextData, AnalyticsContextDataFilter.ALLOW_ALL)
+                .putContextData(AnalyticsConstants.ContextDataKeys.ACTION, actionName)
+                .build();
+
+        return AnalyticsHitBuilder.createEdgeEventData(hit);
+    }
+}
@@ -0,0 +1,260 @@
+/*
+  Copyright 2021 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile;
+
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.ArgumentMatchers.nullable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Replays a trace of the events handled by the {@link AnalyticsExtension}, recorded by {@link AnalyticsEventRecorder}
+ * when the {@code analytics.recordEvents} configuration is enabled, and reports the throughput, the latency
+ * percentiles and the allocated bytes.
+ *
+ * <p>
+ * The extension runs against the same stub-only mocks as {@link AnalyticsTrackBenchmark}; the configuration shared
+ * state is the data of the last replayed configuration event. The events are replayed as fast as possible, or at
+ * the recorded speed with {@code --recorded-speed}. The trace is read before the replay starts, so reading it is not
+ * measured. Run with {@code ./gradlew -p code/analyticsedgebenchmark replayTrace -Ptrace=<trace file>}, adding
+ * {@code -PrecordedSpeed} to replay at the recorded speed.
+ */
+public final class AnalyticsTraceReplay {
+    private static final String RECORDED_SPEED_OPTION = "--recorded-speed";
+
+    private final List<Map<String, Object>> records;
+    private final boolean recordedSpeed;
+    private volatile Map<String, Object> configuration;
+    private AnalyticsExtension analyticsExtension;
+
+    private AnalyticsTraceReplay(final List<Map<String, Object>> records, final boolean recordedSpeed) {
+        this.records = records;
+        this.recordedSpeed = recordedSpeed;
+    }
+
+    public static void main(final String[] args) throws IOException, InterruptedException, ExecutionException {
+        if (args.length < 1) {
+            System.err.println("Usage: AnalyticsTraceReplay <trace file> [" + RECORDED_SPEED_OPTION + "]");
+            System.exit(1);
+        }
+
+        final List<Map<String, Object>> records = readTrace(args[0]);
+        final boolean recordedSpeed = args.length > 1 && RECORDED_SPEED_OPTION.equals(args[1]);
+        System.out.println(String.format(Locale.US, "Replaying %d events from %s %s", records.size(), args[0],
+                recordedSpeed ? "at the recorded speed" : "as fast as possible"));
+        new AnalyticsTraceReplay(records, recordedSpeed).run();
+    }
+
+    private static List<Map<String, Object>> readTrace(final String path) throws IOException {
+        final List<Map<String, Object>> records = new ArrayList<>();
+
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(path)))) {
+            Map<String, Object> record;
+            while ((record = AnalyticsRecordCodec.read(input)) != null) {
+                records.add(record);
+            }
+        }
+
+        return records;
+    }
+
+    private void run() throws InterruptedException, ExecutionException {
+        analyticsExtension = new AnalyticsExtension(createExtensionApi(), createPlatformServices());
+        final long[] handleTimesNanos = new long[records.size()];
+        final com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long startAllocatedBytes = getAllocatedBytes(threadMXBean);
+        final long startTimeNanos = System.nanoTime();
+
+        for (int i = 0; i < records.size(); i++) {
+            final Map<String, Object> record = records.get(i);
+
+            if (recordedSpeed) {
+                final long delayNanos = startTimeNanos + (Long) record.get(AnalyticsEventRecorder.RECORD_TIME) - System.nanoTime();
+                if (delayNanos > 0) {
+                    LockSupport.parkNanos(delayNanos);
+                }
+            }
+
+            final Event event = createEvent(record);
+            final long handleStartNanos = System.nanoTime();
+            handle((String) record.get(AnalyticsEventRecorder.RECORD_KIND), event);
+            handleTimesNanos[i] = System.nanoTime() - handleStartNanos;
+        }
+
+        // waits for the queued events to be processed
+        analyticsExtension.getExecutor().submit(new Runnable() {
+            @Override
+            public void run() {
+                // marks the end of the pending drain
+            }
+        }).get();
+
+        final long elapsedNanos = System.nanoTime() - startTimeNanos;
+        final long allocatedBytes = getAllocatedBytes(threadMXBean) - startAllocatedBytes;
+        report(handleTimesNanos, elapsedNanos, allocatedBytes, analyticsExtension.getMetrics());
+        analyticsExtension.getExecutor().shutdown();
+    }
+
+    private void handle(final String kind, final Event event) {
+        if (AnalyticsEventRecorder.KIND_CONFIGURATION.equals(kind)) {
+            configuration = event.getEventData();
+            analyticsExtension.handleConfigurationEvent(event);
+        } else if (AnalyticsEventRecorder.KIND_RULES.equals(kind)) {
+            analyticsExtension.handleRulesEngineEvent(event);
+        } else {
+            analyticsExtension.handleAnalyticsTrackEvent(event);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Event createEvent(final Map<String, Object> record) {
+        final String kind = (String) record.get(AnalyticsEventRecorder.RECORD_KIND);
+        final String name = (String) record.get(AnalyticsEventRecorder.RECORD_NAME);
+        Map<String, Object> data = (Map<String, Object>) record.get(AnalyticsEventRecorder.RECORD_DATA);
+        if (data == null) {
+            data = new HashMap<>();
+        }
+
+        final String type = (String) record.get(AnalyticsEventRecorder.RECORD_TYPE);
+        final String source = (String) record.get(AnalyticsEventRecorder.RECORD_SOURCE);
+
+        final Event.Builder builder;
+        if (type != null && source != null) {
+            builder = new Event.Builder(name == null ? kind : name, type, source);
+        } else if (AnalyticsEventRecorder.KIND_CONFIGURATION.equals(kind)) {
+            builder = new Event.Builder(name == null ? "configuration" : name, EventType.CONFIGURATION, EventSource.RESPONSE_CONTENT);
+        } else if (AnalyticsEventRecorder.KIND_RULES.equals(kind)) {
+            builder = new Event.Builder(name == null ? "rules consequence" : name, EventType.RULES_ENGINE, EventSource.RESPONSE_CONTENT);
+        } else {
+            builder = new Event.Builder(name == null ? "generic track" : name, EventType.GENERIC_TRACK, EventSource.REQUEST_CONTENT);
+        }
+
+        // the replayed event keeps the timestamp and number of the recorded event, as the hits are built from them
+        final Object timestamp = record.get(AnalyticsEventRecorder.RECORD_TIMESTAMP);
+        if (timestamp instanceof Number) {
+            builder.setTimestamp(((Number) timestamp).longValue());
+        }
+
+        final Object number = record.get(AnalyticsEventRecorder.RECORD_NUMBER);
+        if (number instanceof Number) {
+            builder.setEventNumber(((Number) number).intValue());
+        }
+
+        return builder.setEventData(data).build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private ExtensionApi createExtensionApi() {
+        final ExtensionApi extensionApi = mock(ExtensionApi.class, withSettings().stubOnly());
+        when(extensionApi.getSharedEventState(eq(AnalyticsConstants.SharedStateKeys.CONFIGURATION), any(Event.class),
+                (ExtensionErrorCallback<ExtensionError>) isNull())).thenAnswer(new Answer<Map<String, Object>>() {
+            @Override
+            public Map<String, Object> answer(final InvocationOnMock invocation) {
+                return configuration;
+            }
+        });
+        return extensionApi;
+    }
+
+    private static PlatformServices createPlatformServices() {
+        final SystemInfoService systemInfoService = mock(SystemInfoService.class, withSettings().stubOnly());
+        when(systemInfoService.getApplicationName()).thenReturn("replayApp");
+        when(systemInfoService.getApplicationVersion()).thenReturn("1.0.0");
+        when(systemInfoService.getApplicationVersionCode()).thenReturn("100");
+
+        final LocalStorageService.DataStore dataStore = mock(LocalStorageService.DataStore.class,
+                withSettings().stubOnly());
+        when(dataStore.getString(eq(AnalyticsConstants.DataStoreKeys.ANALYTICS_ID), nullable(String.class)))
+                .thenReturn("replayAid");
+        when(dataStore.getString(eq(AnalyticsConstants.DataStoreKeys.VISITOR_ID), nullable(String.class)))
+                .thenReturn("replayVid");
+        final LocalStorageService localStorageService = mock(LocalStorageService.class, withSettings().stubOnly());
+        when(localStorageService.getDataStore(AnalyticsConstants.DATASTORE_NAME)).thenReturn(dataStore);
+
+        final PlatformServices platformServices = mock(PlatformServices.class, withSettings().stubOnly());
+        when(platformServices.getSystemInfoService()).thenReturn(systemInfoService);
+        when(platformServices.getLocalStorageService()).thenReturn(localStorageService);
+        when(platformServices.getUIService()).thenReturn(mock(UIService.class, withSettings().stubOnly()));
+        return platformServices;
+    }
+
+    /**
+     * Sums the bytes allocated by the live threads. The allocations of the threads which terminated during the
+     * replay are not counted.
+     */
+    private static long getAllocatedBytes(final com.sun.management.ThreadMXBean threadMXBean) {
+        long allocatedBytes = 0;
+
+        for (long threadAllocatedBytes : threadMXBean.getThreadAllocatedBytes(threadMXBean.getAllThreadIds())) {
+            if (threadAllocatedBytes > 0) {
+                allocatedBytes += threadAllocatedBytes;
+            }
+        }
+
+        return allocatedBytes;
+    }
+
+    private static void report(final long[] handleTimesNanos, final long elapsedNanos, final long allocatedBytes,
+                               final Map<String, Object> metrics) {
+        final int eventCount = handleTimesNanos.length;
+        Arrays.sort(handleTimesNanos);
+
+        System.out.println(String.format(Locale.US, "events:             %d in %d ms", eventCount,
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos)));
+        System.out.println(String.format(Locale.US, "throughput:         %.1f events/s",
+                eventCount * 1e9 / Math.max(elapsedNanos, 1)));
+        System.out.println(String.format(Locale.US, "handle latency:     p50 %.1f us, p95 %.1f us, p99 %.1f us, max %.1f us",
+                percentile(handleTimesNanos, 50) / 1e3, percentile(handleTimesNanos, 95) / 1e3,
+                percentile(handleTimesNanos, 99) / 1e3, percentile(handleTimesNanos, 100) / 1e3));
+        System.out.println(String.format(Locale.US, "processing latency: p50 %s ms, p95 %s ms, p99 %s ms",
+                metrics.get(AnalyticsConstants.MetricsKeys.EVENT_LATENCY + AnalyticsConstants.MetricsKeys.HISTOGRAM_P50),
+                metrics.get(AnalyticsConstants.MetricsKeys.EVENT_LATENCY + AnalyticsConstants.MetricsKeys.HISTOGRAM_P95),
+                metrics.get(AnalyticsConstants.MetricsKeys.EVENT_LATENCY + AnalyticsConstants.MetricsKeys.HISTOGRAM_P99)));
+        System.out.println(String.format(Locale.US, "allocated:          %d bytes, %d bytes/event", allocatedBytes,
+                eventCount == 0 ? 0 : allocatedBytes / eventCount));
+        System.out.println("metrics:            " + metrics);
+    }
+
+    /**
+     * @return the nearest-rank percentile of the sorted values, or 0 if there is no value
+     */
+    private static long percentile(final long[] sortedValues, final int percentile) {
+        if (sortedValues.length == 0) {
+            return 0;
+        }
+
+        final int rank = (int) Math.ceil(percentile / 100.0 * sortedValues.length);
+        return sortedValues[Math.max(rank, 1) - 1];
+    }
+}
@@ -0,0 +1,206 @@
+/*
+  Copyright 2021 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.ArgumentMatchers.nullable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Benchmarks of the track pipeline of the {@link AnalyticsExtension}, from the track request event to the Edge
+ * request event.
+ *
+ * <p>
+ * The {@link ExtensionApi} and the {@link PlatformServices} are stub-only mocks which do not record invocations, and
+ * the Mobile Core is not started so the Edge request events are dropped by {@link MobileCore#dispatchEvent}.
+ * Events are processed on the extension executor, so each operation waits for the executor to drain the event queue.
+ * Run with {@code ./gradlew -p code/analyticsedgebenchmark jmh}; the gc profiler reports the allocated bytes per
+ * operation as {@code gc.alloc.rate.norm}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AnalyticsTrackBenchmark {
+    private static final int TRACK_BURST_SIZE = 64;
+
+    private AnalyticsExtension analyticsExtension;
+    private Event trackStateEvent;
+    private Event trackActionEvent;
+    private Event trackStateEscapedVarsEvent;
+    private Event rulesEngineEvent;
+    private final Runnable noOpTask = new Runnable() {
+        @Override
+        public void run() {
+            // marks the end of the pending drain
+        }
+    };
+
+    @Setup(Level.Trial)
+    public void setup() {
+        final Map<String, Object> configuration = new HashMap<>();
+        configuration.put(AnalyticsConstants.Configuration.GLOBAL_CONFIG_PRIVACY, "optedin");
+
+        final ExtensionApi extensionApi = mock(ExtensionApi.class, withSettings().stubOnly());
+        when(extensionApi.getSharedEventState(eq(AnalyticsConstants.SharedStateKeys.CONFIGURATION), any(Event.class),
+                (ExtensionErrorCallback<ExtensionError>) isNull())).thenReturn(configuration);
+
+        final SystemInfoService systemInfoService = mock(SystemInfoService.class, withSettings().stubOnly());
+        when(systemInfoService.getApplicationName()).thenReturn("benchmarkApp");
+        when(systemInfoService.getApplicationVersion()).thenReturn("1.0.0");
+        when(systemInfoService.getApplicationVersionCode()).thenReturn("100");
+
+        final LocalStorageService.DataStore dataStore = mock(LocalStorageService.DataStore.class,
+                withSettings().stubOnly());
+        when(dataStore.getString(eq(AnalyticsConstants.DataStoreKeys.ANALYTICS_ID), nullable(String.class)))
+                .thenReturn("benchmarkAid");
+        when(dataStore.getString(eq(AnalyticsConstants.DataStoreKeys.VISITOR_ID), nullable(String.class)))
+                .thenReturn("benchmarkVid");
+        final LocalStorageService localStorageService = mock(LocalStorageService.class, withSettings().stubOnly());
+        when(localStorageService.getDataStore(AnalyticsConstants.DATASTORE_NAME)).thenReturn(dataStore);
+
+        final PlatformServices platformServices = mock(PlatformServices.class, withSettings().stubOnly());
+        when(platformServices.getSystemInfoService()).thenReturn(systemInfoService);
+        when(platformServices.getLocalStorageService()).thenReturn(localStorageService);
+        when(platformServices.getUIService()).thenReturn(mock(UIService.class, withSettings().stubOnly()));
+
+        analyticsExtension = new AnalyticsExtension(extensionApi, platformServices);
+
+        final Map<String, String> contextData = createContextData(5, "");
+        final Map<String, Object> trackStateData = new HashMap<>();
+        trackStateData.put(AnalyticsConstants.EventDataKeys.TRACK_STATE, "homePage");
+        trackStateData.put(AnalyticsConstants.EventDataKeys.CONTEXT_DATA, contextData);
+        trackStateEvent = createTrackEvent(trackStateData);
+
+        final Map<String, Object> trackActionData = new HashMap<>();
+        trackActionData.put(AnalyticsConstants.EventDataKeys.TRACK_ACTION, "buttonClick");
+        trackActionData.put(AnalyticsConstants.EventDataKeys.CONTEXT_DATA, contextData);
+        trackActionEvent = createTrackEvent(trackActionData);
+
+        final Map<String, String> escapedContextData = createContextData(5, "");
+        escapedContextData.putAll(createContextData(5, AnalyticsConstants.VAR_ESCAPE_PREFIX));
+        final Map<String, Object> escapedVarsData = new HashMap<>();
+        escapedVarsData.put(AnalyticsConstants.EventDataKeys.TRACK_STATE, "checkout");
+        escapedVarsData.put(AnalyticsConstants.EventDataKeys.CONTEXT_DATA, escapedContextData);
+        trackStateEscapedVarsEvent = createTrackEvent(escapedVarsData);
+
+        final Map<String, Object> consequenceDetail = new HashMap<>();
+        consequenceDetail.put(AnalyticsConstants.EventDataKeys.TRACK_ACTION, "ruleAction");
+        consequenceDetail.put(AnalyticsConstants.EventDataKeys.CONTEXT_DATA, contextData);
+        final Map<String, Object> consequence = new HashMap<>();
+        consequence.put(AnalyticsConstants.EventDataKeys.ID, "consequenceId");
+        consequence.put(AnalyticsConstants.EventDataKeys.TYPE, AnalyticsConstants.ConsequenceTypes.TRACK);
+        consequence.put(AnalyticsConstants.EventDataKeys.DETAIL, consequenceDetail);
+        final Map<String, Object> rulesEngineData = new HashMap<>();
+        rulesEngineData.put(AnalyticsConstants.EventDataKeys.TRIGGERED_CONSEQUENCE, consequence);
+        rulesEngineEvent = new Event.Builder("rules consequence", EventType.RULES_ENGINE,
+                EventSource.RESPONSE_CONTENT).setEventData(rulesEngineData).build();
+    }
+
+    /**
+     * Holds a track action event with a parameterized number of context data entries.
+     */
+    @State(Scope.Thread)
+    public static class LargeContextDataState {
+        @Param({"50", "200"})
+        public int contextDataSize;
+
+        private Event trackActionEvent;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            final Map<String, Object> trackActionData = new HashMap<>();
+            trackActionData.put(AnalyticsConstants.EventDataKeys.TRACK_ACTION, "purchase");
+            trackActionData.put(AnalyticsConstants.EventDataKeys.CONTEXT_DATA, createContextData(contextDataSize, ""));
+            trackActionEvent = createTrackEvent(trackActionData);
+        }
+    }
+
+    private static Event createTrackEvent(final Map<String, Object> eventData) {
+        return new Event.Builder("generic track", EventType.GENERIC_TRACK, EventSource.REQUEST_CONTENT)
+                .setEventData(eventData).build();
+    }
+
+    private void awaitProcessing() throws InterruptedException, ExecutionException {
+        analyticsExtension.getExecutor().submit(noOpTask).get();
+    }
+
+    private static Map<String, String> createContextData(final int size, final String keyPrefix) {
+        final Map<String, String> contextData = new HashMap<>();
+
+        for (int i = 0; i < size; i++) {
+            contextData.put(keyPrefix + "key" + i, "value" + i);
+        }
+
+        return contextData;
+    }
+
+    @Benchmark
+    public void trackState() throws InterruptedException, ExecutionException {
+        analyticsExtension.handleAnalyticsTrackEvent(trackStateEvent);
+        awaitProcessing();
+    }
+
+    @Benchmark
+    public void trackAction() throws InterruptedException, ExecutionException {
+        analyticsExtension.handleAnalyticsTrackEvent(trackActionEvent);
+        awaitProcessing();
+    }
+
+    @Benchmark
+    public void trackActionLargeContextData(final LargeContextDataState state) throws InterruptedException, ExecutionException {
+        analyticsExtension.handleAnalyticsTrackEvent(state.trackActionEvent);
+        awaitProcessing();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TRACK_BURST_SIZE)
+    public void trackActionBurst() throws InterruptedException, ExecutionException {
+        for (int i = 0; i < TRACK_BURST_SIZE; i++) {
+            analyticsExtension.handleAnalyticsTrackEvent(trackActionEvent);
+        }
+
+        awaitProcessing();
+    }
+
+    @Benchmark
+    public void trackStateEscapedVars() throws InterruptedException, ExecutionException {
+        analyticsExtension.handleAnalyticsTrackEvent(trackStateEscapedVarsEvent);
+        awaitProcessing();
+    }
+
+    @Benchmark
+    public void rulesEngineConsequence() throws InterruptedException, ExecutionException {
+        analyticsExtension.handleRulesEngineEvent(rulesEngineEvent);
+        awaitProcessing();
+    }
+}
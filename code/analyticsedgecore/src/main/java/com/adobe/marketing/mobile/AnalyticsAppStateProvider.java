@@ -0,0 +1,40 @@
+/*
+  Copyright 2021 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile;
+
+/**
+ * Provides the state of the application when a hit is built by the {@link AnalyticsHitProcessor}.
+ */
+interface AnalyticsAppStateProvider {
+
+    /**
+     * The state of the application.
+     */
+    enum AppState {
+        FOREGROUND,
+        BACKGROUND,
+        UNKNOWN
+    }
+
+    /**
+     * Returns the current state of the application.
+     * @return the {@link AppState}, {@link AppState#UNKNOWN} if it is not available
+     */
+    AppState getAppState();
+
+    /**
+     * Returns the time the application went to the background.
+     * @return the time in milliseconds, -1 if the application is not in the background or the time is not known
+     */
+    long getBackgroundSinceMillis();
+}
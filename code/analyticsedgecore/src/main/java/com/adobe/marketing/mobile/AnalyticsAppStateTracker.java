@@ -0,0 +1,63 @@
+/*
+  Copyright 2021 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile;
+
+/**
+ * {@link AnalyticsAppStateProvider} holding the application state reported by the foreground and background
+ * transitions, so building a hit reads a field instead of querying the platform.
+ *
+ * <p>
+ * The transitions may be reported from any thread, and from several sources reporting the same transition; only the
+ * first report of a transition is kept. Reading the state never blocks.
+ */
+final class AnalyticsAppStateTracker implements AnalyticsAppStateProvider {
+    private volatile AppState appState = AppState.UNKNOWN;
+    private volatile long backgroundSinceMillis = -1;
+
+    /**
+     * Sets the application state after a transition.
+     *
+     * @param state the new {@link AppState}
+     * @param timeMillis the time of the transition in milliseconds
+     */
+    synchronized void setAppState(final AppState state, final long timeMillis) {
+        if (state == null || state == appState) {
+            return;
+        }
+
+        backgroundSinceMillis = state == AppState.BACKGROUND ? timeMillis : -1;
+        appState = state;
+    }
+
+    /**
+     * Sets the application state read from the platform, unless a transition was already reported. The time of the
+     * state change is not known, so no background duration is available until the next transition.
+     *
+     * @param state the current {@link AppState}
+     */
+    synchronized void setInitialAppState(final AppState state) {
+        if (state != null && appState == AppState.UNKNOWN) {
+            appState = state;
+        }
+    }
+
+    @Override
+    public AppState getAppState() {
+        return appState;
+    }
+
+    @Override
+    public long getBackgroundSinceMillis() {
+        return backgroundSinceMillis;
+    }
+}
@@ -0,0 +1,207 @@
+/*
+  Copyright 2020 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+ */
+
+
+package com.adobe.marketing.mobile;
+
+final class AnalyticsConstants {
+    static final String LOG_TAG = "AnalyticsEdge";
+    static final String EXTENSION_NAME = "com.adobe.module.analyticsedge";
+    static final String FRIENDLY_NAME = "AnalyticsEdge";
+    static final String EXTENSION_VERSION = "1.0.0-beta-6";
+    static final String DATASTORE_NAME = "AnalyticsDataStorage"; //The data store name is same for Analytics direct and Analytics edge extensions.
+
+    static final String APP_STATE_FOREGROUND = "foreground";
+    static final String APP_STATE_BACKGROUND = "background";
+
+    static final String ACTION_PREFIX = "AMACTION:";
+    static final String INTERNAL_ACTION_PREFIX = "ADBINTERNAL:";
+    static final String VAR_ESCAPE_PREFIX = "&&";
+    static final String IGNORE_PAGE_NAME_VALUE = "lnk_o";
+    static final String CHARSET = "UTF-8";
+
+    static final int DEFAULT_EVENT_QUEUE_MAX_EVENTS = 1000;
+    static final long DEFAULT_EVENT_QUEUE_MAX_BYTES = 1024 * 1024;
+    static final int EVENT_QUEUE_MAX_SPILLED_EVENTS = 10000;
+    static final int EVENT_QUEUE_CAPACITY = 4096; // ring buffer slots, a power of two
+    static final int EVENT_QUEUE_OVERFLOW_CAPACITY = 512; // events waiting to be spilled, a power of two
+    static final int EVENT_QUEUE_DRAIN_BATCH_SIZE = 32;
+    static final boolean DEFAULT_METRICS_SHARED_STATE_ENABLED = false;
+    static final long METRICS_SHARED_STATE_INTERVAL_MILLIS = 60000;
+    static final long DEFAULT_DEDUPE_WINDOW_MILLIS = 0; // disabled
+    static final int DEFAULT_EXECUTOR_IDLE_TIMEOUT = 30; // seconds
+    static final int DEFAULT_MAX_CONTEXT_DATA_ENTRIES = 0; // no limit
+    static final int DEFAULT_MAX_CONTEXT_DATA_VALUE_LENGTH = 0; // no limit
+    static final int DEFAULT_MAX_PAYLOAD_BYTES = 0; // disabled
+    static final int DEFAULT_LATENCY_DEBUG_INTERVAL = 0; // disabled
+    static final boolean DEFAULT_BACKGROUND_DURATION_ENABLED = false;
+
+    static final class SharedStateKeys {
+        static final String CONFIGURATION = "com.adobe.module.configuration";
+        static final String ASSURANCE = "com.adobe.assurance";
+    }
+
+    static final class Configuration {
+        static final String GLOBAL_CONFIG_PRIVACY = "global.privacy";
+        static final String ANALYTICS_EVENT_QUEUE_MAX_EVENTS = "analytics.eventQueueMaxEvents";
+        static final String ANALYTICS_EVENT_QUEUE_MAX_BYTES = "analytics.eventQueueMaxBytes";
+        static final String ANALYTICS_EVENT_QUEUE_OVERFLOW_POLICY = "analytics.eventQueueOverflowPolicy";
+        static final String ANALYTICS_METRICS_SHARED_STATE = "analytics.metricsSharedState";
+        static final String ANALYTICS_SAMPLING_RATE = "analytics.samplingRate";
+        static final String ANALYTICS_ACTION_SAMPLING_RATES = "analytics.actionSamplingRates";
+        static final String ANALYTICS_STATE_SAMPLING_RATES = "analytics.stateSamplingRates";
+        static final String ANALYTICS_DEDUPE_WINDOW = "analytics.dedupeWindow";
+        static final String ANALYTICS_EXECUTOR_IDLE_TIMEOUT = "analytics.executorIdleTimeout";
+        static final String ANALYTICS_CONTEXT_DATA_ALLOWLIST = "analytics.contextDataAllowlist";
+        static final String ANALYTICS_CONTEXT_DATA_DENYLIST = "analytics.contextDataDenylist";
+        static final String ANALYTICS_MAX_CONTEXT_DATA_ENTRIES = "analytics.maxContextDataEntries";
+        static final String ANALYTICS_MAX_CONTEXT_DATA_VALUE_LENGTH = "analytics.maxContextDataValueLength";
+        static final String ANALYTICS_MAX_PAYLOAD_BYTES = "analytics.maxPayloadBytes";
+        static final String ANALYTICS_RECORD_EVENTS = "analytics.recordEvents";
+        static final String ANALYTICS_LATENCY_DEBUG_INTERVAL = "analytics.latencyDebugInterval";
+        static final String ANALYTICS_BACKGROUND_DURATION = "analytics.backgroundDuration";
+    }
+
+    static final class Edge {
+        static final String EVENT_TYPE = "com.adobe.eventType.edge";
+    }
+
+    static final class AnalyticsRequestKeys {
+        static final String VISITOR_ID = "vid";
+        static final String CHARSET = "ce";
+        static final String FORMATTED_TIMESTAMP = "t";
+        static final String STRING_TIMESTAMP = "ts";
+        static final String CONTEXT_DATA = "c";
+        static final String PAGE_NAME = "pageName";
+        static final String IGNORE_PAGE_NAME = "pe";
+        static final String CUSTOMER_PERSPECTIVE = "cp";
+        static final String ACTION_NAME = "pev2";
+        static final String ANALYTICS_ID = "aid";
+        static final String PRIVACY_MODE = "a.privacy.mode";
+
+    }
+
+    static final class EventDataKeys {
+        static final String FORCE_KICK_HITS  = "forcekick";
+        static final String CLEAR_HITS_QUEUE = "clearhitsqueue";
+        static final String ANALYTICS_ID     = "aid";
+        static final String GET_QUEUE_SIZE   = "getqueuesize";
+        static final String QUEUE_SIZE       = "queuesize";
+        static final String TRACK_INTERNAL   = "trackinternal";
+        static final String TRACK_ACTION     = "action";
+        static final String TRACK_STATE      = "state";
+        static final String CONTEXT_DATA = "contextdata";
+        static final String ANALYTICS_SERVER_RESPONSE = "analyticsserverresponse";
+        static final String VISITOR_IDENTIFIER = "vid";
+        static final String RULES_CONSEQUENCE_TYPE_TRACK = "an";
+        static final String HEADERS_RESPONSE = "headers";
+        static final String ETAG_HEADER = "ETag";
+        static final String SERVER_HEADER = "Server";
+        static final String CONTENT_TYPE_HEADER = "Content-Type";
+        static final String REQUEST_EVENT_IDENTIFIER = "requestEventIdentifier";
+        static final String HIT_HOST = "hitHost";
+        static final String HIT_URL = "hitUrl";
+        static final String SESSION_ID = "sessionid";
+        static final String STATE_OWNER = "stateowner";
+        static final String TRIGGERED_CONSEQUENCE = "triggeredconsequence";
+        static final String ID = "id";
+        static final String DETAIL = "detail";
+        static final String TYPE = "type";
+        static final String LIFECYCLE_ACTION_KEY = "action";
+        static final String LIFECYCLE_PAUSE = "pause";
+        static final String LIFECYCLE_START = "start";
+        static final String GET_EVENT_QUEUE_STATISTICS = "geteventqueuestatistics";
+        static final String EVENT_QUEUE_SIZE = "eventqueuesize";
+        static final String EVENT_QUEUE_BYTES = "eventqueuebytes";
+        static final String EVENTS_DROPPED_OLDEST = "eventsdroppedoldest";
+        static final String EVENTS_DROPPED_NEWEST = "eventsdroppednewest";
+        static final String EVENTS_SPILLED = "eventsspilled";
+        static final String GET_METRICS = "getmetrics";
+        static final String METRICS = "metrics";
+    }
+
+    static final class MetricsKeys {
+        static final String EVENTS_QUEUED = "eventsqueued";
+        static final String EVENTS_PROCESSED = "eventsprocessed";
+        static final String EVENTS_DROPPED_OPT_OUT = "eventsdroppedoptout";
+        static final String EVENTS_DROPPED_MISSING_DATA = "eventsdroppedmissingdata";
+        static final String EVENTS_SAMPLED_OUT = "eventssampledout";
+        static final String HITS_SUPPRESSED = "hitssuppressed";
+        static final String CONTEXT_DATA_KEYS_FILTERED = "contextdatakeysfiltered";
+        static final String CONTEXT_DATA_TRUNCATED = "contextdatatruncated";
+        static final String HITS_DROPPED_OVERSIZE = "hitsdroppedoversize";
+        static final String HITS_DISPATCHED = "hitsdispatched";
+        static final String HITS_DISPATCHED_PER_SECOND = "hitsdispatchedpersecond";
+        static final String EVENT_LATENCY = "eventlatency";
+        static final String CONFIGURATION_WAIT = "configwait";
+        static final String TRACK_LATENCY = "track";
+        static final String RULES_LATENCY = "rules";
+        static final String LATENCY_QUEUE_WAIT = "queuewait";
+        static final String LATENCY_PROCESSING = "processing";
+        static final String LATENCY_TOTAL = "total";
+        static final String UPTIME = "uptimems";
+        static final String REGISTRATION_TIME = "registrationus";
+        static final String IDENTIFIER_LOAD_TIME = "identifierloadus";
+        static final String HISTOGRAM_COUNT = "count";
+        static final String HISTOGRAM_TOTAL = "totalms";
+        static final String HISTOGRAM_P50 = "p50ms";
+        static final String HISTOGRAM_P95 = "p95ms";
+        static final String HISTOGRAM_P99 = "p99ms";
+    }
+
+    static final class ConsequenceTypes {
+        static final String TRACK = "an";
+    }
+
+    static final class ContextDataKeys {
+        static final String ACTION = "a.action";
+        static final String INTERNAL_ACTION = "a.internalaction";
+        static final String EVENT_IDENTIFIER = "a.DebugEventIdentifier";
+        static final String SAMPLING_RATE = "a.sampling.rate";
+        static final String BACKGROUND_DURATION = "a.background.durationms";
+        static final String LATENCY_QUEUE_WAIT = "a.latency.queuewaitms";
+        static final String LATENCY_PROCESSING = "a.latency.processingms";
+        static final String LATENCY_TOTAL = "a.latency.totalms";
+    }
+
+    static final class XDMDataKeys {
+        static final String LEGACY = "_legacy";
+        static final String ANALYTICS = "analytics";
+        static final String EVENTTYPE = "eventType";
+        static final String CONTEXT_DATA = "c";
+        static final String DATA = "data";
+        static final String XDM = "xdm";
+    }
+
+    static final class DataStoreKeys {
+        static final String ANALYTICS_ID = "ADOBEMOBILE_STOREDDEFAULTS_AID";
+        static final String VISITOR_ID = "ADOBEMOBILE_STOREDDEFAULTS_VISITOR_IDENTIFIER";
+        static final String APPLICATION_IDENTIFIER = "ADOBEMOBILE_STOREDDEFAULTS_APPLICATION_IDENTIFIER";
+        static final String APPLICATION_VERSION_CODE = "ADOBEMOBILE_STOREDDEFAULTS_APPLICATION_VERSION_CODE";
+        static final String SAMPLING_SEED = "ADOBEMOBILE_STOREDDEFAULTS_SAMPLING_SEED";
+    }
+
+    static final String EVENT_SPILL_DIRECTORY = "events";
+    static final String EVENT_TRACE_DIRECTORY = "traces";
+    static final String EVENT_TRACE_FILE_PREFIX = "trace-";
+    static final long EVENT_TRACE_MAX_BYTES = 10 * 1024 * 1024;
+
+    static final class EventNames {
+        static final String GET_EVENT_QUEUE_STATISTICS = "GetEventQueueStatistics";
+        static final String EVENT_QUEUE_STATISTICS_RESPONSE = "EventQueueStatisticsValue";
+        static final String GET_METRICS = "GetMetrics";
+        static final String METRICS_RESPONSE = "MetricsValue";
+    }
+
+    static final String ANALYTICS_XDM_EVENTTYPE = "legacy.analytics";
+    static final String ANALYTICS_XDM_EVENTNAME = "Analytics Edge Request";
+}
@@ -0,0 +1,190 @@
+/*
+  Copyright 2021 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Filters the context data keys of the track requests with a configured allowlist and denylist.
+ *
+ * <p>
+ * Each list holds exact keys and prefix patterns, written as the prefix followed by {@link #PREFIX_WILDCARD}. The
+ * lists are compiled once into tries, so checking a key walks its characters once without any regular expression.
+ * A key is kept if it matches the allowlist, when one is configured, and does not match the denylist.
+ *
+ * <p>
+ * A compiled filter is immutable.
+ */
+final class AnalyticsContextDataFilter {
+    static final String PREFIX_WILDCARD = "*";
+
+    /**
+     * The filter used when no list is configured, which keeps all the keys.
+     */
+    static final AnalyticsContextDataFilter ALLOW_ALL = new AnalyticsContextDataFilter(null, null);
+
+    private final KeyTrie allowlist;
+    private final KeyTrie denylist;
+
+    private AnalyticsContextDataFilter(final KeyTrie allowlist, final KeyTrie denylist) {
+        this.allowlist = allowlist;
+        this.denylist = denylist;
+    }
+
+    /**
+     * Compiles the given lists into a filter.
+     *
+     * @param allowlist the configured allowlist, a collection of keys and prefix patterns; ignored if empty or not a
+     *                  collection
+     * @param denylist the configured denylist, a collection of keys and prefix patterns; ignored if empty or not a
+     *                 collection
+     * @return the compiled {@link AnalyticsContextDataFilter}
+     */
+    static AnalyticsContextDataFilter compile(final Object allowlist, final Object denylist) {
+        final KeyTrie allowlistTrie = KeyTrie.compile(allowlist);
+        final KeyTrie denylistTrie = KeyTrie.compile(denylist);
+
+        if (allowlistTrie == null && denylistTrie == null) {
+            return ALLOW_ALL;
+        }
+
+        return new AnalyticsContextDataFilter(allowlistTrie, denylistTrie);
+    }
+
+    /**
+     * @return true if a list is configured, so keys may be filtered out
+     */
+    boolean isEnabled() {
+        return allowlist != null || denylist != null;
+    }
+
+    /**
+     * Checks if the given context data key is kept.
+     *
+     * @param key the context data key
+     * @return true if the key is kept, false if it is filtered out
+     */
+    boolean isAllowed(final String key) {
+        if (allowlist != null && !allowlist.matches(key)) {
+            return false;
+        }
+
+        return denylist == null || !denylist.matches(key);
+    }
+
+    /**
+     * Trie of exact keys and key prefixes. The children of a node are kept sorted by character and found with a
+     * binary search.
+     */
+    static final class KeyTrie {
+        private final Node root = new Node();
+
+        /**
+         * Compiles the patterns of the given collection, ignoring the entries which are not strings.
+         *
+         * @param patterns the collection of patterns
+         * @return the {@link KeyTrie}, or null if {@code patterns} is not a collection or is empty
+         */
+        static KeyTrie compile(final Object patterns) {
+            if (!(patterns instanceof Collection) || ((Collection<?>) patterns).isEmpty()) {
+                return null;
+            }
+
+            final KeyTrie trie = new KeyTrie();
+
+            for (Object pattern : (Collection<?>) patterns) {
+                if (pattern instanceof String) {
+                    trie.add((String) pattern);
+                }
+            }
+
+            return trie;
+        }
+
+        void add(final String pattern) {
+            final boolean isPrefix = pattern.endsWith(PREFIX_WILDCARD);
+            final int length = isPrefix ? pattern.length() - PREFIX_WILDCARD.length() : pattern.length();
+            Node node = root;
+
+            for (int i = 0; i < length; i++) {
+                node = node.getOrAddChild(pattern.charAt(i));
+            }
+
+            if (isPrefix) {
+                node.isPrefix = true;
+            } else {
+                node.isKey = true;
+            }
+        }
+
+        /**
+         * @param key the key
+         * @return true if the key is one of the exact keys or starts with one of the prefixes
+         */
+        boolean matches(final String key) {
+            if (key == null) {
+                return false;
+            }
+
+            Node node = root;
+
+            for (int i = 0; i < key.length(); i++) {
+                if (node.isPrefix) {
+                    return true;
+                }
+
+                node = node.getChild(key.charAt(i));
+                if (node == null) {
+                    return false;
+                }
+            }
+
+            return node.isKey || node.isPrefix;
+        }
+
+        private static final class Node {
+            private char[] childChars = new char[0];
+            private Node[] children = new Node[0];
+            private boolean isKey;
+            private boolean isPrefix;
+
+            Node getChild(final char c) {
+                final int index = Arrays.binarySearch(childChars, c);
+                return index >= 0 ? children[index] : null;
+            }
+
+            Node getOrAddChild(final char c) {
+                final int index = Arrays.binarySearch(childChars, c);
+                if (index >= 0) {
+                    return children[index];
+                }
+
+                final int insertionIndex = -index - 1;
+                final char[] newChildChars = new char[childChars.length + 1];
+                final Node[] newChildren = new Node[children.length + 1];
+                System.arraycopy(childChars, 0, newChildChars, 0, insertionIndex);
+                System.arraycopy(children, 0, newChildren, 0, insertionIndex);
+                System.arraycopy(childChars, insertionIndex, newChildChars, insertionIndex + 1, childChars.length - insertionIndex);
+                System.arraycopy(children, insertionIndex, newChildren, insertionIndex + 1, children.length - insertionIndex);
+
+                final Node child = new Node();
+                newChildChars[insertionIndex] = c;
+                newChildren[insertionIndex] = child;
+                childChars = newChildChars;
+                children = newChildren;
+                return child;
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+  Copyright 2021 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile;
+
+/**
+ * 64-bit FNV-1a hashing of strings, finished with the MurmurHash3 mixer, shared by the {@link AnalyticsSampler} and
+ * the {@link AnalyticsHitDeduplicator}.
+ */
+final class AnalyticsHashing {
+    static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    static final long FNV_PRIME = 0x100000001b3L;
+
+    private AnalyticsHashing() {}
+
+    /**
+     * FNV-1a hash of the characters of the string. A null string leaves the hash unchanged.
+     *
+     * @param seed the hash to continue from, {@link #FNV_OFFSET_BASIS} for a new hash
+     * @param value the string to hash, may be null
+     * @return the updated hash
+     */
+    static long hash(final long seed, final String value) {
+        long hash = seed;
+
+        if (value != null) {
+            for (int i = 0; i < value.length(); i++) {
+                hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+            }
+        }
+
+        return hash;
+    }
+
+    /**
+     * FNV-1a hash of the string, followed by a separator so that consecutive strings cannot be confused. A null
+     * string hashes differently from an empty one.
+     *
+     * @param seed the hash to continue from, {@link #FNV_OFFSET_BASIS} for a new hash
+     * @param value the string to hash, may be null
+     * @return the updated hash
+     */
+    static long hashField(final long seed, final String value) {
+        if (value == null) {
+            return combine(seed, 0xffff);
+        }
+
+        return combine(hash(seed, value), 0x10000);
+    }
+
+    /**
+     * Adds a value to the hash as a single FNV-1a step.
+     *
+     * @param seed the hash to continue from
+     * @param value the value to add
+     * @return the updated hash
+     */
+    static long combine(final long seed, final long value) {
+        return (seed ^ value) * FNV_PRIME;
+    }
+
+    /**
+     * Finalizer of MurmurHash3, spreads the hashes of similar strings over the whole range.
+     *
+     * @param hash the hash to mix
+     * @return the mixed hash
+     */
+    static long mix(final long hash) {
+        long mixed = hash;
+        mixed ^= mixed >>> 33;
+        mixed *= 0xff51afd7ed558ccdL;
+        mixed ^= mixed >>> 33;
+        mixed *= 0xc4ceb9fe1a85ec53L;
+        mixed ^= mixed >>> 33;
+        return mixed;
+    }
+}
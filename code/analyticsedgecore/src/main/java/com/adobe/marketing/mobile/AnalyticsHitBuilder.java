@@ -0,0 +1,259 @@
+/*
+  Copyright 2021 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the {@code _legacy.analytics} payload of a hit in a single pass over the track data.
+ *
+ * <p>
+ * The analytics variables and the context data are written directly into the maps of the payload, which are sized
+ * for the expected number of entries so they are not resized. The variables must be put first, then the context
+ * data of the track request with {@link #putContextData(Map, AnalyticsContextDataFilter)}, then the context data added by
+ * the SDK: context data keys escaped with {@link AnalyticsConstants#VAR_ESCAPE_PREFIX} override the variables, and
+ * the SDK context data overrides the context data of the track request.
+ *
+ * <p>
+ * The context data of the track request is capped by the {@link AnalyticsPayloadLimits} of the builder, and when the
+ * payload size is limited its estimated size is counted as the entries are put, see {@link #isOversized()}.
+ */
+final class AnalyticsHitBuilder {
+    // pe, pev2, pageName, aid, vid, ce, t, ts, cp, ndh and c
+    static final int MAX_VAR_COUNT = 11;
+    // the action, sampling rate, privacy mode, event identifier and background duration, the latency timings of the rare
+    // debug hits are not counted
+    static final int MAX_SDK_CONTEXT_DATA_COUNT = 5;
+
+    private final HashMap<String, Object> hit;
+    private final HashMap<String, String> contextData;
+    private final AnalyticsPayloadLimits limits;
+    private final boolean countsSize;
+    private int estimatedSize = AnalyticsPayloadLimits.PAYLOAD_OVERHEAD_BYTES;
+    private int filteredKeyCount;
+    private int keptEntryCount;
+    private int truncatedCount;
+
+    /**
+     * Constructor of a builder without limits.
+     *
+     * @param trackContextData the context data of the track request, used to size the payload maps; may be null
+     */
+    AnalyticsHitBuilder(final Map<String, String> trackContextData) {
+        this(trackContextData, AnalyticsPayloadLimits.NONE);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param trackContextData the context data of the track request, used to size the payload maps; may be null
+     * @param limits the {@link AnalyticsPayloadLimits} applied to the payload
+     */
+    AnalyticsHitBuilder(final Map<String, String> trackContextData, final AnalyticsPayloadLimits limits) {
+        int trackContextDataSize = trackContextData == null ? 0 : trackContextData.size();
+        if (limits.limitsContextDataEntries()) {
+            trackContextDataSize = Math.min(trackContextDataSize, limits.maxContextDataEntries);
+        }
+
+        // the escaped keys go to the hit and the others to the context data, both are sized for all of them
+        this.hit = newHashMap(MAX_VAR_COUNT + trackContextDataSize);
+        this.contextData = newHashMap(MAX_SDK_CONTEXT_DATA_COUNT + trackContextDataSize);
+        this.limits = limits;
+        this.countsSize = limits.limitsPayloadBytes();
+    }
+
+    /**
+     * Puts an analytics variable.
+     *
+     * @param key the variable name
+     * @param value the variable value
+     * @return this builder
+     */
+    AnalyticsHitBuilder putVar(final String key, final Object value) {
+        final Object previousValue = hit.put(key, value);
+
+        if (countsSize) {
+            addEstimatedSize(key, previousValue, value);
+        }
+
+        return this;
+    }
+
+    /**
+     * Puts the context data of the track request. Entries with an escaped key are put as analytics variables without
+     * the escape prefix, entries with a null or empty key and entries whose key is filtered out are ignored.
+     *
+     * <p>
+     * Values longer than the maximum length are truncated. When the track request has more entries than the maximum
+     * number, the entries are put in the order of their keys so the same entries are kept whatever the iteration
+     * order of the map.
+     *
+     * @param trackContextData the context data of the track request, may be null
+     * @param keyFilter the {@link AnalyticsContextDataFilter} applied to the keys
+     * @return this builder
+     */
+    AnalyticsHitBuilder putContextData(final Map<String, String> trackContextData,
+                                       final AnalyticsContextDataFilter keyFilter) {
+        if (trackContextData == null || trackContextData.isEmpty()) {
+            return this;
+        }
+
+        if (limits.limitsContextDataEntries() && trackContextData.size() > limits.maxContextDataEntries) {
+            final List<String> keys = new ArrayList<>(trackContextData.size());
+
+            for (String key : trackContextData.keySet()) {
+                if (key != null && !key.isEmpty()) {
+                    keys.add(key);
+                }
+            }
+
+            Collections.sort(keys);
+
+            for (String key : keys) {
+                putTrackContextData(key, trackContextData.get(key), keyFilter);
+            }
+        } else {
+            for (Map.Entry<String, String> entry : trackContextData.entrySet()) {
+                putTrackContextData(entry.getKey(), entry.getValue(), keyFilter);
+            }
+        }
+
+        return this;
+    }
+
+    /**
+     * Puts a context data entry added by the SDK.
+     *
+     * @param key the context data key
+     * @param value the context data value
+     * @return this builder
+     */
+    AnalyticsHitBuilder putContextData(final String key, final String value) {
+        final String previousValue = contextData.put(key, value);
+
+        if (countsSize) {
+            addEstimatedSize(key, previousValue, value);
+        }
+
+        return this;
+    }
+
+    /**
+     * @return the number of context data keys of the track request which were filtered out
+     */
+    int getFilteredKeyCount() {
+        return filteredKeyCount;
+    }
+
+    /**
+     * @return the number of context data entries of the track request which were dropped or had their value
+     * truncated by the limits
+     */
+    int getTruncatedCount() {
+        return truncatedCount;
+    }
+
+    /**
+     * @return the estimated size in bytes of the payload, only counted when the payload size is limited
+     */
+    int getEstimatedSize() {
+        return estimatedSize;
+    }
+
+    /**
+     * @return true if the estimated size of the payload exceeds the maximum size
+     */
+    boolean isOversized() {
+        return countsSize && estimatedSize > limits.maxPayloadBytes;
+    }
+
+    /**
+     * @return the payload of the hit
+     */
+    Map<String, Object> build() {
+        hit.put(AnalyticsConstants.XDMDataKeys.CONTEXT_DATA, contextData);
+        return hit;
+    }
+
+    /**
+     * Creates the event data of the Edge request sending the given hit under {@code _legacy.analytics}.
+     *
+     * @param hit the payload of the hit
+     * @return the event data of the Edge request
+     */
+    static Map<String, Object> createEdgeEventData(final Map<String, Object> hit) {
+        final Map<String, String> xdm = newHashMap(1);
+        xdm.put(AnalyticsConstants.XDMDataKeys.EVENTTYPE, AnalyticsConstants.ANALYTICS_XDM_EVENTTYPE);
+
+        final Map<String, Object> edgeLegacyData = newHashMap(1);
+        edgeLegacyData.put(AnalyticsConstants.XDMDataKeys.ANALYTICS, hit);
+
+        final Map<String, Object> edgeEventData = newHashMap(1);
+        edgeEventData.put(AnalyticsConstants.XDMDataKeys.LEGACY, edgeLegacyData);
+
+        final Map<String, Object> eventData = newHashMap(2);
+        eventData.put(AnalyticsConstants.XDMDataKeys.XDM, xdm);
+        eventData.put(AnalyticsConstants.XDMDataKeys.DATA, edgeEventData);
+        return eventData;
+    }
+
+    private void putTrackContextData(final String key, final String value, final AnalyticsContextDataFilter keyFilter) {
+        if (key == null || key.isEmpty()) {
+            return;
+        }
+
+        if (keyFilter.isEnabled() && !keyFilter.isAllowed(key)) {
+            filteredKeyCount++;
+            return;
+        }
+
+        if (limits.limitsContextDataEntries() && keptEntryCount >= limits.maxContextDataEntries) {
+            truncatedCount++;
+            return;
+        }
+
+        keptEntryCount++;
+        final String keptValue = limits.truncate(value);
+        if (keptValue != value) {
+            truncatedCount++;
+        }
+
+        if (key.startsWith(AnalyticsConstants.VAR_ESCAPE_PREFIX)) {
+            putVar(key.substring(AnalyticsConstants.VAR_ESCAPE_PREFIX.length()), keptValue);
+        } else {
+            putContextData(key, keptValue);
+        }
+    }
+
+    /**
+     * Adds the estimated size of an entry to the size of the payload, less the size of the entry it replaced.
+     */
+    private void addEstimatedSize(final String key, final Object previousValue, final Object value) {
+        if (previousValue != null) {
+            estimatedSize -= AnalyticsPayloadLimits.estimateEntrySize(key, previousValue);
+        }
+
+        estimatedSize += AnalyticsPayloadLimits.estimateEntrySize(key, value);
+    }
+
+    /**
+     * Creates a {@link HashMap} which holds the expected number of entries without being resized.
+     */
+    private static <K, V> HashMap<K, V> newHashMap(final int expectedSize) {
+        return new HashMap<>(expectedSize * 4 / 3 + 1);
+    }
+}
@@ -0,0 +1,146 @@
+/*
+  Copyright 2021 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Suppresses the track hits identical to a hit sent within the dedupe window, such as the same state tracked again
+ * by a screen rotation.
+ *
+ * <p>
+ * Hits are compared by a 64-bit fingerprint of their page name, action and context data, kept with the time the hit
+ * was sent in a fixed-size open-addressed table. A fingerprint is only recorded once its hit was dispatched, so a hit
+ * dropped after the lookup does not suppress the next identical one. A fingerprint is looked up in at most
+ * {@link #MAX_PROBES} slots; when they are all in use by hits still within the window, the oldest one is replaced, so
+ * a burst of distinct hits may let a duplicate through but never suppresses a distinct hit. The window is disabled
+ * when set to 0.
+ *
+ * <p>
+ * This class is not thread safe; the {@link AnalyticsHitProcessor} uses it from the thread processing the hits only.
+ */
+final class AnalyticsHitDeduplicator {
+    static final int TABLE_SIZE = 64; // a power of two
+    static final int MAX_PROBES = 8;
+    private static final long EMPTY = 0;
+
+    private final long[] fingerprints = new long[TABLE_SIZE];
+    private final long[] sentTimesMillis = new long[TABLE_SIZE];
+    private long windowMillis;
+
+    /**
+     * Sets the dedupe window, clearing the fingerprints of the hits already sent if it changed.
+     *
+     * @param windowMillis the window in milliseconds, 0 or less disables the suppression
+     */
+    void setWindow(final long windowMillis) {
+        final long window = Math.max(windowMillis, 0);
+
+        if (window != this.windowMillis) {
+            this.windowMillis = window;
+            Arrays.fill(fingerprints, EMPTY);
+        }
+    }
+
+    boolean isEnabled() {
+        return windowMillis > 0;
+    }
+
+    /**
+     * Checks whether a hit identical to the given one was sent within the window.
+     *
+     * @param fingerprint the {@link #fingerprint} of the hit
+     * @param timeMillis the time of the hit in milliseconds
+     * @return true if the hit is a duplicate and should be suppressed
+     */
+    boolean isDuplicate(final long fingerprint, final long timeMillis) {
+        if (!isEnabled()) {
+            return false;
+        }
+
+        final int start = (int) fingerprint & (TABLE_SIZE - 1);
+
+        for (int i = 0; i < MAX_PROBES; i++) {
+            final int slot = (start + i) & (TABLE_SIZE - 1);
+
+            if (fingerprints[slot] == fingerprint && !isExpired(slot, timeMillis)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Records a hit which was dispatched, so the identical hits are suppressed within the window.
+     *
+     * @param fingerprint the {@link #fingerprint} of the hit
+     * @param timeMillis the time of the hit in milliseconds
+     */
+    void recordSent(final long fingerprint, final long timeMillis) {
+        if (!isEnabled()) {
+            return;
+        }
+
+        final int start = (int) fingerprint & (TABLE_SIZE - 1);
+        int freeSlot = -1;
+        int oldestSlot = start;
+
+        for (int i = 0; i < MAX_PROBES; i++) {
+            final int slot = (start + i) & (TABLE_SIZE - 1);
+
+            if (isExpired(slot, timeMillis)) {
+                if (freeSlot < 0) {
+                    freeSlot = slot;
+                }
+            } else if (sentTimesMillis[slot] < sentTimesMillis[oldestSlot]) {
+                oldestSlot = slot;
+            }
+        }
+
+        final int slot = freeSlot >= 0 ? freeSlot : oldestSlot;
+        fingerprints[slot] = fingerprint;
+        sentTimesMillis[slot] = timeMillis;
+    }
+
+    private boolean isExpired(final int slot, final long timeMillis) {
+        return fingerprints[slot] == EMPTY || timeMillis - sentTimesMillis[slot] >= windowMillis ||
+                timeMillis < sentTimesMillis[slot];
+    }
+
+    /**
+     * Computes the fingerprint of a hit. The context data entries are hashed independently and summed, so the
+     * fingerprint does not depend on the iteration order of the map.
+     */
+    static long fingerprint(final String pageName, final String actionName, final boolean isInternalAction,
+                            final Map<String, String> contextData) {
+        long hash = AnalyticsHashing.hashField(AnalyticsHashing.FNV_OFFSET_BASIS, pageName);
+        hash = AnalyticsHashing.hashField(hash, actionName);
+        hash = AnalyticsHashing.combine(hash, isInternalAction ? 1 : 0);
+
+        if (contextData != null) {
+            long contextDataHash = 0;
+
+            for (Map.Entry<String, String> entry : contextData.entrySet()) {
+                contextDataHash += AnalyticsHashing.mix(AnalyticsHashing.hashField(
+                        AnalyticsHashing.hashField(AnalyticsHashing.FNV_OFFSET_BASIS, entry.getKey()), entry.getValue()));
+            }
+
+            hash = AnalyticsHashing.combine(hash, contextDataHash);
+        }
+
+        final long fingerprint = AnalyticsHashing.mix(hash);
+        return fingerprint == EMPTY ? 1 : fingerprint;
+    }
+}
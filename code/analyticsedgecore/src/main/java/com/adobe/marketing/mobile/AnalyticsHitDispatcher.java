@@ -0,0 +1,27 @@
+/*
+  Copyright 2021 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile;
+
+import java.util.Map;
+
+/**
+ * Receives the hits built by the {@link AnalyticsHitProcessor}, to be sent to the Edge.
+ */
+interface AnalyticsHitDispatcher {
+
+    /**
+     * Sends a hit.
+     * @param hit the {@code _legacy.analytics} payload of the hit, as built by {@link AnalyticsHitBuilder}
+     */
+    void dispatch(final Map<String, Object> hit);
+}
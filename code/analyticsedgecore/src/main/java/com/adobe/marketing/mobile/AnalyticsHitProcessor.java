@@ -0,0 +1,423 @@
+/*
+  Copyright 2021 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the Analytics hits of the track requests and hands them to an {@link AnalyticsHitDispatcher}.
+ *
+ * <p>
+ * The hits are gated on the privacy status, the requests missing data are dropped and the hits are sampled and
+ * deduplicated before the analytics variables, the context data of the request and the context data added by the SDK
+ * are written within the configured payload limits. The pipeline does not depend on Android or on the Mobile Core:
+ * the configuration is passed as a map, and the identities, the application state and the dispatch of the hits go
+ * through {@link AnalyticsIdentityProvider}, {@link AnalyticsAppStateProvider} and {@link AnalyticsHitDispatcher}, so
+ * it runs on any JVM.
+ *
+ * <p>
+ * This class is not thread safe; it is used from a single thread at a time.
+ */
+final class AnalyticsHitProcessor {
+
+    /**
+     * The privacy status present in the configuration.
+     */
+    enum PrivacyStatus {
+        OPT_IN("optedin"),
+        OPT_OUT("optedout"),
+        UNKNOWN("unknown");
+
+        private final String value;
+
+        PrivacyStatus(final String value) {
+            this.value = value;
+        }
+
+        /**
+         * Returns the {@link PrivacyStatus} for the given configuration value.
+         *
+         * @param value the configured privacy status, may be null
+         * @return the matching {@link PrivacyStatus}, or {@link #UNKNOWN} if none matches
+         */
+        static PrivacyStatus fromString(final String value) {
+            for (PrivacyStatus status : values()) {
+                if (status.value.equalsIgnoreCase(value)) {
+                    return status;
+                }
+            }
+
+            return UNKNOWN;
+        }
+    }
+
+    private final AnalyticsMetrics metrics;
+    private final AnalyticsIdentityProvider identityProvider;
+    private final AnalyticsAppStateProvider appStateProvider;
+    private final AnalyticsHitDispatcher hitDispatcher;
+    private final AnalyticsLogger logger;
+    private long lastTimestampSeconds = -1;
+    private String lastTimestampString; // lastTimestampSeconds as a string, most hits share the timestamp of the previous hit
+    private final AnalyticsTimezoneOffsetProvider timezoneOffsetProvider = new AnalyticsTimezoneOffsetProvider();
+    private final AnalyticsSampler sampler;
+    private final AnalyticsLatencyTracer latencyTracer;
+    private final AnalyticsHitDeduplicator hitDeduplicator = new AnalyticsHitDeduplicator();
+    private AnalyticsContextDataFilter contextDataFilter = AnalyticsContextDataFilter.ALLOW_ALL;
+    private Object contextDataAllowlist; // configured lists the contextDataFilter was compiled from
+    private Object contextDataDenylist;
+    private AnalyticsPayloadLimits payloadLimits = new AnalyticsPayloadLimits(AnalyticsConstants.DEFAULT_MAX_CONTEXT_DATA_ENTRIES,
+            AnalyticsConstants.DEFAULT_MAX_CONTEXT_DATA_VALUE_LENGTH, AnalyticsConstants.DEFAULT_MAX_PAYLOAD_BYTES);
+    private PrivacyStatus privacyStatus = PrivacyStatus.UNKNOWN;
+    private boolean backgroundDurationEnabled = AnalyticsConstants.DEFAULT_BACKGROUND_DURATION_ENABLED;
+
+    /**
+     * Constructor.
+     *
+     * @param metrics the {@link AnalyticsMetrics} the dropped hits are counted in
+     * @param identityProvider the {@link AnalyticsIdentityProvider} of the identifiers sent with the hits
+     * @param appStateProvider the {@link AnalyticsAppStateProvider} of the application state sent with the hits
+     * @param hitDispatcher the {@link AnalyticsHitDispatcher} the built hits are handed to
+     * @param logger the {@link AnalyticsLogger} of the pipeline
+     */
+    AnalyticsHitProcessor(final AnalyticsMetrics metrics, final AnalyticsIdentityProvider identityProvider,
+                          final AnalyticsAppStateProvider appStateProvider, final AnalyticsHitDispatcher hitDispatcher,
+                          final AnalyticsLogger logger) {
+        this.metrics = metrics;
+        this.identityProvider = identityProvider;
+        this.appStateProvider = appStateProvider;
+        this.hitDispatcher = hitDispatcher;
+        this.logger = logger;
+        this.sampler = new AnalyticsSampler(logger);
+        this.latencyTracer = new AnalyticsLatencyTracer(metrics);
+    }
+
+    /**
+     * Applies the privacy status, sampling rates, context data filter, payload limits, dedupe window, latency debug
+     * interval and background duration option present in the given configuration.
+     *
+     * @param configuration the configuration, may be null
+     */
+    void updateConfiguration(final Map<String, Object> configuration) {
+        final Object privacy = configuration == null ? null : configuration.get(AnalyticsConstants.Configuration.GLOBAL_CONFIG_PRIVACY);
+        privacyStatus = privacy == null ? PrivacyStatus.UNKNOWN : PrivacyStatus.fromString(privacy.toString());
+
+        if (configuration == null) {
+            sampler.setRates(null, null, null);
+        } else {
+            sampler.setRates(configuration.get(AnalyticsConstants.Configuration.ANALYTICS_SAMPLING_RATE),
+                    configuration.get(AnalyticsConstants.Configuration.ANALYTICS_ACTION_SAMPLING_RATES),
+                    configuration.get(AnalyticsConstants.Configuration.ANALYTICS_STATE_SAMPLING_RATES));
+        }
+
+        updateContextDataFilter(configuration);
+        payloadLimits = new AnalyticsPayloadLimits(
+                getInt(configuration, AnalyticsConstants.Configuration.ANALYTICS_MAX_CONTEXT_DATA_ENTRIES,
+                        AnalyticsConstants.DEFAULT_MAX_CONTEXT_DATA_ENTRIES),
+                getInt(configuration, AnalyticsConstants.Configuration.ANALYTICS_MAX_CONTEXT_DATA_VALUE_LENGTH,
+                        AnalyticsConstants.DEFAULT_MAX_CONTEXT_DATA_VALUE_LENGTH),
+                getInt(configuration, AnalyticsConstants.Configuration.ANALYTICS_MAX_PAYLOAD_BYTES,
+                        AnalyticsConstants.DEFAULT_MAX_PAYLOAD_BYTES));
+        hitDeduplicator.setWindow(getLong(configuration, AnalyticsConstants.Configuration.ANALYTICS_DEDUPE_WINDOW,
+                AnalyticsConstants.DEFAULT_DEDUPE_WINDOW_MILLIS));
+        latencyTracer.setDebugInterval(getInt(configuration, AnalyticsConstants.Configuration.ANALYTICS_LATENCY_DEBUG_INTERVAL,
+                AnalyticsConstants.DEFAULT_LATENCY_DEBUG_INTERVAL));
+        backgroundDurationEnabled = getBoolean(configuration, AnalyticsConstants.Configuration.ANALYTICS_BACKGROUND_DURATION,
+                AnalyticsConstants.DEFAULT_BACKGROUND_DURATION_ENABLED);
+    }
+
+    /**
+     * Compiles the context data allowlist and denylist present in the given configuration, if they changed.
+     *
+     * @param configuration the configuration, may be null
+     */
+    private void updateContextDataFilter(final Map<String, Object> configuration) {
+        final Object allowlist = configuration == null ? null :
+                configuration.get(AnalyticsConstants.Configuration.ANALYTICS_CONTEXT_DATA_ALLOWLIST);
+        final Object denylist = configuration == null ? null :
+                configuration.get(AnalyticsConstants.Configuration.ANALYTICS_CONTEXT_DATA_DENYLIST);
+
+        if (equals(allowlist, contextDataAllowlist) && equals(denylist, contextDataDenylist)) {
+            return;
+        }
+
+        contextDataAllowlist = allowlist;
+        contextDataDenylist = denylist;
+        contextDataFilter = AnalyticsContextDataFilter.compile(allowlist, denylist);
+    }
+
+    /**
+     * Sets the visitor the sampling decisions are made for to the identifiers of the {@link AnalyticsIdentityProvider}.
+     * Called once the identifiers are loaded and when they are cleared on opt-out.
+     */
+    void updateVisitor() {
+        sampler.setVisitor(identityProvider.getAnalyticsId(), identityProvider.getVisitorId(),
+                identityProvider.getSamplingSeed());
+    }
+
+    /**
+     * Makes the next hit check the timezone offset again. May be called from any thread, when the system timezone
+     * changed.
+     */
+    void onTimezoneChanged() {
+        timezoneOffsetProvider.invalidate();
+    }
+
+    /**
+     * @return the {@link PrivacyStatus} present in the last applied configuration
+     */
+    PrivacyStatus getPrivacyStatus() {
+        return privacyStatus;
+    }
+
+    /**
+     * @return the {@link AnalyticsLatencyTracer} the events are traced with while their hit is built
+     */
+    AnalyticsLatencyTracer getLatencyTracer() {
+        return latencyTracer;
+    }
+
+    /**
+     * This prepares the analytics variables and analytics data of a track request and dispatches the hit.
+     *
+     * @param data Track data for processing
+     * @param timestampMillis the timestamp of the track request in milliseconds
+     * @param eventIdentifier the identifier of the track request, sent in the context data when not null; a hit with an
+     * identifier may also carry its latency timings, see {@link AnalyticsLatencyTracer}
+     */
+    void track(final Map<String, Object> data, final long timestampMillis, final String eventIdentifier) {
+        if (privacyStatus == PrivacyStatus.OPT_OUT) {
+            logger.debug("track - Dropping track request, privacy is opted-out.");
+            metrics.eventsDroppedOptOut.increment();
+            return;
+        }
+
+        if (data == null || !(data.containsKey(AnalyticsConstants.EventDataKeys.TRACK_STATE) ||
+                data.containsKey(AnalyticsConstants.EventDataKeys.TRACK_ACTION) ||
+                data.containsKey(AnalyticsConstants.EventDataKeys.CONTEXT_DATA))) {
+            logger.warning("track - Dropping request as event data is null or missing state, action or contextData");
+            metrics.eventsDroppedMissingData.increment();
+            return;
+        }
+
+        final String actionName = (String) data.get(AnalyticsConstants.EventDataKeys.TRACK_ACTION);
+        final String stateName = (String) data.get(AnalyticsConstants.EventDataKeys.TRACK_STATE);
+
+        // sampled out hits are dropped before any of their data is processed
+        final AnalyticsSampler.Rate samplingRate = sampler.sample(actionName, stateName);
+        if (samplingRate == null) {
+            metrics.eventsSampledOut.increment();
+            return;
+        }
+
+        final boolean isInternalAction = Boolean.TRUE.equals(data.get(AnalyticsConstants.EventDataKeys.TRACK_INTERNAL));
+        final Map<String, String> contextData = getContextData(data);
+
+        final long fingerprint = hitDeduplicator.isEnabled() ? AnalyticsHitDeduplicator.fingerprint(
+                isNullOrEmpty(stateName) ? identityProvider.getApplicationIdentifier() : stateName, actionName,
+                isInternalAction, contextData) : 0;
+
+        if (hitDeduplicator.isDuplicate(fingerprint, timestampMillis)) {
+            logger.debug("track - Suppressing hit identical to a hit sent within the dedupe window.");
+            metrics.hitsSuppressed.increment();
+            return;
+        }
+
+        final AnalyticsHitBuilder hitBuilder = new AnalyticsHitBuilder(contextData, payloadLimits);
+        processAnalyticsVars(hitBuilder, timestampMillis, actionName, stateName, isInternalAction);
+        hitBuilder.putContextData(contextData, contextDataFilter);
+        processAnalyticsData(hitBuilder, timestampMillis, eventIdentifier, actionName, isInternalAction, samplingRate);
+        latencyTracer.attachTimings(hitBuilder, eventIdentifier != null);
+
+        if (hitBuilder.getFilteredKeyCount() > 0) {
+            metrics.contextDataKeysFiltered.add(hitBuilder.getFilteredKeyCount());
+        }
+
+        if (hitBuilder.getTruncatedCount() > 0) {
+            logger.debug("track - Truncated %d context data entries exceeding the configured limits.",
+                    hitBuilder.getTruncatedCount());
+            metrics.contextDataTruncated.add(hitBuilder.getTruncatedCount());
+        }
+
+        if (hitBuilder.isOversized()) {
+            logger.warning("track - Dropping hit as its estimated size of %d bytes exceeds the maximum of %d bytes.",
+                    hitBuilder.getEstimatedSize(), payloadLimits.maxPayloadBytes);
+            metrics.hitsDroppedOversize.increment();
+            return;
+        }
+
+        hitDispatcher.dispatch(hitBuilder.build());
+        // recorded once dispatched, a hit dropped above does not suppress the next identical one
+        hitDeduplicator.recordSent(fingerprint, timestampMillis);
+        latencyTracer.recordDispatch();
+    }
+
+    /**
+     * This method writes the analytics variables of the track request to the hit.
+     *
+     * @param hitBuilder the {@link AnalyticsHitBuilder} of the hit
+     * @param timestampMillis the timestamp of the track request in milliseconds
+     * @param actionName the action name of the track request, may be null
+     * @param stateName the state name of the track request, may be null
+     * @param isInternalAction A boolean signaling if the track request is internal.
+     */
+    private void processAnalyticsVars(final AnalyticsHitBuilder hitBuilder, final long timestampMillis, final String actionName,
+                                      final String stateName, final boolean isInternalAction) {
+        // Context: pe/pev2 values should always be present in track calls if there's action regardless of state.
+        // If state is present then pageName = state name else pageName = app id to prevent hit from being discarded.
+        if (!isNullOrEmpty(actionName)) {
+            hitBuilder.putVar(AnalyticsConstants.AnalyticsRequestKeys.IGNORE_PAGE_NAME, AnalyticsConstants.IGNORE_PAGE_NAME_VALUE);
+            hitBuilder.putVar(AnalyticsConstants.AnalyticsRequestKeys.ACTION_NAME, getActionPrefix(isInternalAction) + actionName);
+        }
+
+        if (!isNullOrEmpty(stateName)) {
+            hitBuilder.putVar(AnalyticsConstants.AnalyticsRequestKeys.PAGE_NAME, stateName);
+        } else {
+            hitBuilder.putVar(AnalyticsConstants.AnalyticsRequestKeys.PAGE_NAME, identityProvider.getApplicationIdentifier());
+        }
+
+        final String analyticsId = identityProvider.getAnalyticsId();
+        if (!isNullOrEmpty(analyticsId)) {
+            hitBuilder.putVar(AnalyticsConstants.AnalyticsRequestKeys.ANALYTICS_ID, analyticsId);
+        }
+        final String visitorId = identityProvider.getVisitorId();
+        if (!isNullOrEmpty(visitorId)) {
+            hitBuilder.putVar(AnalyticsConstants.AnalyticsRequestKeys.VISITOR_ID, visitorId);
+        }
+
+        hitBuilder.putVar(AnalyticsConstants.AnalyticsRequestKeys.CHARSET, AnalyticsConstants.CHARSET);
+        hitBuilder.putVar(AnalyticsConstants.AnalyticsRequestKeys.FORMATTED_TIMESTAMP, timezoneOffsetProvider.getTimestampTimezoneOffset());
+
+        // Set timestamp for all requests.
+        hitBuilder.putVar(AnalyticsConstants.AnalyticsRequestKeys.STRING_TIMESTAMP, getTimestampString(TimeUnit.MILLISECONDS.toSeconds(timestampMillis)));
+
+        final AnalyticsAppStateProvider.AppState appState = appStateProvider.getAppState();
+
+        if (appState == AnalyticsAppStateProvider.AppState.BACKGROUND) {
+            hitBuilder.putVar(AnalyticsConstants.AnalyticsRequestKeys.CUSTOMER_PERSPECTIVE,
+                    AnalyticsConstants.APP_STATE_BACKGROUND);
+        } else if (appState == AnalyticsAppStateProvider.AppState.FOREGROUND) {
+            hitBuilder.putVar(AnalyticsConstants.AnalyticsRequestKeys.CUSTOMER_PERSPECTIVE,
+                    AnalyticsConstants.APP_STATE_FOREGROUND);
+        }
+
+        hitBuilder.putVar("ndh", 1);
+    }
+
+    /**
+     * This method writes the context data added by the SDK to the hit, after the context data of the track request.
+     *
+     * @param hitBuilder the {@link AnalyticsHitBuilder} of the hit
+     * @param timestampMillis the timestamp of the track request in milliseconds
+     * @param eventIdentifier the identifier of the track request, sent when not null
+     * @param actionName the action name of the track request, may be null
+     * @param isInternalAction A boolean signaling if the track request is internal.
+     * @param samplingRate the sampling rate applied to the hit, sent in the context data unless it is the full rate
+     */
+    private void processAnalyticsData(final AnalyticsHitBuilder hitBuilder, final long timestampMillis, final String eventIdentifier,
+                                      final String actionName, final boolean isInternalAction,
+                                      final AnalyticsSampler.Rate samplingRate) {
+        if (!isNullOrEmpty(actionName)) {
+            hitBuilder.putContextData(getActionKey(isInternalAction), actionName);
+        }
+
+        if (!samplingRate.isFullRate()) {
+            hitBuilder.putContextData(AnalyticsConstants.ContextDataKeys.SAMPLING_RATE, samplingRate.text);
+        }
+
+        if (backgroundDurationEnabled) {
+            // hits tracked before the application went to the background are not tagged
+            final long backgroundSinceMillis = appStateProvider.getBackgroundSinceMillis();
+            if (backgroundSinceMillis >= 0 && timestampMillis >= backgroundSinceMillis) {
+                hitBuilder.putContextData(AnalyticsConstants.ContextDataKeys.BACKGROUND_DURATION,
+                        String.valueOf(timestampMillis - backgroundSinceMillis));
+            }
+        }
+
+        if (privacyStatus == PrivacyStatus.UNKNOWN) {
+            hitBuilder.putContextData(AnalyticsConstants.AnalyticsRequestKeys.PRIVACY_MODE, "unknown");
+        }
+
+        if (eventIdentifier != null) {
+            hitBuilder.putContextData(AnalyticsConstants.ContextDataKeys.EVENT_IDENTIFIER, eventIdentifier);
+        }
+    }
+
+    /**
+     * Helper method to get the correct action prefix.
+     *
+     * @param isInternalAction A boolean signaling if the track request is internal.
+     *
+     * @return The action prefix {@link String} corresponding to the type of track request.
+     */
+    private String getActionPrefix(final boolean isInternalAction) {
+        return isInternalAction ? AnalyticsConstants.INTERNAL_ACTION_PREFIX : AnalyticsConstants.ACTION_PREFIX;
+    }
+
+    /**
+     * Returns the given timestamp as a string, reusing the string built for the previous hit if it has the same
+     * timestamp.
+     *
+     * @param timestampSeconds the timestamp in seconds
+     *
+     * @return the timestamp string
+     */
+    private String getTimestampString(final long timestampSeconds) {
+        if (timestampSeconds != lastTimestampSeconds || lastTimestampString == null) {
+            lastTimestampString = Long.toString(timestampSeconds);
+            lastTimestampSeconds = timestampSeconds;
+        }
+
+        return lastTimestampString;
+    }
+
+    /**
+     * Helper method to get the correct action key.
+     *
+     * @param isInternalAction A boolean signaling if the track request is internal.
+     *
+     * @return The action key {@link String} corresponding to the type of track request.
+     */
+    private String getActionKey(final boolean isInternalAction) {
+        return isInternalAction ? AnalyticsConstants.ContextDataKeys.INTERNAL_ACTION :
+                AnalyticsConstants.ContextDataKeys.ACTION;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, String> getContextData(final Map<String, Object> data) {
+        return (Map<String, String>) data.get(AnalyticsConstants.EventDataKeys.CONTEXT_DATA);
+    }
+
+    private static int getInt(final Map<String, Object> configuration, final String key, final int defaultValue) {
+        final Object value = configuration == null ? null : configuration.get(key);
+        return value instanceof Number ? ((Number) value).intValue() : defaultValue;
+    }
+
+    private static long getLong(final Map<String, Object> configuration, final String key, final long defaultValue) {
+        final Object value = configuration == null ? null : configuration.get(key);
+        return value instanceof Number ? ((Number) value).longValue() : defaultValue;
+    }
+
+    private static boolean getBoolean(final Map<String, Object> configuration, final String key, final boolean defaultValue) {
+        final Object value = configuration == null ? null : configuration.get(key);
+        return value instanceof Boolean ? (Boolean) value : defaultValue;
+    }
+
+    private static boolean isNullOrEmpty(final String value) {
+        return value == null || value.isEmpty();
+    }
+
+    private static boolean equals(final Object first, final Object second) {
+        return first == null ? second == null : first.equals(second);
+    }
+}
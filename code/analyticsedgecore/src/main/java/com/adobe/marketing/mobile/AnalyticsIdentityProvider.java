@@ -0,0 +1,43 @@
+/*
+  Copyright 2021 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile;
+
+/**
+ * Provides the identifiers sent with the hits built by the {@link AnalyticsHitProcessor}.
+ */
+interface AnalyticsIdentityProvider {
+
+    /**
+     * Returns the stored Analytics ID.
+     * @return the AID, or null if none is stored
+     */
+    String getAnalyticsId();
+
+    /**
+     * Returns the stored visitor ID.
+     * @return the VID, or null if none is stored
+     */
+    String getVisitorId();
+
+    /**
+     * Returns the stored sampling seed, the sampling bucket is derived from when neither the AID nor the VID is stored.
+     * @return the sampling seed
+     */
+    long getSamplingSeed();
+
+    /**
+     * Returns the application identifier, sent as the page name of the hits without a state.
+     * @return the application identifier, may be null
+     */
+    String getApplicationIdentifier();
+}
@@ -0,0 +1,129 @@
+/*
+  Copyright 2021 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Traces the latency of the hits, from the track request to the hit being handed to the {@link AnalyticsHitDispatcher}.
+ *
+ * <p>
+ * Each event is stamped when it is received by the event listeners and when its processing starts. Once its hit is
+ * dispatched, the time the event waited in the event queue, the time spent processing it and the total time since the
+ * event timestamp are recorded in the {@link AnalyticsMetrics.LatencyHistograms} of its {@link EventKind}. Events which
+ * do not result in a hit are not recorded.
+ *
+ * <p>
+ * In debug mode, one in every {@code analytics.latencyDebugInterval} hits sent while an Assurance session is active
+ * carries its timings in its context data, so they can be inspected along with the hit.
+ *
+ * <p>
+ * This class is not thread safe; it is used from the thread processing the events.
+ */
+final class AnalyticsLatencyTracer {
+
+    /**
+     * The kinds of events the latency is traced for.
+     */
+    enum EventKind {
+        TRACK,
+        RULES
+    }
+
+    private final AnalyticsMetrics metrics;
+    private int debugInterval = AnalyticsConstants.DEFAULT_LATENCY_DEBUG_INTERVAL;
+    private long debugCandidateCount; // hits which could have carried their timings
+    private AnalyticsMetrics.LatencyHistograms histograms; // of the traced event, null when no event is traced
+    private long timestampMillis;
+    private long entryTimeNanos;
+    private long processingStartNanos;
+
+    /**
+     * Constructor.
+     *
+     * @param metrics the {@link AnalyticsMetrics} the latencies are recorded in
+     */
+    AnalyticsLatencyTracer(final AnalyticsMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Sets the debug mode interval.
+     *
+     * @param interval the timings are attached to one in every {@code interval} eligible hits, 0 or less to disable
+     * the debug mode
+     */
+    void setDebugInterval(final int interval) {
+        debugInterval = Math.max(interval, 0);
+    }
+
+    /**
+     * Starts tracing an event, whose processing starts now.
+     *
+     * @param kind the {@link EventKind} of the event
+     * @param timestampMillis the timestamp of the event in milliseconds
+     * @param entryTimeNanos the {@link System#nanoTime()} the event was received at
+     */
+    void begin(final EventKind kind, final long timestampMillis, final long entryTimeNanos) {
+        this.histograms = kind == EventKind.RULES ? metrics.rulesLatency : metrics.trackLatency;
+        this.timestampMillis = timestampMillis;
+        this.entryTimeNanos = entryTimeNanos;
+        this.processingStartNanos = System.nanoTime();
+    }
+
+    /**
+     * Stops tracing the current event.
+     */
+    void end() {
+        histograms = null;
+    }
+
+    /**
+     * Puts the timings of the traced event in the context data of its hit, if the debug mode samples the hit.
+     *
+     * @param hitBuilder the {@link AnalyticsHitBuilder} of the hit
+     * @param eligible true if the hit may carry its timings, typically when an Assurance session is active
+     */
+    void attachTimings(final AnalyticsHitBuilder hitBuilder, final boolean eligible) {
+        if (histograms == null || !eligible || debugInterval <= 0 || debugCandidateCount++ % debugInterval != 0) {
+            return;
+        }
+
+        final long nowNanos = System.nanoTime();
+        hitBuilder.putContextData(AnalyticsConstants.ContextDataKeys.LATENCY_QUEUE_WAIT,
+                String.valueOf(toMillis(processingStartNanos - entryTimeNanos)));
+        hitBuilder.putContextData(AnalyticsConstants.ContextDataKeys.LATENCY_PROCESSING,
+                String.valueOf(toMillis(nowNanos - processingStartNanos)));
+        hitBuilder.putContextData(AnalyticsConstants.ContextDataKeys.LATENCY_TOTAL,
+                String.valueOf(Math.max(System.currentTimeMillis() - timestampMillis, 0)));
+    }
+
+    /**
+     * Records the latencies of the traced event, whose hit was just dispatched.
+     */
+    void recordDispatch() {
+        if (histograms == null) {
+            return;
+        }
+
+        final long dispatchTimeNanos = System.nanoTime();
+        histograms.queueWait.record(toMillis(processingStartNanos - entryTimeNanos));
+        histograms.processing.record(toMillis(dispatchTimeNanos - processingStartNanos));
+        // the event timestamp is a wall clock time, set when the track request was made
+        histograms.total.record(System.currentTimeMillis() - timestampMillis);
+    }
+
+    private static long toMillis(final long durationNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(Math.max(durationNanos, 0));
+    }
+}
@@ -0,0 +1,46 @@
+/*
+  Copyright 2021 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile;
+
+/**
+ * Logs the messages of the hit pipeline, which does not depend on the logging of the Mobile Core.
+ */
+interface AnalyticsLogger {
+
+    /**
+     * The logger which drops all the messages.
+     */
+    AnalyticsLogger NONE = new AnalyticsLogger() {
+        @Override
+        public void debug(final String format, final Object... params) {
+        }
+
+        @Override
+        public void warning(final String format, final Object... params) {
+        }
+    };
+
+    /**
+     * Logs a debug message.
+     * @param format the message format, as used by {@link String#format(String, Object...)}
+     * @param params the message parameters
+     */
+    void debug(final String format, final Object... params);
+
+    /**
+     * Logs a warning message.
+     * @param format the message format, as used by {@link String#format(String, Object...)}
+     * @param params the message parameters
+     */
+    void warning(final String format, final Object... params);
+}
@@ -0,0 +1,276 @@
+/*
+  Copyright 2021 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Runtime metrics of the Analytics Edge extension.
+ *
+ * <p>
+ * Counters are striped so threads recording concurrently do not contend on a single value, and latencies are
+ * recorded in histograms with fixed bucket bounds. Recording never allocates and may be done from any thread, so the
+ * metrics are always enabled. Reading the metrics with {@link #snapshot()} sums the stripes and buckets. The rate of
+ * dispatched hits is computed over the last {@link RateWindow#WINDOW_SECONDS} seconds, so it follows the current load
+ * rather than the average since the extension was registered.
+ */
+final class AnalyticsMetrics {
+    final StripedCounter eventsQueued = new StripedCounter();
+    final StripedCounter eventsProcessed = new StripedCounter();
+    final StripedCounter eventsDroppedOptOut = new StripedCounter();
+    final StripedCounter eventsDroppedMissingData = new StripedCounter();
+    final StripedCounter eventsSampledOut = new StripedCounter();
+    final StripedCounter hitsSuppressed = new StripedCounter();
+    final StripedCounter contextDataKeysFiltered = new StripedCounter();
+    final StripedCounter contextDataTruncated = new StripedCounter();
+    final StripedCounter hitsDroppedOversize = new StripedCounter();
+    final StripedCounter hitsDispatched = new StripedCounter();
+    final RateWindow hitsDispatchedRate = new RateWindow();
+    final Histogram eventLatency = new Histogram();
+    final Histogram configurationWait = new Histogram();
+    final LatencyHistograms trackLatency = new LatencyHistograms();
+    final LatencyHistograms rulesLatency = new LatencyHistograms();
+    private final long startTimeMillis = System.currentTimeMillis();
+    private volatile long registrationTimeMicros;
+    private volatile long identifierLoadTimeMicros;
+
+    /**
+     * Sets the time spent in the extension constructor, on the registration path.
+     *
+     * @param durationMicros the duration in microseconds
+     */
+    void setRegistrationTime(final long durationMicros) {
+        registrationTimeMicros = durationMicros;
+    }
+
+    /**
+     * Sets the time spent loading the AID, VID and application identifier, off the registration path.
+     *
+     * @param durationMicros the duration in microseconds
+     */
+    void setIdentifierLoadTime(final long durationMicros) {
+        identifierLoadTimeMicros = durationMicros;
+    }
+
+    /**
+     * Reads the current value of all the metrics.
+     *
+     * @return the metric values keyed by the {@link AnalyticsConstants.MetricsKeys} names
+     */
+    Map<String, Object> snapshot() {
+        final Map<String, Object> metrics = new HashMap<>();
+        final long nowMillis = System.currentTimeMillis();
+        final long uptimeMillis = Math.max(nowMillis - startTimeMillis, 1);
+        final long hitCount = hitsDispatched.sum();
+
+        metrics.put(AnalyticsConstants.MetricsKeys.EVENTS_QUEUED, eventsQueued.sum());
+        metrics.put(AnalyticsConstants.MetricsKeys.EVENTS_PROCESSED, eventsProcessed.sum());
+        metrics.put(AnalyticsConstants.MetricsKeys.EVENTS_DROPPED_OPT_OUT, eventsDroppedOptOut.sum());
+        metrics.put(AnalyticsConstants.MetricsKeys.EVENTS_DROPPED_MISSING_DATA, eventsDroppedMissingData.sum());
+        metrics.put(AnalyticsConstants.MetricsKeys.EVENTS_SAMPLED_OUT, eventsSampledOut.sum());
+        metrics.put(AnalyticsConstants.MetricsKeys.HITS_SUPPRESSED, hitsSuppressed.sum());
+        metrics.put(AnalyticsConstants.MetricsKeys.CONTEXT_DATA_KEYS_FILTERED, contextDataKeysFiltered.sum());
+        metrics.put(AnalyticsConstants.MetricsKeys.CONTEXT_DATA_TRUNCATED, contextDataTruncated.sum());
+        metrics.put(AnalyticsConstants.MetricsKeys.HITS_DROPPED_OVERSIZE, hitsDroppedOversize.sum());
+        metrics.put(AnalyticsConstants.MetricsKeys.HITS_DISPATCHED, hitCount);
+        metrics.put(AnalyticsConstants.MetricsKeys.HITS_DISPATCHED_PER_SECOND, 
+                hitsDispatchedRate.perSecond(nowMillis, uptimeMillis));
+        metrics.put(AnalyticsConstants.MetricsKeys.UPTIME, uptimeMillis);
+        metrics.put(AnalyticsConstants.MetricsKeys.REGISTRATION_TIME, registrationTimeMicros);
+        metrics.put(AnalyticsConstants.MetricsKeys.IDENTIFIER_LOAD_TIME, identifierLoadTimeMicros);
+        eventLatency.snapshot(AnalyticsConstants.MetricsKeys.EVENT_LATENCY, metrics);
+        configurationWait.snapshot(AnalyticsConstants.MetricsKeys.CONFIGURATION_WAIT, metrics);
+        trackLatency.snapshot(AnalyticsConstants.MetricsKeys.TRACK_LATENCY, metrics);
+        rulesLatency.snapshot(AnalyticsConstants.MetricsKeys.RULES_LATENCY, metrics);
+        return metrics;
+    }
+
+    /**
+     * Counter split in cells indexed by the recording thread, so concurrent increments mostly update different
+     * cache lines. The value of the counter is the sum of its cells.
+     */
+    static final class StripedCounter {
+        private static final int STRIPES = 8; // a power of two
+        private static final int CELL_SPACING = 8; // longs per stripe, so each stripe has its own cache line
+
+        private final AtomicLongArray cells = new AtomicLongArray(STRIPES * CELL_SPACING);
+
+        void increment() {
+            add(1);
+        }
+
+        void add(final long delta) {
+            cells.getAndAdd(cellIndex(), delta);
+        }
+
+        long sum() {
+            long sum = 0;
+
+            for (int i = 0; i < STRIPES; i++) {
+                sum += cells.get(i * CELL_SPACING);
+            }
+
+            return sum;
+        }
+
+        private static int cellIndex() {
+            return ((int) Thread.currentThread().getId() & (STRIPES - 1)) * CELL_SPACING;
+        }
+    }
+
+    /**
+     * Number of occurrences per second over a sliding window, kept in one bucket per second of the window. Buckets
+     * are reused once their second left the window, so recording does not allocate.
+     */
+    static final class RateWindow {
+        static final int WINDOW_SECONDS = 10;
+
+        private final long[] bucketSeconds = new long[WINDOW_SECONDS];
+        private final long[] bucketCounts = new long[WINDOW_SECONDS];
+
+        /**
+         * Records one occurrence.
+         *
+         * @param nowMillis the current time in milliseconds
+         */
+        synchronized void record(final long nowMillis) {
+            final long second = nowMillis / 1000;
+            final int bucket = (int) (second % WINDOW_SECONDS);
+
+            if (bucketSeconds[bucket] != second) {
+                bucketSeconds[bucket] = second;
+                bucketCounts[bucket] = 0;
+            }
+
+            bucketCounts[bucket]++;
+        }
+
+        /**
+         * Computes the rate of occurrences over the window ending now, which spans the current second and the
+         * previous {@link #WINDOW_SECONDS} - 1 seconds, or the given uptime if it is shorter.
+         *
+         * @param nowMillis the current time in milliseconds
+         * @param uptimeMillis the time since recording started in milliseconds
+         * @return the number of occurrences per second
+         */
+        synchronized long perSecond(final long nowMillis, final long uptimeMillis) {
+            final long second = nowMillis / 1000;
+            long count = 0;
+
+            for (int i = 0; i < WINDOW_SECONDS; i++) {
+                if (second - bucketSeconds[i] < WINDOW_SECONDS && bucketSeconds[i] <= second) {
+                    count += bucketCounts[i];
+                }
+            }
+
+            final long windowMillis = (WINDOW_SECONDS - 1) * 1000L + nowMillis % 1000;
+            return count * 1000 / Math.max(Math.min(windowMillis, uptimeMillis), 1);
+        }
+    }
+
+    /**
+     * Histogram of durations in milliseconds with fixed bucket bounds. Percentiles are estimated as the upper bound of
+     * the bucket holding the requested rank, or as the maximum recorded value for the last, unbounded, bucket.
+     */
+    static final class Histogram {
+        static final long[] BUCKET_BOUNDS_MILLIS = {1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000};
+
+        private final AtomicLongArray bucketCounts = new AtomicLongArray(BUCKET_BOUNDS_MILLIS.length + 1);
+        private final StripedCounter total = new StripedCounter();
+        private final AtomicLong max = new AtomicLong();
+
+        /**
+         * Records a duration.
+         *
+         * @param durationMillis the duration in milliseconds, negative values are recorded as zero
+         */
+        void record(final long durationMillis) {
+            final long value = Math.max(durationMillis, 0);
+            int bucket = 0;
+
+            while (bucket < BUCKET_BOUNDS_MILLIS.length && value > BUCKET_BOUNDS_MILLIS[bucket]) {
+                bucket++;
+            }
+
+            bucketCounts.incrementAndGet(bucket);
+            total.add(value);
+
+            long currentMax;
+            while (value > (currentMax = max.get()) && !max.compareAndSet(currentMax, value)) {
+                // retry until the maximum is at least the recorded value
+            }
+        }
+
+        long count() {
+            long count = 0;
+
+            for (int i = 0; i < bucketCounts.length(); i++) {
+                count += bucketCounts.get(i);
+            }
+
+            return count;
+        }
+
+        /**
+         * Estimates the value under which the given fraction of the recorded durations fall.
+         *
+         * @param fraction the fraction of the durations, between 0 and 1
+         * @return the estimated percentile in milliseconds, or 0 if no duration was recorded
+         */
+        long percentile(final double fraction) {
+            final long count = count();
+            if (count == 0) {
+                return 0;
+            }
+
+            final long rank = Math.max((long) Math.ceil(count * fraction), 1);
+            long cumulativeCount = 0;
+
+            for (int i = 0; i < BUCKET_BOUNDS_MILLIS.length; i++) {
+                cumulativeCount += bucketCounts.get(i);
+                if (cumulativeCount >= rank) {
+                    return Math.min(BUCKET_BOUNDS_MILLIS[i], max.get());
+                }
+            }
+
+            return max.get();
+        }
+
+        private void snapshot(final String name, final Map<String, Object> metrics) {
+            metrics.put(name + AnalyticsConstants.MetricsKeys.HISTOGRAM_COUNT, count());
+            metrics.put(name + AnalyticsConstants.MetricsKeys.HISTOGRAM_TOTAL, total.sum());
+            metrics.put(name + AnalyticsConstants.MetricsKeys.HISTOGRAM_P50, percentile(0.5));
+            metrics.put(name + AnalyticsConstants.MetricsKeys.HISTOGRAM_P95, percentile(0.95));
+            metrics.put(name + AnalyticsConstants.MetricsKeys.HISTOGRAM_P99, percentile(0.99));
+        }
+    }
+
+    /**
+     * Histograms of the latency of the hits of one kind of event, split in the time the events waited in the event
+     * queue, the time spent processing them and the total time from the track request to the dispatch of the hit.
+     */
+    static final class LatencyHistograms {
+        final Histogram queueWait = new Histogram();
+        final Histogram processing = new Histogram();
+        final Histogram total = new Histogram();
+
+        private void snapshot(final String prefix, final Map<String, Object> metrics) {
+            queueWait.snapshot(prefix + AnalyticsConstants.MetricsKeys.LATENCY_QUEUE_WAIT, metrics);
+            processing.snapshot(prefix + AnalyticsConstants.MetricsKeys.LATENCY_PROCESSING, metrics);
+            total.snapshot(prefix + AnalyticsConstants.MetricsKeys.LATENCY_TOTAL, metrics);
+        }
+    }
+}
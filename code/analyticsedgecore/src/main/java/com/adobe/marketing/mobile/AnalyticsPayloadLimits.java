@@ -0,0 +1,133 @@
+/*
+  Copyright 2021 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile;
+
+/**
+ * Limits on the size of the {@code _legacy.analytics} payload of a hit, applied by {@link AnalyticsHitBuilder}.
+ *
+ * <p>
+ * The context data of a track request is capped by a number of entries and a value length, in characters. The
+ * payload as a whole is capped by its estimated size in bytes once encoded: the UTF-8 length of the keys and values
+ * plus the quotes and separators of a JSON object, counted while the hit is built without encoding it. A limit of
+ * zero or less is not applied. The limits are immutable.
+ */
+final class AnalyticsPayloadLimits {
+    // the quotes around the key and the value, the colon and the comma of an entry
+    static final int ENTRY_OVERHEAD_BYTES = 6;
+    // the braces of the payload, the quoted context data key with its colon and the braces of the context data map
+    static final int PAYLOAD_OVERHEAD_BYTES = 8;
+
+    /**
+     * The limits which are never reached.
+     */
+    static final AnalyticsPayloadLimits NONE = new AnalyticsPayloadLimits(0, 0, 0);
+
+    final int maxContextDataEntries;
+    final int maxContextDataValueLength;
+    final int maxPayloadBytes;
+
+    /**
+     * Constructor.
+     *
+     * @param maxContextDataEntries the maximum number of context data entries of a track request kept in the hit
+     * @param maxContextDataValueLength the maximum length of a context data value of a track request
+     * @param maxPayloadBytes the maximum estimated size in bytes of the payload
+     */
+    AnalyticsPayloadLimits(final int maxContextDataEntries, final int maxContextDataValueLength, final int maxPayloadBytes) {
+        this.maxContextDataEntries = maxContextDataEntries;
+        this.maxContextDataValueLength = maxContextDataValueLength;
+        this.maxPayloadBytes = maxPayloadBytes;
+    }
+
+    /**
+     * @return true if the number of context data entries is limited
+     */
+    boolean limitsContextDataEntries() {
+        return maxContextDataEntries > 0;
+    }
+
+    /**
+     * @return true if the estimated size of the payload is limited
+     */
+    boolean limitsPayloadBytes() {
+        return maxPayloadBytes > 0;
+    }
+
+    /**
+     * Truncates a context data value longer than the maximum length. A surrogate pair is never split, so the value
+     * may be truncated to one character less than the maximum.
+     *
+     * @param value the context data value, may be null
+     * @return the value, or its first characters if it is too long
+     */
+    String truncate(final String value) {
+        if (maxContextDataValueLength <= 0 || value == null || value.length() <= maxContextDataValueLength) {
+            return value;
+        }
+
+        int length = maxContextDataValueLength;
+        if (Character.isHighSurrogate(value.charAt(length - 1))) {
+            length--;
+        }
+
+        return value.substring(0, length);
+    }
+
+    /**
+     * Estimates the size in bytes of an entry of the payload.
+     *
+     * @param key the entry key
+     * @param value the entry value
+     * @return the estimated size in bytes
+     */
+    static int estimateEntrySize(final String key, final Object value) {
+        return ENTRY_OVERHEAD_BYTES + utf8Length(key) + (value instanceof String ? utf8Length((String) value) :
+                utf8Length(String.valueOf(value)));
+    }
+
+    /**
+     * Counts the bytes of the UTF-8 encoding of a string without encoding it. An unpaired surrogate is counted as 3
+     * bytes.
+     *
+     * @param value the string, may be null
+     * @return the length in bytes, or 0 if {@code value} is null
+     */
+    static int utf8Length(final String value) {
+        if (value == null) {
+            return 0;
+        }
+
+        final int length = value.length();
+        int byteCount = length;
+
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+
+            if (c < 0x80) {
+                continue;
+            }
+
+            if (c < 0x800) {
+                byteCount += 1;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                // the pair is 2 chars encoded in 4 bytes
+                byteCount += 2;
+                i++;
+            } else {
+                byteCount += 2;
+            }
+        }
+
+        return byteCount;
+    }
+}
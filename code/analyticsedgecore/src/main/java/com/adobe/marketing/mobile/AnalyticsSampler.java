@@ -0,0 +1,171 @@
+/*
+  Copyright 2021 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Deterministic client-side sampling of the track hits.
+ *
+ * <p>
+ * The sampling rate of a hit is the rate configured for its action, else the rate configured for its state, else the
+ * global rate. Each visitor is assigned a fixed bucket derived from a hash of the AID and VID, and a hit is sampled in
+ * when the bucket is below the rate, so all the hits of a visitor sent at the same rate are sampled in or out together.
+ * When neither identifier is available, the bucket is derived from the sampling seed persisted by the extension, so it
+ * does not change between launches either.
+ *
+ * <p>
+ * This class is not thread safe; the {@link AnalyticsHitProcessor} uses it from the thread processing the hits only.
+ */
+final class AnalyticsSampler {
+    static final double DEFAULT_RATE = 1.0;
+    private static final long BUCKET_COUNT = 1L << 32;
+
+    /**
+     * The rate applied to the hits sampled in when no rate is configured.
+     */
+    static final Rate FULL_RATE = new Rate(DEFAULT_RATE);
+
+    private final AnalyticsLogger logger;
+    private Rate globalRate = FULL_RATE;
+    private Map<String, Rate> actionRates = Collections.emptyMap();
+    private Map<String, Rate> stateRates = Collections.emptyMap();
+    private long visitorBucket; // every hit with a non zero rate is sampled in until the visitor is set
+
+    /**
+     * Constructor, with a logger which drops the messages.
+     */
+    AnalyticsSampler() {
+        this(AnalyticsLogger.NONE);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param logger the {@link AnalyticsLogger} the invalid rates are logged to
+     */
+    AnalyticsSampler(final AnalyticsLogger logger) {
+        this.logger = logger;
+    }
+
+    /**
+     * Sets the visitor the sampling decisions are made for.
+     *
+     * @param analyticsId the stored AID, may be null
+     * @param visitorId the stored VID, may be null
+     * @param samplingSeed the stored sampling seed, used when neither identifier is available
+     */
+    void setVisitor(final String analyticsId, final String visitorId, final long samplingSeed) {
+        if ((analyticsId == null || analyticsId.isEmpty()) && (visitorId == null || visitorId.isEmpty())) {
+            visitorBucket = AnalyticsHashing.mix(samplingSeed) >>> 32;
+            return;
+        }
+
+        long hash = AnalyticsHashing.hash(AnalyticsHashing.FNV_OFFSET_BASIS, analyticsId);
+        // separates the identifiers so that moving characters from one to the other changes the hash
+        hash = AnalyticsHashing.combine(hash, '|');
+        hash = AnalyticsHashing.hash(hash, visitorId);
+        visitorBucket = AnalyticsHashing.mix(hash) >>> 32;
+    }
+
+    /**
+     * Sets the sampling rates.
+     *
+     * @param globalRate the rate of the hits without an action or state override, may be null
+     * @param actionRates the rates keyed by action name, may be null
+     * @param stateRates the rates keyed by state name, may be null
+     */
+    void setRates(final Object globalRate, final Object actionRates, final Object stateRates) {
+        this.globalRate = toRate(globalRate, FULL_RATE);
+        this.actionRates = toRates(actionRates);
+        this.stateRates = toRates(stateRates);
+    }
+
+    /**
+     * Returns the rate of the hit with the given action and state, if it is sampled in.
+     *
+     * @param actionName the action name of the hit, may be null
+     * @param stateName the state name of the hit, may be null
+     * @return the applied {@link Rate}, or null if the hit is sampled out
+     */
+    Rate sample(final String actionName, final String stateName) {
+        Rate rate = null;
+
+        if (actionName != null && !actionRates.isEmpty()) {
+            rate = actionRates.get(actionName);
+        }
+
+        if (rate == null && stateName != null && !stateRates.isEmpty()) {
+            rate = stateRates.get(stateName);
+        }
+
+        if (rate == null) {
+            rate = globalRate;
+        }
+
+        return visitorBucket < rate.threshold ? rate : null;
+    }
+
+    private Rate toRate(final Object value, final Rate defaultRate) {
+        if (!(value instanceof Number)) {
+            return defaultRate;
+        }
+
+        final double rate = ((Number) value).doubleValue();
+        if (Double.isNaN(rate) || rate < 0 || rate > 1) {
+            logger.debug("setRates - Ignoring invalid sampling rate %s.", value);
+            return defaultRate;
+        }
+
+        return rate == DEFAULT_RATE ? FULL_RATE : new Rate(rate);
+    }
+
+    private Map<String, Rate> toRates(final Object value) {
+        if (!(value instanceof Map) || ((Map<?, ?>) value).isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        final Map<String, Rate> rates = new HashMap<>();
+
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+            final Rate rate = toRate(entry.getValue(), null);
+
+            if (entry.getKey() instanceof String && rate != null) {
+                rates.put((String) entry.getKey(), rate);
+            }
+        }
+
+        return rates;
+    }
+
+    /**
+     * A sampling rate, with the string sent in the context data of the sampled in hits.
+     */
+    static final class Rate {
+        final double value;
+        final String text;
+        private final long threshold;
+
+        Rate(final double value) {
+            this.value = value;
+            this.text = Double.toString(value);
+            this.threshold = value >= 1 ? BUCKET_COUNT : (long) (value * BUCKET_COUNT);
+        }
+
+        boolean isFullRate() {
+            return threshold == BUCKET_COUNT;
+        }
+    }
+}
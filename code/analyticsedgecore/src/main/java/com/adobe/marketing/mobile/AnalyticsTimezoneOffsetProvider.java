@@ -0,0 +1,96 @@
+/*
+  Copyright 2021 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile;
+
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Provides the formatted timestamp sent as the {@code t} variable of the analytics hits.
+ *
+ * <p>
+ * The backend platform only processes the timezone offset from this string, so it is an all 0 string except for the
+ * offset in minutes. The string is cached and the offset of the default timezone is checked again at most once per
+ * {@link #REFRESH_INTERVAL_MILLIS}, so a daylight saving time switch is picked up within a minute without any per-hit
+ * calendar work. {@link #invalidate()} forces the check on the next call; the extension calls it when the system
+ * reports a timezone change.
+ *
+ * <p>
+ * The {@link AnalyticsHitProcessor} gets the timestamp from the thread processing the hits only;
+ * {@link #invalidate()} may be called from any thread.
+ */
+final class AnalyticsTimezoneOffsetProvider {
+    static final long REFRESH_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final String TIMESTAMP_PREFIX = "00/00/0000 00:00:00 0 ";
+
+    private volatile boolean invalidated;
+    private long nextRefreshTimeMillis = Long.MIN_VALUE;
+    private long lastRefreshTimeMillis;
+    private int offsetMinutes;
+    private String timestampTimezoneOffset;
+
+    /**
+     * @return the formatted timestamp holding the current timezone offset
+     */
+    String getTimestampTimezoneOffset() {
+        return getTimestampTimezoneOffset(System.currentTimeMillis());
+    }
+
+    /**
+     * Returns the formatted timestamp holding the timezone offset at the given time.
+     *
+     * @param timeMillis the current time in milliseconds
+     * @return the formatted timestamp
+     */
+    String getTimestampTimezoneOffset(final long timeMillis) {
+        // the wall clock moving backwards also triggers a refresh
+        if (timeMillis >= nextRefreshTimeMillis || timeMillis < lastRefreshTimeMillis || invalidated) {
+            // cleared first so an invalidation during the refresh triggers another one
+            invalidated = false;
+            refresh(timeMillis);
+        }
+
+        return timestampTimezoneOffset;
+    }
+
+    /**
+     * Forces the timezone offset to be checked on the next call, for instance after the system timezone changed.
+     */
+    void invalidate() {
+        invalidated = true;
+    }
+
+    private void refresh(final long timeMillis) {
+        final int currentOffsetMinutes = getTimezoneOffsetMinutes(TimeZone.getDefault(), timeMillis);
+
+        if (timestampTimezoneOffset == null || currentOffsetMinutes != offsetMinutes) {
+            offsetMinutes = currentOffsetMinutes;
+            timestampTimezoneOffset = TIMESTAMP_PREFIX + currentOffsetMinutes;
+        }
+
+        lastRefreshTimeMillis = timeMillis;
+        nextRefreshTimeMillis = timeMillis + REFRESH_INTERVAL_MILLIS;
+    }
+
+    /**
+     * Returns the offset of the given timezone from UTC, including daylight saving time, as the number of minutes to
+     * add to the local time to get UTC. The offset is positive west of UTC.
+     *
+     * @param timeZone the timezone
+     * @param timeMillis the time at which the offset is computed
+     * @return the offset in minutes
+     */
+    static int getTimezoneOffsetMinutes(final TimeZone timeZone, final long timeMillis) {
+        return (int) TimeUnit.MILLISECONDS.toMinutes(-timeZone.getOffset(timeMillis));
+    }
+}
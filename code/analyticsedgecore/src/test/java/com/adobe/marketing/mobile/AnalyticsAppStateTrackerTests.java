@@ -0,0 +1,64 @@
+/*
+  Copyright 2021 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class AnalyticsAppStateTrackerTests {
+
+    private final AnalyticsAppStateTracker appStateTracker = new AnalyticsAppStateTracker();
+
+    @Test
+    public void test_getAppState_UnknownByDefault() {
+        // verify
+        assertEquals(AnalyticsAppStateProvider.AppState.UNKNOWN, appStateTracker.getAppState());
+        assertEquals(-1, appStateTracker.getBackgroundSinceMillis());
+    }
+
+    @Test
+    public void test_setAppState_KeepsFirstReportOfTransition() {
+        // test
+        appStateTracker.setAppState(AnalyticsAppStateProvider.AppState.BACKGROUND, 1000L);
+        appStateTracker.setAppState(AnalyticsAppStateProvider.AppState.BACKGROUND, 2000L);
+
+        // verify
+        assertEquals(AnalyticsAppStateProvider.AppState.BACKGROUND, appStateTracker.getAppState());
+        assertEquals(1000L, appStateTracker.getBackgroundSinceMillis());
+
+        // test
+        appStateTracker.setAppState(AnalyticsAppStateProvider.AppState.FOREGROUND, 3000L);
+
+        // verify
+        assertEquals(AnalyticsAppStateProvider.AppState.FOREGROUND, appStateTracker.getAppState());
+        assertEquals(-1, appStateTracker.getBackgroundSinceMillis());
+    }
+
+    @Test
+    public void test_setInitialAppState_IgnoredAfterTransition() {
+        // test
+        appStateTracker.setInitialAppState(AnalyticsAppStateProvider.AppState.BACKGROUND);
+
+        // verify
+        assertEquals(AnalyticsAppStateProvider.AppState.BACKGROUND, appStateTracker.getAppState());
+        assertEquals(-1, appStateTracker.getBackgroundSinceMillis());
+
+        // test
+        appStateTracker.setAppState(AnalyticsAppStateProvider.AppState.FOREGROUND, 1000L);
+        appStateTracker.setInitialAppState(AnalyticsAppStateProvider.AppState.BACKGROUND);
+
+        // verify
+        assertEquals(AnalyticsAppStateProvider.AppState.FOREGROUND, appStateTracker.getAppState());
+    }
+}
@@ -0,0 +1,97 @@
+/*
+  Copyright 2021 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class AnalyticsContextDataFilterTests {
+
+    @Test
+    public void test_compile_NoListReturnsAllowAll() {
+        // verify
+        assertSame(AnalyticsContextDataFilter.ALLOW_ALL, AnalyticsContextDataFilter.compile(null, null));
+        assertSame(AnalyticsContextDataFilter.ALLOW_ALL, AnalyticsContextDataFilter.compile(Collections.emptyList(), "secret"));
+        assertFalse(AnalyticsContextDataFilter.ALLOW_ALL.isEnabled());
+        assertTrue(AnalyticsContextDataFilter.ALLOW_ALL.isAllowed("key"));
+    }
+
+    @Test
+    public void test_isAllowed_Denylist() {
+        // setup
+        AnalyticsContextDataFilter filter = AnalyticsContextDataFilter.compile(null, Arrays.asList("secret", "pii.*", 1));
+
+        // verify
+        assertTrue(filter.isEnabled());
+        assertFalse(filter.isAllowed("secret"));
+        assertFalse(filter.isAllowed("pii."));
+        assertFalse(filter.isAllowed("pii.email"));
+        assertTrue(filter.isAllowed("secrets"));
+        assertTrue(filter.isAllowed("secre"));
+        assertTrue(filter.isAllowed("pii"));
+        assertTrue(filter.isAllowed("key"));
+    }
+
+    @Test
+    public void test_isAllowed_Allowlist() {
+        // setup
+        AnalyticsContextDataFilter filter = AnalyticsContextDataFilter.compile(Arrays.asList("a.*", "key", "&&products"), null);
+
+        // verify
+        assertTrue(filter.isAllowed("a.action"));
+        assertTrue(filter.isAllowed("key"));
+        assertTrue(filter.isAllowed("&&products"));
+        assertFalse(filter.isAllowed("keys"));
+        assertFalse(filter.isAllowed("b.action"));
+        assertFalse(filter.isAllowed("&&events"));
+    }
+
+    @Test
+    public void test_isAllowed_DenylistOverridesAllowlist() {
+        // setup
+        AnalyticsContextDataFilter filter = AnalyticsContextDataFilter.compile(Collections.singletonList("user.*"),
+                Collections.singletonList("user.email"));
+
+        // verify
+        assertTrue(filter.isAllowed("user.name"));
+        assertFalse(filter.isAllowed("user.email"));
+        assertFalse(filter.isAllowed("other"));
+    }
+
+    @Test
+    public void test_isAllowed_WildcardMatchesAllKeys() {
+        // setup
+        AnalyticsContextDataFilter filter = AnalyticsContextDataFilter.compile(null, Collections.singletonList(AnalyticsContextDataFilter.PREFIX_WILDCARD));
+
+        // verify
+        assertFalse(filter.isAllowed(""));
+        assertFalse(filter.isAllowed("key"));
+    }
+
+    @Test
+    public void test_isAllowed_NullKey() {
+        // setup
+        AnalyticsContextDataFilter allowlistFilter = AnalyticsContextDataFilter.compile(Collections.singletonList("key"), null);
+        AnalyticsContextDataFilter denylistFilter = AnalyticsContextDataFilter.compile(null, Collections.singletonList("key"));
+
+        // verify
+        assertFalse(allowlistFilter.isAllowed(null));
+        assertTrue(denylistFilter.isAllowed(null));
+    }
+}
@@ -0,0 +1,59 @@
+/*
+  Copyright 2021 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class AnalyticsHashingTests {
+
+    @Test
+    public void test_hash_MatchesFnv1aReferenceValues() {
+        // verify
+        assertEquals(AnalyticsHashing.FNV_OFFSET_BASIS, AnalyticsHashing.hash(AnalyticsHashing.FNV_OFFSET_BASIS, ""));
+        assertEquals(0xaf63dc4c8601ec8cL, AnalyticsHashing.hash(AnalyticsHashing.FNV_OFFSET_BASIS, "a"));
+        assertEquals(0x85944171f73967e8L, AnalyticsHashing.hash(AnalyticsHashing.FNV_OFFSET_BASIS, "foobar"));
+    }
+
+    @Test
+    public void test_hash_NullLeavesHashUnchanged() {
+        // verify
+        assertEquals(AnalyticsHashing.FNV_OFFSET_BASIS, AnalyticsHashing.hash(AnalyticsHashing.FNV_OFFSET_BASIS, null));
+    }
+
+    @Test
+    public void test_hashField_NullAndEmptyDiffer() {
+        // verify
+        assertNotEquals(AnalyticsHashing.hashField(AnalyticsHashing.FNV_OFFSET_BASIS, null),
+                AnalyticsHashing.hashField(AnalyticsHashing.FNV_OFFSET_BASIS, ""));
+    }
+
+    @Test
+    public void test_hashField_ConsecutiveFieldsNotConfused() {
+        // setup
+        final long ab = AnalyticsHashing.hashField(AnalyticsHashing.hashField(AnalyticsHashing.FNV_OFFSET_BASIS, "a"), "b");
+        final long abEmpty = AnalyticsHashing.hashField(AnalyticsHashing.hashField(AnalyticsHashing.FNV_OFFSET_BASIS, "ab"), "");
+
+        // verify
+        assertNotEquals(ab, abEmpty);
+    }
+
+    @Test
+    public void test_mix_ZeroIsFixedPoint() {
+        // verify
+        assertEquals(0, AnalyticsHashing.mix(0));
+        assertNotEquals(AnalyticsHashing.mix(1), AnalyticsHashing.mix(2));
+    }
+}
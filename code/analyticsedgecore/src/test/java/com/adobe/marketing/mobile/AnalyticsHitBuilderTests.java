@@ -0,0 +1,201 @@
+/*
+  Copyright 2021 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class AnalyticsHitBuilderTests {
+
+
+    @Test
+    public void test_build_SplitsEscapedKeysFromContextData() {
+        // setup
+        Map<String, String> contextData = new HashMap<>();
+        contextData.put("key", "value");
+        contextData.put("&&products", "product");
+        contextData.put("", "empty");
+
+        // test
+        Map<String, Object> hit = new AnalyticsHitBuilder(contextData)
+                .putVar(AnalyticsConstants.AnalyticsRequestKeys.PAGE_NAME, "state")
+                .putContextData(contextData, AnalyticsContextDataFilter.ALLOW_ALL)
+                .build();
+
+        // verify
+        Map<String, String> expectedContextData = new HashMap<>();
+        expectedContextData.put("key", "value");
+        Map<String, Object> expectedHit = new HashMap<>();
+        expectedHit.put(AnalyticsConstants.AnalyticsRequestKeys.PAGE_NAME, "state");
+        expectedHit.put("products", "product");
+        expectedHit.put(AnalyticsConstants.XDMDataKeys.CONTEXT_DATA, expectedContextData);
+        assertEquals(expectedHit, hit);
+    }
+
+    @Test
+    public void test_build_OverridesInOrder() {
+        // setup
+        Map<String, String> contextData = new HashMap<>();
+        contextData.put("&&pageName", "escapedPageName");
+        contextData.put(AnalyticsConstants.ContextDataKeys.ACTION, "trackedAction");
+
+        // test
+        Map<String, Object> hit = new AnalyticsHitBuilder(contextData)
+                .putVar(AnalyticsConstants.AnalyticsRequestKeys.PAGE_NAME, "state")
+                .putContextData(contextData, AnalyticsContextDataFilter.ALLOW_ALL)
+                .putContextData(AnalyticsConstants.ContextDataKeys.ACTION, "action")
+                .build();
+
+        // verify the escaped keys override the vars and the SDK context data overrides the tracked context data
+        assertEquals("escapedPageName", hit.get(AnalyticsConstants.AnalyticsRequestKeys.PAGE_NAME));
+        Map<String, String> hitContextData = (Map<String, String>) hit.get(AnalyticsConstants.XDMDataKeys.CONTEXT_DATA);
+        assertEquals("action", hitContextData.get(AnalyticsConstants.ContextDataKeys.ACTION));
+    }
+
+    @Test
+    public void test_build_NullContextData() {
+        // test
+        Map<String, Object> hit = new AnalyticsHitBuilder(null)
+                .putVar(AnalyticsConstants.AnalyticsRequestKeys.PAGE_NAME, null)
+                .putContextData(null, AnalyticsContextDataFilter.ALLOW_ALL)
+                .build();
+
+        // verify
+        assertEquals(2, hit.size());
+        assertNull(hit.get(AnalyticsConstants.AnalyticsRequestKeys.PAGE_NAME));
+        assertEquals(Collections.emptyMap(), hit.get(AnalyticsConstants.XDMDataKeys.CONTEXT_DATA));
+    }
+
+    @Test
+    public void test_putContextData_FilteredKeysIgnored() {
+        // setup
+        Map<String, String> contextData = new HashMap<>();
+        contextData.put("key", "value");
+        contextData.put("secret", "value");
+        contextData.put("&&products", "product");
+        AnalyticsContextDataFilter keyFilter = AnalyticsContextDataFilter.compile(null, Arrays.asList("secret", "&&*"));
+
+        // test
+        AnalyticsHitBuilder hitBuilder = new AnalyticsHitBuilder(contextData).putContextData(contextData, keyFilter);
+        Map<String, Object> hit = hitBuilder.build();
+
+        // verify
+        assertEquals(2, hitBuilder.getFilteredKeyCount());
+        assertFalse(hit.containsKey("products"));
+        assertEquals(Collections.singletonMap("key", "value"), hit.get(AnalyticsConstants.XDMDataKeys.CONTEXT_DATA));
+    }
+
+    @Test
+    public void test_putContextData_EntriesOverLimitDroppedInKeyOrder() {
+        // setup
+        Map<String, String> contextData = new HashMap<>();
+        contextData.put("c", "3");
+        contextData.put("a", "1");
+        contextData.put("&&b", "2");
+        contextData.put("d", "4");
+        AnalyticsPayloadLimits limits = new AnalyticsPayloadLimits(2, 0, 0);
+
+        // test
+        AnalyticsHitBuilder hitBuilder = new AnalyticsHitBuilder(contextData, limits)
+                .putContextData(contextData, AnalyticsContextDataFilter.ALLOW_ALL)
+                .putContextData(AnalyticsConstants.ContextDataKeys.ACTION, "action");
+        Map<String, Object> hit = hitBuilder.build();
+
+        // verify the SDK context data is not limited
+        assertEquals(2, hitBuilder.getTruncatedCount());
+        assertEquals("2", hit.get("b"));
+        Map<String, String> expectedContextData = new HashMap<>();
+        expectedContextData.put("a", "1");
+        expectedContextData.put(AnalyticsConstants.ContextDataKeys.ACTION, "action");
+        assertEquals(expectedContextData, hit.get(AnalyticsConstants.XDMDataKeys.CONTEXT_DATA));
+    }
+
+    @Test
+    public void test_putContextData_LongValuesTruncated() {
+        // setup
+        Map<String, String> contextData = new HashMap<>();
+        contextData.put("short", "abc");
+        contextData.put("long", "abcdef");
+        contextData.put("&&products", "product");
+
+        // test
+        AnalyticsHitBuilder hitBuilder = new AnalyticsHitBuilder(contextData, new AnalyticsPayloadLimits(0, 4, 0))
+                .putContextData(contextData, AnalyticsContextDataFilter.ALLOW_ALL);
+        Map<String, Object> hit = hitBuilder.build();
+
+        // verify
+        assertEquals(2, hitBuilder.getTruncatedCount());
+        assertEquals("prod", hit.get("products"));
+        Map<String, String> hitContextData = (Map<String, String>) hit.get(AnalyticsConstants.XDMDataKeys.CONTEXT_DATA);
+        assertEquals("abc", hitContextData.get("short"));
+        assertEquals("abcd", hitContextData.get("long"));
+    }
+
+    @Test
+    public void test_isOversized_EstimatedSizeCountedWhileBuilding() {
+        // setup
+        Map<String, String> contextData = new HashMap<>();
+        contextData.put("key", "caf\u00e9");
+        contextData.put("&&pageName", "page");
+        int expectedSize = AnalyticsPayloadLimits.PAYLOAD_OVERHEAD_BYTES
+                + AnalyticsPayloadLimits.ENTRY_OVERHEAD_BYTES + "pageName".length() + "page".length()
+                + AnalyticsPayloadLimits.ENTRY_OVERHEAD_BYTES + "key".length() + 5;
+
+        // test
+        AnalyticsHitBuilder hitBuilder = new AnalyticsHitBuilder(contextData, new AnalyticsPayloadLimits(0, 0, expectedSize))
+                .putVar(AnalyticsConstants.AnalyticsRequestKeys.PAGE_NAME, "state")
+                .putContextData(contextData, AnalyticsContextDataFilter.ALLOW_ALL);
+
+        // verify the escaped page name replaced the page name var
+        assertEquals(expectedSize, hitBuilder.getEstimatedSize());
+        assertFalse(hitBuilder.isOversized());
+        hitBuilder.putContextData(AnalyticsConstants.ContextDataKeys.ACTION, "action");
+        assertTrue(hitBuilder.isOversized());
+    }
+
+    @Test
+    public void test_isOversized_NotLimited() {
+        // test
+        AnalyticsHitBuilder hitBuilder = new AnalyticsHitBuilder(null).putVar(AnalyticsConstants.AnalyticsRequestKeys.PAGE_NAME, "state");
+
+        // verify
+        assertFalse(hitBuilder.isOversized());
+    }
+
+    @Test
+    public void test_createEdgeEventData() {
+        // setup
+        Map<String, Object> hit = new AnalyticsHitBuilder(null).build();
+
+        // test
+        Map<String, Object> eventData = AnalyticsHitBuilder.createEdgeEventData(hit);
+
+        // verify
+        Map<String, String> xdm = (Map<String, String>) eventData.get(AnalyticsConstants.XDMDataKeys.XDM);
+        assertEquals(AnalyticsConstants.ANALYTICS_XDM_EVENTTYPE, xdm.get(AnalyticsConstants.XDMDataKeys.EVENTTYPE));
+        Map<String, Object> edgeEventData = (Map<String, Object>) eventData.get(AnalyticsConstants.XDMDataKeys.DATA);
+        Map<String, Object> edgeLegacyData = (Map<String, Object>) edgeEventData.get(AnalyticsConstants.XDMDataKeys.LEGACY);
+        assertSame(hit, edgeLegacyData.get(AnalyticsConstants.XDMDataKeys.ANALYTICS));
+        assertEquals(1, edgeLegacyData.size());
+    }
+}
@@ -0,0 +1,173 @@
+/*
+  Copyright 2021 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AnalyticsHitDeduplicatorTests {
+
+    private AnalyticsHitDeduplicator createDeduplicator(final long windowMillis) {
+        AnalyticsHitDeduplicator deduplicator = new AnalyticsHitDeduplicator();
+        deduplicator.setWindow(windowMillis);
+        return deduplicator;
+    }
+
+    /**
+     * Looks up the hit and records it as sent if it is not a duplicate, as the {@link AnalyticsHitProcessor} does.
+     */
+    private static boolean send(final AnalyticsHitDeduplicator deduplicator, final String pageName,
+                                final String actionName, final boolean isInternalAction,
+                                final Map<String, String> contextData, final long timeMillis) {
+        final long fingerprint = AnalyticsHitDeduplicator.fingerprint(pageName, actionName, isInternalAction, contextData);
+
+        if (deduplicator.isDuplicate(fingerprint, timeMillis)) {
+            return true;
+        }
+
+        deduplicator.recordSent(fingerprint, timeMillis);
+        return false;
+    }
+
+    @Test
+    public void test_isDuplicate_DisabledByDefault() {
+        // setup
+        AnalyticsHitDeduplicator deduplicator = new AnalyticsHitDeduplicator();
+
+        // verify
+        assertFalse(deduplicator.isEnabled());
+        assertFalse(send(deduplicator, "state", null, false, null, 1000));
+        assertFalse(send(deduplicator, "state", null, false, null, 1000));
+    }
+
+    @Test
+    public void test_isDuplicate_WithinWindow() {
+        // setup
+        AnalyticsHitDeduplicator deduplicator = createDeduplicator(500);
+
+        // test
+        assertFalse(send(deduplicator, "state", null, false, null, 1000));
+
+        // verify
+        assertTrue(send(deduplicator, "state", null, false, null, 1000));
+        assertTrue(send(deduplicator, "state", null, false, null, 1499));
+        assertFalse(send(deduplicator, "state", null, false, null, 1500));
+    }
+
+    @Test
+    public void test_isDuplicate_HitNotRecordedUntilSent() {
+        // setup
+        AnalyticsHitDeduplicator deduplicator = createDeduplicator(500);
+        long fingerprint = AnalyticsHitDeduplicator.fingerprint("state", null, false, null);
+
+        // test
+        assertFalse(deduplicator.isDuplicate(fingerprint, 1000));
+
+        // verify
+        assertFalse(deduplicator.isDuplicate(fingerprint, 1000));
+        deduplicator.recordSent(fingerprint, 1000);
+        assertTrue(deduplicator.isDuplicate(fingerprint, 1000));
+    }
+
+    @Test
+    public void test_isDuplicate_DistinctHits() {
+        // setup
+        AnalyticsHitDeduplicator deduplicator = createDeduplicator(500);
+        Map<String, String> contextData = new HashMap<>();
+        contextData.put("key", "value");
+        Map<String, String> otherContextData = new HashMap<>();
+        otherContextData.put("key", "other");
+
+        // test
+        assertFalse(send(deduplicator, "state", null, false, null, 1000));
+
+        // verify
+        assertFalse(send(deduplicator, "other", null, false, null, 1000));
+        assertFalse(send(deduplicator, "state", "action", false, null, 1000));
+        assertFalse(send(deduplicator, "state", "action", true, null, 1000));
+        assertFalse(send(deduplicator, "state", null, false, contextData, 1000));
+        assertFalse(send(deduplicator, "state", null, false, otherContextData, 1000));
+        assertTrue(send(deduplicator, "state", null, false, contextData, 1000));
+    }
+
+    @Test
+    public void test_fingerprint_IndependentOfContextDataOrder() {
+        // setup
+        Map<String, String> contextData = new LinkedHashMap<>();
+        contextData.put("a", "1");
+        contextData.put("b", "2");
+        Map<String, String> reversedContextData = new LinkedHashMap<>();
+        reversedContextData.put("b", "2");
+        reversedContextData.put("a", "1");
+        Map<String, String> swappedContextData = new LinkedHashMap<>();
+        swappedContextData.put("a", "2");
+        swappedContextData.put("b", "1");
+
+        // verify
+        assertEquals(AnalyticsHitDeduplicator.fingerprint("state", null, false, contextData),
+                AnalyticsHitDeduplicator.fingerprint("state", null, false, reversedContextData));
+        assertTrue(AnalyticsHitDeduplicator.fingerprint("state", null, false, contextData) !=
+                AnalyticsHitDeduplicator.fingerprint("state", null, false, swappedContextData));
+        assertTrue(AnalyticsHitDeduplicator.fingerprint("ab", "c", false, null) !=
+                AnalyticsHitDeduplicator.fingerprint("a", "bc", false, null));
+        assertTrue(AnalyticsHitDeduplicator.fingerprint("state", null, false, null) !=
+                AnalyticsHitDeduplicator.fingerprint("state", "", false, null));
+    }
+
+    @Test
+    public void test_isDuplicate_FullTableNeverSuppressesDistinctHits() {
+        // setup
+        AnalyticsHitDeduplicator deduplicator = createDeduplicator(10000);
+
+        // test
+        for (int i = 0; i < AnalyticsHitDeduplicator.TABLE_SIZE * 4; i++) {
+            // verify
+            assertFalse(send(deduplicator, "state" + i, null, false, null, 1000 + i));
+        }
+
+        // the most recent hit is still tracked
+        assertTrue(send(deduplicator, "state" + (AnalyticsHitDeduplicator.TABLE_SIZE * 4 - 1), null, false, null, 2000));
+    }
+
+    @Test
+    public void test_setWindow_ChangeClearsSentHits() {
+        // setup
+        AnalyticsHitDeduplicator deduplicator = createDeduplicator(500);
+        assertFalse(send(deduplicator, "state", null, false, null, 1000));
+
+        // test
+        deduplicator.setWindow(500);
+        assertTrue(send(deduplicator, "state", null, false, null, 1000));
+        deduplicator.setWindow(1000);
+
+        // verify
+        assertFalse(send(deduplicator, "state", null, false, null, 1000));
+    }
+
+    @Test
+    public void test_isDuplicate_ClockMovedBackwards() {
+        // setup
+        AnalyticsHitDeduplicator deduplicator = createDeduplicator(500);
+        assertFalse(send(deduplicator, "state", null, false, null, 1000));
+
+        // verify
+        assertFalse(send(deduplicator, "state", null, false, null, 900));
+    }
+}
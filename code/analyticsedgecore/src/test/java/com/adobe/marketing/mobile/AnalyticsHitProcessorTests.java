@@ -0,0 +1,263 @@
+/*
+  Copyright 2021 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AnalyticsHitProcessorTests {
+
+    private final List<Map<String, Object>> dispatchedHits = new ArrayList<>();
+    private final AnalyticsMetrics metrics = new AnalyticsMetrics();
+    private AnalyticsAppStateProvider.AppState appState = AnalyticsAppStateProvider.AppState.FOREGROUND;
+    private long backgroundSinceMillis = -1;
+    private AnalyticsHitProcessor hitProcessor;
+
+    @Before
+    public void setup() {
+        hitProcessor = new AnalyticsHitProcessor(metrics,
+                new AnalyticsIdentityProvider() {
+                    @Override
+                    public String getAnalyticsId() {
+                        return "aid";
+                    }
+
+                    @Override
+                    public String getVisitorId() {
+                        return "vid";
+                    }
+
+                    @Override
+                    public long getSamplingSeed() {
+                        return 0;
+                    }
+
+                    @Override
+                    public String getApplicationIdentifier() {
+                        return "appId";
+                    }
+                },
+                new AnalyticsAppStateProvider() {
+                    @Override
+                    public AppState getAppState() {
+                        return appState;
+                    }
+
+                    @Override
+                    public long getBackgroundSinceMillis() {
+                        return backgroundSinceMillis;
+                    }
+                },
+                new AnalyticsHitDispatcher() {
+                    @Override
+                    public void dispatch(final Map<String, Object> hit) {
+                        dispatchedHits.add(hit);
+                    }
+                },
+                AnalyticsLogger.NONE);
+        hitProcessor.updateVisitor();
+    }
+
+    private static Map<String, Object> createTrackData(final String action, final String state) {
+        Map<String, Object> data = new HashMap<>();
+        if (action != null) {
+            data.put(AnalyticsConstants.EventDataKeys.TRACK_ACTION, action);
+        }
+        if (state != null) {
+            data.put(AnalyticsConstants.EventDataKeys.TRACK_STATE, state);
+        }
+        data.put(AnalyticsConstants.EventDataKeys.CONTEXT_DATA, Collections.singletonMap("key", "value"));
+        return data;
+    }
+
+    private static Map<String, Object> createConfiguration(final String privacy) {
+        Map<String, Object> configuration = new HashMap<>();
+        configuration.put(AnalyticsConstants.Configuration.GLOBAL_CONFIG_PRIVACY, privacy);
+        return configuration;
+    }
+
+    @Test
+    public void test_track_BuildsHitFromProviders() {
+        // setup
+        appState = AnalyticsAppStateProvider.AppState.BACKGROUND;
+
+        // test
+        hitProcessor.track(createTrackData("action", null), 1500000000500L, null);
+
+        // verify
+        assertEquals(1, dispatchedHits.size());
+        Map<String, Object> hit = dispatchedHits.get(0);
+        assertEquals("AMACTION:action", hit.get(AnalyticsConstants.AnalyticsRequestKeys.ACTION_NAME));
+        assertEquals("appId", hit.get(AnalyticsConstants.AnalyticsRequestKeys.PAGE_NAME));
+        assertEquals("aid", hit.get(AnalyticsConstants.AnalyticsRequestKeys.ANALYTICS_ID));
+        assertEquals("vid", hit.get(AnalyticsConstants.AnalyticsRequestKeys.VISITOR_ID));
+        assertEquals("1500000000", hit.get(AnalyticsConstants.AnalyticsRequestKeys.STRING_TIMESTAMP));
+        assertEquals(AnalyticsConstants.APP_STATE_BACKGROUND, hit.get(AnalyticsConstants.AnalyticsRequestKeys.CUSTOMER_PERSPECTIVE));
+        Map<String, String> expectedContextData = new HashMap<>();
+        expectedContextData.put("key", "value");
+        expectedContextData.put(AnalyticsConstants.ContextDataKeys.ACTION, "action");
+        expectedContextData.put(AnalyticsConstants.AnalyticsRequestKeys.PRIVACY_MODE, "unknown");
+        assertEquals(expectedContextData, hit.get(AnalyticsConstants.XDMDataKeys.CONTEXT_DATA));
+    }
+
+    @Test
+    public void test_track_EventIdentifierSentAndAppStateUnknown() {
+        // setup
+        appState = AnalyticsAppStateProvider.AppState.UNKNOWN;
+        hitProcessor.updateConfiguration(createConfiguration("optedin"));
+
+        // test
+        hitProcessor.track(createTrackData(null, "state"), 1500000000000L, "eventId");
+
+        // verify
+        Map<String, Object> hit = dispatchedHits.get(0);
+        assertEquals("state", hit.get(AnalyticsConstants.AnalyticsRequestKeys.PAGE_NAME));
+        assertFalse(hit.containsKey(AnalyticsConstants.AnalyticsRequestKeys.CUSTOMER_PERSPECTIVE));
+        Map<String, String> hitContextData = (Map<String, String>) hit.get(AnalyticsConstants.XDMDataKeys.CONTEXT_DATA);
+        assertEquals("eventId", hitContextData.get(AnalyticsConstants.ContextDataKeys.EVENT_IDENTIFIER));
+        assertFalse(hitContextData.containsKey(AnalyticsConstants.AnalyticsRequestKeys.PRIVACY_MODE));
+    }
+
+    @Test
+    public void test_track_OptedOutDropped() {
+        // setup
+        hitProcessor.updateConfiguration(createConfiguration("optedout"));
+
+        // test
+        hitProcessor.track(createTrackData("action", "state"), 1500000000000L, null);
+
+        // verify
+        assertEquals(AnalyticsHitProcessor.PrivacyStatus.OPT_OUT, hitProcessor.getPrivacyStatus());
+        assertTrue(dispatchedHits.isEmpty());
+        assertEquals(1, metrics.eventsDroppedOptOut.sum());
+    }
+
+    @Test
+    public void test_track_MissingDataDropped() {
+        // test
+        hitProcessor.track(null, 1500000000000L, null);
+        hitProcessor.track(Collections.<String, Object>singletonMap("key", "value"), 1500000000000L, null);
+
+        // verify
+        assertTrue(dispatchedHits.isEmpty());
+        assertEquals(2, metrics.eventsDroppedMissingData.sum());
+    }
+
+    @Test
+    public void test_updateConfiguration_AppliesSamplingAndContextDataFilter() {
+        // setup
+        Map<String, Object> configuration = createConfiguration("optedin");
+        configuration.put(AnalyticsConstants.Configuration.ANALYTICS_STATE_SAMPLING_RATES, Collections.singletonMap("sampledOut", 0));
+        configuration.put(AnalyticsConstants.Configuration.ANALYTICS_CONTEXT_DATA_DENYLIST, Collections.singletonList("key"));
+
+        // test
+        hitProcessor.updateConfiguration(configuration);
+        hitProcessor.track(createTrackData(null, "sampledOut"), 1500000000000L, null);
+        hitProcessor.track(createTrackData(null, "state"), 1500000000000L, null);
+
+        // verify
+        assertEquals(1, metrics.eventsSampledOut.sum());
+        assertEquals(1, dispatchedHits.size());
+        assertEquals(Collections.emptyMap(), dispatchedHits.get(0).get(AnalyticsConstants.XDMDataKeys.CONTEXT_DATA));
+        assertEquals(1, metrics.contextDataKeysFiltered.sum());
+    }
+
+    @Test
+    public void test_track_DroppedHitDoesNotSuppressNextHit() {
+        // setup
+        Map<String, Object> configuration = createConfiguration("optedin");
+        configuration.put(AnalyticsConstants.Configuration.ANALYTICS_DEDUPE_WINDOW, 1000);
+        configuration.put(AnalyticsConstants.Configuration.ANALYTICS_MAX_PAYLOAD_BYTES, 10);
+        hitProcessor.updateConfiguration(configuration);
+        hitProcessor.track(createTrackData(null, "state"), 1500000000000L, null);
+        configuration.put(AnalyticsConstants.Configuration.ANALYTICS_MAX_PAYLOAD_BYTES, 1024 * 1024);
+        hitProcessor.updateConfiguration(configuration);
+
+        // test
+        hitProcessor.track(createTrackData(null, "state"), 1500000000100L, null);
+        hitProcessor.track(createTrackData(null, "state"), 1500000000200L, null);
+
+        // verify
+        assertEquals(1, metrics.hitsDroppedOversize.sum());
+        assertEquals(1, dispatchedHits.size());
+        assertEquals(1, metrics.hitsSuppressed.sum());
+    }
+
+    @Test
+    public void test_track_LatencyTimingsAttachedInDebugMode() {
+        // setup
+        Map<String, Object> configuration = createConfiguration("optedin");
+        configuration.put(AnalyticsConstants.Configuration.ANALYTICS_LATENCY_DEBUG_INTERVAL, 2);
+        hitProcessor.updateConfiguration(configuration);
+        AnalyticsLatencyTracer latencyTracer = hitProcessor.getLatencyTracer();
+
+        // test
+        for (int i = 0; i < 3; i++) {
+            latencyTracer.begin(AnalyticsLatencyTracer.EventKind.TRACK, System.currentTimeMillis(), System.nanoTime());
+            hitProcessor.track(createTrackData("action", null), System.currentTimeMillis(), "eventId" + i);
+            latencyTracer.end();
+        }
+        latencyTracer.begin(AnalyticsLatencyTracer.EventKind.TRACK, System.currentTimeMillis(), System.nanoTime());
+        hitProcessor.track(createTrackData("action", null), System.currentTimeMillis(), null);
+        latencyTracer.end();
+
+        // verify
+        assertEquals(4, dispatchedHits.size());
+        assertTrue(getContextData(0).containsKey(AnalyticsConstants.ContextDataKeys.LATENCY_QUEUE_WAIT));
+        assertTrue(getContextData(0).containsKey(AnalyticsConstants.ContextDataKeys.LATENCY_PROCESSING));
+        assertTrue(getContextData(0).containsKey(AnalyticsConstants.ContextDataKeys.LATENCY_TOTAL));
+        assertFalse(getContextData(1).containsKey(AnalyticsConstants.ContextDataKeys.LATENCY_TOTAL));
+        assertTrue(getContextData(2).containsKey(AnalyticsConstants.ContextDataKeys.LATENCY_TOTAL));
+        // hits sent outside an Assurance session never carry their timings
+        assertFalse(getContextData(3).containsKey(AnalyticsConstants.ContextDataKeys.LATENCY_TOTAL));
+        assertEquals(4, metrics.trackLatency.total.count());
+        assertEquals(0, metrics.rulesLatency.total.count());
+    }
+
+    @Test
+    public void test_track_BackgroundDurationSentWhenEnabled() {
+        // setup
+        appState = AnalyticsAppStateProvider.AppState.BACKGROUND;
+        backgroundSinceMillis = 1500000000000L;
+        Map<String, Object> configuration = createConfiguration("optedin");
+        configuration.put(AnalyticsConstants.Configuration.ANALYTICS_BACKGROUND_DURATION, true);
+
+        // test
+        hitProcessor.track(createTrackData("action", null), 1500000002500L, null);
+        hitProcessor.track(createTrackData("action", null), 1499999999000L, null);
+        hitProcessor.updateConfiguration(configuration);
+        hitProcessor.track(createTrackData("action", null), 1500000002500L, null);
+        hitProcessor.track(createTrackData("action", null), 1499999999000L, null);
+
+        // verify
+        assertFalse(getContextData(0).containsKey(AnalyticsConstants.ContextDataKeys.BACKGROUND_DURATION));
+        assertFalse(getContextData(1).containsKey(AnalyticsConstants.ContextDataKeys.BACKGROUND_DURATION));
+        assertEquals("2500", getContextData(2).get(AnalyticsConstants.ContextDataKeys.BACKGROUND_DURATION));
+        // hits tracked before the application went to the background are not tagged
+        assertFalse(getContextData(3).containsKey(AnalyticsConstants.ContextDataKeys.BACKGROUND_DURATION));
+    }
+
+    private Map<String, String> getContextData(final int hitIndex) {
+        return (Map<String, String>) dispatchedHits.get(hitIndex).get(AnalyticsConstants.XDMDataKeys.CONTEXT_DATA);
+    }
+}
@@ -0,0 +1,92 @@
+/*
+  Copyright 2021 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AnalyticsLatencyTracerTests {
+
+    private final AnalyticsMetrics metrics = new AnalyticsMetrics();
+    private final AnalyticsLatencyTracer latencyTracer = new AnalyticsLatencyTracer(metrics);
+
+    @Test
+    public void test_recordDispatch_RecordsLatenciesOfEventKind() {
+        // setup
+        long entryTimeNanos = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(200);
+        long timestampMillis = System.currentTimeMillis() - 300;
+
+        // test
+        latencyTracer.begin(AnalyticsLatencyTracer.EventKind.RULES, timestampMillis, entryTimeNanos);
+        latencyTracer.recordDispatch();
+        latencyTracer.end();
+
+        // verify
+        assertEquals(1, metrics.rulesLatency.queueWait.count());
+        assertEquals(1, metrics.rulesLatency.processing.count());
+        assertEquals(1, metrics.rulesLatency.total.count());
+        assertEquals(0, metrics.trackLatency.total.count());
+        assertTrue(metrics.rulesLatency.queueWait.percentile(0.5) >= 200);
+        assertTrue(metrics.rulesLatency.total.percentile(0.5) >= 300);
+    }
+
+    @Test
+    public void test_recordDispatch_NotTracing() {
+        // test
+        latencyTracer.recordDispatch();
+        latencyTracer.begin(AnalyticsLatencyTracer.EventKind.TRACK, System.currentTimeMillis(), System.nanoTime());
+        latencyTracer.end();
+        latencyTracer.recordDispatch();
+
+        // verify
+        assertEquals(0, metrics.trackLatency.total.count());
+        assertEquals(0, metrics.rulesLatency.total.count());
+    }
+
+    @Test
+    public void test_attachTimings_DebugModeDisabled() {
+        // setup
+        AnalyticsHitBuilder hitBuilder = new AnalyticsHitBuilder(null);
+
+        // test
+        latencyTracer.begin(AnalyticsLatencyTracer.EventKind.TRACK, System.currentTimeMillis(), System.nanoTime());
+        latencyTracer.attachTimings(hitBuilder, true);
+
+        // verify
+        assertEquals(Collections.emptyMap(), hitBuilder.build().get(AnalyticsConstants.XDMDataKeys.CONTEXT_DATA));
+    }
+
+    @Test
+    public void test_attachTimings_QueueWait() {
+        // setup
+        latencyTracer.setDebugInterval(1);
+        AnalyticsHitBuilder hitBuilder = new AnalyticsHitBuilder(null);
+
+        // test
+        latencyTracer.begin(AnalyticsLatencyTracer.EventKind.TRACK, System.currentTimeMillis(),
+                System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(50));
+        latencyTracer.attachTimings(hitBuilder, true);
+
+        // verify
+        Map<String, String> contextData = (Map<String, String>) hitBuilder.build().get(AnalyticsConstants.XDMDataKeys.CONTEXT_DATA);
+        assertTrue(Long.parseLong(contextData.get(AnalyticsConstants.ContextDataKeys.LATENCY_QUEUE_WAIT)) >= 50);
+        assertTrue(Long.parseLong(contextData.get(AnalyticsConstants.ContextDataKeys.LATENCY_PROCESSING)) >= 0);
+        assertTrue(Long.parseLong(contextData.get(AnalyticsConstants.ContextDataKeys.LATENCY_TOTAL)) >= 0);
+    }
+}
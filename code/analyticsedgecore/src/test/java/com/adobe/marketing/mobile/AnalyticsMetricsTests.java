@@ -0,0 +1,171 @@
+/*
+  Copyright 2021 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AnalyticsMetricsTests {
+
+    @Test
+    public void test_stripedCounter_SumsConcurrentIncrements() throws Exception {
+        // setup
+        final int threadCount = 4;
+        final int incrementsPerThread = 10000;
+        final AnalyticsMetrics.StripedCounter counter = new AnalyticsMetrics.StripedCounter();
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final List<Thread> threads = new ArrayList<>();
+
+        for (int t = 0; t < threadCount; t++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startLatch.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+
+                    for (int i = 0; i < incrementsPerThread; i++) {
+                        counter.increment();
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        // test
+        startLatch.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // verify
+        assertEquals(threadCount * incrementsPerThread, counter.sum());
+    }
+
+    @Test
+    public void test_histogram_Percentiles() {
+        // setup
+        AnalyticsMetrics.Histogram histogram = new AnalyticsMetrics.Histogram();
+
+        // test
+        for (int i = 0; i < 90; i++) {
+            histogram.record(3);
+        }
+        for (int i = 0; i < 9; i++) {
+            histogram.record(80);
+        }
+        histogram.record(45000);
+
+        // verify
+        assertEquals(100, histogram.count());
+        assertEquals(5, histogram.percentile(0.5));
+        assertEquals(100, histogram.percentile(0.95));
+        assertEquals(100, histogram.percentile(0.99));
+        assertEquals(45000, histogram.percentile(1));
+    }
+
+    @Test
+    public void test_histogram_PercentileCappedByMaximum() {
+        // setup
+        AnalyticsMetrics.Histogram histogram = new AnalyticsMetrics.Histogram();
+
+        // test
+        histogram.record(7);
+        histogram.record(-5);
+
+        // verify
+        assertEquals(2, histogram.count());
+        assertEquals(1, histogram.percentile(0.5));
+        assertEquals(7, histogram.percentile(0.99));
+    }
+
+    @Test
+    public void test_histogram_Empty() {
+        assertEquals(0, new AnalyticsMetrics.Histogram().percentile(0.5));
+    }
+
+    @Test
+    public void test_rateWindow_CountsRecentSecondsOnly() {
+        // setup
+        AnalyticsMetrics.RateWindow rateWindow = new AnalyticsMetrics.RateWindow();
+
+        // test
+        for (int i = 0; i < 50; i++) {
+            rateWindow.record(1000000);
+        }
+        for (int i = 0; i < 20; i++) {
+            rateWindow.record(1015000);
+        }
+
+        // verify, the window ending at 1019999 spans 10 seconds and no longer holds the first 50 occurrences
+        assertEquals(2, rateWindow.perSecond(1019999, 60000));
+        assertEquals(0, rateWindow.perSecond(1030000, 60000));
+    }
+
+    @Test
+    public void test_rateWindow_ShorterUptime() {
+        // setup
+        AnalyticsMetrics.RateWindow rateWindow = new AnalyticsMetrics.RateWindow();
+
+        // test
+        for (int i = 0; i < 20; i++) {
+            rateWindow.record(1000500);
+        }
+
+        // verify
+        assertEquals(10, rateWindow.perSecond(1001999, 2000));
+        assertEquals(0, new AnalyticsMetrics.RateWindow().perSecond(1001999, 2000));
+    }
+
+    @Test
+    public void test_snapshot() {
+        // setup
+        AnalyticsMetrics metrics = new AnalyticsMetrics();
+        metrics.eventsQueued.add(3);
+        metrics.eventsProcessed.add(2);
+        metrics.eventsDroppedOptOut.increment();
+        metrics.hitsDispatched.add(2);
+        metrics.eventLatency.record(20);
+        metrics.eventLatency.record(30);
+
+        // test
+        Map<String, Object> snapshot = metrics.snapshot();
+
+        // verify
+        assertEquals(3L, snapshot.get(AnalyticsConstants.MetricsKeys.EVENTS_QUEUED));
+        assertEquals(2L, snapshot.get(AnalyticsConstants.MetricsKeys.EVENTS_PROCESSED));
+        assertEquals(1L, snapshot.get(AnalyticsConstants.MetricsKeys.EVENTS_DROPPED_OPT_OUT));
+        assertEquals(0L, snapshot.get(AnalyticsConstants.MetricsKeys.EVENTS_DROPPED_MISSING_DATA));
+        assertEquals(0L, snapshot.get(AnalyticsConstants.MetricsKeys.EVENTS_SAMPLED_OUT));
+        assertEquals(0L, snapshot.get(AnalyticsConstants.MetricsKeys.HITS_SUPPRESSED));
+        assertEquals(0L, snapshot.get(AnalyticsConstants.MetricsKeys.CONTEXT_DATA_KEYS_FILTERED));
+        assertEquals(0L, snapshot.get(AnalyticsConstants.MetricsKeys.CONTEXT_DATA_TRUNCATED));
+        assertEquals(0L, snapshot.get(AnalyticsConstants.MetricsKeys.HITS_DROPPED_OVERSIZE));
+        assertEquals(2L, snapshot.get(AnalyticsConstants.MetricsKeys.HITS_DISPATCHED));
+        assertTrue((Long) snapshot.get(AnalyticsConstants.MetricsKeys.UPTIME) > 0);
+        assertEquals(2L, snapshot.get(AnalyticsConstants.MetricsKeys.EVENT_LATENCY + AnalyticsConstants.MetricsKeys.HISTOGRAM_COUNT));
+        assertEquals(50L, snapshot.get(AnalyticsConstants.MetricsKeys.EVENT_LATENCY + AnalyticsConstants.MetricsKeys.HISTOGRAM_TOTAL));
+        assertEquals(25L, snapshot.get(AnalyticsConstants.MetricsKeys.EVENT_LATENCY + AnalyticsConstants.MetricsKeys.HISTOGRAM_P50));
+        assertEquals(0L, snapshot.get(AnalyticsConstants.MetricsKeys.CONFIGURATION_WAIT + AnalyticsConstants.MetricsKeys.HISTOGRAM_COUNT));
+    }
+}
@@ -0,0 +1,60 @@
+/*
+  Copyright 2021 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile;
+
+import org.junit.Test;
+
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class AnalyticsPayloadLimitsTests {
+
+    @Test
+    public void test_utf8Length_MatchesEncodedLength() {
+        // setup
+        String[] values = new String[] {"", "ascii", "caf\u00e9", "\u20ac100", "\ud83d\ude00 smile", "mixed \u00e9\u20ac\ud83d\ude00"};
+
+        // verify
+        for (String value : values) {
+            assertEquals(value, value.getBytes(Charset.forName("UTF-8")).length, AnalyticsPayloadLimits.utf8Length(value));
+        }
+
+        assertEquals(0, AnalyticsPayloadLimits.utf8Length(null));
+        assertEquals(3, AnalyticsPayloadLimits.utf8Length("\ud83d"));
+    }
+
+    @Test
+    public void test_estimateEntrySize() {
+        // verify
+        assertEquals(AnalyticsPayloadLimits.ENTRY_OVERHEAD_BYTES + 4, AnalyticsPayloadLimits.estimateEntrySize("ab", "cd"));
+        assertEquals(AnalyticsPayloadLimits.ENTRY_OVERHEAD_BYTES + 4, AnalyticsPayloadLimits.estimateEntrySize("ndh", 1));
+        assertEquals(AnalyticsPayloadLimits.ENTRY_OVERHEAD_BYTES + 5, AnalyticsPayloadLimits.estimateEntrySize("a", null));
+    }
+
+    @Test
+    public void test_truncate() {
+        // setup
+        AnalyticsPayloadLimits limits = new AnalyticsPayloadLimits(0, 4, 0);
+        String value = "abcd";
+
+        // verify
+        assertSame(value, limits.truncate(value));
+        assertEquals("abcd", limits.truncate("abcdef"));
+        assertEquals("abc", limits.truncate("abc\ud83d\ude00"));
+        assertNull(limits.truncate(null));
+        assertEquals("abcdef", AnalyticsPayloadLimits.NONE.truncate("abcdef"));
+    }
+}
@@ -0,0 +1,200 @@
+/*
+  Copyright 2021 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class AnalyticsSamplerTests {
+
+    private AnalyticsSampler createSampler(final String analyticsId, final String visitorId) {
+        AnalyticsSampler sampler = new AnalyticsSampler();
+        sampler.setVisitor(analyticsId, visitorId, 0);
+        return sampler;
+    }
+
+    @Test
+    public void test_sample_FullRateByDefault() {
+        // setup
+        AnalyticsSampler sampler = createSampler("aid", "vid");
+
+        // test
+        AnalyticsSampler.Rate rate = sampler.sample("action", "state");
+
+        // verify
+        assertSame(AnalyticsSampler.FULL_RATE, rate);
+        assertTrue(rate.isFullRate());
+    }
+
+    @Test
+    public void test_sample_ZeroRateSamplesOut() {
+        // setup
+        AnalyticsSampler sampler = createSampler("aid", "vid");
+
+        // test
+        sampler.setRates(0, null, null);
+
+        // verify
+        assertNull(sampler.sample("action", null));
+        assertNull(sampler.sample(null, "state"));
+    }
+
+    @Test
+    public void test_sample_DeterministicPerVisitor() {
+        // setup
+        AnalyticsSampler sampler = createSampler("aid", "vid");
+        AnalyticsSampler sameVisitorSampler = createSampler("aid", "vid");
+
+        // test
+        sampler.setRates(0.5, null, null);
+        sameVisitorSampler.setRates(0.5, null, null);
+
+        // verify
+        for (int i = 0; i < 10; i++) {
+            assertNotNull(sampler.sample("action" + i, null));
+            assertNotNull(sameVisitorSampler.sample("action" + i, null));
+        }
+
+        sampler.setRates(0.3, null, null);
+        for (int i = 0; i < 10; i++) {
+            assertNull(sampler.sample("action" + i, null));
+        }
+    }
+
+    @Test
+    public void test_sample_SampledInAtHigherRates() {
+        for (int i = 0; i < 1000; i++) {
+            // setup
+            AnalyticsSampler sampler = createSampler("aid" + i, null);
+            sampler.setRates(0.2, null, null);
+            boolean sampledInAtLowRate = sampler.sample(null, null) != null;
+
+            // test
+            sampler.setRates(0.6, null, null);
+
+            // verify
+            if (sampledInAtLowRate) {
+                assertNotNull(sampler.sample(null, null));
+            }
+        }
+    }
+
+    @Test
+    public void test_sample_FractionOfVisitorsMatchesRate() {
+        // setup
+        int visitorCount = 20000;
+        int sampledInCount = 0;
+
+        // test
+        for (int i = 0; i < visitorCount; i++) {
+            AnalyticsSampler sampler = createSampler("aid" + i, "vid" + i);
+            sampler.setRates(0.25, null, null);
+
+            if (sampler.sample(null, null) != null) {
+                sampledInCount++;
+            }
+        }
+
+        // verify
+        assertEquals(0.25, (double) sampledInCount / visitorCount, 0.02);
+    }
+
+    @Test
+    public void test_sample_ActionOverridesStateOverridesGlobal() {
+        // setup
+        AnalyticsSampler sampler = createSampler("aid", "vid");
+        Map<String, Object> actionRates = new HashMap<>();
+        actionRates.put("purchase", 1);
+        Map<String, Object> stateRates = new HashMap<>();
+        stateRates.put("home", 0.5);
+        stateRates.put("checkout", 0.1);
+
+        // test
+        sampler.setRates(0.01, actionRates, stateRates);
+
+        // verify
+        assertSame(AnalyticsSampler.FULL_RATE, sampler.sample("purchase", "checkout"));
+        assertEquals(0.5, sampler.sample("click", "home").value, 0);
+        assertEquals("0.5", sampler.sample(null, "home").text);
+        assertNull(sampler.sample("click", "checkout"));
+        assertNull(sampler.sample("click", null));
+    }
+
+    @Test
+    public void test_setRates_InvalidRatesIgnored() {
+        // setup
+        AnalyticsSampler sampler = createSampler("aid", "vid");
+        Map<String, Object> actionRates = new HashMap<>();
+        actionRates.put("negative", -0.5);
+        actionRates.put("tooLarge", 2);
+        actionRates.put("notANumber", "0");
+
+        // test
+        sampler.setRates("0", actionRates, "notAMap");
+
+        // verify
+        assertSame(AnalyticsSampler.FULL_RATE, sampler.sample(null, null));
+        assertSame(AnalyticsSampler.FULL_RATE, sampler.sample("negative", null));
+        assertSame(AnalyticsSampler.FULL_RATE, sampler.sample("tooLarge", null));
+        assertSame(AnalyticsSampler.FULL_RATE, sampler.sample("notANumber", null));
+    }
+
+    @Test
+    public void test_setVisitor_NoIdentifiers() {
+        // setup
+        AnalyticsSampler sampler = createSampler(null, "");
+
+        // test
+        sampler.setRates(0, null, null);
+
+        // verify
+        assertNull(sampler.sample(null, null));
+        sampler.setRates(1, null, null);
+        assertSame(AnalyticsSampler.FULL_RATE, sampler.sample(null, null));
+    }
+
+    @Test
+    public void test_setVisitor_NoIdentifiers_BucketDerivedFromSeed() {
+        // setup
+        int seedCount = 20000;
+        int sampledInCount = 0;
+
+        // test
+        for (int i = 0; i < seedCount; i++) {
+            AnalyticsSampler sampler = new AnalyticsSampler();
+            sampler.setVisitor(null, null, i);
+            sampler.setRates(0.25, null, null);
+            AnalyticsSampler sameSeedSampler = new AnalyticsSampler();
+            sameSeedSampler.setVisitor(null, null, i);
+            sameSeedSampler.setRates(0.25, null, null);
+
+            // verify
+            assertEquals(sampler.sample(null, null) != null, sameSeedSampler.sample(null, null) != null);
+
+            if (sampler.sample(null, null) != null) {
+                sampledInCount++;
+            }
+        }
+
+        // verify
+        assertEquals(0.25, (double) sampledInCount / seedCount, 0.02);
+    }
+}
@@ -0,0 +1,128 @@
+/*
+  Copyright 2021 Adobe. All rights reserved.
+  This file is licensed to you under the Apache License, Version 2.0 (the "License");
+  you may not use this file except in compliance with the License. You may obtain a copy
+  of the License at http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software distributed under
+  the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR REPRESENTATIONS
+  OF ANY KIND, either express or implied. See the License for the specific language
+  governing permissions and limitations under the License.
+*/
+
+package com.adobe.marketing.mobile;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class AnalyticsTimezoneOffsetProviderTests {
+
+    private TimeZone defaultTimeZone;
+
+    @Before
+    public void setup() {
+        defaultTimeZone = TimeZone.getDefault();
+    }
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(defaultTimeZone);
+    }
+
+    @Test
+    public void test_getTimezoneOffsetMinutes() {
+        // January, standard time
+        long winterTime = new GregorianCalendar(2021, Calendar.JANUARY, 15).getTimeInMillis();
+        // July, daylight saving time
+        long summerTime = new GregorianCalendar(2021, Calendar.JULY, 15).getTimeInMillis();
+
+        assertEquals(0, AnalyticsTimezoneOffsetProvider.getTimezoneOffsetMinutes(TimeZone.getTimeZone("UTC"), winterTime));
+        assertEquals(480, AnalyticsTimezoneOffsetProvider.getTimezoneOffsetMinutes(TimeZone.getTimeZone("America/Los_Angeles"), winterTime));
+        assertEquals(420, AnalyticsTimezoneOffsetProvider.getTimezoneOffsetMinutes(TimeZone.getTimeZone("America/Los_Angeles"), summerTime));
+        assertEquals(-330, AnalyticsTimezoneOffsetProvider.getTimezoneOffsetMinutes(TimeZone.getTimeZone("Asia/Kolkata"), summerTime));
+    }
+
+    @Test
+    public void test_getTimestampTimezoneOffset_Format() {
+        // setup
+        TimeZone.setDefault(TimeZone.getTimeZone("Asia/Kolkata"));
+
+        // test
+        String timestamp = new AnalyticsTimezoneOffsetProvider().getTimestampTimezoneOffset();
+
+        // verify
+        assertEquals("00/00/0000 00:00:00 0 -330", timestamp);
+    }
+
+    @Test
+    public void test_getTimestampTimezoneOffset_CachedWithinRefreshInterval() {
+        // setup
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+        AnalyticsTimezoneOffsetProvider provider = new AnalyticsTimezoneOffsetProvider();
+        long time = System.currentTimeMillis();
+        String timestamp = provider.getTimestampTimezoneOffset(time);
+
+        // test
+        TimeZone.setDefault(TimeZone.getTimeZone("Asia/Kolkata"));
+
+        // verify
+        assertSame(timestamp, provider.getTimestampTimezoneOffset(time + AnalyticsTimezoneOffsetProvider.REFRESH_INTERVAL_MILLIS - 1));
+        assertEquals("00/00/0000 00:00:00 0 -330", provider.getTimestampTimezoneOffset(time + AnalyticsTimezoneOffsetProvider.REFRESH_INTERVAL_MILLIS));
+    }
+
+    @Test
+    public void test_getTimestampTimezoneOffset_UnchangedOffsetReusesString() {
+        // setup
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+        AnalyticsTimezoneOffsetProvider provider = new AnalyticsTimezoneOffsetProvider();
+        long time = System.currentTimeMillis();
+
+        // test
+        String timestamp = provider.getTimestampTimezoneOffset(time);
+
+        // verify
+        assertSame(timestamp, provider.getTimestampTimezoneOffset(time + 5 * AnalyticsTimezoneOffsetProvider.REFRESH_INTERVAL_MILLIS));
+    }
+
+    @Test
+    public void test_invalidate_RefreshesOnNextCall() {
+        // setup
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+        AnalyticsTimezoneOffsetProvider provider = new AnalyticsTimezoneOffsetProvider();
+        long time = System.currentTimeMillis();
+        assertEquals("00/00/0000 00:00:00 0 0", provider.getTimestampTimezoneOffset(time));
+        TimeZone.setDefault(TimeZone.getTimeZone("America/Los_Angeles"));
+
+        // test
+        provider.invalidate();
+
+        // verify
+        String expected = "00/00/0000 00:00:00 0 " +
+                AnalyticsTimezoneOffsetProvider.getTimezoneOffsetMinutes(TimeZone.getTimeZone("America/Los_Angeles"), time + 1);
+        assertEquals(expected, provider.getTimestampTimezoneOffset(time + 1));
+    }
+
+    @Test
+    public void test_getTimestampTimezoneOffset_ClockMovedBackwards() {
+        // setup
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+        AnalyticsTimezoneOffsetProvider provider = new AnalyticsTimezoneOffsetProvider();
+        long time = System.currentTimeMillis();
+        provider.getTimestampTimezoneOffset(time);
+        TimeZone.setDefault(TimeZone.getTimeZone("Asia/Kolkata"));
+
+        // test
+        String timestamp = provider.getTimestampTimezoneOffset(time - 1000);
+
+        // verify
+        assertEquals("00/00/0000 00:00:00 0 -330", timestamp);
+    }
+}